@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,8 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -37,6 +39,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 
 import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.IFileBuffer;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
 import org.eclipse.core.filebuffers.ITextFileBufferManager;
 import org.eclipse.core.filebuffers.LocationKind;
@@ -602,4 +605,75 @@ public class FileBufferCreation {
 		manager.disconnectFileStore(fileStore, null);
 		assertNull(manager.getFileStoreTextFileBuffer(fileStore));
 	}
+
+	/*
+	 * Tests connecting and disconnecting several files at once.
+	 */
+	@Test
+	public void testBulkConnect() throws Exception {
+		IFolder folder= ResourceHelper.createFolder("project/folderA/");
+		IPath[] paths= new IPath[3];
+		for (int i= 0; i < paths.length; i++)
+			paths[i]= ResourceHelper.createFile(folder, "file" + i, CONTENT1).getFullPath();
+
+		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
+		manager.connect(paths, LocationKind.IFILE, null);
+		for (int i= 0; i < paths.length; i++)
+			assertNotNull(manager.getTextFileBuffer(paths[i], LocationKind.IFILE));
+
+		manager.disconnect(paths, LocationKind.IFILE, null);
+		for (int i= 0; i < paths.length; i++)
+			assertNull(manager.getTextFileBuffer(paths[i], LocationKind.IFILE));
+	}
+
+	/*
+	 * Tests that connections from several threads are counted correctly.
+	 */
+	@Test
+	public void testConcurrentConnect() throws Exception {
+		IFolder folder= ResourceHelper.createFolder("project/folderA/");
+		final IPath[] paths= new IPath[10];
+		for (int i= 0; i < paths.length; i++)
+			paths[i]= ResourceHelper.createFile(folder, "file" + i, CONTENT1).getFullPath();
+
+		final ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
+		// keep one connection so that the buffers survive the threads
+		manager.connect(paths, LocationKind.IFILE, null);
+		IFileBuffer[] buffers= new IFileBuffer[paths.length];
+		for (int i= 0; i < paths.length; i++)
+			buffers[i]= manager.getFileBuffer(paths[i], LocationKind.IFILE);
+
+		final List<Throwable> problems= new ArrayList<>();
+		Thread[] threads= new Thread[8];
+		for (int t= 0; t < threads.length; t++) {
+			threads[t]= new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int round= 0; round < 100; round++) {
+							IPath path= paths[round % paths.length];
+							manager.connect(path, LocationKind.IFILE, null);
+							if (manager.getTextFileBuffer(path, LocationKind.IFILE) == null)
+								throw new AssertionError("no buffer for " + path);
+							manager.disconnect(path, LocationKind.IFILE, null);
+						}
+					} catch (Throwable e) {
+						synchronized (problems) {
+							problems.add(e);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t= 0; t < threads.length; t++)
+			threads[t].join();
+		assertTrue(problems.toString(), problems.isEmpty());
+
+		for (int i= 0; i < paths.length; i++)
+			assertSame(buffers[i], manager.getFileBuffer(paths[i], LocationKind.IFILE));
+		manager.disconnect(paths, LocationKind.IFILE, null);
+		for (int i= 0; i < paths.length; i++)
+			assertNull(manager.getFileBuffer(paths[i], LocationKind.IFILE));
+	}
 }
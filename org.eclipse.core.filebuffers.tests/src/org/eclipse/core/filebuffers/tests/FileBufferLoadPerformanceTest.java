@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.jface.text.Document;
+
+/**
+ * Compares the time needed to load large files into file buffers with reading them through a
+ * buffered reader into a document. Not part of the default test suite, see
+ * {@link FileBuffersPerformanceTestSuite}.
+ *
+ * @since 3.7
+ */
+public class FileBufferLoadPerformanceTest {
+
+	private static final int LINES= 200000;
+	private static final int RUNS= 3;
+
+	private IProject fProject;
+	private ITextFileBufferManager fManager;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= ResourceHelper.createProject("project");
+		fManager= FileBuffers.getTextFileBufferManager();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ResourceHelper.deleteProject("project");
+	}
+
+	private IFile createFile(String name, String encoding) throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < LINES; i++)
+			content.append("line ").append(i).append(" \u00e4\u00f6\u00fc \u4e2d\u6587\n");
+		IFile file= fProject.getFile(name);
+		file.create(new ByteArrayInputStream(content.toString().getBytes(encoding)), true, null);
+		file.setCharset(encoding, null);
+		return file;
+	}
+
+	private long measureLoading(IFile file, LocationKind locationKind) throws Exception {
+		IPath path= locationKind == LocationKind.IFILE ? file.getFullPath() : file.getLocation();
+		long best= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			long start= System.nanoTime();
+			fManager.connect(path, locationKind, null);
+			best= Math.min(best, System.nanoTime() - start);
+			fManager.disconnect(path, locationKind, null);
+		}
+		return best;
+	}
+
+	private static long measureReading(IFile file) throws Exception {
+		long best= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			long start= System.nanoTime();
+			StringBuffer buffer= new StringBuffer();
+			try (Reader reader= new BufferedReader(new InputStreamReader(new FileInputStream(file.getLocation().toFile()), file.getCharset()))) {
+				char[] chars= new char[2048];
+				int read;
+				while ((read= reader.read(chars)) != -1)
+					buffer.append(chars, 0, read);
+			}
+			Document document= new Document(buffer.toString());
+			best= Math.min(best, System.nanoTime() - start);
+			assertEquals(LINES + 1, document.getNumberOfLines());
+		}
+		return best;
+	}
+
+	private void assertLoadingNotSlower(IFile file) throws Exception {
+		long reading= measureReading(file);
+		for (LocationKind locationKind : new LocationKind[] { LocationKind.IFILE, LocationKind.LOCATION }) {
+			long loading= measureLoading(file, locationKind);
+			assertTrue("loading " + file.getName() + " (" + locationKind + ") took " + loading / 1000000 + " ms, reading " + reading / 1000000 + " ms", loading <= reading * 3 / 2);
+		}
+	}
+
+	@Test
+	public void testUTF8() throws Exception {
+		assertLoadingNotSlower(createFile("utf8.txt", "UTF-8"));
+	}
+
+	@Test
+	public void testUTF16() throws Exception {
+		assertLoadingNotSlower(createFile("utf16.txt", "UTF-16"));
+	}
+}
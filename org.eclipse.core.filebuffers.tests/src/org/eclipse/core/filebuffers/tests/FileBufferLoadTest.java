@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+
+/**
+ * Loads files with different encodings into file buffers and checks the content. The files are
+ * larger than the buffers used for decoding.
+ *
+ * @since 3.7
+ */
+public class FileBufferLoadTest {
+
+	private static final int LINES= 2000;
+
+	private IProject fProject;
+	private ITextFileBufferManager fManager;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= ResourceHelper.createProject("project");
+		fManager= FileBuffers.getTextFileBufferManager();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ResourceHelper.deleteProject("project");
+	}
+
+	private static String createContent() {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < LINES; i++)
+			content.append("line ").append(i).append(" \u00e4\u00f6\u00fc \u4e2d\u6587\n");
+		return content.toString();
+	}
+
+	private IFile createFile(String name, String content, String encoding, byte[] bom) throws Exception {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		if (bom != null)
+			bytes.write(bom);
+		bytes.write(content.getBytes(encoding));
+		IFile file= fProject.getFile(name);
+		file.create(new ByteArrayInputStream(bytes.toByteArray()), true, null);
+		file.setCharset(encoding, null);
+		return file;
+	}
+
+	private void assertLoaded(IFile file, String content, LocationKind locationKind) throws Exception {
+		IPath path= locationKind == LocationKind.IFILE ? file.getFullPath() : file.getLocation();
+		fManager.connect(path, locationKind, null);
+		try {
+			assertEquals(content, fManager.getTextFileBuffer(path, locationKind).getDocument().get());
+		} finally {
+			fManager.disconnect(path, locationKind, null);
+		}
+	}
+
+	@Test
+	public void testUTF8() throws Exception {
+		String content= createContent();
+		IFile file= createFile("utf8.txt", content, "UTF-8", null);
+		assertLoaded(file, content, LocationKind.IFILE);
+	}
+
+	@Test
+	public void testUTF8WithBOM() throws Exception {
+		String content= createContent();
+		IFile file= createFile("utf8bom.txt", content, "UTF-8", new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+		assertLoaded(file, content, LocationKind.IFILE);
+		assertLoaded(file, content, LocationKind.LOCATION);
+	}
+
+	@Test
+	public void testUTF16() throws Exception {
+		String content= createContent();
+		IFile file= createFile("utf16.txt", content, "UTF-16", null);
+		assertLoaded(file, content, LocationKind.IFILE);
+		assertLoaded(file, content, LocationKind.LOCATION);
+	}
+}
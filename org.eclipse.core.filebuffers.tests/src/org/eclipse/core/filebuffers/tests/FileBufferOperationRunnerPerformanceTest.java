@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.filebuffers.manipulation.ConvertLineDelimitersOperation;
+import org.eclipse.core.filebuffers.manipulation.IFileBufferOperation;
+import org.eclipse.core.filebuffers.manipulation.RemoveTrailingWhitespaceOperation;
+
+/**
+ * Compares the throughput of file buffer operations run sequentially and in parallel. Not part of
+ * the default test suite, see {@link FileBuffersPerformanceTestSuite}.
+ *
+ * @since 3.7
+ */
+public class FileBufferOperationRunnerPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+
+	private final FileBufferOperationRunnerTest fRunnerTest= new FileBufferOperationRunnerTest();
+
+	@Before
+	public void setUp() throws Exception {
+		fRunnerTest.setUp();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fRunnerTest.tearDown();
+	}
+
+	/**
+	 * Returns the fastest time to run the operation on a new file tree.
+	 *
+	 * @param operation the operation
+	 * @param parallel whether to run the operation in parallel
+	 * @return the time in nanoseconds
+	 * @throws Exception if the file tree cannot be created or the operation fails
+	 */
+	private static long measure(IFileBufferOperation operation, boolean parallel) throws Exception {
+		long best= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			IPath[] locations= FileBufferOperationRunnerTest.createFileTree((parallel ? "parallel" : "sequential") + i);
+			long start= System.nanoTime();
+			FileBufferOperationRunnerTest.run(locations, operation, parallel);
+			best= Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static void assertParallelFaster(IFileBufferOperation operation) throws Exception {
+		long sequential= measure(operation, false);
+		long parallel= measure(operation, true);
+		assertTrue(operation.getOperationName() + ": parallel " + parallel / 1000000 + " ms, sequential " + sequential / 1000000 + " ms", parallel < sequential);
+	}
+
+	@Test
+	public void testConvertLineDelimiters() throws Exception {
+		assertParallelFaster(new ConvertLineDelimitersOperation("\n"));
+	}
+
+	@Test
+	public void testRemoveTrailingWhitespace() throws Exception {
+		assertParallelFaster(new RemoveTrailingWhitespaceOperation());
+	}
+}
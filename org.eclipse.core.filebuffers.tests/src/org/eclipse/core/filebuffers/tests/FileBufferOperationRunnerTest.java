@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.manipulation.ConvertLineDelimitersOperation;
+import org.eclipse.core.filebuffers.manipulation.GenericFileBufferOperationRunner;
+import org.eclipse.core.filebuffers.manipulation.IFileBufferOperation;
+import org.eclipse.core.filebuffers.manipulation.RemoveTrailingWhitespaceOperation;
+
+/**
+ * Runs file buffer operations over a generated file tree, sequentially and in parallel, and
+ * compares the results. The throughput of both modes is compared by
+ * {@link FileBufferOperationRunnerPerformanceTest}.
+ *
+ * @since 3.7
+ */
+public class FileBufferOperationRunnerTest {
+
+	private static final int FOLDERS= 10;
+	private static final int FILES_PER_FOLDER= 50;
+	private static final int LINES= 200;
+
+	@Before
+	public void setUp() throws Exception {
+		ResourceHelper.createProject("project");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ResourceHelper.deleteProject("project");
+	}
+
+	static IPath[] createFileTree(String name) throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < LINES; i++) {
+			content.append("line ").append(i);
+			if (i % 3 == 0)
+				content.append(" \t ");
+			content.append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+		List<IPath> locations= new ArrayList<>();
+		for (int i= 0; i < FOLDERS; i++) {
+			IFolder folder= ResourceHelper.createFolder("project/" + name + "/folder" + i + "/");
+			for (int k= 0; k < FILES_PER_FOLDER; k++) {
+				IFile file= ResourceHelper.createFile(folder, "file" + k + ".txt", content.toString());
+				locations.add(file.getFullPath());
+			}
+		}
+		return locations.toArray(new IPath[locations.size()]);
+	}
+
+	static void run(IPath[] locations, IFileBufferOperation operation, boolean parallel) throws Exception {
+		GenericFileBufferOperationRunner runner= new GenericFileBufferOperationRunner(FileBuffers.getTextFileBufferManager(), null);
+		runner.enableParallelExecution(parallel);
+		runner.execute(locations, operation, null);
+	}
+
+	private static void assertSameContents(IPath[] expected, IPath[] actual) throws Exception {
+		assertEquals(expected.length, actual.length);
+		IWorkspaceRoot root= ResourcesPlugin.getWorkspace().getRoot();
+		for (int i= 0; i < expected.length; i++) {
+			IFile expectedFile= root.getFile(expected[i]);
+			IFile actualFile= root.getFile(actual[i]);
+			assertEquals(actual[i].toString(), FileTool.read(expectedFile.getLocation().toFile().getPath()).toString(), FileTool.read(actualFile.getLocation().toFile().getPath()).toString());
+		}
+	}
+
+	@Test
+	public void testConvertLineDelimiters() throws Exception {
+		IPath[] sequential= createFileTree("sequential");
+		IPath[] parallel= createFileTree("parallel");
+		run(sequential, new ConvertLineDelimitersOperation("\n"), false);
+		run(parallel, new ConvertLineDelimitersOperation("\n"), true);
+		assertSameContents(sequential, parallel);
+	}
+
+	@Test
+	public void testRemoveTrailingWhitespace() throws Exception {
+		IPath[] sequential= createFileTree("sequential");
+		IPath[] parallel= createFileTree("parallel");
+		run(sequential, new RemoveTrailingWhitespaceOperation(), false);
+		run(parallel, new RemoveTrailingWhitespaceOperation(), true);
+		assertSameContents(sequential, parallel);
+	}
+}
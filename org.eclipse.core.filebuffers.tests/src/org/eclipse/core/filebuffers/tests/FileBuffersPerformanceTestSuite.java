@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+
+/**
+ * Performance tests for org.eclipse.core.filebuffers. They take long and depend on the machine,
+ * hence they are not part of {@link FileBuffersTestSuite}.
+ *
+ * @since 3.7
+ */
+@RunWith(Suite.class)
+@SuiteClasses({
+		FileBufferLoadPerformanceTest.class,
+		FileBufferOperationRunnerPerformanceTest.class,
+		TextFileBufferManagerPerformanceTest.class
+})
+public class FileBuffersPerformanceTestSuite {
+	// see @SuiteClasses
+}
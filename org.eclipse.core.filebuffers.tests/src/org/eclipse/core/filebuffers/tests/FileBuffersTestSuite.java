@@ -36,7 +36,9 @@ import org.junit.runners.Suite.SuiteClasses;
 		FileStoreFileBuffersForNonExistingExternalFiles.class,
 		FileStoreFileBuffersForNonExistingWorkspaceFiles.class,
 		TextFileManagerDocCreationTests.class,
-		ResourceTextFileManagerDocCreationTests.class
+		ResourceTextFileManagerDocCreationTests.class,
+		FileBufferOperationRunnerTest.class,
+		FileBufferLoadTest.class
 })
 public class FileBuffersTestSuite {
 	// see @SuiteClasses
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.filebuffers.tests;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+
+/**
+ * Compares the time needed to connect, get and disconnect file buffers from one thread and from
+ * several threads at once. Not part of the default test suite, see
+ * {@link FileBuffersPerformanceTestSuite}.
+ *
+ * @since 3.7
+ */
+public class TextFileBufferManagerPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+	private static final int FILES= 1000;
+	private static final int ROUNDS= 200;
+	private static final int THREADS= Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private ITextFileBufferManager fManager;
+	private IPath[] fPaths;
+
+	@Before
+	public void setUp() throws Exception {
+		ResourceHelper.createProject("project");
+		IFolder folder= ResourceHelper.createFolder("project/folder/");
+		fPaths= new IPath[FILES];
+		for (int i= 0; i < FILES; i++)
+			fPaths[i]= ResourceHelper.createFile(folder, "file" + i, "content of file " + i).getFullPath();
+		fManager= FileBuffers.getTextFileBufferManager();
+		// keep one connection so that the measurements do not include loading the files
+		fManager.connect(fPaths, LocationKind.IFILE, null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fManager.disconnect(fPaths, LocationKind.IFILE, null);
+		for (int i= 0; i < FILES; i++)
+			assertNull(fManager.getFileBuffer(fPaths[i], LocationKind.IFILE));
+		ResourceHelper.deleteProject("project");
+	}
+
+	/**
+	 * Connects, gets and disconnects every <code>step</code>-th file, starting with the given one.
+	 *
+	 * @param first the index of the first file
+	 * @param step the distance between the files
+	 * @throws Exception if connecting or disconnecting fails
+	 */
+	private void connectAndDisconnect(int first, int step) throws Exception {
+		for (int round= 0; round < ROUNDS; round++) {
+			for (int i= first; i < FILES; i+= step) {
+				fManager.connect(fPaths[i], LocationKind.IFILE, null);
+				if (fManager.getTextFileBuffer(fPaths[i], LocationKind.IFILE) == null)
+					throw new AssertionError("no buffer for " + fPaths[i]);
+				fManager.disconnect(fPaths[i], LocationKind.IFILE, null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the fastest time to connect, get and disconnect each file {@link #ROUNDS} times.
+	 *
+	 * @param threadCount the number of threads which share the files
+	 * @return the time in nanoseconds
+	 * @throws Exception if a thread fails
+	 */
+	private long measure(final int threadCount) throws Exception {
+		long best= Long.MAX_VALUE;
+		for (int run= 0; run < RUNS; run++) {
+			final List<Throwable> problems= new ArrayList<>();
+			Thread[] threads= new Thread[threadCount];
+			for (int t= 0; t < threads.length; t++) {
+				final int first= t;
+				threads[t]= new Thread() {
+					@Override
+					public void run() {
+						try {
+							connectAndDisconnect(first, threadCount);
+						} catch (Throwable e) {
+							synchronized (problems) {
+								problems.add(e);
+							}
+						}
+					}
+				};
+			}
+			long start= System.nanoTime();
+			for (int t= 0; t < threads.length; t++)
+				threads[t].start();
+			for (int t= 0; t < threads.length; t++)
+				threads[t].join();
+			best= Math.min(best, System.nanoTime() - start);
+			assertTrue(problems.toString(), problems.isEmpty());
+		}
+		return best;
+	}
+
+	@Test
+	public void testConcurrentConnect() throws Exception {
+		long sequential= measure(1);
+		long parallel= measure(THREADS);
+		assertTrue(FILES * ROUNDS + " connections: " + THREADS + " threads " + parallel / 1000000 + " ms, 1 thread " + sequential / 1000000 + " ms", parallel < sequential);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -96,6 +96,21 @@ public interface IFileBufferManager {
 	 */
 	void connectFileStore(IFileStore fileStore, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Connects the files at the given locations to this manager. This is equivalent to calling
+	 * {@link #connect(IPath, LocationKind, IProgressMonitor)} for each location, except that
+	 * either all or none of the files are connected: if a file cannot be connected, the files
+	 * connected so far are disconnected again.
+	 *
+	 * @param locations the locations of the files to be connected
+	 * @param locationKind the kind of the given locations
+	 * @param monitor the progress monitor, or <code>null</code> if progress reporting is not desired
+	 * @throws CoreException if one of the files could not successfully be connected
+	 * @see LocationKind
+	 * @since 3.7
+	 */
+	void connect(IPath[] locations, LocationKind locationKind, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Disconnects the file at the given location from this manager. After that
 	 * call successfully completed there is no guarantee that <code>getFileBuffer</code>
@@ -133,6 +148,20 @@ public interface IFileBufferManager {
 	 */
 	void disconnect(IPath location, LocationKind locationKind, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Disconnects the files at the given locations from this manager. This is equivalent to
+	 * calling {@link #disconnect(IPath, LocationKind, IProgressMonitor)} for each location. All
+	 * files are disconnected even if disconnecting one of them fails.
+	 *
+	 * @param locations the locations of the files to be disconnected
+	 * @param locationKind the kind of the given locations
+	 * @param monitor the progress monitor, or <code>null</code> if progress reporting is not desired
+	 * @throws CoreException if one of the files could not successfully be disconnected
+	 * @see LocationKind
+	 * @since 3.7
+	 */
+	void disconnect(IPath[] locations, LocationKind locationKind, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Disconnects the given file store from this manager. After that
 	 * call successfully completed there is no guarantee that <code>getFileBuffer</code>
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,7 @@ final class FileBuffersMessages extends NLS {
 	public static String FileBufferOperationRunner_task_connecting;
 	public static String FileBufferOperationRunner_task_disconnecting;
 	public static String FileBufferOperationRunner_task_committing;
+	public static String GenericFileBufferOperationRunner_task_progress;
 	public static String ContainerCreator_task_creatingContainer;
 	public static String ContainerCreator_destinationMustBeAContainer;
 
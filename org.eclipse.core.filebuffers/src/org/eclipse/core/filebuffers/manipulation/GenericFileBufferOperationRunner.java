@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others.
+ * Copyright (c) 2007, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,19 @@
 package org.eclipse.core.filebuffers.manipulation;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.core.internal.filebuffers.FileBuffersPlugin;
+import org.eclipse.core.internal.filebuffers.NLSUtility;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -42,6 +53,12 @@ import org.eclipse.core.filebuffers.LocationKind;
  * {@link org.eclipse.core.filebuffers.manipulation.IFileBufferOperation}.
  * The runner takes care of all aspects that are not operation specific.
  * <p>
+ * By default the operation is performed on one file buffer after the other. If
+ * {@link #enableParallelExecution(boolean) parallel execution} is enabled, the file buffers that
+ * do not request a synchronization context are distributed among several threads, and the file
+ * buffers are committed in batches of buffers with the same commit rule.
+ * </p>
+ * <p>
  * This class is not intended to be subclassed. Clients instantiate this class.
  * </p>
  *
@@ -63,6 +80,30 @@ public class GenericFileBufferOperationRunner {
 	/** The exception thrown during the computation in the UI thread. */
 	private transient Throwable fThrowable;
 
+	/**
+	 * The maximum number of file buffers committed together in parallel execution.
+	 *
+	 * @since 3.7
+	 */
+	private static final int COMMIT_BATCH_SIZE= 100;
+
+	/**
+	 * Tells whether the operation is performed by several threads.
+	 *
+	 * @since 3.7
+	 */
+	private boolean fIsParallel= false;
+
+	/**
+	 * A task performed for each element of an array by {@link #runInParallel}.
+	 *
+	 * @param <T> the type of the elements
+	 * @since 3.7
+	 */
+	private interface Task<T> {
+		void run(T element, IProgressMonitor progressMonitor) throws CoreException;
+	}
+
 
 	/**
 	 * Creates a new file buffer operation runner.
@@ -75,6 +116,25 @@ public class GenericFileBufferOperationRunner {
 		fValidationContext= validationContext;
 	}
 
+	/**
+	 * Enables or disables parallel execution. When enabled, the operation is performed
+	 * concurrently on the file buffers that do not request a synchronization context, using one
+	 * thread per available processor. The other file buffers are still processed one after the
+	 * other in their synchronization context. The file buffers are then committed in batches
+	 * grouped by their commit rule, concurrently for batches with different rules.
+	 * <p>
+	 * The operation must be able to run concurrently on different file buffers. The execution is
+	 * sequential anyway if the calling thread owns a scheduling rule, since the worker threads
+	 * could not acquire the commit rules of the file buffers then.
+	 * </p>
+	 *
+	 * @param enable <code>true</code> to enable parallel execution
+	 * @since 3.7
+	 */
+	public void enableParallelExecution(boolean enable) {
+		fIsParallel= enable;
+	}
+
 	/**
 	 * Executes the given operation for all file buffers specified by the given locations.
 	 *
@@ -97,8 +157,19 @@ public class GenericFileBufferOperationRunner {
 				throw new OperationCanceledException();
 			}
 
+			boolean parallel= fIsParallel && Job.getJobManager().currentRule() == null;
+
 			IFileBuffer[] unsynchronizedFileBuffers= findUnsynchronizedFileBuffers(fileBuffers);
-			performOperation(unsynchronizedFileBuffers, operation, subMonitor.split(size * 40));
+			if (parallel) {
+				runInParallel(unsynchronizedFileBuffers, new Task<IFileBuffer>() {
+					@Override
+					public void run(IFileBuffer fileBuffer, IProgressMonitor progressMonitor) throws CoreException {
+						performOperation(fileBuffer, operation, progressMonitor);
+					}
+				}, operation.getOperationName(), subMonitor.split(size * 40));
+			} else {
+				performOperation(unsynchronizedFileBuffers, operation, subMonitor.split(size * 40));
+			}
 
 			final IFileBuffer[] synchronizedFileBuffers= findSynchronizedFileBuffers(fileBuffers);
 			fIsCompleted= false;
@@ -142,7 +213,10 @@ public class GenericFileBufferOperationRunner {
 				throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CONTENT_CHANGE_FAILED, fThrowable.getLocalizedMessage(), fThrowable));
 			}
 
-			commit(fileBuffers2Save, subMonitor.split(size * 80));
+			if (parallel)
+				commitInBatches(fileBuffers2Save, subMonitor.split(size * 80));
+			else
+				commit(fileBuffers2Save, subMonitor.split(size * 80));
 
 		} finally {
 			releaseFileBuffers(locations, subMonitor.split(size * 10));
@@ -167,6 +241,134 @@ public class GenericFileBufferOperationRunner {
 		}
 	}
 
+	/**
+	 * Runs the given task for all elements using a pool of threads and waits until all elements
+	 * are done. Progress is reported in the calling thread, including the throughput.
+	 *
+	 * @param elements the elements
+	 * @param task the task to run for each element
+	 * @param taskName the name to show in the progress
+	 * @param progressMonitor the progress monitor
+	 * @throws CoreException if the task failed for an element
+	 * @throws OperationCanceledException if the progress monitor has been canceled
+	 * @since 3.7
+	 */
+	private <T> void runInParallel(final T[] elements, final Task<T> task, String taskName, IProgressMonitor progressMonitor) throws CoreException, OperationCanceledException {
+		SubMonitor subMonitor= SubMonitor.convert(progressMonitor, elements.length);
+		int threads= Math.min(Runtime.getRuntime().availableProcessors(), elements.length);
+		if (threads <= 1) {
+			for (T element : elements)
+				task.run(element, subMonitor.split(1));
+			return;
+		}
+
+		final NullProgressMonitor workerMonitor= new NullProgressMonitor();
+		final AtomicInteger next= new AtomicInteger();
+		final AtomicInteger done= new AtomicInteger();
+		final AtomicReference<Throwable> problem= new AtomicReference<>();
+		final CountDownLatch finished= new CountDownLatch(threads);
+		ExecutorService executor= Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "File Buffer Operation"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int i= 0; i < threads; i++) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							int index;
+							while (!workerMonitor.isCanceled() && (index= next.getAndIncrement()) < elements.length) {
+								task.run(elements[index], workerMonitor);
+								done.incrementAndGet();
+							}
+						} catch (Throwable t) {
+							problem.compareAndSet(null, t);
+							workerMonitor.setCanceled(true);
+						} finally {
+							finished.countDown();
+						}
+					}
+				});
+			}
+
+			long start= System.currentTimeMillis();
+			int reported= 0;
+			boolean interrupted= false;
+			while (true) {
+				try {
+					if (finished.await(100, TimeUnit.MILLISECONDS))
+						break;
+				} catch (InterruptedException x) {
+					interrupted= true;
+				}
+				if (subMonitor.isCanceled())
+					workerMonitor.setCanceled(true);
+				int count= done.get();
+				subMonitor.worked(count - reported);
+				reported= count;
+				long elapsed= Math.max(System.currentTimeMillis() - start, 1);
+				subMonitor.subTask(NLSUtility.format(FileBuffersMessages.GenericFileBufferOperationRunner_task_progress, new Object[] { taskName, Integer.valueOf(count), Integer.valueOf(elements.length), Long.valueOf(count * 1000L / elapsed) }));
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			subMonitor.worked(done.get() - reported);
+		} finally {
+			executor.shutdown();
+		}
+
+		Throwable throwable= problem.get();
+		if (throwable instanceof CoreException)
+			throw (CoreException) throwable;
+		if (throwable instanceof OperationCanceledException || subMonitor.isCanceled())
+			throw new OperationCanceledException();
+		if (throwable instanceof Error)
+			throw (Error) throwable;
+		if (throwable != null)
+			throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CONTENT_CHANGE_FAILED, throwable.getLocalizedMessage(), throwable));
+	}
+
+	/**
+	 * Commits the given file buffers in batches of buffers with the same commit rule. Batches with
+	 * different rules are committed concurrently.
+	 *
+	 * @param fileBuffers the file buffers to commit
+	 * @param progressMonitor the progress monitor
+	 * @throws CoreException if committing failed
+	 * @since 3.7
+	 */
+	private void commitInBatches(IFileBuffer[] fileBuffers, IProgressMonitor progressMonitor) throws CoreException {
+		Map<ISchedulingRule, List<IFileBuffer>> groups= new LinkedHashMap<>();
+		for (IFileBuffer fileBuffer : fileBuffers) {
+			ISchedulingRule rule= fileBuffer.computeCommitRule();
+			List<IFileBuffer> group= groups.get(rule);
+			if (group == null) {
+				group= new ArrayList<>();
+				groups.put(rule, group);
+			}
+			group.add(fileBuffer);
+		}
+
+		List<IFileBuffer[]> batches= new ArrayList<>();
+		for (List<IFileBuffer> group : groups.values()) {
+			for (int i= 0; i < group.size(); i+= COMMIT_BATCH_SIZE) {
+				List<IFileBuffer> batch= group.subList(i, Math.min(i + COMMIT_BATCH_SIZE, group.size()));
+				batches.add(batch.toArray(new IFileBuffer[batch.size()]));
+			}
+		}
+
+		runInParallel(batches.toArray(new IFileBuffer[batches.size()][]), new Task<IFileBuffer[]>() {
+			@Override
+			public void run(IFileBuffer[] batch, IProgressMonitor monitor) throws CoreException {
+				commit(batch, monitor);
+			}
+		}, FileBuffersMessages.FileBufferOperationRunner_task_committing, progressMonitor);
+	}
+
 	private void executeInContext(Runnable runnable) {
 		ITextFileBufferManager fileBufferManager= FileBuffers.getTextFileBufferManager();
 		fileBufferManager.execute(runnable);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,10 @@ import org.eclipse.jface.text.TextUtilities;
  * Subclasses have to override the <code>computeTextEdits</code> method in
  * order to provide a sequence of {@link org.eclipse.text.edits.TextEdit}
  * objects.
+ * <p>
+ * The operation keeps no state between runs, so it can be run concurrently on different file
+ * buffers as long as the subclass' <code>computeTextEdit</code> method can.
+ * </p>
  *
  * @since 3.1
  */
@@ -65,8 +69,19 @@ public abstract class TextFileBufferOperation implements IFileBufferOperation {
 	protected abstract DocumentRewriteSessionType getDocumentRewriteSessionType();
 
 
+	/**
+	 * The state of a document while a text edit is applied.
+	 *
+	 * @since 3.7
+	 */
+	private static final class RewriteState {
+		/** The rewrite session, or <code>null</code>. */
+		DocumentRewriteSession fSession;
+		/** The removed document partitioners, or <code>null</code>. */
+		Map<String, IDocumentPartitioner> fPartitioners;
+	}
+
 	private String fOperationName;
-	private DocumentRewriteSession fDocumentRewriteSession;
 
 	/**
 	 * Creates a new operation with the given name.
@@ -92,37 +107,36 @@ public abstract class TextFileBufferOperation implements IFileBufferOperation {
 			SubMonitor subMonitor= SubMonitor.convert(progressMonitor, taskName, 100);
 			MultiTextEditWithProgress edit= computeTextEdit(textFileBuffer, subMonitor.split(10));
 			if (edit != null) {
-				Map<String, IDocumentPartitioner> stateData= startRewriteSession(textFileBuffer);
+				RewriteState state= startRewriteSession(textFileBuffer);
 				try {
 					applyTextEdit(textFileBuffer, edit, subMonitor.split(90));
 				} finally {
-					stopRewriteSession(textFileBuffer, stateData);
+					stopRewriteSession(textFileBuffer, state);
 				}
 			}
 		}
 	}
 
-	private Map<String, IDocumentPartitioner> startRewriteSession(ITextFileBuffer fileBuffer) {
-		Map<String, IDocumentPartitioner> stateData= null;
+	private RewriteState startRewriteSession(ITextFileBuffer fileBuffer) {
+		RewriteState state= new RewriteState();
 
 		IDocument document= fileBuffer.getDocument();
 		if (document instanceof IDocumentExtension4) {
 			IDocumentExtension4 extension= (IDocumentExtension4) document;
-			fDocumentRewriteSession= extension.startRewriteSession(getDocumentRewriteSessionType());
+			state.fSession= extension.startRewriteSession(getDocumentRewriteSessionType());
 		} else
-			stateData= TextUtilities.removeDocumentPartitioners(document);
+			state.fPartitioners= TextUtilities.removeDocumentPartitioners(document);
 
-		return stateData;
+		return state;
 	}
 
-	private void stopRewriteSession(ITextFileBuffer fileBuffer, Map<String, IDocumentPartitioner> stateData) {
+	private void stopRewriteSession(ITextFileBuffer fileBuffer, RewriteState state) {
 		IDocument document= fileBuffer.getDocument();
 		if (document instanceof IDocumentExtension4) {
 			IDocumentExtension4 extension= (IDocumentExtension4) document;
-			extension.stopRewriteSession(fDocumentRewriteSession);
-			fDocumentRewriteSession= null;
-		} else if (stateData != null)
-			TextUtilities.addDocumentPartitioners(document, stateData);
+			extension.stopRewriteSession(state.fSession);
+		} else if (state.fPartitioners != null)
+			TextUtilities.addDocumentPartitioners(document, state.fPartitioners);
 	}
 
 	private void applyTextEdit(ITextFileBuffer fileBuffer, MultiTextEditWithProgress textEdit, IProgressMonitor progressMonitor) throws CoreException, OperationCanceledException {
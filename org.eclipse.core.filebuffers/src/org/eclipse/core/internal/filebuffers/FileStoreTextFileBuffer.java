@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 IBM Corporation and others.
+ * Copyright (c) 2007, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,9 @@
  *******************************************************************************/
 package org.eclipse.core.internal.filebuffers;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.SequenceInputStream;
@@ -78,14 +76,6 @@ public class FileStoreTextFileBuffer extends FileStoreFileBuffer implements ITex
 		}
 	}
 
-	/**
-	 * Reader chunk size.
-	 */
-	private static final int READER_CHUNK_SIZE= 2048;
-	/**
-	 * Buffer size.
-	 */
-	private static final int BUFFER_SIZE= 8 * READER_CHUNK_SIZE;
 	/**
 	 * Constant for representing the error status. This is considered a value object.
 	 */
@@ -506,54 +496,21 @@ public class FileStoreTextFileBuffer extends FileStoreFileBuffer implements ITex
 	 * @exception CoreException if the given stream can not be read
 	 */
 	private void setDocumentContent(IDocument document, IFileStore file, String encoding, boolean hasBOM, IProgressMonitor monitor) throws CoreException {
-		InputStream contentStream= getFileContents(file);
-		if (contentStream == null)
-			return;
-
-		Reader in= null;
-		try {
+		try (InputStream contentStream= getFileContents(file)) {
+			if (contentStream == null)
+				return;
 
 			if (encoding == null)
 				encoding= fManager.getDefaultEncoding();
 
-			/*
-			 * XXX:
-			 * This is a workaround for a corresponding bug in Java readers and writer,
-			 * see http://developer.java.sun.com/developer/bugParade/bugs/4508058.html
-			 */
-			if (hasBOM && CHARSET_UTF_8.equals(encoding)) {
-				int n= 0;
-				do {
-					int bytes= contentStream.read(new byte[IContentDescription.BOM_UTF_8.length]);
-					if (bytes == -1)
-						throw new IOException();
-					n += bytes;
-				} while (n < IContentDescription.BOM_UTF_8.length);
-			}
-
-			in= new BufferedReader(new InputStreamReader(contentStream, encoding), BUFFER_SIZE);
-			StringBuffer buffer= new StringBuffer(BUFFER_SIZE);
-			char[] readBuffer= new char[READER_CHUNK_SIZE];
-			int n= in.read(readBuffer);
-			while (n > 0) {
-				buffer.append(readBuffer, 0, n);
-				n= in.read(readBuffer);
-			}
+			String content= TextContentReader.read(contentStream, file.fetchInfo().getLength(), encoding, hasBOM);
 
-			document.set(buffer.toString());
+			document.set(content);
 
 		} catch (IOException x) {
 			String msg= x.getMessage() == null ? "" : x.getMessage(); //$NON-NLS-1$
 			IStatus s= new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IStatus.OK, msg, x);
 			throw new CoreException(s);
-		} finally {
-			try {
-				if (in != null)
-					in.close();
-				else
-					contentStream.close();
-			} catch (IOException x) {
-			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,12 @@
  *******************************************************************************/
 package org.eclipse.core.internal.filebuffers;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.SequenceInputStream;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
@@ -38,6 +37,8 @@ import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.content.IContentDescription;
 import org.eclipse.core.runtime.content.IContentType;
 
+import org.eclipse.core.filesystem.EFS;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResourceStatus;
 
@@ -78,14 +79,6 @@ public class ResourceTextFileBuffer extends ResourceFileBuffer implements ITextF
 		}
 	}
 
-	/**
-	 * Reader chunk size.
-	 */
-	static final private int READER_CHUNK_SIZE= 2048;
-	/**
-	 * Buffer size.
-	 */
-	static final private int BUFFER_SIZE= 8 * READER_CHUNK_SIZE;
 	/**
 	 * Qualified name for the encoding key.
 	 */
@@ -498,54 +491,41 @@ public class ResourceTextFileBuffer extends ResourceFileBuffer implements ITextF
 	 * @exception CoreException if the given stream can not be read
 	 */
 	private void setDocumentContent(IDocument document, IFile file, String encoding) throws CoreException {
-		InputStream contentStream= file.getContents();
-		Reader in= null;
-		try {
+		if (encoding == null)
+			encoding= fManager.getDefaultEncoding();
 
-			if (encoding == null)
-				encoding= fManager.getDefaultEncoding();
-
-			/*
-			 * XXX:
-			 * This is a workaround for a corresponding bug in Java readers and writer,
-			 * see http://developer.java.sun.com/developer/bugParade/bugs/4508058.html
-			 */
-			if (fBOM != null && CHARSET_UTF_8.equals(encoding)) {
-				int n= 0;
-				do {
-					int bytes= contentStream.read(new byte[IContentDescription.BOM_UTF_8.length]);
-					if (bytes == -1)
-						throw new IOException();
-					n += bytes;
-				} while (n < IContentDescription.BOM_UTF_8.length);
-			}
+		try (InputStream contentStream= file.getContents()) {
 
-			in= new BufferedReader(new InputStreamReader(contentStream, encoding), BUFFER_SIZE);
-			StringBuffer buffer= new StringBuffer(BUFFER_SIZE);
-			char[] readBuffer= new char[READER_CHUNK_SIZE];
-			int n= in.read(readBuffer);
-			while (n > 0) {
-				buffer.append(readBuffer, 0, n);
-				n= in.read(readBuffer);
-			}
+			String content= TextContentReader.read(contentStream, getLength(file), encoding, fBOM != null);
 
 			if (document instanceof IDocumentExtension4)
-				((IDocumentExtension4)document).set(buffer.toString(), fFile.getModificationStamp());
+				((IDocumentExtension4)document).set(content, fFile.getModificationStamp());
 			else
-				document.set(buffer.toString());
+				document.set(content);
 
 		} catch (IOException x) {
 			String message= (x.getMessage() != null ? x.getMessage() : ""); //$NON-NLS-1$
 			IStatus s= new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IStatus.OK, message, x);
 			throw new CoreException(s);
-		} finally {
+		}
+	}
+
+	/**
+	 * Returns the length of the given file.
+	 *
+	 * @param file the file
+	 * @return the length of the file in bytes, or <code>-1</code> if not known
+	 * @since 3.7
+	 */
+	private static long getLength(IFile file) {
+		URI uri= file.getLocationURI();
+		if (uri != null) {
 			try {
-				if (in != null)
-					in.close();
-				else
-					contentStream.close();
-			} catch (IOException x) {
+				return EFS.getStore(uri).fetchInfo().getLength();
+			} catch (CoreException x) {
+				// the length is only used as a hint
 			}
 		}
+		return -1;
 	}
 }
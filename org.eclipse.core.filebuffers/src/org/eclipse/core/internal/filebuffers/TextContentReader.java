@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.filebuffers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.eclipse.core.runtime.content.IContentDescription;
+
+
+/**
+ * Reads the text content of a file in one pass. The characters are decoded directly into an array
+ * that is sized from the file length, so that the content is not copied through intermediate
+ * buffers before the string for the document is created.
+ * <p>
+ * Malformed input and unmappable characters are replaced, like {@link java.io.InputStreamReader}
+ * does.
+ * </p>
+ *
+ * @since 3.7
+ */
+final class TextContentReader {
+
+	/** The size of the byte buffer used for reading. */
+	private static final int BYTE_BUFFER_SIZE= 16 * 1024;
+	/** The capacity used if the length of the file is unknown. */
+	private static final int DEFAULT_CAPACITY= 16 * 1024;
+	/** The largest array that can be allocated safely. */
+	private static final int MAX_CAPACITY= Integer.MAX_VALUE - 8;
+
+	private static final String CHARSET_UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	private TextContentReader() {
+	}
+
+	/**
+	 * Reads the given stream up to its end. The stream is not closed.
+	 *
+	 * @param stream the stream to read
+	 * @param length the length of the content in bytes, or a negative value if unknown; only used
+	 *            as a hint
+	 * @param encoding the character encoding of the content
+	 * @param hasBOM <code>true</code> if the content starts with a byte order mark
+	 * @return the content
+	 * @throws IOException if reading fails or the encoding is not supported
+	 */
+	static String read(InputStream stream, long length, String encoding, boolean hasBOM) throws IOException {
+		CharsetDecoder decoder= getCharset(encoding).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		/*
+		 * XXX:
+		 * This is a workaround for a corresponding bug in Java readers and writer,
+		 * see http://developer.java.sun.com/developer/bugParade/bugs/4508058.html
+		 */
+		if (hasBOM && CHARSET_UTF_8.equals(encoding)) {
+			skipFully(stream, IContentDescription.BOM_UTF_8.length);
+			length-= IContentDescription.BOM_UTF_8.length;
+		}
+
+		CharBuffer chars= CharBuffer.allocate(computeCapacity(length, decoder));
+		ByteBuffer bytes= ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+		boolean endOfInput= false;
+		while (!endOfInput) {
+			int n= stream.read(bytes.array(), bytes.position(), bytes.remaining());
+			if (n == -1)
+				endOfInput= true;
+			else
+				bytes.position(bytes.position() + n);
+
+			bytes.flip();
+			chars= decode(decoder, bytes, chars, endOfInput);
+			bytes.compact();
+		}
+
+		while (decoder.flush(chars).isOverflow())
+			chars= grow(chars);
+
+		return new String(chars.array(), 0, chars.position());
+	}
+
+	private static Charset getCharset(String encoding) throws UnsupportedEncodingException {
+		try {
+			return Charset.forName(encoding);
+		} catch (UnsupportedCharsetException | IllegalCharsetNameException ex) {
+			throw new UnsupportedEncodingException(encoding);
+		}
+	}
+
+	private static void skipFully(InputStream stream, int count) throws IOException {
+		byte[] buffer= new byte[count];
+		int n= 0;
+		do {
+			int bytes= stream.read(buffer, n, count - n);
+			if (bytes == -1)
+				throw new IOException();
+			n+= bytes;
+		} while (n < count);
+	}
+
+	private static int computeCapacity(long length, CharsetDecoder decoder) {
+		if (length <= 0)
+			return DEFAULT_CAPACITY;
+		// one more character so that reaching the end does not require to grow the buffer
+		double capacity= Math.ceil(length * (double) decoder.maxCharsPerByte()) + 1;
+		return (int) Math.min(capacity, MAX_CAPACITY);
+	}
+
+	private static CharBuffer decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean endOfInput) throws IOException {
+		while (true) {
+			CoderResult result= decoder.decode(bytes, chars, endOfInput);
+			if (result.isUnderflow())
+				return chars;
+			if (result.isOverflow())
+				chars= grow(chars);
+			else
+				result.throwException();
+		}
+	}
+
+	private static CharBuffer grow(CharBuffer chars) throws IOException {
+		int capacity= chars.capacity();
+		if (capacity == MAX_CAPACITY)
+			throw new IOException(FileBuffersMessages.TextContentReader_error_tooLarge);
+		int newCapacity= (int) Math.min(2L * capacity, MAX_CAPACITY);
+		CharBuffer newChars= CharBuffer.allocate(newCapacity);
+		chars.flip();
+		newChars.put(chars);
+		return newChars;
+	}
+}
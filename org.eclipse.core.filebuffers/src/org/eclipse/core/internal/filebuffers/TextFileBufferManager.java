@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,10 +15,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
@@ -34,6 +33,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.content.IContentDescription;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.content.IContentTypeManager;
@@ -68,8 +68,13 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 
 	protected static final IContentType TEXT_CONTENT_TYPE= Platform.getContentTypeManager().getContentType(IContentTypeManager.CT_TEXT);
 
-	private Map<IPath, AbstractFileBuffer> fFilesBuffers= new HashMap<>();
-	private Map<IFileStore, FileStoreFileBuffer> fFileStoreFileBuffers= new HashMap<>();
+	/*
+	 * The registries can be read without locking. A file buffer is connected and disconnected
+	 * while holding its own lock, so that only the connections of the same file wait for each
+	 * other. A buffer that is no longer registered has been disposed and must not be connected.
+	 */
+	private ConcurrentHashMap<IPath, AbstractFileBuffer> fFilesBuffers= new ConcurrentHashMap<>();
+	private ConcurrentHashMap<IFileStore, FileStoreFileBuffer> fFileStoreFileBuffers= new ConcurrentHashMap<>();
 	private List<IFileBufferListener> fFileBufferListeners= new ArrayList<>();
 	protected ExtensionsRegistry fRegistry;
 	private ISynchronizationContext fSynchronizationContext;
@@ -96,70 +101,99 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 		if (locationKind == LocationKind.NORMALIZE)
 			location= normalizeLocation(location);
 
-		AbstractFileBuffer fileBuffer= null;
-		synchronized (fFilesBuffers) {
-			fileBuffer= internalGetFileBuffer(location);
-			if (fileBuffer != null)  {
-				fileBuffer.connect();
-				return;
+		while (true) {
+			AbstractFileBuffer fileBuffer= fFilesBuffers.get(location);
+			if (fileBuffer != null) {
+				synchronized (fileBuffer) {
+					if (fFilesBuffers.get(location) == fileBuffer) {
+						fileBuffer.connect();
+						return;
+					}
+				}
+				// disposed concurrently, try again
+				continue;
 			}
-		}
 
-		fileBuffer= createFileBuffer(location, locationKind);
-		if (fileBuffer == null)
-			throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CREATION_FAILED, FileBuffersMessages.FileBufferManager_error_canNotCreateFilebuffer, null));
+			fileBuffer= createFileBuffer(location, locationKind);
+			if (fileBuffer == null)
+				throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CREATION_FAILED, FileBuffersMessages.FileBufferManager_error_canNotCreateFilebuffer, null));
 
-		fileBuffer.create(location, monitor);
+			fileBuffer.create(location, monitor);
 
-		synchronized (fFilesBuffers) {
-			AbstractFileBuffer oldFileBuffer= internalGetFileBuffer(location);
-			if (oldFileBuffer != null) {
-				fileBuffer.disconnect();
-				fileBuffer.dispose();
-				oldFileBuffer.connect();
-				return;
+			synchronized (fileBuffer) {
+				fileBuffer.connect();
+				if (fFilesBuffers.putIfAbsent(location, fileBuffer) != null) {
+					// created concurrently, connect to the other buffer
+					fileBuffer.disconnect();
+					fileBuffer.dispose();
+					continue;
+				}
 			}
-			fileBuffer.connect();
-			fFilesBuffers.put(location, fileBuffer);
+
+			// Do notification outside synchronized block
+			fireBufferCreated(fileBuffer);
+			return;
 		}
+	}
 
-		// Do notification outside synchronized block
-		fireBufferCreated(fileBuffer);
+	@Override
+	public void connect(IPath[] locations, LocationKind locationKind, IProgressMonitor monitor) throws CoreException {
+		Assert.isNotNull(locations);
+		SubMonitor subMonitor= SubMonitor.convert(monitor, locations.length);
+		int connected= 0;
+		try {
+			for (; connected < locations.length; connected++)
+				connect(locations[connected], locationKind, subMonitor.split(1));
+		} catch (CoreException | RuntimeException e) {
+			// undo the connections made so far
+			for (int i= 0; i < connected; i++) {
+				try {
+					disconnect(locations[i], locationKind, null);
+				} catch (CoreException x) {
+					FileBuffersPlugin.getDefault().getLog().log(x.getStatus());
+				}
+			}
+			throw e;
+		}
 	}
 
 	@Override
 	public void connectFileStore(IFileStore fileStore, IProgressMonitor monitor) throws CoreException {
 		Assert.isLegal(fileStore != null);
 
-		FileStoreFileBuffer fileBuffer= null;
-		synchronized (fFileStoreFileBuffers) {
-			fileBuffer= internalGetFileBuffer(fileStore);
-			if (fileBuffer != null)  {
-				fileBuffer.connect();
-				return;
+		while (true) {
+			FileStoreFileBuffer fileBuffer= fFileStoreFileBuffers.get(fileStore);
+			if (fileBuffer != null) {
+				synchronized (fileBuffer) {
+					if (fFileStoreFileBuffers.get(fileStore) == fileBuffer) {
+						fileBuffer.connect();
+						return;
+					}
+				}
+				// disposed concurrently, try again
+				continue;
 			}
-		}
 
-		fileBuffer= createFileBuffer(fileStore);
-		if (fileBuffer == null)
-			throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CREATION_FAILED, FileBuffersMessages.FileBufferManager_error_canNotCreateFilebuffer, null));
+			fileBuffer= createFileBuffer(fileStore);
+			if (fileBuffer == null)
+				throw new CoreException(new Status(IStatus.ERROR, FileBuffersPlugin.PLUGIN_ID, IFileBufferStatusCodes.CREATION_FAILED, FileBuffersMessages.FileBufferManager_error_canNotCreateFilebuffer, null));
 
-		fileBuffer.create(fileStore, monitor);
+			fileBuffer.create(fileStore, monitor);
 
-		synchronized (fFileStoreFileBuffers) {
-			AbstractFileBuffer oldFileBuffer= internalGetFileBuffer(fileStore);
-			if (oldFileBuffer != null) {
-				fileBuffer.disconnect();
-				fileBuffer.dispose();
-				oldFileBuffer.connect();
-				return;
+			synchronized (fileBuffer) {
+				fileBuffer.connect();
+				if (fFileStoreFileBuffers.putIfAbsent(fileStore, fileBuffer) != null) {
+					// created concurrently, connect to the other buffer
+					fileBuffer.disconnect();
+					fileBuffer.dispose();
+					continue;
+				}
 			}
-			fileBuffer.connect();
-			fFileStoreFileBuffers.put(fileStore, fileBuffer);
-		}
 
-		// Do notification outside synchronized block
-		fireBufferCreated(fileBuffer);
+			// Do notification outside synchronized block
+			fireBufferCreated(fileBuffer);
+			return;
+		}
 	}
 
 	/**
@@ -186,44 +220,74 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 		if (locationKind == LocationKind.NORMALIZE)
 			location= normalizeLocation(location);
 
-		AbstractFileBuffer fileBuffer;
-		synchronized (fFilesBuffers) {
-			fileBuffer= internalGetFileBuffer(location);
+		while (true) {
+			AbstractFileBuffer fileBuffer= fFilesBuffers.get(location);
 			if (fileBuffer == null)
 				return;
 
-			fileBuffer.disconnect();
-			if (!fileBuffer.isDisconnected())
-				return;
+			synchronized (fileBuffer) {
+				// disposed concurrently, try again
+				if (fFilesBuffers.get(location) != fileBuffer)
+					continue;
+
+				fileBuffer.disconnect();
+				if (!fileBuffer.isDisconnected())
+					return;
 
-			fFilesBuffers.remove(location);
+				fFilesBuffers.remove(location);
+			}
+
+			// Do notification outside synchronized block
+			fireBufferDisposed(fileBuffer);
+			fileBuffer.dispose();
+			return;
 		}
+	}
 
-		// Do notification outside synchronized block
-		fireBufferDisposed(fileBuffer);
-		fileBuffer.dispose();
+	@Override
+	public void disconnect(IPath[] locations, LocationKind locationKind, IProgressMonitor monitor) throws CoreException {
+		Assert.isNotNull(locations);
+		SubMonitor subMonitor= SubMonitor.convert(monitor, locations.length);
+		CoreException exception= null;
+		for (int i= 0; i < locations.length; i++) {
+			try {
+				disconnect(locations[i], locationKind, subMonitor.split(1));
+			} catch (CoreException e) {
+				// disconnect the others anyway
+				if (exception == null)
+					exception= e;
+			}
+		}
+		if (exception != null)
+			throw exception;
 	}
 
 	@Override
 	public void disconnectFileStore(IFileStore fileStore, IProgressMonitor monitor) throws CoreException {
 		Assert.isLegal(fileStore != null);
 
-		AbstractFileBuffer fileBuffer;
-		synchronized (fFileStoreFileBuffers) {
-			fileBuffer= internalGetFileBuffer(fileStore);
+		while (true) {
+			FileStoreFileBuffer fileBuffer= fFileStoreFileBuffers.get(fileStore);
 			if (fileBuffer == null)
 				return;
 
-			fileBuffer.disconnect();
-			if (!fileBuffer.isDisconnected())
-				return;
+			synchronized (fileBuffer) {
+				// disposed concurrently, try again
+				if (fFileStoreFileBuffers.get(fileStore) != fileBuffer)
+					continue;
 
-			fFileStoreFileBuffers.remove(fileStore);
-		}
+				fileBuffer.disconnect();
+				if (!fileBuffer.isDisconnected())
+					return;
 
-		// Do notification outside synchronized block
-		fireBufferDisposed(fileBuffer);
-		fileBuffer.dispose();
+				fFileStoreFileBuffers.remove(fileStore);
+			}
+
+			// Do notification outside synchronized block
+			fireBufferDisposed(fileBuffer);
+			fileBuffer.dispose();
+			return;
+		}
 	}
 
 	/**
@@ -329,15 +393,11 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 	}
 
 	private AbstractFileBuffer internalGetFileBuffer(IPath location) {
-		synchronized (fFilesBuffers) {
-			return fFilesBuffers.get(location);
-		}
+		return fFilesBuffers.get(location);
 	}
 
 	private FileStoreFileBuffer internalGetFileBuffer(IFileStore fileStore) {
-		synchronized (fFileStoreFileBuffers) {
-			return fFileStoreFileBuffers.get(fileStore);
-		}
+		return fFileStoreFileBuffers.get(fileStore);
 	}
 
 	/**
@@ -365,11 +425,7 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 	@Override
 	public ITextFileBuffer getTextFileBuffer(IDocument document) {
 		Assert.isLegal(document != null);
-		Iterator<AbstractFileBuffer> iter;
-		synchronized (fFilesBuffers) {
-			iter= new ArrayList<>(fFilesBuffers.values()).iterator();
-		}
-
+		Iterator<? extends AbstractFileBuffer> iter= fFilesBuffers.values().iterator();
 		while (iter.hasNext()) {
 			Object buffer= iter.next();
 			if (buffer instanceof ITextFileBuffer) {
@@ -381,9 +437,7 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 				}
 			}
 		}
-		synchronized (fFileStoreFileBuffers) {
-			iter= new ArrayList<AbstractFileBuffer>(fFileStoreFileBuffers.values()).iterator();
-		}
+		iter= fFileStoreFileBuffers.values().iterator();
 		while (iter.hasNext()) {
 			Object buffer= iter.next();
 			if (buffer instanceof ITextFileBuffer) {
@@ -399,18 +453,14 @@ public class TextFileBufferManager implements ITextFileBufferManager {
 
 	@Override
 	public IFileBuffer[] getFileBuffers() {
-		synchronized (fFilesBuffers) {
-			Collection<AbstractFileBuffer> values= fFilesBuffers.values();
-			return values.toArray(new IFileBuffer[values.size()]);
-		}
+		Collection<AbstractFileBuffer> values= fFilesBuffers.values();
+		return values.toArray(new IFileBuffer[values.size()]);
 	}
 
 	@Override
 	public IFileBuffer[] getFileStoreFileBuffers() {
-		synchronized (fFileStoreFileBuffers) {
-			Collection<FileStoreFileBuffer> values= fFileStoreFileBuffers.values();
-			return values.toArray(new IFileBuffer[values.size()]);
-		}
+		Collection<FileStoreFileBuffer> values= fFileStoreFileBuffers.values();
+		return values.toArray(new IFileBuffer[values.size()]);
 	}
 
 	@Override
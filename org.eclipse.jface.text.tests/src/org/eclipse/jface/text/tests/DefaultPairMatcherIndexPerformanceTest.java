@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.source.DefaultCharacterPairMatcher;
+
+/**
+ * Compares the time needed for matching brackets in a large document with and without the
+ * character pair index. Not part of the default test suite, see
+ * {@link JFaceTextPerformanceTestSuite}.
+ *
+ * @since 3.12
+ */
+public class DefaultPairMatcherIndexPerformanceTest {
+
+	@Test
+	public void testLargeDocument() throws Exception {
+		// a single line of JSON with about 50 MB
+		IDocument document= new Document(DefaultPairMatcherIndexTest.createJson(50 * 1024 * 1024));
+		int[] offsets= { 1, document.getLength(), 2, document.getLength() - 1, document.getLength() / 2 };
+
+		DefaultCharacterPairMatcher scanning= DefaultPairMatcherIndexTest.createMatcher(false);
+		long start= System.nanoTime();
+		IRegion[] expected= new IRegion[offsets.length];
+		for (int i= 0; i < offsets.length; i++)
+			expected[i]= scanning.match(document, offsets[i]);
+		long scanned= (System.nanoTime() - start) / offsets.length;
+
+		DefaultCharacterPairMatcher indexed= DefaultPairMatcherIndexTest.createMatcher(true);
+		indexed.match(document, 0);
+		start= System.nanoTime();
+		for (int i= 0; i < offsets.length; i++)
+			DefaultPairMatcherIndexTest.assertSameRegion(expected[i], indexed.match(document, offsets[i]));
+		long matched= (System.nanoTime() - start) / offsets.length;
+		assertTrue("per caret move: indexed " + matched / 1000 + " us, scanning " + scanned / 1000 + " us", matched < scanned);
+
+		// typing inside the document only shifts the index
+		document.replace(document.getLength() / 2, 0, "x");
+		start= System.nanoTime();
+		indexed.match(document, 1);
+		long afterTyping= System.nanoTime() - start;
+		assertTrue("after typing: indexed " + afterTyping / 1000 + " us, scanning " + scanned / 1000 + " us", afterTyping < scanned);
+		indexed.dispose();
+	}
+}
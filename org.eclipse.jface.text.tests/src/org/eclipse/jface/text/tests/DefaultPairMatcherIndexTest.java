@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension3;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.eclipse.jface.text.rules.IPredicateRule;
+import org.eclipse.jface.text.rules.RuleBasedPartitionScanner;
+import org.eclipse.jface.text.rules.SingleLineRule;
+import org.eclipse.jface.text.rules.Token;
+import org.eclipse.jface.text.source.DefaultCharacterPairMatcher;
+import org.eclipse.jface.text.source.ICharacterPairMatcher;
+
+/**
+ * Runs the pair matcher tests with the character pair index enabled and compares the indexed
+ * matcher with the scanning one on randomly edited documents and on a large document.
+ *
+ * @since 3.12
+ */
+public class DefaultPairMatcherIndexTest extends DefaultPairMatcherTest2 {
+
+	private static final String PAIRS= "()[]{}";
+
+	@Override
+	protected ICharacterPairMatcher createMatcher(String chars) {
+		DefaultCharacterPairMatcher matcher= (DefaultCharacterPairMatcher) super.createMatcher(chars);
+		matcher.setIndexEnabled(true);
+		return matcher;
+	}
+
+	static DefaultCharacterPairMatcher createMatcher(boolean indexed) {
+		DefaultCharacterPairMatcher matcher= new DefaultCharacterPairMatcher(PAIRS.toCharArray(), IDocumentExtension3.DEFAULT_PARTITIONING, true);
+		matcher.setIndexEnabled(indexed);
+		return matcher;
+	}
+
+	private static IDocument createDocument(String content) {
+		RuleBasedPartitionScanner scanner= new RuleBasedPartitionScanner();
+		scanner.setPredicateRules(new IPredicateRule[] { new SingleLineRule("\"", "\"", new Token("string")) });
+		IDocumentPartitioner partitioner= new FastPartitioner(scanner, new String[] { "string" });
+		Document document= new Document(content);
+		document.setDocumentPartitioner(IDocumentExtension3.DEFAULT_PARTITIONING, partitioner);
+		partitioner.connect(document);
+		return document;
+	}
+
+	private static String createText(Random random, int length) {
+		String alphabet= PAIRS + PAIRS + "\"\n xy";
+		StringBuffer text= new StringBuffer(length);
+		for (int i= 0; i < length; i++)
+			text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return text.toString();
+	}
+
+	/**
+	 * Returns a single line of JSON with nested arrays and objects.
+	 *
+	 * @param length the minimum length
+	 * @return the JSON text
+	 */
+	static String createJson(int length) {
+		StringBuffer json= new StringBuffer(length + 1024);
+		json.append('[');
+		for (int i= 0; json.length() < length; i++)
+			json.append("{\"id\":").append(i).append(",\"tags\":[\"a\",\"b\"],\"value\":{\"x\":[1,2,3]}},");
+		json.setCharAt(json.length() - 1, ']');
+		return json.toString();
+	}
+
+	static void assertSameRegion(IRegion expected, IRegion actual) {
+		if (expected == null || actual == null) {
+			assertEquals(expected, actual);
+		} else {
+			assertEquals(expected.getOffset(), actual.getOffset());
+			assertEquals(expected.getLength(), actual.getLength());
+		}
+	}
+
+	private static void assertSameMatches(IDocument document, DefaultCharacterPairMatcher expected, DefaultCharacterPairMatcher actual) {
+		for (int offset= 0; offset <= document.getLength(); offset++) {
+			assertSameRegion(expected.match(document, offset), actual.match(document, offset));
+			assertEquals(expected.getAnchor(), actual.getAnchor());
+			for (int length= -1; length <= 4; length++) {
+				if (offset + length < 0 || offset + length > document.getLength())
+					continue;
+				assertSameRegion(expected.findEnclosingPeerCharacters(document, offset, length), actual.findEnclosingPeerCharacters(document, offset, length));
+				assertEquals(expected.getAnchor(), actual.getAnchor());
+			}
+		}
+	}
+
+	@Test
+	public void testRandomEdits() throws Exception {
+		Random random= new Random(4711);
+		DefaultCharacterPairMatcher scanning= createMatcher(false);
+		DefaultCharacterPairMatcher indexed= createMatcher(true);
+		for (int i= 0; i < 20; i++) {
+			IDocument document= createDocument(createText(random, random.nextInt(200)));
+			assertSameMatches(document, scanning, indexed);
+			for (int k= 0; k < 20; k++) {
+				int offset= random.nextInt(document.getLength() + 1);
+				int length= random.nextInt(Math.min(10, document.getLength() - offset) + 1);
+				String text= random.nextBoolean() ? createText(random, random.nextInt(5)) : "x";
+				document.replace(offset, length, text);
+				assertSameMatches(document, scanning, indexed);
+			}
+		}
+		indexed.dispose();
+	}
+
+	@Test
+	public void testLargeDocument() throws Exception {
+		IDocument document= new Document(createJson(1024 * 1024));
+		int[] offsets= { 1, document.getLength(), 2, document.getLength() - 1, document.getLength() / 2 };
+
+		DefaultCharacterPairMatcher scanning= createMatcher(false);
+		DefaultCharacterPairMatcher indexed= createMatcher(true);
+		for (int i= 0; i < offsets.length; i++)
+			assertSameRegion(scanning.match(document, offsets[i]), indexed.match(document, offsets[i]));
+
+		// typing inside the document only shifts the index
+		document.replace(document.getLength() / 2, 0, "x");
+		IRegion region= indexed.match(document, 1);
+		assertEquals(0, region.getOffset());
+		assertEquals(document.getLength(), region.getLength());
+		indexed.dispose();
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import org.eclipse.jface.text.tests.source.AnnotationPainterPerformanceTest;
+import org.eclipse.jface.text.tests.source.OverviewRulerPerformanceTest;
+import org.eclipse.jface.text.tests.source.ProjectionViewerFoldingPerformanceTest;
+
+
+/**
+ * Performance tests for org.eclipse.jface.text. They take long and depend on the machine, hence
+ * they are not part of {@link JFaceTextTestSuite}.
+ *
+ * @since 3.12
+ */
+@RunWith(Suite.class)
+@SuiteClasses({
+		ProjectionViewerFoldingPerformanceTest.class,
+		DefaultPairMatcherIndexPerformanceTest.class,
+		OverviewRulerPerformanceTest.class,
+		AnnotationPainterPerformanceTest.class
+})
+public class JFaceTextPerformanceTestSuite {
+	// see @SuiteClasses
+}
@@ -15,12 +15,16 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import org.eclipse.jface.text.tests.reconciler.AbstractReconcilerTest;
+import org.eclipse.jface.text.tests.reconciler.SharedExecutorReconcilerTest;
 import org.eclipse.jface.text.tests.rules.DefaultPartitionerTest;
 import org.eclipse.jface.text.tests.rules.DefaultPartitionerZeroLengthTest;
 import org.eclipse.jface.text.tests.rules.FastPartitionerTest;
 import org.eclipse.jface.text.tests.rules.ScannerColumnTest;
 import org.eclipse.jface.text.tests.rules.WordRuleTest;
+import org.eclipse.jface.text.tests.source.AnnotationPainterTest;
 import org.eclipse.jface.text.tests.source.LineNumberRulerColumnTest;
+import org.eclipse.jface.text.tests.source.OverviewRulerStressTest;
+import org.eclipse.jface.text.tests.source.ProjectionViewerFoldingTest;
 
 
 /**
@@ -31,6 +35,9 @@ import org.eclipse.jface.text.tests.source.LineNumberRulerColumnTest;
 @RunWith(Suite.class)
 @SuiteClasses({
 		LineNumberRulerColumnTest.class,
+		ProjectionViewerFoldingTest.class,
+		OverviewRulerStressTest.class,
+		AnnotationPainterTest.class,
 		HTML2TextReaderTest.class,
 		TextHoverPopupTest.class,
 		TextPresentationTest.class,
@@ -39,8 +46,11 @@ import org.eclipse.jface.text.tests.source.LineNumberRulerColumnTest;
 		TextViewerUndoManagerTest.class,
 		DefaultPairMatcherTest.class,
 		DefaultPairMatcherTest2.class,
+		DefaultPairMatcherIndexTest.class,
+		ProposalFilterTest.class,
 
 		AbstractReconcilerTest.class,
+		SharedExecutorReconcilerTest.class,
 
 		DefaultPartitionerTest.class,
 		DefaultPartitionerZeroLengthTest.class,
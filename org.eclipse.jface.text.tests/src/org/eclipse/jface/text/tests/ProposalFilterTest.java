@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+
+import org.eclipse.jface.internal.text.ProposalFilter;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension8;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+/**
+ * Tests the incremental filtering of completion proposals.
+ *
+ * @since 3.12
+ */
+public class ProposalFilterTest {
+
+	/**
+	 * A proposal which is valid if the document, typed since the invocation at offset 0, is a
+	 * prefix of its word.
+	 */
+	private static class PlainProposal implements ICompletionProposal {
+
+		final String fWord;
+
+		PlainProposal(String word) {
+			fWord= word;
+		}
+
+		@Override
+		public void apply(IDocument document) {
+			// not applied
+		}
+
+		@Override
+		public Point getSelection(IDocument document) {
+			return null;
+		}
+
+		@Override
+		public String getAdditionalProposalInfo() {
+			return null;
+		}
+
+		@Override
+		public String getDisplayString() {
+			return fWord;
+		}
+
+		@Override
+		public Image getImage() {
+			return null;
+		}
+
+		@Override
+		public IContextInformation getContextInformation() {
+			return null;
+		}
+	}
+
+	private static class Proposal extends PlainProposal implements ICompletionProposalExtension2, ICompletionProposalExtension8 {
+
+		final boolean fIsThreadSafe;
+		int fValidations;
+		Thread fValidationThread;
+
+		Proposal(String word, boolean isThreadSafe) {
+			super(word);
+			fIsThreadSafe= isThreadSafe;
+		}
+
+		@Override
+		public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
+			// not applied
+		}
+
+		@Override
+		public void selected(ITextViewer viewer, boolean smartToggle) {
+			// not selected
+		}
+
+		@Override
+		public void unselected(ITextViewer viewer) {
+			// not selected
+		}
+
+		@Override
+		public boolean validate(IDocument document, int offset, DocumentEvent event) {
+			fValidations++;
+			fValidationThread= Thread.currentThread();
+			try {
+				return fWord.startsWith(document.get(0, offset));
+			} catch (BadLocationException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public boolean isValidationThreadSafe() {
+			return fIsThreadSafe;
+		}
+	}
+
+	private static Proposal[] createProposals(String... words) {
+		Proposal[] proposals= new Proposal[words.length];
+		for (int i= 0; i < words.length; i++)
+			proposals[i]= new Proposal(words[i], false);
+		return proposals;
+	}
+
+	private static ICompletionProposal[] filter(ICompletionProposal[] proposals, String typed) {
+		return ProposalFilter.filter(proposals, new Document(typed), typed.length(), null);
+	}
+
+	private static List<String> toWords(ICompletionProposal[] proposals) {
+		List<String> words= new ArrayList<>(proposals.length);
+		for (ICompletionProposal proposal : proposals)
+			words.add(proposal.getDisplayString());
+		return words;
+	}
+
+	@Test
+	public void testFilter() {
+		Proposal[] proposals= createProposals("alpha", "beta", "alpine", "gamma", "al");
+		assertArrayEquals(new ICompletionProposal[] { proposals[0], proposals[2], proposals[4] }, filter(proposals, "al"));
+		assertArrayEquals(proposals, filter(proposals, ""));
+		assertEquals(0, filter(proposals, "x").length);
+	}
+
+	@Test
+	public void testProposalsThatCannotBeValidated() {
+		ICompletionProposal[] proposals= { new Proposal("alpha", false), new PlainProposal("alpine") };
+		assertNull(filter(proposals, "al"));
+	}
+
+	@Test
+	public void testProposalsThatFail() {
+		Proposal failing= new Proposal("alpine", false) {
+			@Override
+			public boolean validate(IDocument document, int offset, DocumentEvent event) {
+				throw new IllegalStateException();
+			}
+		};
+		Proposal[] proposals= { new Proposal("alpha", false), failing };
+		assertArrayEquals(new ICompletionProposal[] { proposals[0] }, filter(proposals, "al"));
+	}
+
+	@Test
+	public void testIncrementalNarrowing() {
+		Proposal[] computed= createProposals("alpha", "beta", "alpine", "gamma", "alps");
+		ProposalFilter filter= new ProposalFilter();
+
+		ICompletionProposal[] forA= narrow(filter, computed, "a");
+		assertEquals(5, validations(computed));
+		assertEquals(toWords(forA), toWords(narrow(filter, computed, "al")));
+		// only the proposals valid for "a" are validated again
+		assertEquals(8, validations(computed));
+		ICompletionProposal[] forAlp= narrow(filter, computed, "alp");
+		assertEquals(toWords(new ICompletionProposal[] { computed[0], computed[2], computed[4] }), toWords(forAlp));
+		assertEquals(11, validations(computed));
+		narrow(filter, computed, "alph");
+		assertEquals(14, validations(computed));
+
+		// deleting a character goes back to the proposals for the shorter text
+		assertSame(forAlp, filter.getCandidates(computed, "alp"));
+		// changing the text validates all proposals again
+		assertSame(computed, filter.getCandidates(computed, "b"));
+		assertSame(computed, filter.getCandidates(computed, null));
+
+		// the remembered proposals belong to the computed proposals
+		narrow(filter, computed, "a");
+		Proposal[] recomputed= createProposals("alpha", "alpine");
+		assertSame(recomputed, filter.getCandidates(recomputed, "al"));
+	}
+
+	private static ICompletionProposal[] narrow(ProposalFilter filter, ICompletionProposal[] computed, String typed) {
+		ICompletionProposal[] filtered= filter(filter.getCandidates(computed, typed), typed);
+		filter.remember(typed, filtered);
+		return filtered;
+	}
+
+	private static int validations(Proposal[] proposals) {
+		int validations= 0;
+		for (Proposal proposal : proposals)
+			validations+= proposal.fValidations;
+		return validations;
+	}
+
+	@Test
+	public void testValidationThreads() {
+		// the first half can be validated in any thread, the second half only in the caller's thread
+		Proposal[] proposals= new Proposal[2 * ProposalFilter.PARALLEL_THRESHOLD];
+		for (int i= 0; i < proposals.length; i++)
+			proposals[i]= new Proposal((i % 3 == 0 ? "a" : "b") + i, i < ProposalFilter.PARALLEL_THRESHOLD);
+
+		ICompletionProposal[] filtered= filter(proposals, "a");
+
+		List<ICompletionProposal> expected= new ArrayList<>();
+		for (int i= 0; i < proposals.length; i++) {
+			assertEquals(1, proposals[i].fValidations);
+			if (!proposals[i].fIsThreadSafe)
+				assertSame(Thread.currentThread(), proposals[i].fValidationThread);
+			if (i % 3 == 0)
+				expected.add(proposals[i]);
+		}
+		assertArrayEquals(expected.toArray(), filtered);
+	}
+
+	@Test
+	public void testNotValidatableInLargeSet() {
+		ICompletionProposal[] proposals= new ICompletionProposal[2 * ProposalFilter.PARALLEL_THRESHOLD];
+		for (int i= 0; i < proposals.length; i++)
+			proposals[i]= new Proposal("a" + i, true);
+		proposals[proposals.length - 1]= new PlainProposal("a");
+		assertNull(filter(proposals, "a"));
+	}
+}
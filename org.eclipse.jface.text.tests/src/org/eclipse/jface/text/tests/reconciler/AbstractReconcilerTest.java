@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -176,6 +176,7 @@ public class AbstractReconcilerTest {
 				};
 		fReconciler.setIsIncrementalReconciler(false);
 		fReconciler.setDelay(50); // make tests run faster
+		fReconciler.setUseSharedExecutor(useSharedExecutor());
 		
 		fProgressMonitor= new NullProgressMonitor();
 		fReconciler.setProgressMonitor(fProgressMonitor);
@@ -188,6 +189,15 @@ public class AbstractReconcilerTest {
 		fAccessor= new Accessor(object, object.getClass());
 	}
 
+	/**
+	 * Tells whether the reconciler under test runs in the shared executor.
+	 *
+	 * @return <code>true</code> to test the shared executor
+	 */
+	protected boolean useSharedExecutor() {
+		return false;
+	}
+
 	@After
 	public void tearDown() throws Exception {
 		fBarrier.shutdown();
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.reconciler;
+
+
+/**
+ * Runs the reconciler tests with a reconciler in the shared executor.
+ *
+ * @since 3.12
+ */
+public class SharedExecutorReconcilerTest extends AbstractReconcilerTest {
+
+	@Override
+	protected boolean useSharedExecutor() {
+		return true;
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.tests.JFaceTextPerformanceTestSuite;
+
+/**
+ * Compares the time an annotation painter computing decorations lazily needs for handling
+ * annotation model events with one computing all decorations. Uses the viewer of
+ * {@link AnnotationPainterTest}. Not part of the default test suite, see
+ * {@link JFaceTextPerformanceTestSuite}.
+ *
+ * @since 3.12
+ */
+public class AnnotationPainterPerformanceTest {
+
+	private final AnnotationPainterTest fPainterTest= new AnnotationPainterTest();
+
+	@Before
+	public void setUp() {
+		fPainterTest.setUp();
+	}
+
+	@After
+	public void tearDown() {
+		fPainterTest.tearDown();
+	}
+
+	@Test
+	public void testUpdates() {
+		fPainterTest.activateOnly(false);
+		long eager= measureUpdates();
+		fPainterTest.activateOnly(true);
+		long lazy= measureUpdates();
+		assertTrue(AnnotationPainterTest.ANNOTATIONS + " annotations: " + lazy / 1000 + " us per change when computed lazily, " + eager / 1000 + " us otherwise", lazy < eager);
+	}
+
+	private long measureUpdates() {
+		fPainterTest.runEventLoop();
+		long start= System.nanoTime();
+		for (int i= 0; i < 200; i++) {
+			fPainterTest.moveRandomAnnotation();
+			fPainterTest.runEventLoop();
+		}
+		return (System.nanoTime() - start) / 200;
+	}
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IPainter;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.AnnotationPainter;
+import org.eclipse.jface.text.source.IAnnotationAccess;
+import org.eclipse.jface.text.source.SourceViewer;
+
+/**
+ * Compares an annotation painter computing decorations lazily with one computing all
+ * decorations, while annotations are added, removed and moved and the viewer is scrolled.
+ *
+ * @since 3.12
+ */
+public class AnnotationPainterTest {
+
+	private static final int LINES= 20000;
+	static final int ANNOTATIONS= 20000;
+	private static final String[] TYPES= { "squiggle", "occurrence", "box" };
+
+	/**
+	 * Drawing strategy remembering the annotations it has drawn and cleared.
+	 */
+	private static class RecordingStrategy implements AnnotationPainter.IDrawingStrategy {
+
+		final Set<Annotation> fDrawn= new HashSet<>();
+		final Set<Annotation> fCleared= new HashSet<>();
+
+		@Override
+		public void draw(Annotation annotation, GC gc, StyledText textWidget, int offset, int length, Color color) {
+			if (gc != null)
+				fDrawn.add(annotation);
+			else
+				fCleared.add(annotation);
+		}
+	}
+
+	private Shell fShell;
+	private Display fDisplay;
+	private IDocument fDocument;
+	private AnnotationModel fAnnotationModel;
+	private SourceViewer fViewer;
+	private AnnotationPainter fEagerPainter;
+	private AnnotationPainter fLazyPainter;
+	private RecordingStrategy fEagerStrategy;
+	private RecordingStrategy fLazyStrategy;
+	private List<Annotation> fAnnotations;
+	private Random fRandom;
+
+	@Before
+	public void setUp() {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < LINES; i++)
+			content.append("line ").append(i).append('\n');
+		fDocument= new Document(content.toString());
+		fAnnotationModel= new AnnotationModel();
+		fAnnotations= new ArrayList<>();
+		fRandom= new Random(4711);
+		for (int i= 0; i < ANNOTATIONS; i++)
+			addRandomAnnotation();
+
+		fShell= new Shell();
+		fDisplay= fShell.getDisplay();
+		fViewer= new SourceViewer(fShell, null, SWT.V_SCROLL | SWT.H_SCROLL);
+		fViewer.setDocument(fDocument, fAnnotationModel);
+		fViewer.getTextWidget().setSize(400, 600);
+
+		fEagerStrategy= new RecordingStrategy();
+		fEagerPainter= createPainter(fEagerStrategy);
+		fLazyStrategy= new RecordingStrategy();
+		fLazyPainter= createPainter(fLazyStrategy);
+		fLazyPainter.setLazyDecorationsEnabled(true);
+		fEagerPainter.paint(IPainter.CONFIGURATION);
+		fLazyPainter.paint(IPainter.CONFIGURATION);
+	}
+
+	@After
+	public void tearDown() {
+		fEagerPainter.deactivate(false);
+		fEagerPainter.dispose();
+		fLazyPainter.deactivate(false);
+		fLazyPainter.dispose();
+		fShell.dispose();
+	}
+
+	private AnnotationPainter createPainter(RecordingStrategy strategy) {
+		IAnnotationAccess access= new IAnnotationAccess() {
+			@Override
+			public Object getType(Annotation annotation) {
+				return annotation.getType();
+			}
+
+			@Override
+			public boolean isMultiLine(Annotation annotation) {
+				return true;
+			}
+
+			@Override
+			public boolean isTemporary(Annotation annotation) {
+				return !annotation.isPersistent();
+			}
+		};
+		AnnotationPainter painter= new AnnotationPainter(fViewer, access);
+		painter.addTextStyleStrategy("squiggle", new AnnotationPainter.UnderlineStrategy(SWT.UNDERLINE_SQUIGGLE));
+		painter.addDrawingStrategy("recording", strategy);
+		painter.addAnnotationType("squiggle", "squiggle");
+		painter.addHighlightAnnotationType("occurrence");
+		painter.addAnnotationType("box", "recording");
+		painter.setAnnotationTypeColor("squiggle", fDisplay.getSystemColor(SWT.COLOR_RED));
+		painter.setAnnotationTypeColor("occurrence", fDisplay.getSystemColor(SWT.COLOR_YELLOW));
+		painter.setAnnotationTypeColor("box", fDisplay.getSystemColor(SWT.COLOR_BLUE));
+		return painter;
+	}
+
+	private Position createRandomPosition() {
+		int offset= fRandom.nextInt(fDocument.getLength());
+		int length= Math.min(fRandom.nextInt(20), fDocument.getLength() - offset);
+		return new Position(offset, length);
+	}
+
+	private void addRandomAnnotation() {
+		Annotation annotation= new Annotation(TYPES[fRandom.nextInt(TYPES.length)], false, null);
+		fAnnotationModel.addAnnotation(annotation, createRandomPosition());
+		fAnnotations.add(annotation);
+	}
+
+	private void removeRandomAnnotation() {
+		Annotation annotation= fAnnotations.remove(fRandom.nextInt(fAnnotations.size()));
+		fAnnotationModel.removeAnnotation(annotation);
+	}
+
+	void moveRandomAnnotation() {
+		Annotation annotation= fAnnotations.get(fRandom.nextInt(fAnnotations.size()));
+		fAnnotationModel.modifyAnnotationPosition(annotation, createRandomPosition());
+	}
+
+	private void changeRandomly(int count) {
+		for (int i= 0; i < count; i++) {
+			switch (fRandom.nextInt(3)) {
+				case 0:
+					addRandomAnnotation();
+					break;
+				case 1:
+					removeRandomAnnotation();
+					break;
+				default:
+					moveRandomAnnotation();
+			}
+		}
+		runEventLoop();
+	}
+
+	void runEventLoop() {
+		// annotation model events are handled asynchronously
+		while (fDisplay.readAndDispatch()) {
+			// keep going
+		}
+	}
+
+	private static List<String> getStyles(AnnotationPainter painter, IRegion region) {
+		TextPresentation presentation= new TextPresentation(region, 100);
+		painter.applyTextPresentation(presentation);
+		List<String> styles= new ArrayList<>();
+		for (Iterator<StyleRange> e= presentation.getAllStyleRangeIterator(); e.hasNext();)
+			styles.add(e.next().toString());
+		return styles;
+	}
+
+	private Set<Annotation> paint(AnnotationPainter painter, RecordingStrategy strategy) {
+		return paint(painter, strategy, 0, fViewer.getTextWidget().getSize().y);
+	}
+
+	private Set<Annotation> paint(AnnotationPainter painter, RecordingStrategy strategy, int y, int height) {
+		StyledText widget= fViewer.getTextWidget();
+		Image image= new Image(fDisplay, widget.getSize().x, widget.getSize().y);
+		GC gc= new GC(image);
+		try {
+			Event event= new Event();
+			event.widget= widget;
+			event.display= fDisplay;
+			event.gc= gc;
+			event.y= y;
+			event.width= widget.getSize().x;
+			event.height= height;
+			strategy.fDrawn.clear();
+			painter.paintControl(new PaintEvent(event));
+		} finally {
+			gc.dispose();
+			image.dispose();
+		}
+		return new HashSet<>(strategy.fDrawn);
+	}
+
+	private void assertSameDecorations() {
+		int topOffset= fViewer.getTopIndexStartOffset();
+		int bottomOffset= fViewer.getBottomIndexEndOffset();
+		IRegion visible= new Region(topOffset, bottomOffset - topOffset);
+		assertEquals(getStyles(fEagerPainter, visible), getStyles(fLazyPainter, visible));
+
+		// decorations outside the viewport are computed when needed
+		int offset= fRandom.nextInt(fDocument.getLength());
+		IRegion region= new Region(offset, Math.min(5000, fDocument.getLength() - offset));
+		assertEquals(getStyles(fEagerPainter, region), getStyles(fLazyPainter, region));
+
+		assertEquals(paint(fEagerPainter, fEagerStrategy), paint(fLazyPainter, fLazyStrategy));
+	}
+
+	@Test
+	public void testModelChanges() {
+		assertSameDecorations();
+		for (int i= 0; i < 20; i++) {
+			changeRandomly(50);
+			assertSameDecorations();
+		}
+	}
+
+	@Test
+	public void testScrolling() {
+		for (int i= 0; i < 20; i++) {
+			fViewer.setTopIndex(fRandom.nextInt(LINES));
+			runEventLoop();
+			assertSameDecorations();
+			changeRandomly(10);
+			assertSameDecorations();
+		}
+	}
+
+	@Test
+	public void testTyping() throws Exception {
+		for (int i= 0; i < 20; i++) {
+			int offset= fDocument.getLineOffset(fRandom.nextInt(LINES));
+			fDocument.replace(offset, 0, i % 5 == 0 ? "\n" : "x");
+			runEventLoop();
+			assertSameDecorations();
+		}
+	}
+
+	@Test
+	public void testRemoveAfterPartialPaint() throws Exception {
+		int topLine= LINES / 2;
+		fViewer.setTopIndex(topLine);
+		runEventLoop();
+		Annotation box= new Annotation("box", false, null);
+		fAnnotationModel.addAnnotation(box, new Position(fDocument.getLineOffset(topLine + 20), 4));
+		runEventLoop();
+		assertTrue(paint(fLazyPainter, fLazyStrategy).contains(box));
+		paint(fEagerPainter, fEagerStrategy);
+
+		// a keystroke repaints only its line
+		int line= topLine + 2;
+		fDocument.replace(fDocument.getLineOffset(line), 0, "x");
+		runEventLoop();
+		StyledText widget= fViewer.getTextWidget();
+		paint(fLazyPainter, fLazyStrategy, widget.getLinePixel(line), widget.getLineHeight());
+		paint(fEagerPainter, fEagerStrategy, widget.getLinePixel(line), widget.getLineHeight());
+
+		// the box is still on the screen and has to be cleared
+		fEagerStrategy.fCleared.clear();
+		fLazyStrategy.fCleared.clear();
+		fAnnotationModel.removeAnnotation(box);
+		runEventLoop();
+		assertTrue(fEagerStrategy.fCleared.contains(box));
+		assertTrue(fLazyStrategy.fCleared.contains(box));
+	}
+
+	/**
+	 * Deactivates one of the painters, so that only the other one handles annotation model
+	 * events. The lazy painter is activated again if needed.
+	 *
+	 * @param lazy <code>true</code> to keep the lazy painter active, <code>false</code> to keep
+	 *            the eager one
+	 */
+	void activateOnly(boolean lazy) {
+		if (lazy) {
+			fEagerPainter.deactivate(false);
+			fLazyPainter.paint(IPainter.CONFIGURATION);
+		} else {
+			fLazyPainter.deactivate(false);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.tests.JFaceTextPerformanceTestSuite;
+
+/**
+ * Compares the time needed to paint an overview ruler showing many annotations after a few of
+ * them have moved with painting it from scratch. Uses the ruler of {@link OverviewRulerStressTest}.
+ * Not part of the default test suite, see {@link JFaceTextPerformanceTestSuite}.
+ *
+ * @since 3.12
+ */
+public class OverviewRulerPerformanceTest {
+
+	private final OverviewRulerStressTest fRulerTest= new OverviewRulerStressTest();
+
+	@Before
+	public void setUp() {
+		fRulerTest.setUp();
+	}
+
+	@After
+	public void tearDown() {
+		fRulerTest.tearDown();
+	}
+
+	@Test
+	public void testPaint() {
+		fRulerTest.paint();
+		long start= System.nanoTime();
+		for (int i= 0; i < 10; i++)
+			fRulerTest.paintRebuilt();
+		long rebuilding= (System.nanoTime() - start) / 10;
+
+		start= System.nanoTime();
+		for (int i= 0; i < 10; i++) {
+			for (int k= 0; k < 10; k++)
+				fRulerTest.moveRandomAnnotation();
+			fRulerTest.paint();
+		}
+		long updating= (System.nanoTime() - start) / 10;
+
+		assertTrue(OverviewRulerStressTest.ANNOTATIONS + " annotations: " + updating / 1000000 + " ms after moving 10 annotations, " + rebuilding / 1000000 + " ms when rebuilt", updating < rebuilding);
+	}
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationAccess;
+import org.eclipse.jface.text.source.ISharedTextColors;
+import org.eclipse.jface.text.source.OverviewRuler;
+import org.eclipse.jface.text.source.SourceViewer;
+
+/**
+ * Paints an overview ruler showing many annotations while annotations are added, removed and
+ * moved, and checks that the incrementally updated ruler looks like a freshly built one.
+ *
+ * @since 3.12
+ */
+public class OverviewRulerStressTest {
+
+	private static final int LINES= 50000;
+	static final int ANNOTATIONS= 100000;
+	private static final String[] TYPES= { "error", "warning", "search" };
+	private static final int[] COLORS= { SWT.COLOR_RED, SWT.COLOR_YELLOW, SWT.COLOR_GREEN };
+
+	private Shell fShell;
+	private IDocument fDocument;
+	private AnnotationModel fAnnotationModel;
+	private OverviewRuler fRuler;
+	private List<Annotation> fAnnotations;
+	private Random fRandom;
+	private Map<RGB, Color> fColors;
+
+	@Before
+	public void setUp() {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < LINES; i++)
+			content.append("line ").append(i).append('\n');
+		fDocument= new Document(content.toString());
+		fAnnotationModel= new AnnotationModel();
+		fAnnotations= new ArrayList<>();
+		fRandom= new Random(4711);
+		fColors= new HashMap<>();
+
+		fShell= new Shell();
+		final Display display= fShell.getDisplay();
+		IAnnotationAccess access= new IAnnotationAccess() {
+			@Override
+			public Object getType(Annotation annotation) {
+				return annotation.getType();
+			}
+
+			@Override
+			public boolean isMultiLine(Annotation annotation) {
+				return true;
+			}
+
+			@Override
+			public boolean isTemporary(Annotation annotation) {
+				return !annotation.isPersistent();
+			}
+		};
+		ISharedTextColors colors= new ISharedTextColors() {
+			@Override
+			public Color getColor(RGB rgb) {
+				Color color= fColors.get(rgb);
+				if (color == null) {
+					color= new Color(display, rgb);
+					fColors.put(rgb, color);
+				}
+				return color;
+			}
+
+			@Override
+			public void dispose() {
+			}
+		};
+		fRuler= new OverviewRuler(access, 12, colors);
+		for (int i= 0; i < TYPES.length; i++) {
+			fRuler.addAnnotationType(TYPES[i]);
+			fRuler.setAnnotationTypeLayer(TYPES[i], i);
+			fRuler.setAnnotationTypeColor(TYPES[i], display.getSystemColor(COLORS[i]));
+		}
+
+		SourceViewer viewer= new SourceViewer(fShell, null, fRuler, true, SWT.V_SCROLL | SWT.H_SCROLL);
+		viewer.setDocument(fDocument, fAnnotationModel);
+		viewer.getTextWidget().setSize(400, 600);
+		fRuler.getControl().setSize(12, 600);
+
+		for (int i= 0; i < ANNOTATIONS; i++)
+			addRandomAnnotation();
+	}
+
+	@After
+	public void tearDown() {
+		fShell.dispose();
+		for (Color color : fColors.values())
+			color.dispose();
+	}
+
+	private Position createRandomPosition() {
+		int offset= fRandom.nextInt(fDocument.getLength());
+		int length= fRandom.nextInt(10) == 0 ? fRandom.nextInt(Math.min(2000, fDocument.getLength() - offset)) : 0;
+		return new Position(offset, length);
+	}
+
+	private void addRandomAnnotation() {
+		Annotation annotation= new Annotation(TYPES[fRandom.nextInt(TYPES.length)], fRandom.nextBoolean(), null);
+		fAnnotationModel.addAnnotation(annotation, createRandomPosition());
+		fAnnotations.add(annotation);
+	}
+
+	private void removeRandomAnnotation() {
+		Annotation annotation= fAnnotations.remove(fRandom.nextInt(fAnnotations.size()));
+		fAnnotationModel.removeAnnotation(annotation);
+	}
+
+	void moveRandomAnnotation() {
+		Annotation annotation= fAnnotations.get(fRandom.nextInt(fAnnotations.size()));
+		fAnnotationModel.modifyAnnotationPosition(annotation, createRandomPosition());
+	}
+
+	int[] paint() {
+		Control control= fRuler.getControl();
+		int width= control.getSize().x;
+		int height= control.getSize().y;
+		Image image= new Image(control.getDisplay(), width, height);
+		GC gc= new GC(image);
+		try {
+			Event event= new Event();
+			event.gc= gc;
+			event.width= width;
+			event.height= height;
+			control.notifyListeners(SWT.Paint, event);
+		} finally {
+			gc.dispose();
+		}
+		ImageData data= image.getImageData();
+		image.dispose();
+
+		int[] pixels= new int[width * height];
+		for (int y= 0; y < height; y++)
+			data.getPixels(0, y, width, pixels, y * width);
+		return pixels;
+	}
+
+	int[] paintRebuilt() {
+		// setting the model again discards all cached information
+		fRuler.setModel(fRuler.getModel());
+		return paint();
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		assertArrayEquals(paintRebuilt(), paint());
+		for (int i= 0; i < 20; i++) {
+			for (int k= 0; k < 50; k++) {
+				switch (fRandom.nextInt(3)) {
+					case 0:
+						addRandomAnnotation();
+						break;
+					case 1:
+						removeRandomAnnotation();
+						break;
+					default:
+						moveRandomAnnotation();
+				}
+			}
+			int[] incremental= paint();
+			assertArrayEquals(paintRebuilt(), incremental);
+		}
+	}
+
+	@Test
+	public void testTyping() throws Exception {
+		paint();
+		for (int i= 0; i < 20; i++) {
+			int offset= fDocument.getLineOffset(fRandom.nextInt(LINES));
+			fDocument.replace(offset, 0, i % 5 == 0 ? "\n" : "x");
+			int[] incremental= paint();
+			assertArrayEquals(paintRebuilt(), incremental);
+		}
+	}
+}
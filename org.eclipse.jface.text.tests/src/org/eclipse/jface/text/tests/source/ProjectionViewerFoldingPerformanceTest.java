@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+import org.eclipse.jface.text.tests.JFaceTextPerformanceTestSuite;
+
+/**
+ * Compares the time needed to toggle many folding regions of a projection viewer one by one with
+ * toggling them in a folding change. Not part of the default test suite, see
+ * {@link JFaceTextPerformanceTestSuite}.
+ *
+ * @since 3.12
+ */
+public class ProjectionViewerFoldingPerformanceTest {
+
+	private static final int REGIONS= 10000;
+
+	private Shell fShell;
+	private IDocument fDocument;
+	private ProjectionViewerFoldingTest.FoldingViewer fViewer;
+	private ProjectionAnnotationModel fModel;
+	private ProjectionAnnotation[] fAnnotations;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < REGIONS; i++) {
+			content.append("region ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+		}
+		fDocument= new Document(content.toString());
+
+		fShell= new Shell();
+		fViewer= new ProjectionViewerFoldingTest.FoldingViewer(fShell);
+		fViewer.setDocument(fDocument, new AnnotationModel());
+		fViewer.doOperation(ProjectionViewer.TOGGLE);
+		fModel= fViewer.getProjectionAnnotationModel();
+
+		fAnnotations= new ProjectionAnnotation[REGIONS];
+		Map<Annotation, Position> additions= new HashMap<>();
+		for (int i= 0; i < REGIONS; i++) {
+			int offset= fDocument.getLineOffset(3 * i);
+			fAnnotations[i]= new ProjectionAnnotation();
+			additions.put(fAnnotations[i], new Position(offset, fDocument.getLineOffset(3 * i + 3) - offset));
+		}
+		fModel.modifyAnnotations(null, additions, null);
+	}
+
+	@After
+	public void tearDown() {
+		fShell.dispose();
+	}
+
+	private long toggleOneByOne() {
+		long start= System.nanoTime();
+		for (int i= 0; i < REGIONS; i++)
+			fModel.toggleExpansionState(fAnnotations[i]);
+		return System.nanoTime() - start;
+	}
+
+	private long toggleInFoldingChange() {
+		long start= System.nanoTime();
+		fViewer.beginFoldingChange();
+		try {
+			for (int i= 0; i < REGIONS; i++)
+				fModel.toggleExpansionState(fAnnotations[i]);
+		} finally {
+			fViewer.endFoldingChange();
+		}
+		return System.nanoTime() - start;
+	}
+
+	@Test
+	public void testToggle() throws Exception {
+		long oneByOne= toggleOneByOne();
+		String collapsed= fViewer.getVisibleText();
+		oneByOne+= toggleOneByOne();
+
+		long inChange= toggleInFoldingChange();
+		assertEquals(collapsed, fViewer.getVisibleText());
+		inChange+= toggleInFoldingChange();
+		assertEquals(fDocument.get(), fViewer.getVisibleText());
+
+		assertTrue("collapsing and expanding " + REGIONS + " regions: in a folding change " + inChange / 1000000 + " ms, one by one " + oneByOne / 1000000 + " ms", inChange < oneByOne);
+	}
+}
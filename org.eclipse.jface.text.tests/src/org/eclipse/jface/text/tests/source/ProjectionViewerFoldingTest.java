@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.tests.source;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Shell;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelListener;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+/**
+ * Toggles folding regions of a projection viewer in folding changes and checks the resulting
+ * projection.
+ *
+ * @since 3.12
+ */
+public class ProjectionViewerFoldingTest {
+
+	private static final int REGIONS= 1000;
+
+	/**
+	 * Projection viewer giving access to the visible text.
+	 */
+	static class FoldingViewer extends ProjectionViewer {
+
+		FoldingViewer(Composite parent) {
+			super(parent, null, null, false, SWT.NONE);
+		}
+
+		String getVisibleText() {
+			return getVisibleDocument().get();
+		}
+	}
+
+	private Shell fShell;
+	private IDocument fDocument;
+	private FoldingViewer fViewer;
+	private ProjectionAnnotationModel fModel;
+	private ProjectionAnnotation[] fAnnotations;
+	private int fModelEvents;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < REGIONS; i++) {
+			content.append("region ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+		}
+		fDocument= new Document(content.toString());
+
+		fShell= new Shell();
+		fViewer= new FoldingViewer(fShell);
+		fViewer.setDocument(fDocument, new AnnotationModel());
+		fViewer.doOperation(ProjectionViewer.TOGGLE);
+		fModel= fViewer.getProjectionAnnotationModel();
+
+		fAnnotations= new ProjectionAnnotation[REGIONS];
+		Map<Annotation, Position> additions= new HashMap<>();
+		for (int i= 0; i < REGIONS; i++) {
+			int offset= fDocument.getLineOffset(3 * i);
+			fAnnotations[i]= new ProjectionAnnotation();
+			additions.put(fAnnotations[i], new Position(offset, fDocument.getLineOffset(3 * i + 3) - offset));
+		}
+		fModel.modifyAnnotations(null, additions, null);
+
+		fModel.addAnnotationModelListener(new IAnnotationModelListener() {
+			@Override
+			public void modelChanged(IAnnotationModel model) {
+				fModelEvents++;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		fShell.dispose();
+	}
+
+	private String getCollapsedContent() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < REGIONS; i++) {
+			IRegion line= fDocument.getLineInformation(3 * i);
+			content.append(fDocument.get(line.getOffset(), line.getLength())).append('\n');
+		}
+		return content.toString();
+	}
+
+	private void toggleInFoldingChange() {
+		fViewer.beginFoldingChange();
+		try {
+			for (int i= 0; i < REGIONS; i++)
+				fModel.toggleExpansionState(fAnnotations[i]);
+		} finally {
+			fViewer.endFoldingChange();
+		}
+	}
+
+	@Test
+	public void testFoldingChange() throws Exception {
+		toggleInFoldingChange();
+		assertEquals(1, fModelEvents);
+		assertEquals(getCollapsedContent(), fViewer.getVisibleText());
+
+		toggleInFoldingChange();
+		assertEquals(2, fModelEvents);
+		assertEquals(fDocument.get(), fViewer.getVisibleText());
+	}
+
+	@Test
+	public void testNestedFoldingChange() throws Exception {
+		fModel.beginFoldingChange();
+		fModel.modifyExpansionStates(fAnnotations, null);
+		assertEquals(0, fModelEvents);
+		fModel.expand(fAnnotations[0]);
+		fModel.endFoldingChange();
+		assertEquals(1, fModelEvents);
+
+		String collapsed= getCollapsedContent();
+		int offset= fDocument.getLineOffset(3);
+		assertEquals(fDocument.get(0, offset) + collapsed.substring(collapsed.indexOf('\n') + 1), fViewer.getVisibleText());
+	}
+}
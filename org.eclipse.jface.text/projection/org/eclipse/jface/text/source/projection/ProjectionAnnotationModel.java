@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,12 @@ import org.eclipse.jface.text.source.AnnotationModel;
  */
 public class ProjectionAnnotationModel extends AnnotationModel {
 
+	/**
+	 * The nesting depth of the current folding change, <code>0</code> if there is none.
+	 * @since 3.12
+	 */
+	private int fFoldingChangeDepth= 0;
+
 
 	/**
 	 * Creates a new, empty projection annotation model.
@@ -38,6 +44,98 @@ public class ProjectionAnnotationModel extends AnnotationModel {
 	public ProjectionAnnotationModel() {
 	}
 
+	/**
+	 * Starts a folding change. Until the matching call of {@link #endFoldingChange()},
+	 * the changes of the expansion states, e.g. by {@link #collapse(Annotation)} or
+	 * {@link #expand(Annotation)}, are collected rather than sent out one by one. The
+	 * listeners receive a single annotation model change event describing all of them when
+	 * the outermost folding change ends, which allows a projection viewer to update its
+	 * projection in one pass.
+	 * <p>
+	 * Folding changes can be nested. Each call of this method must be followed by a call of
+	 * {@link #endFoldingChange()}, preferably in a <code>finally</code> block.
+	 * </p>
+	 *
+	 * @since 3.12
+	 */
+	public void beginFoldingChange() {
+		synchronized (getLockObject()) {
+			fFoldingChangeDepth++;
+		}
+	}
+
+	/**
+	 * Ends a folding change started by {@link #beginFoldingChange()}. If this ends the
+	 * outermost folding change, the collected changes are sent out as a single annotation
+	 * model change event.
+	 *
+	 * @since 3.12
+	 */
+	public void endFoldingChange() {
+		synchronized (getLockObject()) {
+			if (fFoldingChangeDepth == 0)
+				return;
+			if (--fFoldingChangeDepth > 0)
+				return;
+		}
+		fireModelChanged();
+	}
+
+	/**
+	 * Tells whether a folding change is in progress.
+	 *
+	 * @return <code>true</code> if inside a folding change, <code>false</code> otherwise
+	 * @since 3.12
+	 */
+	public boolean isInFoldingChange() {
+		synchronized (getLockObject()) {
+			return fFoldingChangeDepth > 0;
+		}
+	}
+
+	/**
+	 * Collapses and expands the given annotations in a single folding change. The
+	 * listeners receive one annotation model change event for all of them.
+	 *
+	 * @param collapsed the annotations to collapse, may be <code>null</code>
+	 * @param expanded the annotations to expand, may be <code>null</code>
+	 * @since 3.12
+	 */
+	public void modifyExpansionStates(Annotation[] collapsed, Annotation[] expanded) {
+		beginFoldingChange();
+		try {
+			if (collapsed != null) {
+				for (int i= 0; i < collapsed.length; i++)
+					collapse(collapsed[i]);
+			}
+			if (expanded != null) {
+				for (int i= 0; i < expanded.length; i++)
+					expand(expanded[i]);
+			}
+		} finally {
+			endFoldingChange();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Inside a folding change, the changes are collected until the outermost folding change
+	 * ends.
+	 * </p>
+	 *
+	 * @see #beginFoldingChange()
+	 * @since 3.12
+	 */
+	@Override
+	protected void fireModelChanged() {
+		synchronized (getLockObject()) {
+			if (fFoldingChangeDepth > 0)
+				return;
+		}
+		super.fireModelChanged();
+	}
+
 	/**
 	 * Changes the state of the given annotation to collapsed. An appropriate
 	 * annotation model change event is sent out.
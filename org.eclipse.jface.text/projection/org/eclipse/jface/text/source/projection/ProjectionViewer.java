@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@
 package org.eclipse.jface.text.source.projection;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -223,6 +225,8 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 
 		final static int REDRAW_COSTS= 15;
 		final static int INVALIDATION_COSTS= 10;
+		/** @since 3.12 */
+		final static int ONE_PASS_COSTS= 100;
 
 		List<ProjectionCommand> fList= new ArrayList<>(15);
 		int fExpectedExecutionCosts= -1;
@@ -253,6 +257,38 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 			return fExpectedExecutionCosts > INVALIDATION_COSTS;
 		}
 
+		/**
+		 * Tells whether there are so many commands that computing the projection in
+		 * one pass is cheaper than executing them one by one.
+		 *
+		 * @return <code>true</code> if the projection should be computed in one pass
+		 * @since 3.12
+		 */
+		boolean passedOnePassCostsThreshold() {
+			return fList.size() > ONE_PASS_COSTS;
+		}
+
+		/**
+		 * Returns the projection document changed by all the commands of this queue.
+		 *
+		 * @return the projection document, or <code>null</code> if there is none or the
+		 *         commands change different projection documents
+		 * @since 3.12
+		 */
+		ProjectionDocument getProjection() {
+			ProjectionDocument projection= null;
+			for (int i= 0; i < fList.size(); i++) {
+				ProjectionCommand command= fList.get(i);
+				if (command.fType == ProjectionCommand.INVALIDATE_PRESENTATION)
+					continue;
+				if (projection == null)
+					projection= command.fProjection;
+				else if (projection != command.fProjection)
+					return null;
+			}
+			return projection;
+		}
+
 		private void computeExpectedExecutionCosts() {
 			int max_costs= Math.max(REDRAW_COSTS, INVALIDATION_COSTS);
 			fExpectedExecutionCosts= fList.size();
@@ -584,6 +620,42 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 		}
 	}
 
+	/**
+	 * Starts a folding change on the projection annotation model of this viewer. Until the
+	 * matching call of {@link #endFoldingChange()}, changes of the expansion states of the
+	 * projection annotations are collected. When the outermost folding change ends, this
+	 * viewer updates its projection for all of them at once and redraws only once.
+	 * <p>
+	 * Each call of this method must be followed by a call of {@link #endFoldingChange()},
+	 * preferably in a <code>finally</code> block. This method has no effect if the viewer is
+	 * not in projection mode.
+	 * </p>
+	 *
+	 * @see ProjectionAnnotationModel#beginFoldingChange()
+	 * @since 3.12
+	 */
+	public void beginFoldingChange() {
+		if (isProjectionMode())
+			fProjectionAnnotationModel.beginFoldingChange();
+	}
+
+	/**
+	 * Ends a folding change started by {@link #beginFoldingChange()}.
+	 *
+	 * @see ProjectionAnnotationModel#endFoldingChange()
+	 * @since 3.12
+	 */
+	public void endFoldingChange() {
+		if (isProjectionMode() && fProjectionAnnotationModel.isInFoldingChange()) {
+			setRedraw(false);
+			try {
+				fProjectionAnnotationModel.endFoldingChange();
+			} finally {
+				setRedraw(true);
+			}
+		}
+	}
+
 	/*
 	 * @since 3.2
 	 */
@@ -969,7 +1041,12 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 			if (commandQueue.passedRedrawCostsThreshold()) {
 				setRedraw(false);
 				try {
-					executeProjectionCommands(commandQueue, false);
+					ProjectionDocument projection= commandQueue.passedOnePassCostsThreshold() ? commandQueue.getProjection() : null;
+					if (projection != null && projection == getVisibleDocument()) {
+						commandQueue.clear();
+						replaceMasterDocumentRanges(projection);
+					} else
+						executeProjectionCommands(commandQueue, false);
 				} catch (IllegalArgumentException x) {
 					reinitializeProjection();
 				} finally {
@@ -1011,6 +1088,66 @@ public class ProjectionViewer extends SourceViewer implements ITextViewerExtensi
 		commandQueue.clear();
 	}
 
+	/**
+	 * Replaces the master document ranges of the given projection document with the ranges
+	 * that are visible according to the projection annotation model. Other than executing
+	 * projection commands one by one, this computes the projection in one pass and changes
+	 * the projection document with a single event. While the modification is processed, the
+	 * viewer no longer handles projection changes, as it is causing them.
+	 *
+	 * @param projection the projection document
+	 * @throws BadLocationException in case the annotation model is not in synchronization
+	 *             with the document
+	 * @since 3.12
+	 */
+	private void replaceMasterDocumentRanges(ProjectionDocument projection) throws BadLocationException {
+		IDocument master= projection.getMasterDocument();
+
+		List<IRegion> hidden= new ArrayList<>();
+		Iterator<Annotation> e= fProjectionAnnotationModel.getAnnotationIterator();
+		while (e.hasNext()) {
+			ProjectionAnnotation annotation= (ProjectionAnnotation) e.next();
+			if (annotation.isCollapsed()) {
+				Position position= fProjectionAnnotationModel.getPosition(annotation);
+				IRegion[] regions= position == null ? null : computeCollapsedRegions(position);
+				if (regions != null) {
+					for (int i= 0; i < regions.length; i++) {
+						// make sure the document range is strictly line based, see removeMasterDocumentRange
+						int end= toLineStart(master, regions[i].getOffset() + regions[i].getLength(), true);
+						int offset= toLineStart(master, regions[i].getOffset(), false);
+						if (offset < end)
+							hidden.add(new Region(offset, end - offset));
+					}
+				}
+			}
+		}
+
+		Collections.sort(hidden, new Comparator<IRegion>() {
+			@Override
+			public int compare(IRegion r1, IRegion r2) {
+				return r1.getOffset() - r2.getOffset();
+			}
+		});
+
+		List<IRegion> visible= new ArrayList<>(hidden.size() + 1);
+		int offset= 0;
+		for (int i= 0; i < hidden.size(); i++) {
+			IRegion region= hidden.get(i);
+			if (offset < region.getOffset())
+				visible.add(new Region(offset, region.getOffset() - offset));
+			offset= Math.max(offset, region.getOffset() + region.getLength());
+		}
+		if (offset < master.getLength())
+			visible.add(new Region(offset, master.getLength() - offset));
+
+		try {
+			fHandleProjectionChanges= false;
+			projection.replaceMasterDocumentRanges(visible.toArray(new IRegion[visible.size()]));
+		} finally {
+			fHandleProjectionChanges= true;
+		}
+	}
+
 	private ProjectionAnnotation[] computeCollapsedNestedAnnotations(int offset, int length) {
 		List<ProjectionAnnotation> annotations= new ArrayList<>(5);
 		Iterator<Annotation> e= fProjectionAnnotationModel.getAnnotationIterator(offset, length, false, false);
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.internal.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension8;
+
+
+/**
+ * Filters the computed proposals of a content assist session incrementally. The filtered proposals
+ * are remembered for each text typed since the invocation, so that typing another character only
+ * validates the proposals that were valid for the previous text, and deleting characters goes back
+ * to the proposals remembered for the shorter text instead of validating all computed proposals
+ * again.
+ * <p>
+ * Large sets of proposals are validated by several threads while the caller waits, as far as the
+ * proposals declare that they can be validated outside the display thread, see
+ * {@link ICompletionProposalExtension8}. Other proposals are validated by the caller.
+ * </p>
+ *
+ * @since 3.12
+ */
+public final class ProposalFilter {
+
+	/** The number of proposals from which validation is split among several threads. */
+	public static final int PARALLEL_THRESHOLD= 2000;
+	/** The number of proposals validated by one thread. */
+	private static final int CHUNK_SIZE= 500;
+
+	/** The computed proposals the remembered results belong to. */
+	private ICompletionProposal[] fComputedProposals;
+	/** The typed texts, each one a prefix of the next one. */
+	private final List<String> fPrefixes= new ArrayList<>();
+	/** The valid proposals for the text at the same index in {@link #fPrefixes}. */
+	private final List<ICompletionProposal[]> fResults= new ArrayList<>();
+
+	/**
+	 * Returns the proposals that need to be validated for the given typed text, that is, the
+	 * proposals remembered for the longest prefix of the text, or all computed proposals.
+	 *
+	 * @param computedProposals the proposals computed for the session
+	 * @param prefix the text typed since the invocation of content assist, or <code>null</code>
+	 *        if unknown
+	 * @return the proposals to validate
+	 */
+	public ICompletionProposal[] getCandidates(ICompletionProposal[] computedProposals, String prefix) {
+		if (computedProposals != fComputedProposals) {
+			fComputedProposals= computedProposals;
+			fPrefixes.clear();
+			fResults.clear();
+		}
+		if (prefix == null)
+			return computedProposals;
+
+		for (int i= fPrefixes.size() - 1; i >= 0; i--) {
+			if (prefix.startsWith(fPrefixes.get(i)))
+				return fResults.get(i);
+			// the text has been changed, the results for longer texts are not needed anymore
+			fPrefixes.remove(i);
+			fResults.remove(i);
+		}
+		return computedProposals;
+	}
+
+	/**
+	 * Remembers the valid proposals for the given typed text.
+	 *
+	 * @param prefix the text typed since the invocation of content assist, or <code>null</code>
+	 *        if unknown
+	 * @param proposals the valid proposals
+	 */
+	public void remember(String prefix, ICompletionProposal[] proposals) {
+		if (prefix == null)
+			return;
+		int last= fPrefixes.size() - 1;
+		if (last >= 0 && fPrefixes.get(last).equals(prefix)) {
+			fResults.set(last, proposals);
+		} else {
+			fPrefixes.add(prefix);
+			fResults.add(proposals);
+		}
+	}
+
+	/**
+	 * Returns the proposals that are valid for the given offset, in their original order. Must be
+	 * called in the thread in which proposals that are not
+	 * {@link ICompletionProposalExtension8#isValidationThreadSafe() thread safe} can be validated.
+	 *
+	 * @param proposals the proposals to validate
+	 * @param document the document
+	 * @param offset the caret offset
+	 * @param event the merged document event, may be <code>null</code>
+	 * @return the valid proposals, or <code>null</code> if a proposal cannot be validated because it
+	 *         implements neither {@link ICompletionProposalExtension2} nor
+	 *         {@link ICompletionProposalExtension}
+	 */
+	public static ICompletionProposal[] filter(final ICompletionProposal[] proposals, final IDocument document, final int offset, final DocumentEvent event) {
+		if (proposals.length < PARALLEL_THRESHOLD) {
+			List<ICompletionProposal> filtered= filter(proposals, 0, proposals.length, document, offset, event);
+			return filtered == null ? null : filtered.toArray(new ICompletionProposal[filtered.size()]);
+		}
+
+		// chunks with proposals that must be validated by the caller have no future
+		int chunks= (proposals.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		List<Future<List<ICompletionProposal>>> futures= new ArrayList<>(chunks);
+		for (int i= 0; i < chunks; i++) {
+			final int from= i * CHUNK_SIZE;
+			final int to= Math.min(from + CHUNK_SIZE, proposals.length);
+			if (isValidationThreadSafe(proposals, from, to)) {
+				futures.add(ForkJoinPool.commonPool().submit(new Callable<List<ICompletionProposal>>() {
+					@Override
+					public List<ICompletionProposal> call() {
+						return filter(proposals, from, to, document, offset, event);
+					}
+				}));
+			} else {
+				futures.add(null);
+			}
+		}
+
+		List<ICompletionProposal> filtered= new ArrayList<>(proposals.length);
+		boolean valid= true;
+		for (int i= 0; i < chunks; i++) {
+			Future<List<ICompletionProposal>> future= futures.get(i);
+			if (!valid) {
+				if (future != null)
+					future.cancel(false);
+				continue;
+			}
+			int from= i * CHUNK_SIZE;
+			int to= Math.min(from + CHUNK_SIZE, proposals.length);
+			List<ICompletionProposal> chunk;
+			if (future == null) {
+				chunk= filter(proposals, from, to, document, offset, event);
+			} else {
+				try {
+					chunk= future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					chunk= filter(proposals, from, to, document, offset, event);
+				} catch (ExecutionException e) {
+					// validation does not throw checked exceptions
+					Throwable cause= e.getCause();
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw (RuntimeException) cause;
+				}
+			}
+			if (chunk == null)
+				valid= false;
+			else
+				filtered.addAll(chunk);
+		}
+		return valid ? filtered.toArray(new ICompletionProposal[filtered.size()]) : null;
+	}
+
+	private static boolean isValidationThreadSafe(ICompletionProposal[] proposals, int from, int to) {
+		for (int i= from; i < to; i++) {
+			if (!(proposals[i] instanceof ICompletionProposalExtension8) || !((ICompletionProposalExtension8) proposals[i]).isValidationThreadSafe())
+				return false;
+		}
+		return true;
+	}
+
+	private static List<ICompletionProposal> filter(ICompletionProposal[] proposals, int from, int to, IDocument document, int offset, DocumentEvent event) {
+		List<ICompletionProposal> filtered= new ArrayList<>(to - from);
+		for (int i= from; i < to; i++) {
+
+			if (proposals[i] instanceof ICompletionProposalExtension2) {
+
+				ICompletionProposalExtension2 p= (ICompletionProposalExtension2) proposals[i];
+				try {
+					if (p.validate(document, offset, event))
+						filtered.add(proposals[i]);
+				} catch (RuntimeException e) {
+					// Make sure that poorly behaved completion proposers do not break filtering.
+				}
+			} else if (proposals[i] instanceof ICompletionProposalExtension) {
+
+				ICompletionProposalExtension p= (ICompletionProposalExtension) proposals[i];
+				try {
+					if (p.isValidFor(document, offset))
+						filtered.add(proposals[i]);
+				} catch (RuntimeException e) {
+					// Make sure that poorly behaved completion proposers do not break filtering.
+				}
+			} else {
+				return null;
+			}
+		}
+		return filtered;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension2;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.ISourceViewerExtension2;
 
@@ -51,7 +52,12 @@ public class DefaultTextHover implements ITextHover {
 		if (model == null)
 			return null;
 
-		Iterator<Annotation> e= model.getAnnotationIterator();
+		Iterator<Annotation> e;
+		if (model instanceof IAnnotationModelExtension2)
+			// query at least one character, not all models find the annotations at an empty region
+			e= ((IAnnotationModelExtension2) model).getAnnotationIterator(hoverRegion.getOffset(), Math.max(1, hoverRegion.getLength()), true, true);
+		else
+			e= model.getAnnotationIterator();
 		while (e.hasNext()) {
 			Annotation a= e.next();
 			if (isIncluded(a)) {
@@ -71,6 +71,7 @@ import org.eclipse.jface.bindings.keys.KeySequence;
 import org.eclipse.jface.bindings.keys.SWTKeySupport;
 import org.eclipse.jface.contentassist.IContentAssistSubjectControl;
 import org.eclipse.jface.internal.text.InformationControlReplacer;
+import org.eclipse.jface.internal.text.ProposalFilter;
 import org.eclipse.jface.internal.text.TableOwnerDrawSupport;
 import org.eclipse.jface.preference.JFacePreferences;
 import org.eclipse.jface.resource.JFaceResources;
@@ -362,6 +363,8 @@ class CompletionProposalPopup implements IContentAssistListener {
 
 			if (proposals != null && proposals.length > 0)
 				setProposals(proposals, fIsFilteredSubset);
+			else if (fComputation != null)
+				setProposals(null, false);
 			else
 				hide();
 		}
@@ -428,6 +431,29 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 */
 	private boolean fIsInitialSort;
 
+	/**
+	 * The computation that adds the proposals of the asynchronous processors to this popup while it
+	 * is open, or <code>null</code> if there are no asynchronous processors or the computation is
+	 * done.
+	 *
+	 * @since 3.12
+	 */
+	private ProposalComputation fComputation;
+
+	/**
+	 * Tells whether the popup has been opened by auto activation.
+	 *
+	 * @since 3.12
+	 */
+	private boolean fIsAutoActivated;
+
+	/**
+	 * The filter that remembers the valid proposals for the text typed since the invocation.
+	 *
+	 * @since 3.12
+	 */
+	private final ProposalFilter fProposalFilter= new ProposalFilter();
+
 	/**
 	 * Creates a new completion proposal popup for the given elements.
 	 *
@@ -477,6 +503,7 @@ class CompletionProposalPopup implements IContentAssistListener {
 			// when the user types fast.
 			fContentAssistSubjectControlAdapter.addKeyListener(fKeyListener);
 
+			fIsAutoActivated= autoActivated;
 			BusyIndicator.showWhile(control.getDisplay(), new Runnable() {
 				@Override
 				public void run() {
@@ -486,11 +513,12 @@ class CompletionProposalPopup implements IContentAssistListener {
 					fLastCompletionOffset= fFilterOffset;
 					fComputedProposals= computeProposals(fInvocationOffset);
 
+					// while asynchronous processors are computing, the popup opens right away
 					int count= (fComputedProposals == null ? 0 : fComputedProposals.length);
-					if (count == 0 && hideWhenNoProposals(autoActivated))
+					if (count == 0 && fComputation == null && hideWhenNoProposals(autoActivated))
 						return;
 
-					if (count == 1 && !autoActivated && canAutoInsert(fComputedProposals[0])) {
+					if (count == 1 && fComputation == null && !autoActivated && canAutoInsert(fComputedProposals[0])) {
 						insertProposal(fComputedProposals[0], (char) 0, 0, fInvocationOffset);
 						hide();
 					} else {
@@ -508,6 +536,95 @@ class CompletionProposalPopup implements IContentAssistListener {
 		return getErrorMessage();
 	}
 
+	/**
+	 * Starts the computation of the proposals of the asynchronous processors at the given offset,
+	 * if there are any. The proposals are added to the popup as they are computed.
+	 *
+	 * @param offset the offset
+	 * @since 3.12
+	 */
+	private void startComputation(int offset) {
+		final ProposalComputation computation= fContentAssistant.createProposalComputation(fViewer, offset);
+		if (computation == null)
+			return;
+
+		fComputation= computation;
+		computation.start(fContentAssistSubjectControlAdapter.getControl().getDisplay(), new ProposalComputation.IProposalListener() {
+			@Override
+			public void proposalsComputed(ICompletionProposal[] proposals) {
+				if (fComputation == computation)
+					addComputedProposals(proposals);
+			}
+
+			@Override
+			public void computationDone() {
+				if (fComputation == computation) {
+					fComputation= null;
+					handleComputationDone();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds proposals computed in the background to the popup. If the document has changed since the
+	 * invocation, only the proposals that are valid for the current offset are shown.
+	 *
+	 * @param proposals the new proposals
+	 * @since 3.12
+	 */
+	private void addComputedProposals(ICompletionProposal[] proposals) {
+		if (!Helper.okToUse(fProposalTable))
+			return;
+
+		ICompletionProposal[] computed= new ICompletionProposal[fComputedProposals.length + proposals.length];
+		System.arraycopy(fComputedProposals, 0, computed, 0, fComputedProposals.length);
+		System.arraycopy(proposals, 0, computed, fComputedProposals.length, proposals.length);
+		fComputedProposals= computed;
+
+		if (fFilterOffset == fInvocationOffset) {
+			setProposals(fComputedProposals, false);
+			return;
+		}
+
+		IDocument document= fContentAssistSubjectControlAdapter.getDocument();
+		List<ICompletionProposal> filtered= new ArrayList<>();
+		for (ICompletionProposal proposal : fFilteredProposals) {
+			if (proposal != fEmptyProposal)
+				filtered.add(proposal);
+		}
+		// proposals that cannot be validated are not shown, they may not fit the typed text
+		ICompletionProposal[] valid= ProposalFilter.filter(proposals, document, fFilterOffset, null);
+		if (valid != null)
+			filtered.addAll(Arrays.asList(valid));
+		setProposals(filtered.toArray(new ICompletionProposal[filtered.size()]), false);
+	}
+
+	/**
+	 * Called when all asynchronous processors are done or have been dropped. Hides the popup if
+	 * there are no proposals and inserts a single proposal if possible, like in the synchronous
+	 * case.
+	 *
+	 * @since 3.12
+	 */
+	private void handleComputationDone() {
+		if (!Helper.okToUse(fProposalTable))
+			return;
+
+		int count= fComputedProposals.length;
+		if (count == 0) {
+			if (hideWhenNoProposals(fIsAutoActivated))
+				return;
+		} else if (count == 1 && !fIsAutoActivated && fFilterOffset == fInvocationOffset && canAutoInsert(fComputedProposals[0])) {
+			insertProposal(fComputedProposals[0], (char) 0, 0, fInvocationOffset);
+			hide();
+			return;
+		}
+
+		if (fFilteredProposals == null || fFilteredProposals.length == 1 && fFilteredProposals[0] == fEmptyProposal)
+			setProposals(null, false); // replace the 'computing' message
+	}
+
 	/**
 	 * Hides the popup and returns <code>true</code> if the popup is configured
 	 * to never display an empty list. Returns <code>false</code> otherwise.
@@ -551,11 +668,13 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 * @return the completion proposals available at this offset
 	 */
 	private ICompletionProposal[] computeProposals(int offset) {
+		cancelComputation();
 		ICompletionProposal[] proposals;
 		if (fContentAssistSubjectControl != null) {
 			proposals= fContentAssistant.computeCompletionProposals(fContentAssistSubjectControl, offset);
 		} else {
 			proposals= fContentAssistant.computeCompletionProposals(fViewer, offset);
+			startComputation(offset);
 		}
 		if (proposals == null)
 			return new ICompletionProposal[] {};
@@ -566,6 +685,18 @@ class CompletionProposalPopup implements IContentAssistListener {
 		return proposals;
 	}
 
+	/**
+	 * Cancels the computation of proposals in the background, if any.
+	 *
+	 * @since 3.12
+	 */
+	private void cancelComputation() {
+		if (fComputation != null) {
+			fComputation.cancel();
+			fComputation= null;
+		}
+	}
+
 	/**
 	 * Returns the error message.
 	 *
@@ -1095,6 +1226,8 @@ class CompletionProposalPopup implements IContentAssistListener {
 	 * @since 3.0
 	 */
 	private void unregister() {
+		cancelComputation();
+
 		if (fDocumentListener != null) {
 			IDocument document= fContentAssistSubjectControlAdapter.getDocument();
 			if (document != null)
@@ -1152,7 +1285,10 @@ class CompletionProposalPopup implements IContentAssistListener {
 
 			if (proposals == null || proposals.length == 0) {
 				fEmptyProposal.fOffset= fFilterOffset;
-				fEmptyProposal.fDisplayString= fEmptyMessage != null ? fEmptyMessage : JFaceTextMessages.getString("CompletionProposalPopup.no_proposals"); //$NON-NLS-1$
+				if (fComputation != null)
+					fEmptyProposal.fDisplayString= JFaceTextMessages.getString("CompletionProposalPopup.computing_proposals"); //$NON-NLS-1$
+				else
+					fEmptyProposal.fDisplayString= fEmptyMessage != null ? fEmptyMessage : JFaceTextMessages.getString("CompletionProposalPopup.no_proposals"); //$NON-NLS-1$
 				proposals= new ICompletionProposal[] { fEmptyProposal };
 			}
 
@@ -1488,54 +1624,35 @@ class CompletionProposalPopup implements IContentAssistListener {
 			return fComputedProposals;
 		}
 
-		ICompletionProposal[] proposals;
-		if (offset < fFilterOffset) {
-			proposals= fComputedProposals;
-			fIsFilteredSubset= false;
-		} else {
-			proposals= fFilteredProposals;
-			fIsFilteredSubset= true;
-		}
-
-		if (proposals == null) {
+		if (fComputedProposals == null) {
 			fIsFilteredSubset= false;
 			return null;
 		}
 
 		IDocument document= fContentAssistSubjectControlAdapter.getDocument();
-		int length= proposals.length;
-		List<Object> filtered= new ArrayList<>(length);
-		for (int i= 0; i < length; i++) {
-
-			if (proposals[i] instanceof ICompletionProposalExtension2) {
-
-				ICompletionProposalExtension2 p= (ICompletionProposalExtension2) proposals[i];
-				try {
-					if (p.validate(document, offset, event))
-						filtered.add(p);
-				} catch (RuntimeException e) {
-					// Make sure that poorly behaved completion proposers do not break filtering.
-				}
-			} else if (proposals[i] instanceof ICompletionProposalExtension) {
-
-				ICompletionProposalExtension p= (ICompletionProposalExtension) proposals[i];
-				try {
-					if (p.isValidFor(document, offset))
-						filtered.add(p);
-				} catch (RuntimeException e) {
-					// Make sure that poorly behaved completion proposers do not break filtering.
-				}
-			} else {
-				// restore original behavior
-				fIsFilteredSubset= false;
-				fInvocationOffset= offset;
-				fContentAssistant.fireSessionRestartEvent();
-				fComputedProposals= computeProposals(fInvocationOffset);
-				return fComputedProposals;
-			}
+		String prefix;
+		try {
+			prefix= document.get(fInvocationOffset, offset - fInvocationOffset);
+		} catch (BadLocationException x) {
+			prefix= null;
+		}
+
+		// only validate the proposals that were valid for a prefix of the typed text
+		ICompletionProposal[] proposals= fProposalFilter.getCandidates(fComputedProposals, prefix);
+		fIsFilteredSubset= proposals == fFilteredProposals;
+
+		ICompletionProposal[] filtered= ProposalFilter.filter(proposals, document, offset, event);
+		if (filtered == null) {
+			// restore original behavior
+			fIsFilteredSubset= false;
+			fInvocationOffset= offset;
+			fContentAssistant.fireSessionRestartEvent();
+			fComputedProposals= computeProposals(fInvocationOffset);
+			return fComputedProposals;
 		}
 
-		return filtered.toArray(new ICompletionProposal[filtered.size()]);
+		fProposalFilter.remember(prefix, filtered);
+		return filtered;
 	}
 
 	/**
@@ -1593,6 +1710,7 @@ class CompletionProposalPopup implements IContentAssistListener {
 			if (!Helper.okToUse(fProposalShell) && !control.isDisposed())
 				fContentAssistSubjectControlAdapter.addKeyListener(fKeyListener);
 
+			fIsAutoActivated= false;
 			BusyIndicator.showWhile(control.getDisplay(), new Runnable() {
 				@Override
 				public void run() {
@@ -1603,15 +1721,15 @@ class CompletionProposalPopup implements IContentAssistListener {
 					fFilteredProposals= computeProposals(fInvocationOffset);
 
 					int count= (fFilteredProposals == null ? 0 : fFilteredProposals.length);
-					if (count == 0 && hideWhenNoProposals(false))
+					if (count == 0 && fComputation == null && hideWhenNoProposals(false))
 						return;
 
-					if (count == 1 && canAutoInsert(fFilteredProposals[0])) {
+					if (count == 1 && fComputation == null && canAutoInsert(fFilteredProposals[0])) {
 						insertProposal(fFilteredProposals[0], (char) 0, 0, fInvocationOffset);
 						hide();
 					} else {
 						ensureDocumentListenerInstalled();
-						if (count > 0 && completeCommonPrefix())
+						if (count > 0 && fComputation == null && completeCommonPrefix())
 							hide();
 						else {
 							fComputedProposals= fFilteredProposals;
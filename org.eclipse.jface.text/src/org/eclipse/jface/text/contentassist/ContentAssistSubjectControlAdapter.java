@@ -338,7 +338,7 @@ final class ContentAssistSubjectControlAdapter implements IContentAssistSubjectC
 	public void installContextInformationPresenter(ContextFrame frame) {
 		if (fContentAssistSubjectControl != null) {
 			if (frame.fPresenter instanceof ISubjectControlContextInformationPresenter)
-				((ISubjectControlContextInformationPresenter)frame.fValidator).install(frame.fInformation, fContentAssistSubjectControl, frame.fBeginOffset);
+				((ISubjectControlContextInformationPresenter)frame.fPresenter).install(frame.fInformation, fContentAssistSubjectControl, frame.fBeginOffset);
 		} else
 			frame.fPresenter.install(frame.fInformation, fViewer, frame.fBeginOffset);
 	}
@@ -14,10 +14,17 @@
  *******************************************************************************/
 package org.eclipse.jface.text.contentassist;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTError;
@@ -59,6 +66,8 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.bindings.keys.KeySequence;
 import org.eclipse.jface.contentassist.IContentAssistSubjectControl;
 import org.eclipse.jface.contentassist.ISubjectControlContentAssistProcessor;
+import org.eclipse.jface.contentassist.ISubjectControlContextInformationPresenter;
+import org.eclipse.jface.contentassist.ISubjectControlContextInformationValidator;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.preference.JFacePreferences;
 import org.eclipse.jface.util.Geometry;
@@ -75,6 +84,7 @@ import org.eclipse.jface.text.IWidgetTokenKeeper;
 import org.eclipse.jface.text.IWidgetTokenKeeperExtension;
 import org.eclipse.jface.text.IWidgetTokenOwner;
 import org.eclipse.jface.text.IWidgetTokenOwnerExtension;
+import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.TextUtilities;
 
 
@@ -850,7 +860,75 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			IStatus status= new Status(IStatus.ERROR, PLUGIN_ID, message, exception);
 			Platform.getLog(Platform.getBundle(PLUGIN_ID)).log(status);
 
-			fLastErrorMessage= message;
+			addErrorMessage(message);
+		}
+	}
+
+	/**
+	 * A context information validator for content types with several processors. It delegates to
+	 * the validator of the processor that computed the installed context information.
+	 *
+	 * @since 3.12
+	 */
+	private class CompositeContextInformationValidator implements ISubjectControlContextInformationValidator, ISubjectControlContextInformationPresenter {
+
+		private final List<IContentAssistProcessor> fValidatorProcessors;
+		private IContextInformationValidator fDelegate;
+
+		/**
+		 * @param processors the processors of the content type
+		 */
+		CompositeContextInformationValidator(List<IContentAssistProcessor> processors) {
+			fValidatorProcessors= processors;
+		}
+
+		/**
+		 * Sets the validator of the processor that computed the given context information as
+		 * delegate. Context information which was not computed by a processor, for example the one
+		 * of a completion proposal, is validated by the first validator of the processors.
+		 *
+		 * @param info the context information
+		 */
+		private void setDelegate(IContextInformation info) {
+			fDelegate= null;
+			IContentAssistProcessor processor= fContextInformationProcessors != null ? fContextInformationProcessors.get(info) : null;
+			if (processor != null) {
+				fDelegate= processor.getContextInformationValidator();
+				return;
+			}
+			for (IContentAssistProcessor p : fValidatorProcessors) {
+				fDelegate= p.getContextInformationValidator();
+				if (fDelegate != null)
+					return;
+			}
+		}
+
+		@Override
+		public void install(IContextInformation info, ITextViewer viewer, int offset) {
+			setDelegate(info);
+			if (fDelegate != null)
+				fDelegate.install(info, viewer, offset);
+		}
+
+		@Override
+		public void install(IContextInformation info, IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
+			setDelegate(info);
+			if (fDelegate instanceof ISubjectControlContextInformationValidator)
+				((ISubjectControlContextInformationValidator) fDelegate).install(info, contentAssistSubjectControl, offset);
+			else if (fDelegate instanceof ISubjectControlContextInformationPresenter)
+				((ISubjectControlContextInformationPresenter) fDelegate).install(info, contentAssistSubjectControl, offset);
+		}
+
+		@Override
+		public boolean isContextInformationValid(int offset) {
+			return fDelegate != null && fDelegate.isContextInformationValid(offset);
+		}
+
+		@Override
+		public boolean updatePresentation(int offset, TextPresentation presentation) {
+			if (fDelegate instanceof IContextInformationPresenter)
+				return ((IContextInformationPresenter) fDelegate).updatePresentation(offset, presentation);
+			return false;
 		}
 	}
 
@@ -896,6 +974,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 */
 	public static final int WIDGET_PRIORITY= 20;
 	private static final int DEFAULT_AUTO_ACTIVATION_DELAY= 500;
+	private static final int DEFAULT_ASYNCHRONOUS_TIMEOUT= 1000;
 
 	private static final String COMPLETION_ERROR_MESSAGE_KEY= "ContentAssistant.error_computing_completion"; //$NON-NLS-1$
 	private static final String CONTEXT_ERROR_MESSAGE_KEY= "ContentAssistant.error_computing_context"; //$NON-NLS-1$
@@ -908,7 +987,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	private boolean fIsAutoInserting= false;
 	private int fProposalPopupOrientation= PROPOSAL_OVERLAY;
 	private int fContextInfoPopupOrientation= CONTEXT_INFO_ABOVE;
-	private Map<String, IContentAssistProcessor> fProcessors;
+	private Map<String, List<IContentAssistProcessor>> fProcessors;
 
 	/**
 	 * The partitioning.
@@ -926,6 +1005,13 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 
 	private ITextViewer fViewer;
 	private String fLastErrorMessage;
+	/**
+	 * The processors that computed the last context information, if there are several processors
+	 * for its content type.
+	 *
+	 * @since 3.12
+	 */
+	private Map<IContextInformation, IContentAssistProcessor> fContextInformationProcessors;
 
 	private Closer fCloser;
 	LayoutManager fLayoutManager;
@@ -1042,6 +1128,20 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 */
 	private ICompletionProposalSorter fSorter;
 
+	/**
+	 * The processors that compute their completion proposals asynchronously, by content type.
+	 *
+	 * @since 3.12
+	 */
+	private Map<String, Set<IContentAssistProcessor>> fAsynchronousProcessors;
+
+	/**
+	 * The number of milliseconds after which asynchronous processors are dropped.
+	 *
+	 * @since 3.12
+	 */
+	private int fAsynchronousTimeout= DEFAULT_ASYNCHRONOUS_TIMEOUT;
+
 	/**
 	 * Creates a new content assistant. The content assistant is not automatically activated,
 	 * overlays the completion proposals with context information list if necessary, and shows the
@@ -1070,11 +1170,11 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	}
 
 	/**
-	 * Registers a given content assist processor for a particular content type. If there is already
-	 * a processor registered for this type, the new processor is registered instead of the old one.
+	 * Registers a given content assist processor for a particular content type. If there are already
+	 * processors registered for this type, the new processor is registered instead of the old ones.
 	 *
 	 * @param processor the content assist processor to register, or <code>null</code> to remove
-	 *        an existing one
+	 *        the existing ones
 	 * @param contentType the content type under which to register
 	 */
 	public void setContentAssistProcessor(IContentAssistProcessor processor, String contentType) {
@@ -1084,21 +1184,108 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		if (fProcessors == null)
 			fProcessors= new HashMap<>();
 
-		if (processor == null)
+		if (processor == null) {
 			fProcessors.remove(contentType);
-		else
-			fProcessors.put(contentType, processor);
+		} else {
+			List<IContentAssistProcessor> processors= new ArrayList<>(1);
+			processors.add(processor);
+			fProcessors.put(contentType, processors);
+		}
+
+		if (fAsynchronousProcessors != null)
+			fAsynchronousProcessors.remove(contentType);
 	}
 
-	/*
-	 * @see IContentAssistant#getContentAssistProcessor
+	/**
+	 * Registers a given content assist processor for a particular content type in addition to the
+	 * processors that are already registered for this type. The completion proposals of all
+	 * processors of a content type are shown together, and so are their context information. The
+	 * context information is validated by the validator of the processor that computed it. The auto
+	 * activation characters and error messages of all processors apply.
+	 *
+	 * @param processor the content assist processor to add
+	 * @param contentType the content type under which to register
+	 * @since 3.12
+	 */
+	public void addContentAssistProcessor(IContentAssistProcessor processor, String contentType) {
+		addContentAssistProcessor(processor, contentType, false);
+	}
+
+	/**
+	 * Registers a given content assist processor for a particular content type in addition to the
+	 * processors that are already registered for this type, like
+	 * {@link #addContentAssistProcessor(IContentAssistProcessor, String)}.
+	 * <p>
+	 * An asynchronous processor computes its completion proposals in a background thread, and
+	 * several asynchronous processors run concurrently. The proposal popup opens with the proposals
+	 * of the other processors and shows the proposals of each asynchronous processor as soon as they
+	 * are available. Asynchronous processors that are not done after the
+	 * {@link #setAsynchronousTimeout(int) timeout} are ignored for this invocation. They must be
+	 * prepared to be called outside the display thread, that is, they must not access the viewer's
+	 * widget. Processors are only called asynchronously for text viewers, not for
+	 * {@link IContentAssistSubjectControl}s.
+	 * </p>
+	 *
+	 * @param processor the content assist processor to add
+	 * @param contentType the content type under which to register
+	 * @param isAsynchronous <code>true</code> if the processor computes its proposals
+	 *            asynchronously
+	 * @since 3.12
+	 */
+	public void addContentAssistProcessor(IContentAssistProcessor processor, String contentType, boolean isAsynchronous) {
+
+		Assert.isNotNull(processor);
+		Assert.isNotNull(contentType);
+
+		if (fProcessors == null)
+			fProcessors= new HashMap<>();
+
+		List<IContentAssistProcessor> processors= fProcessors.get(contentType);
+		if (processors == null) {
+			processors= new ArrayList<>(1);
+			fProcessors.put(contentType, processors);
+		}
+		processors.add(processor);
+
+		if (isAsynchronous) {
+			if (fAsynchronousProcessors == null)
+				fAsynchronousProcessors= new HashMap<>();
+			Set<IContentAssistProcessor> asynchronous= fAsynchronousProcessors.get(contentType);
+			if (asynchronous == null) {
+				asynchronous= new HashSet<>();
+				fAsynchronousProcessors.put(contentType, asynchronous);
+			}
+			asynchronous.add(processor);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If several processors are registered for the content type, the first one is returned.
+	 * </p>
 	 */
 	@Override
 	public IContentAssistProcessor getContentAssistProcessor(String contentType) {
+		List<IContentAssistProcessor> processors= getContentAssistProcessors(contentType);
+		return processors.isEmpty() ? null : processors.get(0);
+	}
+
+	/**
+	 * Returns the content assist processors registered for the given content type.
+	 *
+	 * @param contentType the content type
+	 * @return the processors, possibly empty
+	 * @since 3.12
+	 */
+	private List<IContentAssistProcessor> getContentAssistProcessors(String contentType) {
 		if (fProcessors == null)
-			return null;
+			return Collections.emptyList();
 
-		return fProcessors.get(contentType);
+		List<IContentAssistProcessor> processors= fProcessors.get(contentType);
+		if (processors == null)
+			return Collections.emptyList();
+		return processors;
 	}
 
 	/**
@@ -1112,16 +1299,17 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			return ""; //$NON-NLS-1$
 
 		StringBuffer buf= new StringBuffer(5);
-		Iterator<Entry<String, IContentAssistProcessor>> iter= fProcessors.entrySet().iterator();
+		Iterator<Entry<String, List<IContentAssistProcessor>>> iter= fProcessors.entrySet().iterator();
 		while (iter.hasNext()) {
-			Entry<String, IContentAssistProcessor> entry= iter.next();
-			IContentAssistProcessor processor= entry.getValue();
-			char[] triggers= processor.getCompletionProposalAutoActivationCharacters();
-			if (triggers != null)
-				buf.append(triggers);
-			triggers= processor.getContextInformationAutoActivationCharacters();
-			if (triggers != null)
-				buf.append(triggers);
+			Entry<String, List<IContentAssistProcessor>> entry= iter.next();
+			for (IContentAssistProcessor processor : entry.getValue()) {
+				char[] triggers= processor.getCompletionProposalAutoActivationCharacters();
+				if (triggers != null)
+					buf.append(triggers);
+				triggers= processor.getContextInformationAutoActivationCharacters();
+				if (triggers != null)
+					buf.append(triggers);
+			}
 		}
 		return buf.toString();
 	}
@@ -1829,20 +2017,32 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	}
 
 	/**
-	 * Returns the content assist processor for the content type of the specified document position.
+	 * Returns all content assist processors for the content type of the specified document
+	 * position.
 	 *
 	 * @param viewer the text viewer
 	 * @param offset a offset within the document
-	 * @return a content-assist processor or <code>null</code> if none exists
-	 * @since 3.0
+	 * @return the content-assist processors, possibly empty
+	 * @since 3.12
 	 */
-	private IContentAssistProcessor getProcessor(ITextViewer viewer, int offset) {
+	private List<IContentAssistProcessor> getProcessors(ITextViewer viewer, int offset) {
+		String type= getContentType(viewer, offset);
+		return type != null ? getContentAssistProcessors(type) : Collections.<IContentAssistProcessor> emptyList();
+	}
+
+	/**
+	 * Returns the content type of the specified document position.
+	 *
+	 * @param viewer the text viewer
+	 * @param offset a offset within the document
+	 * @return the content type, or <code>null</code> if the offset is invalid
+	 * @since 3.12
+	 */
+	private String getContentType(ITextViewer viewer, int offset) {
 		try {
 
 			IDocument document= viewer.getDocument();
-			String type= TextUtilities.getContentType(document, getDocumentPartitioning(), offset, true);
-
-			return getContentAssistProcessor(type);
+			return TextUtilities.getContentType(document, getDocumentPartitioning(), offset, true);
 
 		} catch (BadLocationException x) {
 		}
@@ -1850,6 +2050,34 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 		return null;
 	}
 
+	/**
+	 * Returns either the synchronous or the asynchronous content assist processors for the content
+	 * type of the specified document position.
+	 *
+	 * @param viewer the text viewer
+	 * @param offset a offset within the document
+	 * @param isAsynchronous <code>true</code> to return the asynchronous processors,
+	 *            <code>false</code> to return the synchronous ones
+	 * @return the content-assist processors, possibly empty
+	 * @since 3.12
+	 */
+	private List<IContentAssistProcessor> getProcessors(ITextViewer viewer, int offset, boolean isAsynchronous) {
+		String type= getContentType(viewer, offset);
+		if (type == null)
+			return Collections.emptyList();
+		List<IContentAssistProcessor> processors= getContentAssistProcessors(type);
+		Set<IContentAssistProcessor> asynchronous= fAsynchronousProcessors != null ? fAsynchronousProcessors.get(type) : null;
+		if (asynchronous == null)
+			return isAsynchronous ? Collections.<IContentAssistProcessor> emptyList() : processors;
+
+		List<IContentAssistProcessor> result= new ArrayList<>(processors.size());
+		for (IContentAssistProcessor processor : processors) {
+			if (asynchronous.contains(processor) == isAsynchronous)
+				result.add(processor);
+		}
+		return result;
+	}
+
 	/**
 	 * Returns the content assist processor for the content type of the specified document position.
 	 *
@@ -1859,6 +2087,20 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	private IContentAssistProcessor getProcessor(IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
+		List<IContentAssistProcessor> processors= getProcessors(contentAssistSubjectControl, offset);
+		return processors.isEmpty() ? null : processors.get(0);
+	}
+
+	/**
+	 * Returns all content assist processors for the content type of the specified document
+	 * position.
+	 *
+	 * @param contentAssistSubjectControl the content assist subject control
+	 * @param offset a offset within the document
+	 * @return the content-assist processors, possibly empty
+	 * @since 3.12
+	 */
+	private List<IContentAssistProcessor> getProcessors(IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
 		try {
 
 			IDocument document= contentAssistSubjectControl.getDocument();
@@ -1868,12 +2110,12 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			else
 				type= IDocument.DEFAULT_CONTENT_TYPE;
 
-			return getContentAssistProcessor(type);
+			return getContentAssistProcessors(type);
 
 		} catch (BadLocationException x) {
 		}
 
-		return null;
+		return Collections.emptyList();
 	}
 
 	/**
@@ -1890,27 +2132,32 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			final IContentAssistSubjectControl contentAssistSubjectControl, final int offset) {
 		fLastErrorMessage= null;
 
-		final ICompletionProposal[][] result= { null };
-
-		final IContentAssistProcessor p= getProcessor(contentAssistSubjectControl, offset);
-		if (p instanceof ISubjectControlContentAssistProcessor) {
+		List<ICompletionProposal[]> results= new ArrayList<>(1);
+		for (final IContentAssistProcessor p : getProcessors(contentAssistSubjectControl, offset)) {
+			if (!(p instanceof ISubjectControlContentAssistProcessor))
+				continue;
+			final ICompletionProposal[][] result= { null };
 			// Ensure that the assist session ends cleanly even if the processor throws an exception.
 			SafeRunner.run(new ExceptionLoggingSafeRunnable(COMPLETION_ERROR_MESSAGE_KEY) {
 				@Override
 				public void run() throws Exception {
 					result[0]= ((ISubjectControlContentAssistProcessor) p)
 							.computeCompletionProposals(contentAssistSubjectControl, offset);
-					fLastErrorMessage= p.getErrorMessage();
+					addErrorMessage(p.getErrorMessage());
 				}
 			});
+			if (result[0] != null)
+				results.add(result[0]);
 		}
 
-		return result[0];
+		return concat(results, ICompletionProposal.class);
 	}
 
 	/**
 	 * Returns an array of completion proposals computed based on the specified document position.
-	 * The position is used to determine the appropriate content assist processor to invoke.
+	 * The position is used to determine the appropriate content assist processors to invoke.
+	 * Asynchronous processors are not invoked, see
+	 * {@link #createProposalComputation(ITextViewer, int)}.
 	 *
 	 * @param viewer the viewer for which to compute the proposals
 	 * @param offset a document offset
@@ -1920,21 +2167,40 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	ICompletionProposal[] computeCompletionProposals(final ITextViewer viewer, final int offset) {
 		fLastErrorMessage= null;
 
-		final ICompletionProposal[][] result= { null };
-
-		final IContentAssistProcessor p= getProcessor(viewer, offset);
-		if (p != null) {
+		List<ICompletionProposal[]> results= new ArrayList<>(1);
+		for (final IContentAssistProcessor p : getProcessors(viewer, offset, false)) {
+			final ICompletionProposal[][] result= { null };
 			// Ensure that the assist session ends cleanly even if the processor throws an exception.
 			SafeRunner.run(new ExceptionLoggingSafeRunnable(COMPLETION_ERROR_MESSAGE_KEY) {
 				@Override
 				public void run() throws Exception {
 					result[0]= p.computeCompletionProposals(viewer, offset);
-					fLastErrorMessage= p.getErrorMessage();
+					addErrorMessage(p.getErrorMessage());
 				}
 			});
+			if (result[0] != null)
+				results.add(result[0]);
 		}
 
-		return result[0];
+		return concat(results, ICompletionProposal.class);
+	}
+
+	/**
+	 * Creates a computation of the completion proposals at the specified document position that
+	 * runs the appropriate asynchronous content assist processors concurrently.
+	 *
+	 * @param viewer the viewer for which to compute the proposals
+	 * @param offset a document offset
+	 * @return the computation, or <code>null</code> if there are no asynchronous processors at this
+	 *         position
+	 * @see #addContentAssistProcessor(IContentAssistProcessor, String, boolean)
+	 * @since 3.12
+	 */
+	ProposalComputation createProposalComputation(ITextViewer viewer, int offset) {
+		List<IContentAssistProcessor> processors= getProcessors(viewer, offset, true);
+		if (processors.isEmpty())
+			return null;
+		return new ProposalComputation(processors, viewer, offset, fAsynchronousTimeout);
 	}
 
 	/**
@@ -1949,22 +2215,24 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 */
 	IContextInformation[] computeContextInformation(final ITextViewer viewer, final int offset) {
 		fLastErrorMessage= null;
+		fContextInformationProcessors= null;
 
-		final IContextInformation[][] result= { null };
-
-		final IContentAssistProcessor p= getProcessor(viewer, offset);
-		if (p != null) {
+		List<IContentAssistProcessor> processors= getProcessors(viewer, offset);
+		List<IContextInformation[]> results= new ArrayList<>(1);
+		for (final IContentAssistProcessor p : processors) {
+			final IContextInformation[][] result= { null };
 			// Ensure that the assist session ends cleanly even if the processor throws an exception.
 			SafeRunner.run(new ExceptionLoggingSafeRunnable(CONTEXT_ERROR_MESSAGE_KEY) {
 				@Override
 				public void run() throws Exception {
 					result[0]= p.computeContextInformation(viewer, offset);
-					fLastErrorMessage= p.getErrorMessage();
+					addErrorMessage(p.getErrorMessage());
 				}
 			});
+			addContextInformation(result[0], p, processors.size(), results);
 		}
 
-		return result[0];
+		return concat(results, IContextInformation.class);
 	}
 
 	/**
@@ -1981,23 +2249,93 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	IContextInformation[] computeContextInformation(
 			final IContentAssistSubjectControl contentAssistSubjectControl, final int offset) {
 		fLastErrorMessage= null;
-
-		final IContextInformation[][] result= { null };
-
-		final IContentAssistProcessor p= getProcessor(contentAssistSubjectControl, offset);
-		if (p instanceof ISubjectControlContentAssistProcessor) {
+		fContextInformationProcessors= null;
+
+		List<IContentAssistProcessor> processors= getProcessors(contentAssistSubjectControl, offset);
+		List<IContextInformation[]> results= new ArrayList<>(1);
+		for (final IContentAssistProcessor p : processors) {
+			if (!(p instanceof ISubjectControlContentAssistProcessor))
+				continue;
+			final IContextInformation[][] result= { null };
 			// Ensure that the assist session ends cleanly even if the processor throws an exception.
 			SafeRunner.run(new ExceptionLoggingSafeRunnable(CONTEXT_ERROR_MESSAGE_KEY) {
 				@Override
 				public void run() throws Exception {
 					result[0]= ((ISubjectControlContentAssistProcessor) p)
 							.computeContextInformation(contentAssistSubjectControl, offset);
-					fLastErrorMessage= p.getErrorMessage();
+					addErrorMessage(p.getErrorMessage());
 				}
 			});
+			addContextInformation(result[0], p, processors.size(), results);
 		}
 
-		return result[0];
+		return concat(results, IContextInformation.class);
+	}
+
+	/**
+	 * Adds the context information computed by a processor to the results, and remembers the
+	 * processor of each context information if there are several processors, see
+	 * {@link CompositeContextInformationValidator}.
+	 *
+	 * @param information the context information computed by the processor, may be
+	 *            <code>null</code>
+	 * @param processor the processor
+	 * @param processorCount the number of processors of the content type
+	 * @param results the results to add to
+	 * @since 3.12
+	 */
+	private void addContextInformation(IContextInformation[] information, IContentAssistProcessor processor, int processorCount, List<IContextInformation[]> results) {
+		if (information == null)
+			return;
+		results.add(information);
+		if (processorCount > 1) {
+			if (fContextInformationProcessors == null)
+				fContextInformationProcessors= new IdentityHashMap<>();
+			for (IContextInformation info : information)
+				fContextInformationProcessors.put(info, processor);
+		}
+	}
+
+	/**
+	 * Concatenates the results of several processors.
+	 *
+	 * @param results the non-<code>null</code> results of the processors
+	 * @param type the component type of the results
+	 * @return the concatenated results, or <code>null</code> if there are none
+	 * @since 3.12
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T[] concat(List<T[]> results, Class<T> type) {
+		if (results.isEmpty())
+			return null;
+		if (results.size() == 1)
+			return results.get(0);
+		int length= 0;
+		for (T[] result : results)
+			length+= result.length;
+		T[] concatenated= (T[]) Array.newInstance(type, length);
+		int index= 0;
+		for (T[] result : results) {
+			System.arraycopy(result, 0, concatenated, index, result.length);
+			index+= result.length;
+		}
+		return concatenated;
+	}
+
+	/**
+	 * Adds an error message of a processor to the last error message. The messages of several
+	 * processors are shown on separate lines.
+	 *
+	 * @param message the error message, may be <code>null</code>
+	 * @since 3.12
+	 */
+	private void addErrorMessage(String message) {
+		if (message == null)
+			return;
+		if (fLastErrorMessage == null)
+			fLastErrorMessage= message;
+		else
+			fLastErrorMessage= fLastErrorMessage + '\n' + message;
 	}
 
 	/**
@@ -2012,8 +2350,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	IContextInformationValidator getContextInformationValidator(ITextViewer viewer, int offset) {
-		IContentAssistProcessor p= getProcessor(viewer, offset);
-		return p != null ? p.getContextInformationValidator() : null;
+		return getContextInformationValidator(getProcessors(viewer, offset));
 	}
 
 	/**
@@ -2028,8 +2365,28 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	IContextInformationValidator getContextInformationValidator(IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
-		IContentAssistProcessor p= getProcessor(contentAssistSubjectControl, offset);
-		return p != null ? p.getContextInformationValidator() : null;
+		return getContextInformationValidator(getProcessors(contentAssistSubjectControl, offset));
+	}
+
+	/**
+	 * Returns the context information validator for the given processors. If there are several
+	 * processors, the validator delegates to the validator of the processor that computed the
+	 * context information.
+	 *
+	 * @param processors the processors of a content type
+	 * @return a validator, or <code>null</code> if none of the processors has one
+	 * @since 3.12
+	 */
+	private IContextInformationValidator getContextInformationValidator(List<IContentAssistProcessor> processors) {
+		if (processors.isEmpty())
+			return null;
+		if (processors.size() == 1)
+			return processors.get(0).getContextInformationValidator();
+		for (IContentAssistProcessor p : processors) {
+			if (p.getContextInformationValidator() != null)
+				return new CompositeContextInformationValidator(processors);
+		}
+		return null;
 	}
 
 	/**
@@ -2076,8 +2433,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	char[] getCompletionProposalAutoActivationCharacters(IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
-		IContentAssistProcessor p= getProcessor(contentAssistSubjectControl, offset);
-		return p != null ? p.getCompletionProposalAutoActivationCharacters() : null;
+		return getAutoActivationCharacters(getProcessors(contentAssistSubjectControl, offset), false);
 	}
 
 	/**
@@ -2091,8 +2447,33 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @see IContentAssistProcessor#getCompletionProposalAutoActivationCharacters()
 	 */
 	char[] getCompletionProposalAutoActivationCharacters(ITextViewer viewer, int offset) {
-		IContentAssistProcessor p= getProcessor(viewer, offset);
-		return p != null ? p.getCompletionProposalAutoActivationCharacters() : null;
+		return getAutoActivationCharacters(getProcessors(viewer, offset), false);
+	}
+
+	/**
+	 * Returns the auto activation characters of all given processors.
+	 *
+	 * @param processors the processors of a content type
+	 * @param isContextInformation <code>true</code> for the context information auto activation
+	 *            characters, <code>false</code> for the completion proposal ones
+	 * @return the auto activation characters, or <code>null</code> if there are none
+	 * @since 3.12
+	 */
+	private static char[] getAutoActivationCharacters(List<IContentAssistProcessor> processors, boolean isContextInformation) {
+		if (processors.isEmpty())
+			return null;
+		if (processors.size() == 1) {
+			IContentAssistProcessor p= processors.get(0);
+			return isContextInformation ? p.getContextInformationAutoActivationCharacters() : p.getCompletionProposalAutoActivationCharacters();
+		}
+
+		StringBuffer buf= new StringBuffer();
+		for (IContentAssistProcessor p : processors) {
+			char[] triggers= isContextInformation ? p.getContextInformationAutoActivationCharacters() : p.getCompletionProposalAutoActivationCharacters();
+			if (triggers != null)
+				buf.append(triggers);
+		}
+		return buf.length() > 0 ? buf.toString().toCharArray() : null;
 	}
 
 	/**
@@ -2107,8 +2488,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	char[] getContextInformationAutoActivationCharacters(ITextViewer viewer, int offset) {
-		IContentAssistProcessor p= getProcessor(viewer, offset);
-		return p != null ? p.getContextInformationAutoActivationCharacters() : null;
+		return getAutoActivationCharacters(getProcessors(viewer, offset), true);
 	}
 
 	/**
@@ -2123,8 +2503,7 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 * @since 3.0
 	 */
 	char[] getContextInformationAutoActivationCharacters(IContentAssistSubjectControl contentAssistSubjectControl, int offset) {
-		IContentAssistProcessor p= getProcessor(contentAssistSubjectControl, offset);
-		return p != null ? p.getContextInformationAutoActivationCharacters() : null;
+		return getAutoActivationCharacters(getProcessors(contentAssistSubjectControl, offset), true);
 	}
 
 	@Override
@@ -2614,4 +2993,17 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			fProposalPopup.setSorter(fSorter);
 		}
 	}
+
+	/**
+	 * Sets the number of milliseconds after which asynchronous processors that are still computing
+	 * are ignored. The default is one second.
+	 *
+	 * @param milliseconds the timeout in milliseconds, must be positive
+	 * @see #addContentAssistProcessor(IContentAssistProcessor, String, boolean)
+	 * @since 3.12
+	 */
+	public void setAsynchronousTimeout(int milliseconds) {
+		Assert.isLegal(milliseconds > 0);
+		fAsynchronousTimeout= milliseconds;
+	}
 }
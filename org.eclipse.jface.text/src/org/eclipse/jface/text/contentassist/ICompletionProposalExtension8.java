@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+/**
+ * Extends
+ * {@link org.eclipse.jface.text.contentassist.ICompletionProposal} with
+ * the following functions:
+ * <ul>
+ *   <li>specify whether a proposal can be validated outside the display thread</li>
+ * </ul>
+ *
+ * @since 3.12
+ */
+public interface ICompletionProposalExtension8 {
+
+	/**
+	 * Returns <code>true</code> if the proposal can be validated in any
+	 * thread, concurrently with the validation of other proposals, that is,
+	 * if {@link ICompletionProposalExtension2#validate(org.eclipse.jface.text.IDocument, int, org.eclipse.jface.text.DocumentEvent)}
+	 * or {@link ICompletionProposalExtension#isValidFor(org.eclipse.jface.text.IDocument, int)}
+	 * only read the document and do not access any widget. The content
+	 * assistant may then validate large sets of proposals in several
+	 * threads while the user types. Proposals that return <code>false</code>
+	 * or do not implement this interface are validated in the display
+	 * thread.
+	 *
+	 * @return <code>true</code> if the proposal can be validated in any
+	 *         thread, <code>false</code> if not
+	 */
+	boolean isValidationThreadSafe();
+}
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.contentassist;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.jface.text.ITextViewer;
+
+
+/**
+ * Computes the completion proposals of several content assist processors concurrently. The
+ * processors run in a pool of background threads shared by all computations, which has at most one
+ * thread per processor of the machine. The proposals of a processor are reported as soon as it is
+ * done; processors that are still running or waiting for a thread when the timeout expires are
+ * dropped.
+ * <p>
+ * The time each processor takes is printed when the
+ * <code>org.eclipse.jface.text/debug/ContentAssistant</code> debug option is set, which allows to
+ * identify slow processors.
+ * </p>
+ *
+ * @since 3.12
+ */
+final class ProposalComputation {
+
+	/**
+	 * Receives the results of a computation in the display thread.
+	 */
+	interface IProposalListener {
+
+		/**
+		 * Called when a processor has computed its proposals.
+		 *
+		 * @param proposals the proposals of one processor, never empty
+		 */
+		void proposalsComputed(ICompletionProposal[] proposals);
+
+		/**
+		 * Called once after all processors are done or the timeout has expired.
+		 */
+		void computationDone();
+	}
+
+	/**
+	 * Runs one processor.
+	 */
+	private final class Task implements Runnable {
+
+		private final IContentAssistProcessor fProcessor;
+		private Future<?> fFuture;
+		private long fTime= -1;
+
+		Task(IContentAssistProcessor processor) {
+			fProcessor= processor;
+		}
+
+		@Override
+		public void run() {
+			long start= System.currentTimeMillis();
+			final ICompletionProposal[][] result= { null };
+			SafeRunner.run(new ISafeRunnable() {
+				@Override
+				public void run() throws Exception {
+					result[0]= fProcessor.computeCompletionProposals(fViewer, fOffset);
+				}
+
+				@Override
+				public void handleException(Throwable exception) {
+					String message= JFaceTextMessages.getString(COMPLETION_ERROR_MESSAGE_KEY);
+					IStatus status= new Status(IStatus.ERROR, PLUGIN_ID, message, exception);
+					Platform.getLog(Platform.getBundle(PLUGIN_ID)).log(status);
+				}
+			});
+			taskDone(this, result[0], System.currentTimeMillis() - start);
+		}
+	}
+
+	private static final boolean DEBUG= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.jface.text/debug/ContentAssistant")); //$NON-NLS-1$//$NON-NLS-2$
+
+	private static final String PLUGIN_ID= "org.eclipse.jface.text"; //$NON-NLS-1$
+	private static final String COMPLETION_ERROR_MESSAGE_KEY= "ContentAssistant.error_computing_completion"; //$NON-NLS-1$
+
+	/** The maximal number of threads of the executor. */
+	private static final int MAX_THREADS= Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/** The executor shared by all computations, created lazily. */
+	private static ExecutorService fgExecutor;
+
+	private final ITextViewer fViewer;
+	private final int fOffset;
+	private final int fTimeout;
+	private final Task[] fTasks;
+
+	/* The following fields are guarded by this computation. */
+	private int fPending;
+	private boolean fIsDone;
+	private Display fDisplay;
+	private IProposalListener fListener;
+
+	/**
+	 * Creates a new computation.
+	 *
+	 * @param processors the processors to ask for proposals
+	 * @param viewer the viewer for which to compute the proposals
+	 * @param offset the document offset
+	 * @param timeout the number of milliseconds after which processors are dropped
+	 */
+	ProposalComputation(List<IContentAssistProcessor> processors, ITextViewer viewer, int offset, int timeout) {
+		fViewer= viewer;
+		fOffset= offset;
+		fTimeout= timeout;
+		fTasks= new Task[processors.size()];
+		for (int i= 0; i < fTasks.length; i++)
+			fTasks[i]= new Task(processors.get(i));
+		fPending= fTasks.length;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (fgExecutor == null) {
+			ThreadPoolExecutor executor= new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Content Assist"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor.allowCoreThreadTimeOut(true);
+			fgExecutor= executor;
+		}
+		return fgExecutor;
+	}
+
+	/**
+	 * Starts the computation and returns immediately. The listener is notified in the display
+	 * thread as results become available, until the computation is done or canceled.
+	 *
+	 * @param display the display in whose thread to notify the listener
+	 * @param listener the listener to notify
+	 */
+	void start(Display display, IProposalListener listener) {
+		synchronized (this) {
+			fDisplay= display;
+			fListener= listener;
+		}
+		submit();
+		display.timerExec(fTimeout, new Runnable() {
+			@Override
+			public void run() {
+				notifyDone();
+			}
+		});
+	}
+
+	/**
+	 * Stops the computation. Listeners will not be notified anymore and running processors are
+	 * interrupted.
+	 */
+	void cancel() {
+		synchronized (this) {
+			if (fIsDone)
+				return;
+			fIsDone= true;
+			fListener= null;
+		}
+		for (Task task : fTasks) {
+			if (task.fFuture != null)
+				task.fFuture.cancel(true);
+		}
+	}
+
+	private void submit() {
+		ExecutorService executor= getExecutor();
+		for (Task task : fTasks) {
+			Future<?> future= executor.submit(task);
+			synchronized (this) {
+				task.fFuture= future;
+			}
+		}
+	}
+
+	private void taskDone(final Task task, final ICompletionProposal[] result, long time) {
+		final IProposalListener listener;
+		Display display;
+		boolean last;
+		synchronized (this) {
+			task.fTime= time;
+			if (DEBUG)
+				System.out.println("ContentAssistant: " + task.fProcessor.getClass().getName() + " took " + time + " ms" + (fIsDone ? ", dropped" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			if (fIsDone)
+				return;
+
+			last= --fPending == 0;
+			listener= fListener;
+			display= fDisplay;
+		}
+
+		if (listener == null || display.isDisposed())
+			return;
+
+		try {
+			if (result != null && result.length > 0) {
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (ProposalComputation.this) {
+							if (fIsDone)
+								return;
+						}
+						listener.proposalsComputed(result);
+					}
+				});
+			}
+			if (last) {
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						notifyDone();
+					}
+				});
+			}
+		} catch (SWTException e) {
+			// display got disposed in the meantime
+		}
+	}
+
+	private void notifyDone() {
+		IProposalListener listener;
+		synchronized (this) {
+			if (fIsDone)
+				return;
+			listener= fListener;
+			finish();
+		}
+		if (listener != null)
+			listener.computationDone();
+	}
+
+	/**
+	 * Marks this computation as done and drops the processors that are still running. Must be
+	 * called while holding the lock.
+	 */
+	private void finish() {
+		fIsDone= true;
+		fListener= null;
+		for (Task task : fTasks) {
+			if (task.fTime == -1) {
+				if (DEBUG)
+					System.out.println("ContentAssistant: " + task.fProcessor.getClass().getName() + " exceeded the timeout of " + fTimeout + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				if (task.fFuture != null)
+					task.fFuture.cancel(true);
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,15 @@
  *******************************************************************************/
 package org.eclipse.jface.text.reconciler;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
@@ -36,6 +42,12 @@ import org.eclipse.jface.text.ITextViewer;
  * It is the clients responsibility to stop a reconciler using its {@link #uninstall()}
  * method. Unstopped reconcilers do not free their resources.
  * <p>
+ * By default each reconciler has its own background thread. A reconciler can instead be
+ * configured to run in a thread pool shared by all reconcilers using
+ * {@link #setUseSharedExecutor(boolean)}, so that the number of threads does not grow with the
+ * number of open viewers.
+ * </p>
+ * <p>
  * It is subclass responsibility to specify how dirty regions are processed.
  * </p>
  *
@@ -46,11 +58,102 @@ import org.eclipse.jface.text.ITextViewer;
  */
 abstract public class AbstractReconciler implements IReconciler {
 
+	/**
+	 * Tells whether to trace the reconciling activity.
+	 *
+	 * @since 3.12
+	 */
+	static final boolean DEBUG= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.jface.text/debug/Reconciler")); //$NON-NLS-1$//$NON-NLS-2$
+
+	/**
+	 * The executor shared by the reconcilers that do not have their own thread, or
+	 * <code>null</code> if not yet created.
+	 *
+	 * @since 3.12
+	 */
+	private static ScheduledThreadPoolExecutor fgSharedExecutor;
+
+	/**
+	 * Returns the executor shared by the reconcilers that do not have their own thread. It has at
+	 * most one thread per processor, the threads end when idle.
+	 *
+	 * @return the shared executor
+	 * @since 3.12
+	 */
+	private static synchronized ScheduledThreadPoolExecutor getSharedExecutor() {
+		if (fgSharedExecutor == null) {
+			fgSharedExecutor= new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Shared Reconciler"); //$NON-NLS-1$
+					thread.setPriority(Thread.MIN_PRIORITY);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fgSharedExecutor.setKeepAliveTime(10, TimeUnit.SECONDS);
+			fgSharedExecutor.allowCoreThreadTimeOut(true);
+			fgSharedExecutor.setRemoveOnCancelPolicy(true);
+		}
+		return fgSharedExecutor;
+	}
+
+
+	/**
+	 * The reconciling activity, either in its own thread or in the shared executor.
+	 *
+	 * @since 3.12
+	 */
+	interface Worker {
+
+		/**
+		 * Returns whether a reconciling strategy is active right now.
+		 *
+		 * @return <code>true</code> if a activity is active
+		 */
+		boolean isActive();
+
+		/**
+		 * Returns whether some changes need to be processed.
+		 *
+		 * @return <code>true</code> if changes wait to be processed
+		 */
+		boolean isDirty();
+
+		/**
+		 * Returns whether the activity has been started and not been canceled.
+		 *
+		 * @return <code>true</code> if the activity is alive
+		 */
+		boolean isAlive();
+
+		/**
+		 * Returns whether the caller runs the reconciling activity.
+		 *
+		 * @return <code>true</code> if called from the reconciling activity
+		 */
+		boolean isCurrentThread();
+
+		/**
+		 * Starts the activity, {@link AbstractReconciler#initialProcess()} is called first.
+		 */
+		void start();
+
+		/**
+		 * Cancels the activity.
+		 */
+		void cancel();
+
+		/**
+		 * Reset the activity as the text viewer has been changed.
+		 */
+		void reset();
+	}
 
 	/**
 	 * Background thread for the reconciling activity.
 	 */
-	class BackgroundThread extends Thread {
+	class BackgroundThread extends Thread implements Worker {
 
 		/** Has the reconciler been canceled. */
 		private boolean fCanceled= false;
@@ -78,6 +181,7 @@ abstract public class AbstractReconciler implements IReconciler {
 		 *
 		 * @return <code>true</code> if a activity is active
 		 */
+		@Override
 		public boolean isActive() {
 			return fIsActive;
 		}
@@ -88,13 +192,20 @@ abstract public class AbstractReconciler implements IReconciler {
 		 * @return <code>true</code> if changes wait to be processed
 		 * @since 3.0
 		 */
+		@Override
 		public synchronized boolean isDirty() {
 			return fIsDirty;
 		}
 
+		@Override
+		public boolean isCurrentThread() {
+			return Thread.currentThread() == this;
+		}
+
 		/**
 		 * Cancels the background thread.
 		 */
+		@Override
 		public void cancel() {
 			fCanceled= true;
 			IProgressMonitor pm= fProgressMonitor;
@@ -105,28 +216,10 @@ abstract public class AbstractReconciler implements IReconciler {
 			}
 		}
 
-		/**
-		 * Suspends the caller of this method until this background thread has
-		 * emptied the dirty region queue.
-		 */
-		public void suspendCallerWhileDirty() {
-			boolean isDirty;
-			do {
-				synchronized (fDirtyRegionQueue) {
-					isDirty= fDirtyRegionQueue.getSize() > 0;
-					if (isDirty) {
-						try {
-							fDirtyRegionQueue.wait();
-						} catch (InterruptedException x) {
-						}
-					}
-				}
-			} while (isDirty);
-		}
-
 		/**
 		 * Reset the background thread as the text viewer has been changed,
 		 */
+		@Override
 		public void reset() {
 
 			if (fDelay > 0) {
@@ -204,7 +297,10 @@ abstract public class AbstractReconciler implements IReconciler {
 
 				fProgressMonitor.setCanceled(false);
 
+				long start= DEBUG ? System.currentTimeMillis() : 0;
 				process(r);
+				if (DEBUG)
+					trace(1, start);
 
 				synchronized (fDirtyRegionQueue) {
 					if (0 == fDirtyRegionQueue.getSize()) {
@@ -220,6 +316,182 @@ abstract public class AbstractReconciler implements IReconciler {
 		}
 	}
 
+	/**
+	 * Reconciling activity that runs in the executor shared by all reconcilers. Each run does
+	 * what one iteration of the loop in {@link BackgroundThread} does after waiting. The
+	 * activity is only scheduled while there are changes to process, so an idle reconciler does
+	 * not use a thread. Runs of the same reconciler never overlap. Dirty regions that are
+	 * queued while the reconciler waits for further changes are processed in a single run.
+	 *
+	 * @since 3.12
+	 */
+	class SharedExecutorWorker implements Worker, Runnable {
+
+		/** Has the reconciler been canceled. */
+		private volatile boolean fCanceled= false;
+		/** Has the reconciler been started. */
+		private volatile boolean fStarted= false;
+		/** Has the reconciler been reset. */
+		private boolean fReset= false;
+		/** Some changes need to be processed. */
+		private boolean fIsDirty= false;
+		/** Is a reconciling strategy active. */
+		private volatile boolean fIsActive= false;
+		/** Has {@link AbstractReconciler#initialProcess()} been called. */
+		private boolean fIsInitialized= false;
+		/** The scheduled or running run, or <code>null</code> if none. Protected by this. */
+		private ScheduledFuture<?> fScheduled;
+		/** Whether to schedule another run after the current one. Protected by this. */
+		private boolean fIsRescheduleRequested= false;
+		/** The thread executing the current run, or <code>null</code>. */
+		private volatile Thread fRunner;
+
+		@Override
+		public boolean isActive() {
+			return fIsActive;
+		}
+
+		@Override
+		public synchronized boolean isDirty() {
+			return fIsDirty;
+		}
+
+		@Override
+		public boolean isAlive() {
+			return fStarted && !fCanceled;
+		}
+
+		@Override
+		public boolean isCurrentThread() {
+			return Thread.currentThread() == fRunner;
+		}
+
+		@Override
+		public void start() {
+			fStarted= true;
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			fCanceled= true;
+			IProgressMonitor pm= fProgressMonitor;
+			if (pm != null)
+				pm.setCanceled(true);
+			synchronized (this) {
+				if (fScheduled != null && fRunner == null)
+					fScheduled.cancel(false);
+			}
+			synchronized (fDirtyRegionQueue) {
+				fDirtyRegionQueue.notifyAll();
+			}
+		}
+
+		@Override
+		public void reset() {
+			synchronized (this) {
+				fIsDirty= true;
+				if (fDelay > 0)
+					fReset= true;
+			}
+			schedule();
+
+			reconcilerReset();
+		}
+
+		/**
+		 * Schedules a run after the delay, unless one is already waiting.
+		 */
+		private synchronized void schedule() {
+			if (fCanceled || !fStarted)
+				return;
+			if (fScheduled != null) {
+				// a run that has already started might miss the latest change
+				if (fRunner != null)
+					fIsRescheduleRequested= true;
+				return;
+			}
+			fScheduled= getSharedExecutor().schedule(this, fDelay, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run() {
+			fRunner= Thread.currentThread();
+			try {
+				if (fCanceled)
+					return;
+
+				if (!fIsInitialized) {
+					fIsInitialized= true;
+					initialProcess();
+					return;
+				}
+
+				if (!isDirty())
+					return;
+
+				synchronized (this) {
+					if (fReset) {
+						fReset= false;
+						return;
+					}
+				}
+
+				processDirtyRegions();
+			} finally {
+				synchronized (this) {
+					fRunner= null;
+					fScheduled= null;
+					boolean reschedule= fIsRescheduleRequested || fIsDirty;
+					fIsRescheduleRequested= false;
+					if (reschedule)
+						schedule();
+				}
+			}
+		}
+
+		/**
+		 * Processes the queued dirty regions until the queue is empty or the document changes.
+		 */
+		private void processDirtyRegions() {
+			long start= DEBUG ? System.currentTimeMillis() : 0;
+			int count= 0;
+			boolean isEmpty;
+			do {
+				DirtyRegion r= null;
+				synchronized (fDirtyRegionQueue) {
+					r= fDirtyRegionQueue.removeNextDirtyRegion();
+				}
+
+				fIsActive= true;
+
+				fProgressMonitor.setCanceled(false);
+
+				process(r);
+				count++;
+
+				synchronized (fDirtyRegionQueue) {
+					isEmpty= 0 == fDirtyRegionQueue.getSize();
+					if (isEmpty) {
+						synchronized (this) {
+							fIsDirty= fProgressMonitor.isCanceled();
+						}
+						fDirtyRegionQueue.notifyAll();
+					}
+				}
+
+				fIsActive= false;
+			} while (!isEmpty && !fCanceled && !fProgressMonitor.isCanceled() && !isReset());
+
+			if (DEBUG)
+				trace(count, start);
+		}
+
+		private synchronized boolean isReset() {
+			return fReset;
+		}
+	}
+
 	/**
 	 * Internal document listener and text input listener.
 	 */
@@ -233,7 +505,7 @@ abstract public class AbstractReconciler implements IReconciler {
 		public void documentChanged(DocumentEvent e) {
 
 			if (fThread.isActive() || !fThread.isDirty() && fThread.isAlive()) {
-				if (!fIsAllowedToModifyDocument && Thread.currentThread() == fThread)
+				if (!fIsAllowedToModifyDocument && fThread.isCurrentThread())
 					throw new UnsupportedOperationException("The reconciler thread is not allowed to modify the document"); //$NON-NLS-1$
 				aboutToBeReconciled();
 			}
@@ -268,7 +540,7 @@ abstract public class AbstractReconciler implements IReconciler {
 						DocumentEvent e= new DocumentEvent(fDocument, 0, fDocument.getLength(), ""); //$NON-NLS-1$
 						createDirtyRegion(e);
 						fThread.reset();
-						fThread.suspendCallerWhileDirty();
+						suspendCallerWhileDirty();
 					}
 				}
 
@@ -297,8 +569,8 @@ abstract public class AbstractReconciler implements IReconciler {
 
 	/** Queue to manage the changes applied to the text viewer. */
 	private DirtyRegionQueue fDirtyRegionQueue;
-	/** The background thread. */
-	private BackgroundThread fThread;
+	/** The background activity. */
+	private Worker fThread;
 	/** Internal document and text input listener. */
 	private Listener fListener;
 	/** The background thread delay. */
@@ -312,6 +584,11 @@ abstract public class AbstractReconciler implements IReconciler {
 	 * @since 3.2
 	 */
 	private boolean fIsAllowedToModifyDocument= true;
+	/**
+	 * Tells whether this reconciler runs in the shared executor.
+	 * @since 3.12
+	 */
+	private boolean fUseSharedExecutor= false;
 
 
 	/** The text viewer's document. */
@@ -389,6 +666,24 @@ abstract public class AbstractReconciler implements IReconciler {
 		fIsAllowedToModifyDocument= isAllowedToModify;
 	}
 
+	/**
+	 * Tells the reconciler whether to run in a thread pool shared by all reconcilers instead of
+	 * its own background thread. The pool has at most one thread per processor, and a shared
+	 * reconciler only occupies a thread while it has changes to process. Changes that pile up
+	 * while waiting for a thread are reconciled together.
+	 * <p>
+	 * This must be set before the reconciler is installed. Reconciling strategies of a shared
+	 * reconciler should not block for a long time, as this would delay other reconcilers.
+	 * </p>
+	 *
+	 * @param useSharedExecutor <code>true</code> to run in the shared thread pool,
+	 *            <code>false</code> to run in an own thread
+	 * @since 3.12
+	 */
+	public void setUseSharedExecutor(boolean useSharedExecutor) {
+		fUseSharedExecutor= useSharedExecutor;
+	}
+
 	/**
 	 * Sets the progress monitor of this reconciler.
 	 *
@@ -447,7 +742,10 @@ abstract public class AbstractReconciler implements IReconciler {
 		synchronized (this) {
 			if (fThread != null)
 				return;
-			fThread= new BackgroundThread(getClass().getName());
+			if (fUseSharedExecutor)
+				fThread= new SharedExecutorWorker();
+			else
+				fThread= new BackgroundThread(getClass().getName());
 		}
 
 		fDirtyRegionQueue= new DirtyRegionQueue();
@@ -481,13 +779,49 @@ abstract public class AbstractReconciler implements IReconciler {
 
             synchronized (this) {
                 // http://dev.eclipse.org/bugs/show_bug.cgi?id=19135
-    			BackgroundThread bt= fThread;
+    			Worker bt= fThread;
     			fThread= null;
     			bt.cancel();
             }
 		}
 	}
 
+	/**
+	 * Suspends the caller of this method until the background activity has
+	 * emptied the dirty region queue.
+	 */
+	private void suspendCallerWhileDirty() {
+		boolean isDirty;
+		do {
+			synchronized (fDirtyRegionQueue) {
+				isDirty= fDirtyRegionQueue.getSize() > 0;
+				if (isDirty) {
+					try {
+						fDirtyRegionQueue.wait();
+					} catch (InterruptedException x) {
+					}
+				}
+			}
+		} while (isDirty);
+	}
+
+	/**
+	 * Prints how many dirty regions have been processed and how long it took.
+	 *
+	 * @param count the number of processed dirty regions
+	 * @param start the time when processing started
+	 * @since 3.12
+	 */
+	private void trace(int count, long start) {
+		int queued, merged;
+		synchronized (fDirtyRegionQueue) {
+			queued= fDirtyRegionQueue.getSize();
+			merged= fDirtyRegionQueue.getMergeCount();
+		}
+		System.out.println("[Reconciler] " + getClass().getName() + ": processed " + count + " dirty regions in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ (System.currentTimeMillis() - start) + "ms, " + queued + " queued, " + merged + " merged so far"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
 	/**
 	 * Creates a dirty region for a document event and adds it to the queue.
 	 *
@@ -589,6 +923,7 @@ abstract public class AbstractReconciler implements IReconciler {
 	 * @since 3.4
 	 */
 	protected boolean isRunningInReconcilerThread() {
-		return Thread.currentThread() == fThread;
+		Worker worker= fThread;
+		return worker != null && worker.isCurrentThread();
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,6 +26,11 @@ class DirtyRegionQueue {
 
 	/** The list of dirty regions. */
 	private List<DirtyRegion> fDirtyRegions= new ArrayList<>();
+	/**
+	 * The number of dirty regions that have been merged into the previous one.
+	 * @since 3.12
+	 */
+	private int fMergeCount= 0;
 
 	/**
 	 * Creates a new empty dirty region.
@@ -61,6 +66,19 @@ class DirtyRegionQueue {
 		if (!wasMerged)
 			// Don't merge- just add the new one onto the queue.
 			fDirtyRegions.add(dr);
+		else
+			fMergeCount++;
+	}
+
+	/**
+	 * Returns the number of dirty regions that have been merged into the previous
+	 * dirty region since this queue has been created.
+	 *
+	 * @return the number of merged dirty regions
+	 * @since 3.12
+	 */
+	public int getMergeCount() {
+		return fMergeCount;
 	}
 
 	/**
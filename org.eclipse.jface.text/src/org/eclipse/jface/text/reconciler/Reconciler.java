@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -141,10 +141,13 @@ public class Reconciler extends AbstractReconciler implements IReconcilerExtensi
 			if (s == null)
 				continue;
 
+			long start= DEBUG ? System.currentTimeMillis() : 0;
 			if(dirtyRegion != null)
 				s.reconcile(dirtyRegion, r);
 			else
 				s.reconcile(r);
+			if (DEBUG)
+				System.out.println("[Reconciler] " + s.getClass().getName() + " reconciled " + r.getType() + " partition in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,7 @@ import org.eclipse.core.runtime.Platform;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IPaintPositionManager;
 import org.eclipse.jface.text.IPainter;
 import org.eclipse.jface.text.IRegion;
@@ -441,6 +442,25 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 	 */
 	private ReusableRegion fReusableRegion= new ReusableRegion();
 
+	/**
+	 * Tells whether decorations are only computed for the annotations near the viewport.
+	 *
+	 * @see #setLazyDecorationsEnabled(boolean)
+	 * @since 3.12
+	 */
+	private boolean fIsLazy= false;
+	/**
+	 * The document range for whose annotations decorations have been computed, or
+	 * <code>null</code> if not known. Only used if decorations are computed lazily.
+	 * @since 3.12
+	 */
+	private IRegion fDecorationRange= null;
+	/**
+	 * The modification stamp of the document when {@link #fDecorationRange} was computed.
+	 * @since 3.12
+	 */
+	private long fDecorationRangeStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
 	/**
 	 * Creates a new annotation painter for the given source viewer and with the
 	 * given annotation access. The painter is not initialized, i.e. no
@@ -475,7 +495,8 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 	 * source viewer's widget.
 	 */
 	private void enablePainting() {
-		if (!fIsPainting && hasDecorations()) {
+		// decorations computed lazily may become visible when scrolling
+		if (!fIsPainting && (hasDecorations() || fIsLazy && fModel != null)) {
 			fIsPainting= true;
 			fTextWidget.addPaintListener(this);
 			handleDrawRequest(null);
@@ -540,12 +561,25 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 			synchronized (fHighlightedDecorationsMapLock) {
 				fHighlightedDecorationsMap.clear();
 			}
+			fDecorationRange= null;
 			return;
 		}
 
 		IRegion clippingRegion= computeClippingRegion(null, true);
 		IDocument document= fSourceViewer.getDocument();
 
+		IRegion decorationRange= null;
+		if (fIsLazy && clippingRegion != null) {
+			if (event == null || event.isWorldChange()) {
+				decorationRange= computeDecorationRange(clippingRegion);
+				fDecorationRange= decorationRange;
+				fDecorationRangeStamp= getModificationStamp(document);
+			} else {
+				ensureDecorationsComputed(clippingRegion);
+				decorationRange= fDecorationRange;
+			}
+		}
+
 		int highlightAnnotationRangeStart= Integer.MAX_VALUE;
 		int highlightAnnotationRangeEnd= -1;
 
@@ -609,6 +643,13 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 						drawRangeStart= Math.min(drawRangeStart, position.offset);
 						drawRangeEnd= Math.max(drawRangeEnd, position.offset + position.length);
 					}
+				} else if (decorationRange != null && isHighlighting(annotation)) {
+					// not computed, but possibly highlighted by applyTextPresentation
+					Position position= event.getPositionOfRemovedAnnotation(annotation);
+					if (position != null) {
+						highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
+						highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
+					}
 				}
 
 			}
@@ -618,6 +659,18 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 			for (int i= 0, length= changedAnnotations.length; i < length; i++) {
 				Annotation annotation= changedAnnotations[i];
 
+				if (decorationRange != null && !highlightedDecorationsMap.containsKey(annotation) && !decorationsMap.containsKey(annotation)) {
+					Position position= fModel.getPosition(annotation);
+					if (position == null || !regionsTouchOrOverlap(position.offset, position.length, decorationRange.getOffset(), decorationRange.getLength())) {
+						// not computed, but possibly highlighted by applyTextPresentation
+						if (position != null && isHighlighting(annotation)) {
+							highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
+							highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
+						}
+						continue;
+					}
+				}
+
 				boolean isHighlighting= false;
 
 				Decoration decoration= highlightedDecorationsMap.get(annotation);
@@ -685,6 +738,19 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		// Add new annotations
 		while (e.hasNext()) {
 			Annotation annotation= e.next();
+			if (decorationRange != null) {
+				Position position= fModel.getPosition(annotation);
+				if (position == null || position.isDeleted())
+					continue;
+				if (!regionsTouchOrOverlap(position.offset, position.length, decorationRange.getOffset(), decorationRange.getLength())) {
+					// computed when needed, see ensureDecorationsComputed and applyTextPresentation
+					if (isHighlighting(annotation)) {
+						highlightAnnotationRangeStart= Math.min(highlightAnnotationRangeStart, position.offset);
+						highlightAnnotationRangeEnd= Math.max(highlightAnnotationRangeEnd, position.offset + position.length);
+					}
+					continue;
+				}
+			}
 			Decoration pp= getDecoration(annotation, null);
 			if (pp != null) {
 				if (pp.fPaintingStrategy instanceof IDrawingStrategy) {
@@ -822,6 +888,146 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		position.length= Math.min(position.length, length - position.offset);
 	}
 
+	/**
+	 * Returns the document range for whose annotations decorations are computed if the given
+	 * range is visible. The range is extended by the number of its lines above and below.
+	 *
+	 * @param visibleRange the visible document range
+	 * @return the range for which decorations are computed
+	 * @since 3.12
+	 */
+	private IRegion computeDecorationRange(IRegion visibleRange) {
+		IDocument document= fSourceViewer.getDocument();
+		try {
+			int startLine= document.getLineOfOffset(visibleRange.getOffset());
+			int endLine= document.getLineOfOffset(Math.min(visibleRange.getOffset() + visibleRange.getLength(), document.getLength()));
+			int margin= endLine - startLine + 1;
+			startLine= Math.max(0, startLine - margin);
+			endLine= Math.min(document.getNumberOfLines() - 1, endLine + margin);
+			int offset= document.getLineOffset(startLine);
+			return new Region(offset, document.getLineOffset(endLine) + document.getLineLength(endLine) - offset);
+		} catch (BadLocationException x) {
+			return new Region(0, document.getLength());
+		}
+	}
+
+	/**
+	 * Makes sure that decorations are computed for all annotations near the given visible range
+	 * if decorations are computed lazily. Decorations of annotations which are far away are
+	 * dropped. Neither need to be repainted: decorations to be drawn are drawn with the next paint
+	 * event, and {@link #applyTextPresentation(TextPresentation)} takes care of all annotations to
+	 * be highlighted, computed or not. The visible range must cover the whole viewport, otherwise
+	 * decorations which have been drawn could be dropped and not be cleared any more.
+	 *
+	 * @param visibleRange the document range of the viewport
+	 * @since 3.12
+	 */
+	private void ensureDecorationsComputed(IRegion visibleRange) {
+		if (!fIsLazy || fModel == null || visibleRange == null)
+			return;
+
+		IDocument document= fSourceViewer.getDocument();
+		long stamp= getModificationStamp(document);
+		IRegion range= fDecorationRange;
+		if (range != null && stamp == fDecorationRangeStamp && stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+				&& range.getOffset() <= visibleRange.getOffset() && visibleRange.getOffset() + visibleRange.getLength() <= range.getOffset() + range.getLength())
+			return;
+
+		range= computeDecorationRange(visibleRange);
+
+		Map<Annotation, Decoration> decorationsMap;
+		Map<Annotation, Decoration> highlightedDecorationsMap;
+		synchronized (fDecorationMapLock) {
+			if (fDecorationsMap == null)
+				return;
+			decorationsMap= new HashMap<>(fDecorationsMap);
+		}
+		synchronized (fHighlightedDecorationsMapLock) {
+			if (fHighlightedDecorationsMap == null)
+				return;
+			highlightedDecorationsMap= new HashMap<>(fHighlightedDecorationsMap);
+		}
+
+		removeDecorationsOutside(decorationsMap, range);
+		removeDecorationsOutside(highlightedDecorationsMap, range);
+
+		for (Iterator<Annotation> e= getAnnotationIterator(range); e.hasNext();) {
+			Annotation annotation= e.next();
+			if (decorationsMap.containsKey(annotation) || highlightedDecorationsMap.containsKey(annotation))
+				continue;
+			Decoration pp= getDecoration(annotation, null);
+			if (pp == null || !regionsTouchOrOverlap(pp.fPosition.offset, pp.fPosition.length, range.getOffset(), range.getLength()))
+				continue;
+			if (pp.fPaintingStrategy instanceof IDrawingStrategy)
+				decorationsMap.put(annotation, pp);
+			else if (pp.fPaintingStrategy instanceof ITextStyleStrategy)
+				highlightedDecorationsMap.put(annotation, pp);
+		}
+
+		synchronized (fDecorationMapLock) {
+			fDecorationsMap= decorationsMap;
+		}
+		synchronized (fHighlightedDecorationsMapLock) {
+			fHighlightedDecorationsMap= highlightedDecorationsMap;
+		}
+		fDecorationRange= range;
+		fDecorationRangeStamp= stamp;
+	}
+
+	/**
+	 * Removes the decorations which do not touch the given range from the given map.
+	 *
+	 * @param decorations the decorations
+	 * @param range the range
+	 * @since 3.12
+	 */
+	private void removeDecorationsOutside(Map<Annotation, Decoration> decorations, IRegion range) {
+		for (Iterator<Decoration> e= decorations.values().iterator(); e.hasNext();) {
+			Position p= e.next().fPosition;
+			if (p.isDeleted() || !regionsTouchOrOverlap(p.offset, p.length, range.getOffset(), range.getLength()))
+				e.remove();
+		}
+	}
+
+	/**
+	 * Returns an iterator over the annotations of the annotation model which touch the given
+	 * range. If the model cannot iterate over a range, the iterator may return other
+	 * annotations as well.
+	 *
+	 * @param range the document range
+	 * @return the annotation iterator
+	 * @since 3.12
+	 */
+	private Iterator<Annotation> getAnnotationIterator(IRegion range) {
+		if (fModel instanceof IAnnotationModelExtension2)
+			return ((IAnnotationModelExtension2) fModel).getAnnotationIterator(range.getOffset(), range.getLength(), true, true);
+		return fModel.getAnnotationIterator();
+	}
+
+	/**
+	 * Tells whether the given annotation is highlighted by a text style strategy.
+	 *
+	 * @param annotation the annotation
+	 * @return <code>true</code> if the annotation is highlighted
+	 * @since 3.12
+	 */
+	private boolean isHighlighting(Annotation annotation) {
+		return getPaintingStrategy(annotation.getType()) instanceof ITextStyleStrategy;
+	}
+
+	/**
+	 * Returns the modification stamp of the given document.
+	 *
+	 * @param document the document
+	 * @return the modification stamp or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}
+	 * @since 3.12
+	 */
+	private static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
 	/**
 	 * Returns a decoration for the given annotation if this
 	 * annotation is valid and shown by this painter.
@@ -979,7 +1185,7 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		Set<Entry<Annotation, Decoration>> decorations;
 
 		synchronized (fHighlightedDecorationsMapLock) {
-			if (fHighlightedDecorationsMap == null || fHighlightedDecorationsMap.isEmpty())
+			if (fHighlightedDecorationsMap == null || fHighlightedDecorationsMap.isEmpty() && !fIsLazy)
 				return;
 
 			decorations= new HashSet<>(fHighlightedDecorationsMap.entrySet());
@@ -990,6 +1196,12 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		if (DEBUG)
 			System.out.println("AP: applying text presentation offset: " + region.getOffset() + ", length= " + region.getLength()); //$NON-NLS-1$ //$NON-NLS-2$
 
+		if (fIsLazy)
+			addUncomputedHighlightedDecorations(decorations, region);
+
+		int appliedStart= Integer.MAX_VALUE;
+		int appliedEnd= -1;
+
 		for (int layer= 0, maxLayer= 1;	layer < maxLayer; layer++) {
 
 			for (Iterator<Entry<Annotation, Decoration>> iter= decorations.iterator(); iter.hasNext();) {
@@ -1023,11 +1235,55 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 					StyleRange styleRange= new StyleRange(start, length, null, null);
 					((ITextStyleStrategy)pp.fPaintingStrategy).applyTextStyle(styleRange, pp.fColor);
 					tp.mergeStyleRange(styleRange);
+					appliedStart= Math.min(appliedStart, start);
+					appliedEnd= Math.max(appliedEnd, end);
+				}
+			}
+		}
+
+		if (fIsLazy && appliedStart != Integer.MAX_VALUE) {
+			// remember the highlighted range, so that it gets invalidated with the next world change
+			synchronized (fHighlightedDecorationsMapLock) {
+				if (fTotalHighlightAnnotationRange == null) {
+					fTotalHighlightAnnotationRange= new Position(appliedStart, appliedEnd - appliedStart);
+				} else {
+					int totalStart= Math.min(appliedStart, fTotalHighlightAnnotationRange.offset);
+					int totalEnd= Math.max(appliedEnd, fTotalHighlightAnnotationRange.offset + fTotalHighlightAnnotationRange.length);
+					fTotalHighlightAnnotationRange.offset= totalStart;
+					fTotalHighlightAnnotationRange.length= totalEnd - totalStart;
 				}
 			}
 		}
 	}
 
+	/**
+	 * Adds the decorations of the highlighted annotations in the given region for which no
+	 * decorations have been computed yet.
+	 *
+	 * @param decorations the computed decorations, extended by this method
+	 * @param region the region
+	 * @since 3.12
+	 */
+	private void addUncomputedHighlightedDecorations(Set<Entry<Annotation, Decoration>> decorations, IRegion region) {
+		if (fModel == null)
+			return;
+
+		Set<Annotation> computed= new HashSet<>();
+		for (Iterator<Entry<Annotation, Decoration>> iter= decorations.iterator(); iter.hasNext();)
+			computed.add(iter.next().getKey());
+
+		Map<Annotation, Decoration> uncomputed= new HashMap<>();
+		for (Iterator<Annotation> e= getAnnotationIterator(region); e.hasNext();) {
+			Annotation annotation= e.next();
+			if (computed.contains(annotation) || !isHighlighting(annotation))
+				continue;
+			Decoration pp= getDecoration(annotation, null);
+			if (pp != null)
+				uncomputed.put(annotation, pp);
+		}
+		decorations.addAll(uncomputed.entrySet());
+	}
+
 	@Override
 	public synchronized void modelChanged(final IAnnotationModel model) {
 		if (DEBUG)
@@ -1082,6 +1338,31 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		}
 	}
 
+	/**
+	 * Enables or disables the lazy computation of decorations. If enabled, decorations are only
+	 * computed for the annotations in and near the visible part of the viewer's document, and
+	 * annotation model events only update the decorations of annotations in that range. The
+	 * remaining annotations are decorated when they are scrolled into view or when the text
+	 * presentation of their region is applied. This makes updates cheap in documents with many
+	 * annotations, at the cost of some work when scrolling.
+	 * <p>
+	 * Lazy computation works best with annotation models implementing
+	 * {@link IAnnotationModelExtension2}. It is disabled by default.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> to compute decorations lazily, <code>false</code> to
+	 *            compute the decorations of all annotations
+	 * @since 3.12
+	 */
+	public void setLazyDecorationsEnabled(boolean enabled) {
+		if (fIsLazy == enabled)
+			return;
+		fIsLazy= enabled;
+		fDecorationRange= null;
+		if (fIsActive)
+			updatePainting(null);
+	}
+
 	/**
 	 * Sets the color in which the squiggly for the given annotation type should be drawn.
 	 *
@@ -1356,6 +1637,12 @@ public class AnnotationPainter implements IPainter, PaintListener, IAnnotationMo
 		if (clippingRegion == null)
 			return;
 
+		if (event != null) {
+			// keep the decorations of the whole viewport, not only of the clipping region, so that
+			// the drawn ones can be cleared when their annotation changes
+			ensureDecorationsComputed(computeClippingRegion(null, true));
+		}
+
 		int vOffset= clippingRegion.getOffset();
 		int vLength= clippingRegion.getLength();
 
@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.source;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.DocumentPartitioningChangedEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.IDocumentPartitioningListenerExtension2;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextUtilities;
+
+
+/**
+ * An index of the matched characters inside the partitions of one content type of a document.
+ * The index links each start character with its end character and remembers the innermost open
+ * start character after each indexed character, so that the peer and the enclosing peers of a
+ * position are found by binary search rather than by scanning the document.
+ * <p>
+ * The index follows the changes of the document and its partitioning. A change that neither
+ * adds nor removes matched characters nor changes the partitioning just shifts the indexed
+ * characters behind it. Any other change discards the index from the change on; the remainder
+ * of the document is indexed again on the next query.
+ * </p>
+ *
+ * @since 3.12
+ */
+class CharacterPairIndex implements IDocumentListener, IDocumentPartitioningListener, IDocumentPartitioningListenerExtension2 {
+
+	/** The result of {@link #findPeer(int)} if the given offset is not indexed. */
+	static final int UNKNOWN= -2;
+
+	/** The number of characters read from the document at once. */
+	private static final int CHUNK_SIZE= 8192;
+
+	private final IDocument fDocument;
+	private final String fPartitioning;
+	private final String fContentType;
+	/** The matched characters, start and end characters alternating. */
+	private final char[] fPairs;
+	/** The indices in {@link #fPairs} of the ASCII characters, or -1. */
+	private final byte[] fAsciiKinds= new byte[128];
+
+	/** The number of indexed characters. */
+	private int fCount= 0;
+	/** The offsets of the indexed characters in ascending order. */
+	private int[] fOffsets= new int[64];
+	/** The indices in {@link #fPairs} of the indexed characters. */
+	private byte[] fKinds= new byte[64];
+	/** The index of the peer of each indexed character, or -1 if it has none. */
+	private int[] fPeers= new int[64];
+	/** The index of the innermost open start character after each indexed character, or -1. */
+	private int[] fEnclosing= new int[64];
+	/** The offset up to which the document is indexed. */
+	private int fIndexedEnd= 0;
+
+	/** The indices of the open start characters of each pair. */
+	private final int[][] fOpen;
+	/** The number of open start characters of each pair. */
+	private final int[] fOpenCount;
+	/** Tells whether an end character closes a start character that is not the innermost open one. */
+	private boolean fHasCrossings= false;
+
+	/** Tells whether a document change is in progress. */
+	private boolean fIsDocumentChanging= false;
+	/** Tells whether the current document change removes indexed characters. */
+	private boolean fIsRemovingCharacters= false;
+	/** The offset from which the partitioning changed during the current document change, or -1. */
+	private int fPartitioningChangeOffset= -1;
+
+
+	/**
+	 * Creates a new index. The matched characters must be distinct, and there must be at most 63
+	 * pairs.
+	 *
+	 * @param document the document
+	 * @param partitioning the partitioning
+	 * @param contentType the content type of the indexed partitions
+	 * @param pairs the matched characters, start and end characters alternating
+	 */
+	CharacterPairIndex(IDocument document, String partitioning, String contentType, char[] pairs) {
+		fDocument= document;
+		fPartitioning= partitioning;
+		fContentType= contentType;
+		fPairs= pairs;
+		Arrays.fill(fAsciiKinds, (byte) -1);
+		for (int i= 0; i < pairs.length; i++) {
+			if (pairs[i] < fAsciiKinds.length)
+				fAsciiKinds[pairs[i]]= (byte) i;
+		}
+		fOpen= new int[pairs.length / 2][16];
+		fOpenCount= new int[pairs.length / 2];
+	}
+
+	/**
+	 * Starts following the changes of the document.
+	 */
+	void install() {
+		fDocument.addDocumentListener(this);
+		fDocument.addDocumentPartitioningListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the document.
+	 */
+	void uninstall() {
+		fDocument.removeDocumentListener(this);
+		fDocument.removeDocumentPartitioningListener(this);
+	}
+
+	/**
+	 * Returns the offset of the peer of the matched character at the given offset.
+	 *
+	 * @param offset the offset of a matched character inside a partition of the indexed type
+	 * @return the offset of the peer, -1 if there is none, or {@link #UNKNOWN} if the given
+	 *         offset is not indexed
+	 * @throws BadLocationException if the document cannot be indexed
+	 */
+	int findPeer(int offset) throws BadLocationException {
+		update();
+		int index= indexOf(offset);
+		if (index == -1)
+			return UNKNOWN;
+		int peer= fPeers[index];
+		return peer == -1 ? -1 : fOffsets[peer];
+	}
+
+	/**
+	 * Tells whether {@link #findEnclosingPeers(int, int)} gives the same result as scanning the
+	 * document. This is not the case if the pairs cross each other, like in <code>( [ ) ]</code>.
+	 *
+	 * @return <code>true</code> if the enclosing peers can be found with this index
+	 * @throws BadLocationException if the document cannot be indexed
+	 */
+	boolean canFindEnclosingPeers() throws BadLocationException {
+		update();
+		return !fHasCrossings;
+	}
+
+	/**
+	 * Returns the innermost pair that encloses the given range.
+	 *
+	 * @param lastOffset the last offset which may contain the enclosing start character
+	 * @param end the end offset of the enclosed range
+	 * @return the region from the start character to the end character of the enclosing pair,
+	 *         or <code>null</code> if there is none
+	 * @throws BadLocationException if the document cannot be indexed
+	 */
+	IRegion findEnclosingPeers(int lastOffset, int end) throws BadLocationException {
+		update();
+		int index= indexOf(lastOffset + 1) - 1;
+		int enclosing= index < 0 ? -1 : fEnclosing[index];
+		while (enclosing != -1) {
+			int peer= fPeers[enclosing];
+			if (peer == -1)
+				return null;
+			if (fOffsets[peer] >= end - 1)
+				return new Region(fOffsets[enclosing], fOffsets[peer] + 1 - fOffsets[enclosing]);
+			// the pair is inside the range, try the next outer one
+			enclosing= enclosing == 0 ? -1 : fEnclosing[enclosing - 1];
+		}
+		return null;
+	}
+
+	@Override
+	public void documentAboutToBeChanged(DocumentEvent event) {
+		fIsDocumentChanging= true;
+		int index= indexOf(event.getOffset());
+		fIsRemovingCharacters= index < fCount && fOffsets[index] < event.getOffset() + event.getLength();
+	}
+
+	@Override
+	public void documentChanged(DocumentEvent event) {
+		fIsDocumentChanging= false;
+		int offset= event.getOffset();
+		String text= event.getText() == null ? "" : event.getText(); //$NON-NLS-1$
+
+		if (fIsRemovingCharacters || containsMatchedCharacter(text)) {
+			discard(fPartitioningChangeOffset == -1 ? offset : Math.min(offset, fPartitioningChangeOffset));
+		} else {
+			shift(offset, event.getLength(), text.length());
+			if (fPartitioningChangeOffset != -1)
+				discard(fPartitioningChangeOffset);
+		}
+		fIsRemovingCharacters= false;
+		fPartitioningChangeOffset= -1;
+	}
+
+	@Override
+	public void documentPartitioningChanged(IDocument document) {
+		partitioningChanged(0);
+	}
+
+	@Override
+	public void documentPartitioningChanged(DocumentPartitioningChangedEvent event) {
+		IRegion region= event.getChangedRegion(fPartitioning);
+		if (region != null)
+			partitioningChanged(region.getOffset());
+	}
+
+	private void partitioningChanged(int offset) {
+		if (!fIsDocumentChanging)
+			discard(offset);
+		else if (fPartitioningChangeOffset == -1 || offset < fPartitioningChangeOffset)
+			fPartitioningChangeOffset= offset;
+	}
+
+	private boolean containsMatchedCharacter(String text) {
+		for (int i= 0; i < text.length(); i++) {
+			if (getKind(text.charAt(i)) != -1)
+				return true;
+		}
+		return false;
+	}
+
+	private int getKind(char c) {
+		if (c < fAsciiKinds.length)
+			return fAsciiKinds[c];
+		for (int i= 0; i < fPairs.length; i++) {
+			if (fPairs[i] == c)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first indexed character at or after the given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index, <code>fCount</code> if there is no such character
+	 */
+	private int indexOf(int offset) {
+		int left= 0;
+		int right= fCount;
+		while (left < right) {
+			int mid= (left + right) >>> 1;
+			if (fOffsets[mid] < offset)
+				left= mid + 1;
+			else
+				right= mid;
+		}
+		return left;
+	}
+
+	/**
+	 * Shifts the indexed characters behind a replaced range without matched characters.
+	 *
+	 * @param offset the offset of the replaced range
+	 * @param length the length of the replaced range
+	 * @param textLength the length of the replacement
+	 */
+	private void shift(int offset, int length, int textLength) {
+		int delta= textLength - length;
+		if (delta != 0) {
+			for (int i= indexOf(offset); i < fCount; i++)
+				fOffsets[i]+= delta;
+		}
+		if (fIndexedEnd >= offset + length)
+			fIndexedEnd+= delta;
+		else if (fIndexedEnd > offset)
+			fIndexedEnd= offset;
+	}
+
+	/**
+	 * Discards the indexed characters at or after the given offset and restores the open start
+	 * characters at that offset from the remaining ones.
+	 *
+	 * @param offset the offset
+	 */
+	private void discard(int offset) {
+		if (offset >= fIndexedEnd)
+			return;
+		fIndexedEnd= offset;
+		fCount= indexOf(offset);
+
+		Arrays.fill(fOpenCount, 0);
+		fHasCrossings= false;
+		for (int i= 0; i < fCount; i++) {
+			int pair= fKinds[i] / 2;
+			if (fKinds[i] % 2 == 0) {
+				open(pair, i);
+			} else if (fPeers[i] != -1) {
+				if (i == 0 || fPeers[i] != fEnclosing[i - 1])
+					fHasCrossings= true;
+				fOpenCount[pair]--;
+			}
+		}
+		// the peers of the start characters that are still open have been discarded
+		for (int pair= 0; pair < fOpenCount.length; pair++) {
+			for (int i= 0; i < fOpenCount[pair]; i++)
+				fPeers[fOpen[pair][i]]= -1;
+		}
+	}
+
+	/**
+	 * Indexes the document from the end of the index to the end of the document.
+	 *
+	 * @throws BadLocationException if the document cannot be indexed
+	 */
+	private void update() throws BadLocationException {
+		int length= fDocument.getLength();
+		if (fIndexedEnd >= length)
+			return;
+
+		ITypedRegion[] partitions= TextUtilities.computePartitioning(fDocument, fPartitioning, fIndexedEnd, length - fIndexedEnd, false);
+		for (int i= 0; i < partitions.length; i++) {
+			ITypedRegion partition= partitions[i];
+			if (fContentType.equals(partition.getType()))
+				index(Math.max(partition.getOffset(), fIndexedEnd), partition.getOffset() + partition.getLength());
+		}
+		fIndexedEnd= length;
+	}
+
+	private void index(int offset, int end) throws BadLocationException {
+		while (offset < end) {
+			int length= Math.min(CHUNK_SIZE, end - offset);
+			String text= fDocument.get(offset, length);
+			for (int i= 0; i < length; i++) {
+				int kind= getKind(text.charAt(i));
+				if (kind != -1)
+					add(offset + i, kind);
+			}
+			offset+= length;
+		}
+	}
+
+	private void add(int offset, int kind) {
+		if (fCount == fOffsets.length) {
+			int capacity= fCount * 2;
+			fOffsets= Arrays.copyOf(fOffsets, capacity);
+			fKinds= Arrays.copyOf(fKinds, capacity);
+			fPeers= Arrays.copyOf(fPeers, capacity);
+			fEnclosing= Arrays.copyOf(fEnclosing, capacity);
+		}
+
+		int index= fCount++;
+		fOffsets[index]= offset;
+		fKinds[index]= (byte) kind;
+		fPeers[index]= -1;
+
+		int pair= kind / 2;
+		if (kind % 2 == 0) {
+			open(pair, index);
+		} else if (fOpenCount[pair] > 0) {
+			int start= fOpen[pair][--fOpenCount[pair]];
+			if (index == 0 || start != fEnclosing[index - 1])
+				fHasCrossings= true;
+			fPeers[start]= index;
+			fPeers[index]= start;
+		}
+
+		int enclosing= -1;
+		for (int i= 0; i < fOpenCount.length; i++) {
+			if (fOpenCount[i] > 0)
+				enclosing= Math.max(enclosing, fOpen[i][fOpenCount[i] - 1]);
+		}
+		fEnclosing[index]= enclosing;
+	}
+
+	private void open(int pair, int index) {
+		if (fOpenCount[pair] == fOpen[pair].length)
+			fOpen[pair]= Arrays.copyOf(fOpen[pair], fOpenCount[pair] * 2);
+		fOpen[pair][fOpenCount[pair]++]= index;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.Map;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.source.projection.AnnotationBag;
 
@@ -201,7 +202,17 @@ public class DefaultAnnotationHover implements IAnnotationHover {
 		IDocument document= viewer.getDocument();
 		List<Annotation> javaAnnotations= new ArrayList<>();
 		HashMap<Position, Object> messagesAtPosition= new HashMap<>();
-		Iterator<Annotation> iterator= model.getAnnotationIterator();
+		Iterator<Annotation> iterator= null;
+		if (model instanceof IAnnotationModelExtension2) {
+			try {
+				IRegion lineInfo= document.getLineInformation(line);
+				iterator= ((IAnnotationModelExtension2) model).getAnnotationIterator(lineInfo.getOffset(), lineInfo.getLength() + 1, true, true);
+			} catch (BadLocationException x) {
+				// fall back to all annotations
+			}
+		}
+		if (iterator == null)
+			iterator= model.getAnnotationIterator();
 
 		while (iterator.hasNext()) {
 			Annotation annotation= iterator.next();
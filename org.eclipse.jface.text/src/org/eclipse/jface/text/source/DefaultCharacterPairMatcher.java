@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2012 IBM Corporation and others.
+ * Copyright (c) 2006, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,10 @@
  *     Christian Plesner Hansen (plesner@quenta.org) - initial API and implementation
  *******************************************************************************/
 package org.eclipse.jface.text.source;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.BadLocationException;
@@ -32,6 +36,21 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 	private final CharPairs fPairs;
 	private final String fPartitioning;
 	private final boolean fCaretEitherSideOfBracket;
+	/**
+	 * Tells whether the character pair indices are used.
+	 * @since 3.12
+	 */
+	private boolean fIsIndexEnabled= false;
+	/**
+	 * The document the character pair indices belong to, or <code>null</code>.
+	 * @since 3.12
+	 */
+	private IDocument fIndexedDocument;
+	/**
+	 * The character pair indices of the indexed document by content type.
+	 * @since 3.12
+	 */
+	private Map<String, CharacterPairIndex> fIndices;
 
 	/**
 	 * Creates a new character pair matcher that matches the specified characters within the
@@ -94,6 +113,69 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 		this(chars, IDocumentExtension3.DEFAULT_PARTITIONING);
 	}
 
+	/**
+	 * Enables or disables the character pair index of this matcher. The index records the
+	 * matched characters of a document together with their peers and follows the changes of the
+	 * document and its partitioning. With the index, finding the peer of a character or the
+	 * enclosing peers of a position no longer scans the document, which makes matching fast
+	 * for large documents at the cost of memory for each matched character.
+	 * <p>
+	 * The index is not used if a character occurs twice in the matched characters, or if a start
+	 * character equals its end character. Subclasses that override
+	 * {@link #isMatchedChar(char, IDocument, int)} must not enable the index, since it does not
+	 * take that method into account. The index is released when the matcher is disposed.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> to enable the index, <code>false</code> to disable it
+	 * @since 3.12
+	 */
+	public void setIndexEnabled(boolean enabled) {
+		fIsIndexEnabled= enabled;
+		if (!enabled)
+			disposeIndices();
+	}
+
+	/**
+	 * Returns the character pair index for the partitions of the given content type in the
+	 * given document.
+	 *
+	 * @param document the document
+	 * @param contentType the content type
+	 * @return the index, or <code>null</code> if no index is used
+	 * @since 3.12
+	 */
+	private CharacterPairIndex getIndex(IDocument document, String contentType) {
+		if (!fIsIndexEnabled || !fPairs.isIndexable())
+			return null;
+
+		if (document != fIndexedDocument) {
+			disposeIndices();
+			fIndexedDocument= document;
+			fIndices= new HashMap<>();
+		}
+		CharacterPairIndex index= fIndices.get(contentType);
+		if (index == null) {
+			index= new CharacterPairIndex(document, fPartitioning, contentType, fPairs.fPairs);
+			index.install();
+			fIndices.put(contentType, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Disposes the character pair indices.
+	 *
+	 * @since 3.12
+	 */
+	private void disposeIndices() {
+		if (fIndices != null) {
+			for (Iterator<CharacterPairIndex> e= fIndices.values().iterator(); e.hasNext();)
+				e.next().uninstall();
+			fIndices= null;
+		}
+		fIndexedDocument= null;
+	}
+
 	@Override
 	public IRegion match(IDocument doc, int offset) {
 		if (doc == null || offset < 0 || offset > doc.getLength()) return null;
@@ -149,12 +231,10 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 		//bracket is not selected
 		try {
 			final String partition= TextUtilities.getContentType(document, fPartitioning, offset, false);
-			DocumentPartitionAccessor partDoc= new DocumentPartitionAccessor(document, fPartitioning, partition);
-			IRegion enclosingPeers= findEnclosingPeers(document, partDoc, offset, length, 0, document.getLength());
+			IRegion enclosingPeers= findEnclosingPeers(document, partition, offset, length);
 			if (enclosingPeers != null)
 				return enclosingPeers;
-			partDoc= new DocumentPartitionAccessor(document, fPartitioning, IDocument.DEFAULT_CONTENT_TYPE);
-			return findEnclosingPeers(document, partDoc, offset, length, 0, document.getLength());
+			return findEnclosingPeers(document, IDocument.DEFAULT_CONTENT_TYPE, offset, length);
 		} catch (BadLocationException ble) {
 			fAnchor= -1;
 			return null;
@@ -301,9 +381,13 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 		final int searchStartPosition= isForward ? caretOffset : (fCaretEitherSideOfBracket ? caretOffset - 1 : caretOffset - 2);
 		final int adjustedOffset= isForward ? caretOffset - 1 : (fCaretEitherSideOfBracket ? caretOffset + 1 : caretOffset);
 		final String partition= TextUtilities.getContentType(doc, fPartitioning, ((!isForward && fCaretEitherSideOfBracket) ? caretOffset : Math.max(caretOffset - 1, 0)), false);
-		final DocumentPartitionAccessor partDoc= new DocumentPartitionAccessor(doc, fPartitioning, partition);
-		int endOffset= findMatchingPeer(partDoc, ch, fPairs.getMatching(ch),
-				isForward, isForward ? doc.getLength() : -1, searchStartPosition);
+		CharacterPairIndex index= getIndex(doc, partition);
+		int endOffset= index != null ? index.findPeer(isForward ? searchStartPosition - 1 : searchStartPosition + 1) : CharacterPairIndex.UNKNOWN;
+		if (endOffset == CharacterPairIndex.UNKNOWN) {
+			final DocumentPartitionAccessor partDoc= new DocumentPartitionAccessor(doc, fPartitioning, partition);
+			endOffset= findMatchingPeer(partDoc, ch, fPairs.getMatching(ch),
+					isForward, isForward ? doc.getLength() : -1, searchStartPosition);
+		}
 		if (endOffset == -1)
 			return null;
 		final int adjustedEndOffset= isForward ? endOffset + 1 : endOffset;
@@ -342,6 +426,30 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 		return -1;
 	}
 
+	/**
+	 * Finds the enclosing peer characters inside the partitions of the given content type, using
+	 * the character pair index if possible.
+	 *
+	 * @param document the document
+	 * @param partition the content type of the partitions to search
+	 * @param offset the offset of the selection
+	 * @param length the length of the selection, may be negative
+	 * @return the region of the enclosing peers, or <code>null</code> if there are none
+	 * @throws BadLocationException if the document is accessed with invalid offset
+	 * @since 3.12
+	 */
+	private IRegion findEnclosingPeers(IDocument document, String partition, int offset, int length) throws BadLocationException {
+		int start= length >= 0 ? offset : offset + length;
+		CharacterPairIndex index= start < document.getLength() ? getIndex(document, partition) : null;
+		if (index != null && index.canFindEnclosingPeers()) {
+			int lastOffset= fPairs.isEndCharacter(document.getChar(start)) ? start - 1 : start;
+			return index.findEnclosingPeers(lastOffset, length >= 0 ? offset + length : offset);
+		}
+
+		DocumentPartitionAccessor partDoc= new DocumentPartitionAccessor(document, fPartitioning, partition);
+		return findEnclosingPeers(document, partDoc, offset, length, 0, document.getLength());
+	}
+
 	/*
 	 * Performs the actual work of finding enclosing peer characters for #findEnclosingPeerCharacters(IDocument, int, int).
 	 */
@@ -456,7 +564,9 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 	}
 
 	@Override
-	public void dispose() { }
+	public void dispose() {
+		disposeIndices();
+	}
 
 	@Override
 	public void clear() {
@@ -632,6 +742,25 @@ public class DefaultCharacterPairMatcher implements ICharacterPairMatcher, IChar
 			return this.isOpeningCharacter(c, false);
 		}
 
+		/**
+		 * Returns true if the pairs can be indexed, i.e. if all characters are distinct and
+		 * there are at most 63 pairs.
+		 *
+		 * @return true exactly if the pairs can be indexed
+		 * @since 3.12
+		 */
+		public boolean isIndexable() {
+			if (fPairs.length > 126)
+				return false;
+			for (int i= 0; i < fPairs.length; i++) {
+				for (int j= i + 1; j < fPairs.length; j++) {
+					if (fPairs[i] == fPairs[j])
+						return false;
+				}
+			}
+			return true;
+		}
+
 		/**
 		 * Returns the matching character for the specified character.
 		 * 
@@ -54,6 +54,7 @@ import org.eclipse.jface.text.JFaceTextUtil;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextEvent;
+import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.source.projection.AnnotationBag;
 
 
@@ -82,14 +83,35 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		 */
 		@Override
 		public void textChanged(TextEvent e) {
+			// annotations only move to other rows if lines are added or removed
+			if (e.getDocumentEvent() == null || containsLineDelimiter(e.getText()) || containsLineDelimiter(e.getReplacedText()))
+				fHistogram.invalidate();
+
 			if (fTextViewer != null && e.getDocumentEvent() == null && e.getViewerRedrawState()) {
 				// handle only changes of visible document
 				redraw();
 			}
 		}
 
+		/**
+		 * Tells whether the given text contains a line delimiter of the viewer's document.
+		 *
+		 * @param text the text, may be <code>null</code>
+		 * @return <code>true</code> if the text contains a line delimiter
+		 * @since 3.12
+		 */
+		private boolean containsLineDelimiter(String text) {
+			if (text == null || text.length() == 0)
+				return false;
+			IDocument document= fTextViewer != null ? fTextViewer.getDocument() : null;
+			if (document == null)
+				return true;
+			return TextUtilities.indexOf(document.getLegalLineDelimiters(), text, 0)[0] != -1;
+		}
+
 		@Override
 		public void modelChanged(IAnnotationModel model) {
+			fHistogram.invalidate();
 			update();
 		}
 
@@ -99,10 +121,15 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 				return;
 
 			if (event.isWorldChange()) {
+				fHistogram.invalidate();
 				update();
 				return;
 			}
 
+			fHistogram.annotationsChanged(event.getAddedAnnotations());
+			fHistogram.annotationsChanged(event.getRemovedAnnotations());
+			fHistogram.annotationsChanged(event.getChangedAnnotations());
+
 			Annotation[] annotations= event.getAddedAnnotations();
 			int length= annotations.length;
 			for (int i= 0; i < length; i++) {
@@ -194,7 +221,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 
 				fNext= next;
 				Object annotationType= next.getType();
-				if (fType == null || fType.equals(annotationType) || !fConfiguredAnnotationTypes.contains(annotationType) && isSubtype(annotationType)) {
+				if (fType == null || isShownAs(annotationType, fType)) {
 					if (temp && pers) return;
 					if (pers && next.isPersistent()) return;
 					if (temp && !next.isPersistent()) return;
@@ -203,14 +230,6 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fNext= null;
 		}
 
-		private boolean isSubtype(Object annotationType) {
-			if (fAnnotationAccess instanceof  IAnnotationAccessExtension) {
-				IAnnotationAccessExtension extension= (IAnnotationAccessExtension) fAnnotationAccess;
-				return extension.isSubtype(annotationType, fType);
-			}
-			return fType.equals(annotationType);
-		}
-
 		@Override
 		public boolean hasNext() {
 			return fNext != null;
@@ -378,6 +397,20 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 	        visibleLines= bottomIndex - topIndex;
 	        invisibleLines= maxLines - visibleLines;
 		}
+
+		/**
+		 * Tells whether the given widget infos map lines to the same vertical positions as these.
+		 * The number of visible lines is compared with a tolerance, since it is computed from the
+		 * scroll position and may differ by rounding errors only.
+		 *
+		 * @param infos the other widget infos, may be <code>null</code>
+		 * @return <code>true</code> if lines are mapped to the same positions
+		 * @since 3.12
+		 */
+		boolean hasSameMapping(WidgetInfos infos) {
+			return infos != null && maxLines == infos.maxLines && thumbHeight == infos.thumbHeight && writable == infos.writable
+					&& bounds.y == infos.bounds.y && bounds.height == infos.bounds.height && Math.abs(visibleLines - infos.visibleLines) < 1e-6;
+		}
 	}
 
 	private static final boolean DEBUG_DRAW= false;
@@ -456,10 +489,15 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 	 */
 	private Map<Object, Boolean> fAllowedHeaderAnnotationTypes= new HashMap<>();
 	/**
-	 * The cached annotations.
-	 * @since 3.0
+	 * The histogram of the drawn annotations.
+	 * @since 3.12
+	 */
+	private OverviewRulerHistogram fHistogram= new OverviewRulerHistogram();
+	/**
+	 * The widget infos the histogram has been built with.
+	 * @since 3.12
 	 */
-	private List<Annotation> fCachedAnnotations= new ArrayList<>();
+	private WidgetInfos fHistogramInfos;
 
 	/**
 	 * Redraw runnable lock
@@ -556,6 +594,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			if (fModel != null)
 				fModel.addAnnotationModelListener(fInternalListener);
 
+			fHistogram.invalidate();
 			update();
 		}
 	}
@@ -668,6 +707,9 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		fAnnotationTypes2Colors.clear();
 		fAnnotationsSortedByLayer.clear();
 		fLayersSortedByLayer.clear();
+		fHistogram.clear();
+		fHistogram.invalidate();
+		fHistogramInfos= null;
 	}
 
 	/**
@@ -697,8 +739,6 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			gc.setBackground(fCanvas.getBackground());
 			gc.fillRectangle(0, 0, size.x, size.y);
 
-			cacheAnnotations();
-
 			doPaint(gc);
 
 		} finally {
@@ -708,22 +748,95 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		dest.drawImage(fBuffer, 0, 0);
 	}
 
-	private void cacheAnnotations() {
-		fCachedAnnotations.clear();
-		if (fModel != null) {
+	/**
+	 * Brings the histogram of the drawn annotations up to date. The histogram is rebuilt if it
+	 * has been invalidated or if the given widget infos map lines to other rows than the ones it
+	 * has been built with, otherwise only the annotations changed since the last paint are
+	 * updated.
+	 *
+	 * @param infos the current widget infos
+	 * @since 3.12
+	 */
+	private void updateHistogram(WidgetInfos infos) {
+		IRegion visible= null;
+		if (!(fTextViewer instanceof ITextViewerExtension5))
+			visible= fTextViewer.getVisibleRegion(); // legacy support
+
+		if (!fHistogram.isValid() || !infos.hasSameMapping(fHistogramInfos)) {
+			fHistogram.clear();
+			fHistogramInfos= infos;
 			Iterator<Annotation> iter= fModel.getAnnotationIterator();
-			while (iter.hasNext()) {
-				Annotation annotation= iter.next();
+			while (iter.hasNext())
+				addToHistogram(iter.next(), visible, infos);
+		} else {
+			Annotation[] annotations= fHistogram.takePendingAnnotations();
+			for (int i= 0; i < annotations.length; i++) {
+				fHistogram.remove(annotations[i]);
+				addToHistogram(annotations[i], visible, infos);
+			}
+		}
+	}
 
-				if (annotation.isMarkedDeleted())
-					continue;
+	/**
+	 * Adds the given annotation to the histogram if it is part of the model and shown in this ruler.
+	 *
+	 * @param annotation the annotation
+	 * @param visible the visible region of the viewer, or <code>null</code> if the viewer
+	 *            implements {@link ITextViewerExtension5}
+	 * @param infos the current widget infos
+	 * @since 3.12
+	 */
+	private void addToHistogram(Annotation annotation, IRegion visible, WidgetInfos infos) {
+		if (annotation.isMarkedDeleted() || skip(annotation.getType()))
+			return;
 
-				if (skip(annotation.getType()))
-					continue;
+		Position p= fModel.getPosition(annotation);
+		if (p == null)
+			return;
+
+		int yy= -1, hh= ANNOTATION_HEIGHT;
+		IDocument document= fTextViewer.getDocument();
+		StyledText textWidget= fTextViewer.getTextWidget();
+		try {
+			int annotationOffset= p.getOffset();
+			int annotationLength= p.getLength();
+			int startOffset= -1;
+			if (visible != null) {
+				if (p.overlapsWith(visible.getOffset(), visible.getLength())) {
+					annotationOffset= Math.max(p.getOffset(), visible.getOffset());
+					int annotationEnd= Math.min(p.getOffset() + p.getLength(), visible.getOffset() + visible.getLength());
+					annotationLength= annotationEnd - annotationOffset;
+					startOffset= annotationOffset - visible.getOffset();
+				}
+			} else {
+				IRegion widgetRegion= ((ITextViewerExtension5) fTextViewer).modelRange2WidgetRange(new Region(annotationOffset, annotationLength));
+				if (widgetRegion != null)
+					startOffset= widgetRegion.getOffset();
+			}
+
+			if (startOffset != -1) {
+				int startLine= textWidget.getLineAtOffset(startOffset);
+
+				yy= computeY(startLine, infos);
 
-				fCachedAnnotations.add(annotation);
+				if (ANNOTATION_HEIGHT_SCALABLE) {
+					int numberOfLines= document.getNumberOfLines(annotationOffset, annotationLength);
+					// don't count empty trailing line
+					IRegion lastLine= document.getLineInformationOfOffset(annotationOffset + annotationLength);
+					if (lastLine.getOffset() == annotationOffset + annotationLength) {
+						numberOfLines--;
+					}
+					if (numberOfLines > 1) {
+						int yy2= computeY(startLine + numberOfLines - 1, infos);
+						hh= Math.max(yy2 - yy, ANNOTATION_HEIGHT);
+					}
+				}
 			}
+		} catch (BadLocationException x) {
+			yy= -1;
 		}
+
+		fHistogram.add(annotation, annotation instanceof AnnotationBag, yy, hh);
 	}
 
 	/**
@@ -732,87 +845,44 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 	 * @param gc the GC to draw into
 	 */
 	private void doPaint(GC gc) {
+		if (fModel == null)
+			return;
 
-		Rectangle r= new Rectangle(0, 0, 0, 0);
-		int yy, hh= ANNOTATION_HEIGHT;
-
-		IDocument document= fTextViewer.getDocument();
 		StyledText textWidget= fTextViewer.getTextWidget();
-		ITextViewerExtension5 extension= null;
-		IRegion visible= null;
-		if (fTextViewer instanceof ITextViewerExtension5)
-			extension= (ITextViewerExtension5) fTextViewer;
-		else
-			visible= fTextViewer.getVisibleRegion(); // legacy support
+		WidgetInfos infos= new WidgetInfos(textWidget, fCanvas);
+		updateHistogram(infos);
 
-		WidgetInfos infos= null;
-		
+		Rectangle r= new Rectangle(INSET, 0, infos.bounds.width - (2 * INSET), 0);
+		int yy, hh;
+
+		List<OverviewRulerHistogram.Buckets> buckets= fHistogram.getBuckets();
 		for (Iterator<Object> iterator= fAnnotationsSortedByLayer.iterator(); iterator.hasNext();) {
 			Object annotationType= iterator.next();
 
 			if (skip(annotationType))
 				continue;
 
-			int[] style= new int[] { FilterIterator.PERSISTENT, FilterIterator.TEMPORARY };
-			for (int t=0; t < style.length; t++) {
+			boolean[] temporary= new boolean[] { false, true };
+			for (int t=0; t < temporary.length; t++) {
 				boolean areColorsComputed= false;
 				Color fill= null;
 				Color stroke= null;
 
-				Iterator<Annotation> e= new FilterIterator(annotationType, style[t], fCachedAnnotations.iterator());
-				while (e.hasNext()) {
-					Annotation a= e.next();
-					Position p= fModel.getPosition(a);
-
-					if (p == null)
-						continue;
-					if (visible != null && !p.overlapsWith(visible.getOffset(), visible.getLength()))
+				for (int i= 0; i < buckets.size(); i++) {
+					OverviewRulerHistogram.Buckets b= buckets.get(i);
+					if (b.fIsTemporary != temporary[t] || !isShownAs(b.fType, annotationType))
 						continue;
 
-					int annotationOffset= p.getOffset();
-					int annotationLength= p.getLength();
-					IRegion widgetRegion= null;
-					if (visible != null) {
-						annotationOffset= Math.max(p.getOffset(), visible.getOffset());
-						int annotationEnd= Math.min(p.getOffset() + p.getLength(), visible.getOffset() + visible.getLength());
-						annotationLength= annotationEnd - annotationOffset;
-					} else {
-						widgetRegion= extension.modelRange2WidgetRange(new Region(annotationOffset, annotationLength));
-						if (widgetRegion == null)
-							continue;
-					}
-					
-					if (infos == null) {
-						infos= new WidgetInfos(textWidget, fCanvas);
-						r.x= INSET;
-						r.width= infos.bounds.width - (2 * INSET);
-					}
-
-					try {
-						int startOffset= visible != null ? annotationOffset - visible.getOffset() : widgetRegion.getOffset();
-						int startLine= textWidget.getLineAtOffset(startOffset);
-						
-						yy= computeY(startLine, infos);
-						
-						if (ANNOTATION_HEIGHT_SCALABLE) {
-							int numberOfLines= document.getNumberOfLines(annotationOffset, annotationLength);
-							// don't count empty trailing line
-							IRegion lastLine= document.getLineInformationOfOffset(annotationOffset + annotationLength);
-							if (lastLine.getOffset() == annotationOffset + annotationLength) {
-								numberOfLines--;
-							}
-							if (numberOfLines > 1) {
-								int yy2= computeY(startLine + numberOfLines - 1, infos);
-								hh= Math.max(yy2 - yy, ANNOTATION_HEIGHT);
-							} else {
-								hh= ANNOTATION_HEIGHT;
-							}
-						}
+					Iterator<Long> e= b.rectangles();
+					while (e.hasNext()) {
+						long rectangle= e.next().longValue();
+						yy= OverviewRulerHistogram.getY(rectangle);
+						hh= OverviewRulerHistogram.getHeight(rectangle);
 						fAnnotationHeight= hh;
-						
+
 						if (!areColorsComputed) {
-							stroke= getStrokeColor(annotationType, style[t] == FilterIterator.TEMPORARY);
-							fill= fUseSaturatedColors ? stroke : getFillColor(annotationType, style[t] == FilterIterator.TEMPORARY);
+							stroke= getStrokeColor(annotationType, temporary[t]);
+							fill= fUseSaturatedColors ? stroke : getFillColor(annotationType, temporary[t]);
 							areColorsComputed= true;
 						}
 
@@ -830,16 +900,13 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 							gc.setLineWidth(0); // NOTE: 0 means width is 1 but with optimized performance
 							gc.drawRectangle(r);
 						}
-					} catch (BadLocationException x) {
 					}
 				}
 			}
 		}
-		
+
 		if (DEBUG_DRAW) {
 			// draw debugging guides (boundaries):
-			if (infos == null)
-				infos= new WidgetInfos(textWidget, fCanvas);
 			gc.setForeground(gc.getDevice().getSystemColor(SWT.COLOR_DARK_MAGENTA));
 			yy= infos.thumbHeight / 2;
 			gc.drawLine(0, yy, infos.bounds.x/2, yy);
@@ -1174,6 +1241,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fConfiguredAnnotationTypes.add(annotationType);
 			fAllowedAnnotationTypes.clear();
 		}
+		fHistogram.invalidate();
 	}
 
 	@Override
@@ -1182,6 +1250,7 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			fConfiguredAnnotationTypes.remove(annotationType);
 			fAllowedAnnotationTypes.clear();
 		}
+		fHistogram.invalidate();
 	}
 
 	@Override
@@ -1221,6 +1290,47 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		return !contains(annotationType, fAllowedAnnotationTypes, fConfiguredAnnotationTypes);
 	}
 
+	/**
+	 * Returns whether annotations of the given type are shown with the given layer type, i.e.
+	 * whether the annotation type equals the layer type or is a subtype of it which is not
+	 * configured on its own.
+	 *
+	 * @param annotationType the annotation type
+	 * @param layerType the annotation type of the layer
+	 * @return <code>true</code> if annotations of the given type are shown with the layer type
+	 * @since 3.12
+	 */
+	private boolean isShownAs(Object annotationType, Object layerType) {
+		if (layerType.equals(annotationType))
+			return true;
+		if (fConfiguredAnnotationTypes.contains(annotationType))
+			return false;
+		if (fAnnotationAccess instanceof IAnnotationAccessExtension) {
+			IAnnotationAccessExtension extension= (IAnnotationAccessExtension) fAnnotationAccess;
+			return extension.isSubtype(annotationType, layerType);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of annotations shown with the given layer type, not counting annotation
+	 * bags, as of the last paint.
+	 *
+	 * @param layerType the annotation type of the layer
+	 * @return the number of annotations
+	 * @since 3.12
+	 */
+	private int getAnnotationCount(Object layerType) {
+		int count= 0;
+		List<OverviewRulerHistogram.Buckets> buckets= fHistogram.getBuckets();
+		for (int i= 0; i < buckets.size(); i++) {
+			OverviewRulerHistogram.Buckets b= buckets.get(i);
+			if (b.fAnnotationCount > 0 && isShownAs(b.fType, layerType))
+				count+= b.fAnnotationCount;
+		}
+		return count;
+	}
+
 	/**
 	 * Returns whether the given annotation type should be skipped by the drawing routine of the header.
 	 *
@@ -1462,17 +1572,14 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 		fHeader.setToolTipText(null);
 
 		Object colorType= null;
-		outer: for (int i= fAnnotationsSortedByLayer.size() -1; i >= 0; i--) {
+		for (int i= fAnnotationsSortedByLayer.size() -1; i >= 0; i--) {
 			Object annotationType= fAnnotationsSortedByLayer.get(i);
 			if (skipInHeader(annotationType) || skip(annotationType))
 				continue;
 
-			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.iterator());
-			while (e.hasNext()) {
-				if (e.next() != null) {
-					colorType= annotationType;
-					break outer;
-				}
+			if (getAnnotationCount(annotationType) > 0) {
+				colorType= annotationType;
+				break;
 			}
 		}
 
@@ -1514,16 +1621,15 @@ public class OverviewRuler implements IOverviewRulerExtension, IOverviewRuler {
 			if (skipInHeader(annotationType) || skip(annotationType))
 				continue;
 
-			int count= 0;
+			int count= getAnnotationCount(annotationType);
 			String annotationTypeLabel= null;
 
-			Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS, fCachedAnnotations.iterator());
-			while (e.hasNext()) {
-				Annotation annotation= e.next();
-				if (annotation != null) {
-					if (annotationTypeLabel == null)
+			if (count > 0) {
+				Iterator<Annotation> e= new FilterIterator(annotationType, FilterIterator.PERSISTENT | FilterIterator.TEMPORARY | FilterIterator.IGNORE_BAGS);
+				while (e.hasNext() && annotationTypeLabel == null) {
+					Annotation annotation= e.next();
+					if (annotation != null && !skip(annotation.getType()))
 						annotationTypeLabel= ((IAnnotationAccessExtension)fAnnotationAccess).getTypeLabel(annotation);
-					count++;
 				}
 			}
 
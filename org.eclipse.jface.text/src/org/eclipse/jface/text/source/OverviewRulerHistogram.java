@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Histogram of the annotations shown by an overview ruler. For each annotation type, separately
+ * for persistent and temporary annotations, the histogram counts the annotations drawn at each
+ * vertical position and height. The ruler can thus be painted with one rectangle per bucket,
+ * independent of the number of annotations.
+ * <p>
+ * The histogram is updated annotation by annotation: annotations reported by annotation model
+ * events are remembered as pending, possibly from a non-UI thread, and are put into the right
+ * buckets by the ruler before it paints. The histogram must be rebuilt when the mapping of
+ * annotations to rows changes, e.g. when the ruler is resized or lines are added.
+ * </p>
+ *
+ * @since 3.12
+ */
+class OverviewRulerHistogram {
+
+	/**
+	 * The buckets of the annotations of one type, either persistent or temporary.
+	 */
+	static class Buckets {
+
+		/** The annotation type */
+		final Object fType;
+		/** Tells whether the annotations are temporary */
+		final boolean fIsTemporary;
+		/** The number of annotations which are not annotation bags */
+		int fAnnotationCount;
+		/** Maps <code>y &lt;&lt; 32 | height</code> of the drawn rectangles to their count */
+		private final TreeMap<Long, int[]> fCounts= new TreeMap<>();
+
+		/**
+		 * Creates new empty buckets.
+		 *
+		 * @param type the annotation type
+		 * @param isTemporary <code>true</code> for temporary annotations
+		 */
+		Buckets(Object type, boolean isTemporary) {
+			fType= type;
+			fIsTemporary= isTemporary;
+		}
+
+		/**
+		 * Returns the rectangles drawn for these buckets, sorted from top to bottom. Each
+		 * rectangle is encoded as <code>y &lt;&lt; 32 | height</code>.
+		 *
+		 * @return an iterator over the rectangles
+		 */
+		Iterator<Long> rectangles() {
+			return fCounts.keySet().iterator();
+		}
+
+		private void add(long rectangle) {
+			int[] count= fCounts.get(Long.valueOf(rectangle));
+			if (count == null)
+				fCounts.put(Long.valueOf(rectangle), new int[] { 1 });
+			else
+				count[0]++;
+		}
+
+		private void remove(long rectangle) {
+			int[] count= fCounts.get(Long.valueOf(rectangle));
+			if (count != null && --count[0] == 0)
+				fCounts.remove(Long.valueOf(rectangle));
+		}
+	}
+
+	/**
+	 * The place of one annotation in the histogram.
+	 */
+	private static class Entry {
+
+		/** The buckets containing the annotation */
+		final Buckets fBuckets;
+		/** The drawn rectangle, or <code>-1</code> if the annotation is not drawn */
+		final long fRectangle;
+		/** Tells whether the annotation is an annotation bag */
+		final boolean fIsBag;
+
+		Entry(Buckets buckets, long rectangle, boolean isBag) {
+			fBuckets= buckets;
+			fRectangle= rectangle;
+			fIsBag= isBag;
+		}
+	}
+
+	/** The entries of the annotations in the histogram */
+	private final Map<Annotation, Entry> fEntries= new HashMap<>();
+	/** The buckets by annotation type, with persistent buckets first */
+	private final Map<Object, Buckets[]> fBucketsByType= new HashMap<>();
+	/** All buckets, including empty ones */
+	private final List<Buckets> fBuckets= new ArrayList<>();
+	/** The annotations which changed since the last update, guarded by itself */
+	private final Set<Annotation> fPendingAnnotations= new HashSet<>();
+	/** Tells whether the histogram is up to date, guarded by {@link #fPendingAnnotations} */
+	private boolean fIsValid= false;
+
+
+	/**
+	 * Encodes the rectangle with the given position and height.
+	 *
+	 * @param y the y-coordinate of the rectangle
+	 * @param height the height of the rectangle
+	 * @return the encoded rectangle
+	 */
+	static long toRectangle(int y, int height) {
+		return (long) y << 32 | height;
+	}
+
+	/**
+	 * Returns the y-coordinate of the given encoded rectangle.
+	 *
+	 * @param rectangle the encoded rectangle
+	 * @return the y-coordinate
+	 */
+	static int getY(long rectangle) {
+		return (int) (rectangle >>> 32);
+	}
+
+	/**
+	 * Returns the height of the given encoded rectangle.
+	 *
+	 * @param rectangle the encoded rectangle
+	 * @return the height
+	 */
+	static int getHeight(long rectangle) {
+		return (int) rectangle;
+	}
+
+	/**
+	 * Remembers that the given annotations were added, removed or changed. May be called from
+	 * any thread.
+	 *
+	 * @param annotations the annotations
+	 */
+	void annotationsChanged(Annotation[] annotations) {
+		synchronized (fPendingAnnotations) {
+			if (!fIsValid)
+				return;
+			for (int i= 0; i < annotations.length; i++)
+				fPendingAnnotations.add(annotations[i]);
+		}
+	}
+
+	/**
+	 * Marks this histogram as to be rebuilt. May be called from any thread.
+	 */
+	void invalidate() {
+		synchronized (fPendingAnnotations) {
+			fIsValid= false;
+			fPendingAnnotations.clear();
+		}
+	}
+
+	/**
+	 * Tells whether this histogram is valid. If not, the histogram has to be cleared and all
+	 * annotations have to be added again.
+	 *
+	 * @return <code>true</code> if the histogram is valid
+	 */
+	boolean isValid() {
+		synchronized (fPendingAnnotations) {
+			return fIsValid;
+		}
+	}
+
+	/**
+	 * Returns and forgets the annotations which changed since the last call.
+	 *
+	 * @return the changed annotations
+	 */
+	Annotation[] takePendingAnnotations() {
+		synchronized (fPendingAnnotations) {
+			Annotation[] annotations= fPendingAnnotations.toArray(new Annotation[fPendingAnnotations.size()]);
+			fPendingAnnotations.clear();
+			return annotations;
+		}
+	}
+
+	/**
+	 * Removes all annotations and marks this histogram as valid, so that it can be rebuilt by
+	 * adding all annotations.
+	 */
+	void clear() {
+		synchronized (fPendingAnnotations) {
+			fIsValid= true;
+			fPendingAnnotations.clear();
+		}
+		fEntries.clear();
+		fBucketsByType.clear();
+		fBuckets.clear();
+	}
+
+	/**
+	 * Adds the given annotation to this histogram, replacing its previous entry.
+	 *
+	 * @param annotation the annotation
+	 * @param isBag <code>true</code> if the annotation is an annotation bag
+	 * @param y the y-coordinate of the drawn rectangle, or <code>-1</code> if the annotation is
+	 *            not drawn
+	 * @param height the height of the drawn rectangle
+	 */
+	void add(Annotation annotation, boolean isBag, int y, int height) {
+		remove(annotation);
+
+		Object type= annotation.getType();
+		Buckets[] buckets= fBucketsByType.get(type);
+		if (buckets == null) {
+			buckets= new Buckets[] { new Buckets(type, false), new Buckets(type, true) };
+			fBucketsByType.put(type, buckets);
+			fBuckets.add(buckets[0]);
+			fBuckets.add(buckets[1]);
+		}
+
+		Buckets b= buckets[annotation.isPersistent() ? 0 : 1];
+		long rectangle= y >= 0 ? toRectangle(y, height) : -1;
+		if (rectangle != -1)
+			b.add(rectangle);
+		if (!isBag)
+			b.fAnnotationCount++;
+		fEntries.put(annotation, new Entry(b, rectangle, isBag));
+	}
+
+	/**
+	 * Removes the given annotation from this histogram if it is contained.
+	 *
+	 * @param annotation the annotation
+	 */
+	void remove(Annotation annotation) {
+		Entry entry= fEntries.remove(annotation);
+		if (entry == null)
+			return;
+		if (entry.fRectangle != -1)
+			entry.fBuckets.remove(entry.fRectangle);
+		if (!entry.fIsBag)
+			entry.fBuckets.fAnnotationCount--;
+	}
+
+	/**
+	 * Returns the buckets of this histogram. Buckets may be empty.
+	 *
+	 * @return the buckets
+	 */
+	List<Buckets> getBuckets() {
+		return fBuckets;
+	}
+}
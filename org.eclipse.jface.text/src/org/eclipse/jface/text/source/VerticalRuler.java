@@ -310,7 +310,11 @@ public final class VerticalRuler implements IVerticalRuler, IVerticalRulerExtens
 		int maxLayer= 1;	// loop at least once though layers.
 
 		for (int layer= 0; layer < maxLayer; layer++) {
-			Iterator<Annotation> iter= fModel.getAnnotationIterator();
+			Iterator<Annotation> iter;
+			if (fModel instanceof IAnnotationModelExtension2)
+				iter= ((IAnnotationModelExtension2) fModel).getAnnotationIterator(topLeft, viewPort + 1, true, true);
+			else
+				iter= fModel.getAnnotationIterator();
 			while (iter.hasNext()) {
 				IAnnotationPresentation annotationPresentation= null;
 				Annotation annotation= iter.next();
@@ -392,12 +396,19 @@ public final class VerticalRuler implements IVerticalRuler, IVerticalRulerExtens
 		fScrollPos= textWidget.getTopPixel();
 		Point dimension= fCanvas.getSize();
 
+		int topLeft= getInclusiveTopIndexStartOffset();
+		int viewPort= fTextViewer.getBottomIndexEndOffset() - topLeft;
+
 		// draw Annotations
 		Rectangle r= new Rectangle(0, 0, 0, 0);
 		int maxLayer= 1;	// loop at least once through layers.
 
 		for (int layer= 0; layer < maxLayer; layer++) {
-			Iterator<Annotation> iter= fModel.getAnnotationIterator();
+			Iterator<Annotation> iter;
+			if (fModel instanceof IAnnotationModelExtension2)
+				iter= ((IAnnotationModelExtension2) fModel).getAnnotationIterator(topLeft, viewPort + 1, true, true);
+			else
+				iter= fModel.getAnnotationIterator();
 			while (iter.hasNext()) {
 				IAnnotationPresentation annotationPresentation= null;
 				Annotation annotation= iter.next();
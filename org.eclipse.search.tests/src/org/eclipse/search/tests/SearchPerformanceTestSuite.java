@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import org.eclipse.search.tests.filesearch.LiteralPrefilterPerformanceTest;
+
+/**
+ * Performance tests for org.eclipse.search. They take long and depend on the machine, hence they
+ * are not part of {@link AllSearchTests}.
+ */
+@RunWith(Suite.class)
+@SuiteClasses({
+		LiteralPrefilterPerformanceTest.class
+})
+public class SearchPerformanceTestSuite {
+	// see @SuiteClasses
+}
@@ -18,12 +18,16 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
 		AnnotationManagerTest.class,
+		CompactSearchResultTest.class,
 		FileSearchTests.class,
 		LineAnnotationManagerTest.class,
+		LiteralPrefilterTest.class,
+		MappedFileContentTest.class,
 		PositionTrackerTest.class,
 		ResultUpdaterTest.class,
 		SearchResultPageTest.class,
-		SortingTest.class
+		SortingTest.class,
+		TrigramIndexTest.class
 })
 public class AllFileSearchTests {
 	@ClassRule
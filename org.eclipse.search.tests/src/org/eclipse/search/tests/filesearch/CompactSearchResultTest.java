@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests.filesearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.core.runtime.AssertionFailedException;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+
+import org.eclipse.search.ui.ISearchQuery;
+import org.eclipse.search.ui.ISearchResultListener;
+import org.eclipse.search.ui.SearchResultEvent;
+import org.eclipse.search.ui.text.AbstractTextSearchResult;
+import org.eclipse.search.ui.text.IEditorMatchAdapter;
+import org.eclipse.search.ui.text.IFileMatchAdapter;
+import org.eclipse.search.ui.text.Match;
+import org.eclipse.search.ui.text.MatchEvent;
+import org.eclipse.search.ui.text.MatchFilter;
+
+/**
+ * Tests the compact storage of matches in {@link AbstractTextSearchResult}.
+ */
+public class CompactSearchResultTest {
+
+	private static class TestResult extends AbstractTextSearchResult {
+
+		int fCreatedMatches;
+
+		public TestResult(boolean compact) {
+			setCompactStorageEnabled(compact);
+		}
+
+		void setCompact(boolean compact) {
+			setCompactStorageEnabled(compact);
+		}
+
+		@Override
+		protected Match createMatch(Object element, int offset, int length) {
+			fCreatedMatches++;
+			return super.createMatch(element, offset, length);
+		}
+
+		@Override
+		public String getLabel() {
+			return "test"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getTooltip() {
+			return null;
+		}
+
+		@Override
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		@Override
+		public ISearchQuery getQuery() {
+			return null;
+		}
+
+		@Override
+		public IEditorMatchAdapter getEditorMatchAdapter() {
+			return null;
+		}
+
+		@Override
+		public IFileMatchAdapter getFileMatchAdapter() {
+			return null;
+		}
+	}
+
+	private static class LongMatchFilter extends MatchFilter {
+
+		@Override
+		public boolean filters(Match match) {
+			return match.getLength() > 3;
+		}
+
+		@Override
+		public String getName() {
+			return "long"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getDescription() {
+			return "long"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getActionLabel() {
+			return "long"; //$NON-NLS-1$
+		}
+
+		@Override
+		public String getID() {
+			return "long"; //$NON-NLS-1$
+		}
+	}
+
+	private static List<String> toString(Match[] matches) {
+		List<String> result= new ArrayList<>(matches.length);
+		for (Match match : matches)
+			result.add(match.getOffset() + "/" + match.getLength() + (match.isFiltered() ? "f" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return result;
+	}
+
+	@Test
+	public void testSameMatchesAsObjectStorage() {
+		Random random= new Random(4711);
+		TestResult expected= new TestResult(false);
+		TestResult actual= new TestResult(true);
+		String[] elements= { "a", "b", "c", "d" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		for (int i= 0; i < 2000; i++) {
+			String element= elements[random.nextInt(elements.length)];
+			int offset= random.nextInt(500);
+			int length= random.nextInt(5);
+			if (random.nextInt(3) == 0) {
+				// removes the match with the same offset and length, if any
+				for (Match match : expected.getMatches(element)) {
+					if (match.getOffset() == offset && match.getLength() == length) {
+						expected.removeMatch(match);
+						break;
+					}
+				}
+				actual.removeMatch(new Match(element, offset, length));
+			} else if (!toString(expected.getMatches(element)).contains(offset + "/" + length)) { //$NON-NLS-1$
+				expected.addMatch(new Match(element, offset, length));
+				actual.addMatch(new Match(element, offset, length));
+			}
+			assertEquals(expected.getMatchCount(), actual.getMatchCount());
+			assertEquals(expected.getMatchCount(element), actual.getMatchCount(element));
+		}
+		assertEquals(0, actual.fCreatedMatches);
+		assertEquals(new HashSet<>(Arrays.asList(expected.getElements())), new HashSet<>(Arrays.asList(actual.getElements())));
+		for (String element : elements)
+			assertEquals(toString(expected.getMatches(element)), toString(actual.getMatches(element)));
+	}
+
+	@Test
+	public void testCreatesMatchesOnDemand() {
+		TestResult result= new TestResult(true);
+		result.addMatches(new Match[] { new Match("a", 10, 2), new Match("a", 5, 2), new Match("b", 1, 1) }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		// the same offset and length is stored once
+		result.addMatch(new Match("a", 5, 2)); //$NON-NLS-1$
+		assertEquals(3, result.getMatchCount());
+		assertEquals(0, result.fCreatedMatches);
+
+		Match[] matches= result.getMatches("a"); //$NON-NLS-1$
+		assertEquals(Arrays.asList("5/2", "10/2"), toString(matches)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, result.fCreatedMatches);
+
+		// created matches are kept
+		assertSame(matches[0], result.getMatches("a")[0]); //$NON-NLS-1$
+		result.addMatch(new Match("a", 7, 1)); //$NON-NLS-1$
+		assertEquals(2, result.fCreatedMatches);
+		assertEquals(Arrays.asList("5/2", "7/1", "10/2"), toString(result.getMatches("a"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		result.removeMatch(matches[1]);
+		assertEquals(Arrays.asList("5/2", "7/1"), toString(result.getMatches("a"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		result.removeAll();
+		assertEquals(0, result.getMatchCount());
+		assertEquals(0, result.getElements().length);
+	}
+
+	@Test
+	public void testFilters() {
+		TestResult result= new TestResult(true);
+		result.addMatches(new Match[] { new Match("a", 1, 2), new Match("a", 5, 4), new Match("b", 1, 5) }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		final List<Match> changed= new ArrayList<>();
+		result.addListener(new ISearchResultListener() {
+			@Override
+			public void searchResultChanged(SearchResultEvent e) {
+				if (e instanceof MatchEvent)
+					changed.addAll(Arrays.asList(((MatchEvent) e).getMatches()));
+			}
+		});
+		result.setActiveMatchFilters(new MatchFilter[] { new LongMatchFilter() });
+		assertEquals(Arrays.asList("1/2", "5/4f"), toString(result.getMatches("a"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("1/5f"), toString(result.getMatches("b"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// matches added later are filtered as well
+		result.addMatch(new Match("b", 10, 1)); //$NON-NLS-1$
+		result.addMatch(new Match("c", 10, 10)); //$NON-NLS-1$
+		assertEquals(2, changed.size());
+		assertFalse(changed.get(0).isFiltered());
+		assertTrue(changed.get(1).isFiltered());
+		assertEquals(Arrays.asList("10/10f"), toString(result.getMatches("c"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test(expected= AssertionFailedException.class)
+	public void testEnableWithMatches() {
+		TestResult result= new TestResult(false);
+		result.addMatch(new Match("a", 1, 1)); //$NON-NLS-1$
+		result.setCompact(true);
+	}
+}
@@ -13,12 +13,14 @@
 package org.eclipse.search.tests.filesearch;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -37,6 +39,7 @@ import org.eclipse.search.core.text.TextSearchMatchAccess;
 import org.eclipse.search.core.text.TextSearchRequestor;
 import org.eclipse.search.core.text.TextSearchScope;
 import org.eclipse.search.internal.core.text.PatternConstructor;
+import org.eclipse.search.internal.core.text.TextSearchVisitor;
 import org.eclipse.search.internal.ui.SearchPlugin;
 import org.eclipse.search.tests.ResourceHelper;
 import org.eclipse.search.tests.SearchTestPlugin;
@@ -156,6 +159,67 @@ public class FileSearchTests {
 		assertMatches(results, 2, file1, buf.toString(), "hello");
 		assertMatches(results, 2, file2, buf.toString(), "hello");
 	}
+
+	@Test
+	public void testLargeFileSerial() throws Exception {
+		testLargeFile(new SerialTestResultCollector());
+	}
+
+	@Test
+	public void testLargeFileParallel() throws Exception {
+		testLargeFile(new ParallelTestResultCollector());
+	}
+
+	private void testLargeFile(TestResultCollector collector) throws Exception {
+		// large enough to be searched in segments
+		StringBuilder buf= new StringBuilder();
+		int lines= 0;
+		while (buf.length() < 5000000) {
+			buf.append(lines % 1000 == 0 ? "some hello text\n" : "some other text\r\n");
+			lines++;
+		}
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder1"));
+		IFile file= ResourceHelper.createFile(folder, "large", buf.toString());
+
+		Pattern searchPattern= PatternConstructor.createPattern("hel+o", true, true);
+
+		FileTextSearchScope scope= FileTextSearchScope.newSearchScope(new IResource[] {fProject}, (String[]) null, false);
+		TextSearchEngine.create().search(scope, collector, searchPattern, null);
+
+		TestResult[] results= collector.getResults();
+		assertMatches(results, (lines + 999) / 1000, file, buf.toString(), "hello");
+		for (int i= 1; i < results.length; i++) {
+			assertTrue("Matches in order", results[i - 1].offset < results[i].offset);
+		}
+	}
+
+	@Test
+	public void testLargeFileSearchedByManyThreads() throws Exception {
+		Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+		StringBuilder buf= new StringBuilder();
+		int lines= 0;
+		while (buf.length() < 5000000) {
+			buf.append("some hello text\n");
+			lines++;
+		}
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder1"));
+		IFile file= ResourceHelper.createFile(folder, "large", buf.toString());
+
+		Pattern searchPattern= PatternConstructor.createPattern("hel+o", true, true);
+
+		TestResultCollector collector= new ParallelTestResultCollector();
+		TextSearchVisitor visitor= new TextSearchVisitor(collector, searchPattern);
+		// many small segments, so that the other jobs start while the first one is still busy
+		visitor.setSegmentSize(16 * 1024);
+		visitor.search(new IFile[] { file }, null);
+
+		assertTrue("Threads searching one file", visitor.getMaxThreadsPerFile() > 1);
+		TestResult[] results= collector.getResults();
+		assertMatches(results, lines, file, buf.toString(), "hello");
+		for (int i= 1; i < results.length; i++) {
+			assertTrue("Matches in order", results[i - 1].offset < results[i].offset);
+		}
+	}
 	
 	@Test
 	public void testWildCards1Serial() throws Exception {
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests.filesearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import org.eclipse.search.internal.core.text.LiteralPrefilter;
+
+import org.eclipse.search.tests.SearchPerformanceTestSuite;
+
+/**
+ * Compares the match throughput of a plain regular expression search with the search of the
+ * candidate lines found by the literal prefilter. Not part of the default test suite, see
+ * {@link SearchPerformanceTestSuite}.
+ */
+public class LiteralPrefilterPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+	private static final int LENGTH= 64 * 1024 * 1024;
+
+	private static final String[] WORDS= { "int", "return", "value", "getValue", "setName", "if", "for", "null", "this", "count", "index", "result", "{", "}", ";", "=", "+" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$ //$NON-NLS-16$ //$NON-NLS-17$
+	private static final String[] NEEDLES= { "needle", "Haystack" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final String TEXT;
+	static {
+		Random random= new Random(4711);
+		StringBuilder text= new StringBuilder(LENGTH + 200);
+		while (text.length() < LENGTH) {
+			text.append('\t');
+			for (int i= random.nextInt(12); i >= 0; i--) {
+				// about one line in a thousand contains a needle
+				if (random.nextInt(5000) == 0)
+					text.append(NEEDLES[random.nextInt(NEEDLES.length)]);
+				else
+					text.append(WORDS[random.nextInt(WORDS.length)]);
+				text.append(' ');
+			}
+			text.append('\n');
+		}
+		TEXT= text.toString();
+	}
+
+	private static void assertPrefilterFaster(String regex, int flags) {
+		Pattern pattern= Pattern.compile(regex, flags);
+		LiteralPrefilter prefilter= LiteralPrefilter.create(pattern);
+		assertTrue(regex, prefilter != null && prefilter.isLineLocal());
+
+		long plain= Long.MAX_VALUE;
+		long prefiltered= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			long start= System.nanoTime();
+			List<String> expected= LiteralPrefilterTest.findMatches(pattern, TEXT);
+			plain= Math.min(plain, System.nanoTime() - start);
+			start= System.nanoTime();
+			List<String> actual= LiteralPrefilterTest.findMatchesInCandidateLines(pattern, prefilter, TEXT);
+			prefiltered= Math.min(prefiltered, System.nanoTime() - start);
+			assertEquals(regex, expected, actual);
+			assertTrue(regex, expected.size() > 0);
+		}
+		assertTrue(regex + " in " + TEXT.length() / (1024 * 1024) + "M characters: prefiltered " + prefiltered / 1000000 + " ms, plain " + plain / 1000000 + " ms", prefiltered < plain); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	}
+
+	@Test
+	public void testWord() {
+		assertPrefilterFaster("\\bneedle\\b", Pattern.MULTILINE); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testWordIgnoreCase() {
+		assertPrefilterFaster("\\bhaystack\\b", Pattern.MULTILINE | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testAlternation() {
+		assertPrefilterFaster("needle|Haystack", Pattern.MULTILINE); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testWildcard() {
+		assertPrefilterFaster("get.*needle", Pattern.MULTILINE); //$NON-NLS-1$
+	}
+}
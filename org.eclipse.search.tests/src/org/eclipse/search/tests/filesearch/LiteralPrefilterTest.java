@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests.filesearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import org.eclipse.search.internal.core.text.LiteralPrefilter;
+
+public class LiteralPrefilterTest {
+
+	private static final int FLAGS= Pattern.MULTILINE;
+	private static final int FLAGS_IGNORE_CASE= Pattern.MULTILINE | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+	@Test
+	public void testLiterals() throws Exception {
+		assertLiterals("foo", true, "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("a\\.b\\(c\\)", true, "a.b(c)"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("\\bfoo\\b", true, "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("get.*Value", true, "Value"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("colou?r", true, "colo"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("ab+cd", true, "ab"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("x\\Q*.*\\Eyz", true, "x*.*yz"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("foo|barbaz|qux", true, "foo", "barbaz", "qux"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertLiterals("(get|set)Name", true, "Name"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("[a-z]+Exception", true, "Exception"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("foo\\s+bar", false, "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("foo[^;]*;", false, "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("end\\nstart", false, "end\nstart"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLiterals("foo(?>\\r\\n?|\\n)bar", false, "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(LiteralPrefilter.create(Pattern.compile("a*|foo", FLAGS))); //$NON-NLS-1$
+		assertNull(LiteralPrefilter.create(Pattern.compile("(?i)foo", FLAGS))); //$NON-NLS-1$
+		assertNull(LiteralPrefilter.create(Pattern.compile("(a)\\1", FLAGS))); //$NON-NLS-1$
+		assertNull(LiteralPrefilter.create(Pattern.compile("\\x41", FLAGS))); //$NON-NLS-1$
+		assertNull(LiteralPrefilter.create(Pattern.compile(".*", FLAGS))); //$NON-NLS-1$
+
+		LiteralPrefilter prefilter= LiteralPrefilter.create(Pattern.compile("foo.bar", Pattern.DOTALL)); //$NON-NLS-1$
+		assertFalse(prefilter.isLineLocal());
+		prefilter= LiteralPrefilter.create(Pattern.compile("Foo", FLAGS_IGNORE_CASE)); //$NON-NLS-1$
+		assertTrue(prefilter.isIgnoreCase());
+	}
+
+	@Test
+	public void testIndexIn() throws Exception {
+		LiteralPrefilter single= LiteralPrefilter.create(new String[] { "needle" }, false, true); //$NON-NLS-1$
+		assertEquals(10, single.indexIn("hay needl needle needle", 0)); //$NON-NLS-1$
+		assertEquals(17, single.indexIn("hay needl needle needle", 11)); //$NON-NLS-1$
+		assertEquals(-1, single.indexIn("hay needl needle needle", 18)); //$NON-NLS-1$
+		assertEquals(-1, single.indexIn("hay needl needle needle", 0, 15)); //$NON-NLS-1$
+		assertEquals(10, single.indexIn("hay needl needle needle", 0, 16)); //$NON-NLS-1$
+
+		LiteralPrefilter multiple= LiteralPrefilter.create(new String[] { "abcd", "bc", "xyz" }, false, true); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("bc", "xyz"), Arrays.asList(multiple.getLiterals())); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, multiple.indexIn("abcd", 0)); //$NON-NLS-1$
+		assertEquals(3, multiple.indexIn("xxxxyz", 0)); //$NON-NLS-1$
+		assertEquals(-1, multiple.indexIn("xyabxy", 0)); //$NON-NLS-1$
+		assertEquals(-1, multiple.indexIn("xxxxyz", 0, 5)); //$NON-NLS-1$
+		assertEquals(1, multiple.indexIn("abcd", 1, 3)); //$NON-NLS-1$
+
+		LiteralPrefilter ignoreCase= LiteralPrefilter.create(new String[] { "Straße", "KELVIN" }, true, true); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, ignoreCase.indexIn("a STRAßE", 0)); //$NON-NLS-1$
+		assertEquals(0, ignoreCase.indexIn("Kelvin", 0)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testRandomText() throws Exception {
+		String[] patterns= { "ab", "abc|ca", "a.c", "\\bab\\b", "b[ac]+a", "(a|b)cab", "c\\s*a", "^ab", "ba$", "a\\Rb", "AB", "c(?=a)" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$
+		Random random= new Random(4711);
+		char[] alphabet= { 'a', 'b', 'c', 'A', ' ', '\n', '\r' };
+		for (int i= 0; i < 200; i++) {
+			char[] chars= new char[random.nextInt(200)];
+			for (int k= 0; k < chars.length; k++)
+				chars[k]= alphabet[random.nextInt(alphabet.length)];
+			String text= new String(chars);
+			for (String regex : patterns) {
+				assertSameMatches(Pattern.compile(regex, FLAGS), text);
+				assertSameMatches(Pattern.compile(regex, FLAGS_IGNORE_CASE), text);
+			}
+		}
+	}
+
+	private static void assertLiterals(String regex, boolean lineLocal, String... literals) {
+		LiteralPrefilter prefilter= LiteralPrefilter.create(Pattern.compile(regex, FLAGS));
+		assertEquals(regex, Arrays.asList(literals), Arrays.asList(prefilter.getLiterals()));
+		assertEquals(regex, lineLocal, prefilter.isLineLocal());
+	}
+
+	private static void assertSameMatches(Pattern pattern, String text) {
+		LiteralPrefilter prefilter= LiteralPrefilter.create(pattern);
+		List<String> expected= findMatches(pattern, text);
+		if (prefilter != null) {
+			Matcher matcher= pattern.matcher(text);
+			while (matcher.find()) {
+				if (matcher.end() > matcher.start())
+					assertTrue(pattern.pattern(), prefilter.indexIn(matcher.group(), 0) != -1);
+			}
+		}
+		if (prefilter == null || !prefilter.isLineLocal())
+			return;
+
+		assertEquals(pattern.pattern(), expected, findMatchesInCandidateLines(pattern, prefilter, text));
+	}
+
+	/**
+	 * Returns the non-empty matches of a plain search.
+	 *
+	 * @param pattern the pattern
+	 * @param text the searched text
+	 * @return the start and end offsets of the matches
+	 */
+	static List<String> findMatches(Pattern pattern, CharSequence text) {
+		List<String> matches= new ArrayList<>();
+		Matcher matcher= pattern.matcher(text);
+		while (matcher.find()) {
+			if (matcher.end() > matcher.start())
+				matches.add(matcher.start() + "/" + matcher.end()); //$NON-NLS-1$
+		}
+		return matches;
+	}
+
+	/**
+	 * Runs the pattern on the candidate lines, like TextSearchVisitor does, and returns the
+	 * non-empty matches.
+	 *
+	 * @param pattern the pattern
+	 * @param prefilter the line local prefilter of the pattern
+	 * @param text the searched text
+	 * @return the start and end offsets of the matches
+	 */
+	static List<String> findMatchesInCandidateLines(Pattern pattern, LiteralPrefilter prefilter, CharSequence text) {
+		List<String> matches= new ArrayList<>();
+		Matcher matcher= pattern.matcher(text);
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		int from= 0;
+		int literalStart;
+		while (from <= text.length() && (literalStart= prefilter.indexIn(text, from)) != -1) {
+			int lineStart= literalStart;
+			while (lineStart > from && !LiteralPrefilter.isLineDelimiter(text.charAt(lineStart - 1)))
+				lineStart--;
+			int lineEnd= literalStart;
+			while (lineEnd < text.length() && !LiteralPrefilter.isLineDelimiter(text.charAt(lineEnd)))
+				lineEnd++;
+			matcher.region(lineStart, lineEnd);
+			while (matcher.find()) {
+				if (matcher.end() > matcher.start())
+					matches.add(matcher.start() + "/" + matcher.end()); //$NON-NLS-1$
+			}
+			from= lineEnd + 1;
+		}
+		return matches;
+	}
+}
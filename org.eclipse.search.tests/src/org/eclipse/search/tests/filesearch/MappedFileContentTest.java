@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests.filesearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.search.internal.core.text.FileCharSequenceProvider;
+import org.eclipse.search.internal.core.text.LiteralPrefilter;
+import org.eclipse.search.internal.core.text.MappedFileContent;
+
+public class MappedFileContentTest {
+
+	private File fFile;
+
+	@Before
+	public void setUp() throws Exception {
+		fFile= File.createTempFile("mapped", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fFile.delete();
+	}
+
+	@Test
+	public void testAsciiCompatibleCharsets() throws Exception {
+		assertTrue(MappedFileContent.isAsciiCompatible(Charset.forName("UTF-8"))); //$NON-NLS-1$
+		assertTrue(MappedFileContent.isAsciiCompatible(Charset.forName("ISO-8859-1"))); //$NON-NLS-1$
+		assertTrue(MappedFileContent.isAsciiCompatible(Charset.forName("US-ASCII"))); //$NON-NLS-1$
+		assertFalse(MappedFileContent.isAsciiCompatible(Charset.forName("UTF-16"))); //$NON-NLS-1$
+
+		write(new byte[] { 'a' });
+		assertNull(MappedFileContent.open(fFile, "UTF-16")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testAsciiContent() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < 10000; i++)
+			buf.append("line ").append(i).append('\n'); //$NON-NLS-1$
+		String content= buf.toString();
+		write(content.getBytes("UTF-8")); //$NON-NLS-1$
+
+		MappedFileContent mapped= MappedFileContent.open(fFile, "UTF-8"); //$NON-NLS-1$
+		assertFalse(mapped.hasBinaryContent(Integer.MAX_VALUE));
+		assertTrue(mapped.mayContain(literal("line 9999"))); //$NON-NLS-1$
+		assertFalse(mapped.mayContain(literal("line 10000"))); //$NON-NLS-1$
+
+		CharSequence seq= mapped.getCharSequence();
+		assertEquals(content.length(), seq.length());
+		assertEquals(content.charAt(5000), seq.charAt(5000));
+		assertEquals(content.substring(100, 200), seq.subSequence(100, 200).toString());
+		assertEquals(content, seq.toString());
+	}
+
+	@Test
+	public void testNonAsciiContent() throws Exception {
+		String content= "Äpfel und Birnen 😀 für älle"; //$NON-NLS-1$
+		byte[] bom= { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+		byte[] bytes= content.getBytes("UTF-8"); //$NON-NLS-1$
+		byte[] withBom= new byte[bom.length + bytes.length];
+		System.arraycopy(bom, 0, withBom, 0, bom.length);
+		System.arraycopy(bytes, 0, withBom, bom.length, bytes.length);
+		write(withBom);
+
+		MappedFileContent mapped= MappedFileContent.open(fFile, "UTF-8"); //$NON-NLS-1$
+		assertTrue(mapped.mayContain(literal("für"))); //$NON-NLS-1$
+		assertFalse(mapped.mayContain(literal("fur"))); //$NON-NLS-1$
+		assertEquals(content, mapped.getCharSequence().toString());
+
+		write(content.getBytes("ISO-8859-1")); //$NON-NLS-1$
+		mapped= MappedFileContent.open(fFile, "ISO-8859-1"); //$NON-NLS-1$
+		assertTrue(mapped.mayContain(literal("älle"))); //$NON-NLS-1$
+		assertEquals(content.replace("😀", "?"), mapped.getCharSequence().toString()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testNonAsciiContentInWindows() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < 1000; i++)
+			buf.append("Zeile ").append(i).append(" für 😀 Äpfel\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		String content= buf.toString();
+		write(content.getBytes("UTF-8")); //$NON-NLS-1$
+
+		int bufferSize= FileCharSequenceProvider.BUFFER_SIZE;
+		try {
+			FileCharSequenceProvider.BUFFER_SIZE= 100;
+			MappedFileContent mapped= MappedFileContent.open(fFile, "UTF-8"); //$NON-NLS-1$
+			assertFalse(mapped.isAscii());
+
+			CharSequence seq= mapped.getCharSequence();
+			Random random= new Random(4711);
+			for (int i= 0; i < 10000; i++) {
+				int index= random.nextInt(content.length());
+				assertEquals(content.charAt(index), seq.charAt(index));
+			}
+			assertEquals(content.substring(950, 1200), seq.subSequence(950, 1200).toString());
+			assertEquals(content.length(), seq.length());
+			assertEquals(content, seq.toString());
+
+			seq= mapped.getCharSequence();
+			assertEquals(content.charAt(content.length() - 1), seq.charAt(content.length() - 1));
+			try {
+				seq.charAt(content.length());
+				fail();
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+		} finally {
+			FileCharSequenceProvider.BUFFER_SIZE= bufferSize;
+		}
+	}
+
+	@Test
+	public void testBinaryContent() throws Exception {
+		byte[] bytes= "äää\0".getBytes("UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$
+		write(bytes);
+
+		MappedFileContent mapped= MappedFileContent.open(fFile, "UTF-8"); //$NON-NLS-1$
+		assertTrue(mapped.hasBinaryContent(4));
+		assertFalse(mapped.hasBinaryContent(3));
+
+		mapped= MappedFileContent.open(fFile, "ISO-8859-1"); //$NON-NLS-1$
+		assertFalse(mapped.hasBinaryContent(6));
+		assertTrue(mapped.hasBinaryContent(7));
+	}
+
+	private static LiteralPrefilter literal(String text) {
+		return LiteralPrefilter.create(new String[] { text }, false, true);
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		try (OutputStream out= new FileOutputStream(fFile)) {
+			out.write(bytes);
+		}
+	}
+}
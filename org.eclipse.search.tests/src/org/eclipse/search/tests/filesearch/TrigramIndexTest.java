@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.tests.filesearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.search.core.text.TextSearchMatchAccess;
+import org.eclipse.search.core.text.TextSearchRequestor;
+import org.eclipse.search.internal.core.text.LiteralPrefilter;
+import org.eclipse.search.internal.core.text.PatternConstructor;
+import org.eclipse.search.internal.core.text.TextSearchVisitor;
+import org.eclipse.search.internal.core.text.TrigramIndex;
+import org.eclipse.search.tests.ResourceHelper;
+
+public class TrigramIndexTest {
+
+	private static class Collector extends TextSearchRequestor {
+
+		final List<String> fMatches= new ArrayList<>();
+
+		@Override
+		public boolean acceptPatternMatch(TextSearchMatchAccess match) throws CoreException {
+			synchronized (fMatches) {
+				fMatches.add(match.getFile().getName() + ":" + match.getMatchOffset()); //$NON-NLS-1$
+			}
+			return true;
+		}
+
+		@Override
+		public boolean reportBinaryFile(IFile file) {
+			synchronized (fMatches) {
+				fMatches.add(file.getName() + ":binary"); //$NON-NLS-1$
+			}
+			return false;
+		}
+	}
+
+	private IProject fProject;
+	private File fIndexFile;
+	private TrigramIndex fIndex;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= ResourceHelper.createProject("index-project"); //$NON-NLS-1$
+		fIndexFile= File.createTempFile("trigram", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+		fIndexFile.delete();
+		fIndex= new TrigramIndex(fIndexFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fIndex.stop();
+		fIndexFile.delete();
+		ResourceHelper.deleteProject("index-project"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSkipsFilesWithoutLiteral() throws Exception {
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder")); //$NON-NLS-1$
+		IFile hello= ResourceHelper.createFile(folder, "hello.txt", "say Hello World\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		IFile other= ResourceHelper.createFile(folder, "other.txt", "nothing to see\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		fIndex.start();
+		fIndex.join();
+
+		LiteralPrefilter prefilter= LiteralPrefilter.create(PatternConstructor.createPattern("hello", false, false)); //$NON-NLS-1$
+		assertTrue(fIndex.mayContain(hello, prefilter));
+		assertFalse(fIndex.mayContain(other, prefilter));
+
+		// stale until indexed again
+		other.setContents(new ByteArrayInputStream("hello again\n".getBytes()), true, false, null); //$NON-NLS-1$
+		assertTrue(fIndex.mayContain(other, prefilter));
+		fIndex.join();
+		assertTrue(fIndex.mayContain(other, prefilter));
+
+		prefilter= LiteralPrefilter.create(PatternConstructor.createPattern("see", false, false)); //$NON-NLS-1$
+		assertFalse(fIndex.mayContain(other, prefilter));
+	}
+
+	@Test
+	public void testReadsSavedIndex() throws Exception {
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder")); //$NON-NLS-1$
+		IFile hello= ResourceHelper.createFile(folder, "hello.txt", "say Hello World\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		IFile other= ResourceHelper.createFile(folder, "other.txt", "nothing to see\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		IFile removed= ResourceHelper.createFile(folder, "removed.txt", "nothing either\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		fIndex.start();
+		fIndex.join();
+		fIndex.stop();
+		assertTrue(fIndexFile.length() > 4);
+
+		// changed while the index is not running
+		hello.setContents(new ByteArrayInputStream("goodbye\n".getBytes()), true, false, null); //$NON-NLS-1$
+		removed.delete(true, null);
+		removed= ResourceHelper.createFile(folder, "removed.txt", "hello there\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		fIndex= new TrigramIndex(fIndexFile);
+		fIndex.start();
+		fIndex.join();
+		LiteralPrefilter prefilter= LiteralPrefilter.create(PatternConstructor.createPattern("hello", false, false)); //$NON-NLS-1$
+		assertFalse(fIndex.mayContain(hello, prefilter));
+		assertFalse(fIndex.mayContain(other, prefilter));
+		assertTrue(fIndex.mayContain(removed, prefilter));
+	}
+
+	@Test
+	public void testReportsBinaryFiles() throws Exception {
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder")); //$NON-NLS-1$
+		IFile binary= ResourceHelper.createFile(folder, "data.bin", "no match\0\0\0\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		IFile text= ResourceHelper.createFile(folder, "text.txt", "no match\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		fIndex.start();
+		fIndex.join();
+
+		Pattern searchPattern= PatternConstructor.createPattern("hello", false, false); //$NON-NLS-1$
+		assertFalse(fIndex.mayContain(binary, LiteralPrefilter.create(searchPattern)));
+		IFile[] files= { binary, text };
+		Collector expected= new Collector();
+		new TextSearchVisitor(expected, searchPattern).search(files, null);
+		Collector actual= new Collector();
+		new TextSearchVisitor(actual, searchPattern, fIndex).search(files, null);
+		assertEquals(Arrays.asList("data.bin:binary"), expected.fMatches); //$NON-NLS-1$
+		assertEquals(expected.fMatches, actual.fMatches);
+	}
+
+	@Test
+	public void testSameResults() throws Exception {
+		IFolder folder= ResourceHelper.createFolder(fProject.getFolder("folder")); //$NON-NLS-1$
+		IFile[] files= new IFile[20];
+		for (int i= 0; i < files.length; i++)
+			files[i]= ResourceHelper.createFile(folder, "file" + i + ".txt", "line " + i + "\nvalue" + (i % 3) + " = get" + (i % 5) + "()\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		fIndex.start();
+		fIndex.join();
+		// not yet indexed, has to be searched anyway
+		files[0].setContents(new ByteArrayInputStream("value9 = get9()\n".getBytes()), true, false, null); //$NON-NLS-1$
+
+		String[] patterns= { "value1", "get3|value9", "va.*get4", "line 1\\d" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		for (String pattern : patterns) {
+			Pattern searchPattern= PatternConstructor.createPattern(pattern, true, true);
+			Collector expected= new Collector();
+			new TextSearchVisitor(expected, searchPattern).search(files, null);
+			Collector actual= new Collector();
+			new TextSearchVisitor(actual, searchPattern, fIndex).search(files, null);
+			expected.fMatches.sort(null);
+			actual.fMatches.sort(null);
+			assertEquals(pattern, expected.fMatches, actual.fMatches);
+		}
+	}
+}
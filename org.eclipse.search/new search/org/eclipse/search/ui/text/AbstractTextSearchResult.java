@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.search.ui.text;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,6 +19,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.core.runtime.Assert;
+
 import org.eclipse.search.ui.ISearchResult;
 import org.eclipse.search.ui.ISearchResultListener;
 import org.eclipse.search.ui.SearchResultEvent;
@@ -33,23 +36,129 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 
 	private static final Match[] EMPTY_ARRAY= new Match[0];
 
+	/**
+	 * The offsets and lengths of the matches of an element, sorted like the lists of matches.
+	 * Matches with the same offset and length are only stored once.
+	 */
+	private static final class CompactMatches {
+		int[] fOffsets= new int[4];
+		int[] fLengths= new int[4];
+		int fSize;
+
+		/*
+		 * Returns the index of the given match, or -(insertion index) - 1 if not contained.
+		 */
+		int indexOf(int offset, int length) {
+			int min= 0, max= fSize - 1;
+			while (min <= max) {
+				int mid= (min + max) >>> 1;
+				int diff= fOffsets[mid] != offset ? Integer.compare(fOffsets[mid], offset) : Integer.compare(fLengths[mid], length);
+				if (diff < 0)
+					min= mid + 1;
+				else if (diff > 0)
+					max= mid - 1;
+				else
+					return mid;
+			}
+			return -(min + 1);
+		}
+
+		boolean add(int offset, int length) {
+			int index= indexOf(offset, length);
+			if (index >= 0)
+				return false;
+			index= -(index + 1);
+			if (fSize == fOffsets.length) {
+				fOffsets= Arrays.copyOf(fOffsets, fSize * 2);
+				fLengths= Arrays.copyOf(fLengths, fSize * 2);
+			}
+			System.arraycopy(fOffsets, index, fOffsets, index + 1, fSize - index);
+			System.arraycopy(fLengths, index, fLengths, index + 1, fSize - index);
+			fOffsets[index]= offset;
+			fLengths[index]= length;
+			fSize++;
+			return true;
+		}
+
+		boolean remove(int offset, int length) {
+			int index= indexOf(offset, length);
+			if (index < 0)
+				return false;
+			System.arraycopy(fOffsets, index + 1, fOffsets, index, fSize - index - 1);
+			System.arraycopy(fLengths, index + 1, fLengths, index, fSize - index - 1);
+			fSize--;
+			return true;
+		}
+	}
+
 	private final Map<Object, List<Match>> fElementsToMatches;
+	/** The elements whose matches are stored compactly. Protected by fElementsToMatches. */
+	private final Map<Object, CompactMatches> fElementsToCompactMatches;
 	private final List<ISearchResultListener> fListeners;
 	private final MatchEvent fMatchEvent;
 
 	private MatchFilter[] fMatchFilters;
+	/** Whether matches are stored compactly. Protected by fElementsToMatches. */
+	private boolean fIsCompact;
 
 	/**
 	 * Constructs a new <code>AbstractTextSearchResult</code>
 	 */
 	protected AbstractTextSearchResult() {
 		fElementsToMatches= new HashMap<>();
+		fElementsToCompactMatches= new HashMap<>();
 		fListeners= new ArrayList<>();
 		fMatchEvent= new MatchEvent(this);
 
 		fMatchFilters= null; // filtering disabled by default
 	}
 
+	/**
+	 * Enables or disables the compact storage of matches. If enabled, this result only stores
+	 * the offset and length of the added matches, not the {@link Match} objects. The matches of
+	 * an element are created by {@link #createMatch(Object, int, int)} when they are requested
+	 * by {@link #getMatches(Object)} for the first time, and are kept from then on. Results with
+	 * many matches in elements that are never looked at thereby need much less memory.
+	 * <p>
+	 * Compact storage only fits results whose matches can be recreated from their element,
+	 * offset and length. Matches with the same offset and length are stored once. The filter
+	 * state of a match which is not stored is computed again when it is created.
+	 * </p>
+	 * <p>
+	 * Compact storage is disabled by default. It can only be enabled or disabled while the
+	 * result contains no matches.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> to store matches compactly, <code>false</code> to store
+	 *            the <code>Match</code> objects
+	 * @since 3.12
+	 */
+	protected void setCompactStorageEnabled(boolean enabled) {
+		synchronized (fElementsToMatches) {
+			Assert.isTrue(fElementsToMatches.isEmpty() && fElementsToCompactMatches.isEmpty());
+			fIsCompact= enabled;
+		}
+	}
+
+	/**
+	 * Creates a match for a match that has been stored compactly, see
+	 * {@link #setCompactStorageEnabled(boolean)}.
+	 * <p>
+	 * This implementation returns a match with character based offset and length. Subclasses
+	 * which enable compact storage may override this method to create their kind of matches.
+	 * The method is called while this result is locked and must not access the result.
+	 * </p>
+	 *
+	 * @param element the element that contains the match
+	 * @param offset the offset of the match
+	 * @param length the length of the match
+	 * @return the match
+	 * @since 3.12
+	 */
+	protected Match createMatch(Object element, int offset, int length) {
+		return new Match(element, offset, length);
+	}
+
 	/**
 	 * Returns an array with all matches reported against the given element.
 	 * Note that all matches of the given element are returned. The filter state of the matches is not relevant.
@@ -61,6 +170,8 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 	public Match[] getMatches(Object element) {
 		synchronized (fElementsToMatches) {
 			List<Match> matches= fElementsToMatches.get(element);
+			if (matches == null)
+				matches= createMatches(element);
 			if (matches != null)
 				return matches.toArray(new Match[matches.size()]);
 			return EMPTY_ARRAY;
@@ -118,26 +229,62 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 		return fMatchEvent;
 	}
 
+	/*
+	 * Creates the matches of an element which are stored compactly and stores them in the list
+	 * of matches from then on. Returns null if the element has no compactly stored matches.
+	 */
+	private List<Match> createMatches(Object element) {
+		CompactMatches compact= fElementsToCompactMatches.remove(element);
+		if (compact == null)
+			return null;
+		List<Match> matches= new ArrayList<>(compact.fSize);
+		for (int i= 0; i < compact.fSize; i++) {
+			Match match= createMatch(element, compact.fOffsets[i], compact.fLengths[i]);
+			updateFilterState(match);
+			matches.add(match);
+		}
+		fElementsToMatches.put(element, matches);
+		return matches;
+	}
+
 	private boolean doAddMatch(Match match) {
 		updateFilterState(match);
 
 		List<Match> matches= fElementsToMatches.get(match.getElement());
+		if (matches == null && fIsCompact) {
+			CompactMatches compact= fElementsToCompactMatches.get(match.getElement());
+			if (compact == null) {
+				compact= new CompactMatches();
+				fElementsToCompactMatches.put(match.getElement(), compact);
+			}
+			return compact.add(match.getOffset(), match.getLength());
+		}
 		if (matches == null) {
 			matches= new ArrayList<>();
 			fElementsToMatches.put(match.getElement(), matches);
 			matches.add(match);
 			return true;
 		}
-		if (!matches.contains(match)) {
-			insertSorted(matches, match);
-			return true;
-		}
-		return false;
-	}
-
-	private static void insertSorted(List<Match> matches, Match match) {
 		int insertIndex= getInsertIndex(matches, match);
+		if (indexOf(matches, match, insertIndex) != -1)
+			return false;
 		matches.add(insertIndex, match);
+		return true;
+	}
+
+	/*
+	 * Returns the index of the given match in the sorted list. Only the matches with the same
+	 * offset and length are compared, they are just before the insert index of the match.
+	 */
+	private static int indexOf(List<Match> matches, Match match, int insertIndex) {
+		for (int i= insertIndex - 1; i >= 0; i--) {
+			Match curr= matches.get(i);
+			if (curr == match)
+				return i;
+			if (compare(match, curr) != 0)
+				break;
+		}
+		return -1;
 	}
 
 	private static int getInsertIndex(List<Match> matches, Match match) {
@@ -177,6 +324,7 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 	}
 	private void doRemoveAll() {
 		fElementsToMatches.clear();
+		fElementsToCompactMatches.clear();
 	}
 
 	/**
@@ -219,10 +367,25 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 
 
 	private boolean doRemoveMatch(Match match) {
+		CompactMatches compact= fElementsToCompactMatches.get(match.getElement());
+		if (compact != null) {
+			boolean existed= compact.remove(match.getOffset(), match.getLength());
+			if (compact.fSize == 0)
+				fElementsToCompactMatches.remove(match.getElement());
+			return existed;
+		}
+
 		boolean existed= false;
 		List<Match> matches= fElementsToMatches.get(match.getElement());
 		if (matches != null) {
-			existed= matches.remove(match);
+			int index= indexOf(matches, match, getInsertIndex(matches, match));
+			if (index != -1) {
+				matches.remove(index);
+				existed= true;
+			} else {
+				// the offset of the match may have changed since it was added
+				existed= matches.remove(match);
+			}
 			if (matches.isEmpty())
 				fElementsToMatches.remove(match.getElement());
 		}
@@ -267,7 +430,7 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 		ArrayList<Match> changed= new ArrayList<>();
 		Object[] elements= getElements();
 		for (int i= 0; i < elements.length; i++) {
-			Match[] matches= getMatches(elements[i]);
+			Match[] matches= getMatchesForFilterUpdate(elements[i]);
 			for (int k= 0; k < matches.length; k++) {
 				if (disableFiltering || updateFilterState(matches[k])) {
 					changed.add(matches[k]);
@@ -278,6 +441,22 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 		fireChange(new FilterUpdateEvent(this, allChanges, getActiveMatchFilters()));
 	}
 
+	/*
+	 * Returns the matches of the element. Matches which are stored compactly are created without
+	 * keeping them, their filter state is computed again when they are requested.
+	 */
+	private Match[] getMatchesForFilterUpdate(Object element) {
+		synchronized (fElementsToMatches) {
+			CompactMatches compact= fElementsToCompactMatches.get(element);
+			if (compact == null)
+				return getMatches(element);
+			Match[] matches= new Match[compact.fSize];
+			for (int i= 0; i < compact.fSize; i++)
+				matches[i]= createMatch(element, compact.fOffsets[i], compact.fLengths[i]);
+			return matches;
+		}
+	}
+
 	/*
 	 * Evaluates the filter for the match and updates it. Return true if the filter changed.
 	 */
@@ -312,6 +491,8 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 				if (element != null)
 					count+= element.size();
 			}
+			for (CompactMatches compact : fElementsToCompactMatches.values())
+				count+= compact.fSize;
 		}
 		return count;
 	}
@@ -325,10 +506,15 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 	 * @return the number of matches reported against the element
 	 */
 	public int getMatchCount(Object element) {
-		List<Match> matches= fElementsToMatches.get(element);
-		if (matches != null)
-			return matches.size();
-		return 0;
+		synchronized (fElementsToMatches) {
+			List<Match> matches= fElementsToMatches.get(element);
+			if (matches != null)
+				return matches.size();
+			CompactMatches compact= fElementsToCompactMatches.get(element);
+			if (compact != null)
+				return compact.fSize;
+			return 0;
+		}
 	}
 
 	/**
@@ -340,7 +526,12 @@ public abstract class AbstractTextSearchResult implements ISearchResult {
 	 */
 	public Object[] getElements() {
 		synchronized (fElementsToMatches) {
-			return fElementsToMatches.keySet().toArray();
+			if (fElementsToCompactMatches.isEmpty())
+				return fElementsToMatches.keySet().toArray();
+			List<Object> elements= new ArrayList<>(fElementsToMatches.size() + fElementsToCompactMatches.size());
+			elements.addAll(fElementsToMatches.keySet());
+			elements.addAll(fElementsToCompactMatches.keySet());
+			return elements.toArray();
 		}
 	}
 
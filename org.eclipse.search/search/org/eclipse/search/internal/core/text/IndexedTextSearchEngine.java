@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.internal.core.text;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.search.core.text.TextSearchEngine;
+import org.eclipse.search.core.text.TextSearchRequestor;
+import org.eclipse.search.core.text.TextSearchScope;
+
+/**
+ * A text search engine that uses the {@link TrigramIndex} of the workspace to skip files that
+ * cannot contain a match. Files that are not indexed yet or have changed since they have been
+ * indexed are searched like the default engine does.
+ * <p>
+ * Contributed to the <code>org.eclipse.search.textSearchEngine</code> extension point, so that it
+ * can be selected on the search preference page.
+ * </p>
+ */
+public class IndexedTextSearchEngine extends TextSearchEngine {
+
+	@Override
+	public IStatus search(TextSearchScope scope, TextSearchRequestor requestor, Pattern searchPattern, IProgressMonitor monitor) {
+		return new TextSearchVisitor(requestor, searchPattern, TrigramIndex.getDefault()).search(scope, monitor);
+	}
+
+	@Override
+	public IStatus search(IFile[] scope, TextSearchRequestor requestor, Pattern searchPattern, IProgressMonitor monitor) {
+		return new TextSearchVisitor(requestor, searchPattern, TrigramIndex.getDefault()).search(scope, monitor);
+	}
+}
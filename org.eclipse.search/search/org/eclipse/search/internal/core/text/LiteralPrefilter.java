@@ -0,0 +1,699 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.internal.core.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A set of literals of which every match of a search pattern contains at least one. Text that
+ * does not contain any of the literals cannot contain a match, so the regular expression only
+ * needs to run on text where a literal has been found.
+ * <p>
+ * A single literal is looked for with the Boyer-Moore-Horspool algorithm, several literals (one
+ * for each alternative of the pattern) are looked for at once with the Aho-Corasick algorithm.
+ * </p>
+ */
+public abstract class LiteralPrefilter {
+
+	private final String[] fLiterals;
+	private final boolean fIgnoreCase;
+	private final boolean fLineLocal;
+
+	private LiteralPrefilter(String[] literals, boolean ignoreCase, boolean lineLocal) {
+		fLiterals= literals;
+		fIgnoreCase= ignoreCase;
+		fLineLocal= lineLocal;
+	}
+
+	/**
+	 * Creates the prefilter for the given pattern.
+	 *
+	 * @param pattern the search pattern
+	 * @return the prefilter, or <code>null</code> if no literal is contained in every match of the
+	 *         pattern or the pattern is too complex to tell
+	 */
+	public static LiteralPrefilter create(Pattern pattern) {
+		int flags= pattern.flags();
+		if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0)
+			return null;
+
+		boolean ignoreCase= (flags & Pattern.CASE_INSENSITIVE) != 0;
+		String regex= pattern.pattern();
+		List<String> literals;
+		boolean lineLocal;
+		if ((flags & Pattern.LITERAL) != 0) {
+			if (regex.length() == 0)
+				return null;
+			literals= Arrays.asList(regex);
+			lineLocal= !containsLineDelimiter(regex);
+		} else {
+			Analyzer analyzer= new Analyzer(regex, (flags & (Pattern.DOTALL | Pattern.UNIX_LINES)) != 0);
+			literals= analyzer.analyze();
+			if (literals == null)
+				return null;
+			lineLocal= analyzer.isLineLocal();
+		}
+
+		if (ignoreCase) {
+			// case folding is done per char, Java folds code points
+			for (String literal : literals) {
+				for (int i= 0; i < literal.length(); i++) {
+					if (Character.isSurrogate(literal.charAt(i)))
+						return null;
+				}
+			}
+		}
+		return create(literals.toArray(new String[literals.size()]), ignoreCase, lineLocal);
+	}
+
+	/**
+	 * Creates a prefilter for the given literals.
+	 *
+	 * @param literals the non-empty literals to look for
+	 * @param ignoreCase <code>true</code> to look for the literals case insensitively
+	 * @param lineLocal <code>true</code> if matches do not span line delimiters
+	 * @return the prefilter
+	 */
+	public static LiteralPrefilter create(String[] literals, boolean ignoreCase, boolean lineLocal) {
+		literals= removeRedundant(literals, ignoreCase);
+		if (literals.length == 1)
+			return new HorspoolPrefilter(literals, ignoreCase, lineLocal);
+		return new AhoCorasickPrefilter(literals, ignoreCase, lineLocal);
+	}
+
+	/**
+	 * Removes duplicates and literals that contain another literal: every occurrence of such a
+	 * literal also is an occurrence of the contained one.
+	 *
+	 * @param literals the literals
+	 * @param ignoreCase <code>true</code> if the literals are looked for case insensitively
+	 * @return the literals that do not contain another literal
+	 */
+	private static String[] removeRedundant(String[] literals, boolean ignoreCase) {
+		List<String> result= new ArrayList<>(literals.length);
+		outer: for (int i= 0; i < literals.length; i++) {
+			String literal= ignoreCase ? fold(literals[i]) : literals[i];
+			for (int k= 0; k < literals.length; k++) {
+				String other= ignoreCase ? fold(literals[k]) : literals[k];
+				if (k != i && literal.contains(other) && (literal.length() > other.length() || k < i))
+					continue outer;
+			}
+			result.add(literals[i]);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Returns the literals of which every match contains at least one.
+	 *
+	 * @return the literals
+	 */
+	public String[] getLiterals() {
+		return fLiterals;
+	}
+
+	/**
+	 * Returns whether the literals are looked for case insensitively.
+	 *
+	 * @return <code>true</code> if case is ignored
+	 */
+	public boolean isIgnoreCase() {
+		return fIgnoreCase;
+	}
+
+	/**
+	 * Returns whether matches of the pattern never span a line delimiter. If so, the pattern only
+	 * needs to run on the lines that contain a literal.
+	 *
+	 * @return <code>true</code> if each match lies within a line
+	 */
+	public boolean isLineLocal() {
+		return fLineLocal;
+	}
+
+	/**
+	 * Returns the start of the literal occurrence that ends first among the occurrences that
+	 * start at or after the given index.
+	 *
+	 * @param text the text to search
+	 * @param from the index to start at
+	 * @return the start of the occurrence, or -1 if none of the literals occurs
+	 */
+	public int indexIn(CharSequence text, int from) {
+		return indexIn(text, from, text.length());
+	}
+
+	/**
+	 * Returns the start of the literal occurrence that ends first among the occurrences that lie
+	 * within the given range.
+	 *
+	 * @param text the text to search
+	 * @param from the index to start at
+	 * @param to the index to stop at, exclusive
+	 * @return the start of the occurrence, or -1 if none of the literals occurs in the range
+	 */
+	public abstract int indexIn(CharSequence text, int from, int to);
+
+	/**
+	 * Returns whether the given character ends a line for the purpose of regular expressions.
+	 *
+	 * @param ch the character
+	 * @return <code>true</code> if <code>.</code> does not match the character by default
+	 */
+	public static boolean isLineDelimiter(char ch) {
+		return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+	}
+
+	private static boolean containsLineDelimiter(String text) {
+		for (int i= 0; i < text.length(); i++) {
+			if (isLineDelimiter(text.charAt(i)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Folds the case of the given character the same way as a case insensitive {@link Pattern}
+	 * with Unicode case does.
+	 *
+	 * @param ch the character
+	 * @return the folded character
+	 */
+	static char fold(char ch) {
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+	static String fold(String text) {
+		char[] chars= text.toCharArray();
+		for (int i= 0; i < chars.length; i++)
+			chars[i]= fold(chars[i]);
+		return new String(chars);
+	}
+
+	/**
+	 * Looks for a single literal with the Boyer-Moore-Horspool algorithm. The shift table is
+	 * indexed by the low byte of the characters, which keeps it small and the shifts valid.
+	 */
+	private static final class HorspoolPrefilter extends LiteralPrefilter {
+
+		private final char[] fPattern;
+		private final int[] fShift= new int[256];
+
+		public HorspoolPrefilter(String[] literals, boolean ignoreCase, boolean lineLocal) {
+			super(literals, ignoreCase, lineLocal);
+			fPattern= (ignoreCase ? fold(literals[0]) : literals[0]).toCharArray();
+			int last= fPattern.length - 1;
+			Arrays.fill(fShift, fPattern.length);
+			for (int i= 0; i < last; i++)
+				fShift[fPattern[i] & 0xFF]= last - i;
+		}
+
+		@Override
+		public int indexIn(CharSequence text, int from, int to) {
+			char[] pattern= fPattern;
+			boolean ignoreCase= isIgnoreCase();
+			int last= pattern.length - 1;
+			int end= to - pattern.length;
+			for (int i= from; i <= end;) {
+				char ch= text.charAt(i + last);
+				if (ignoreCase)
+					ch= fold(ch);
+				if (ch == pattern[last]) {
+					int k= last - 1;
+					while (k >= 0 && pattern[k] == (ignoreCase ? fold(text.charAt(i + k)) : text.charAt(i + k)))
+						k--;
+					if (k < 0)
+						return i;
+				}
+				i+= fShift[ch & 0xFF];
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Looks for several literals in one pass with the Aho-Corasick algorithm.
+	 */
+	private static final class AhoCorasickPrefilter extends LiteralPrefilter {
+
+		/** The characters of the transitions of each state, sorted. */
+		private char[][] fEdgeChars;
+		/** The target states of the transitions of each state. */
+		private int[][] fEdgeTargets;
+		/** The state to continue with when a state has no transition for a character. */
+		private int[] fFailure;
+		/** The length of a literal ending in each state, 0 if no literal ends there. */
+		private int[] fOutput;
+		/**
+		 * The complete transitions for ASCII characters, failures already followed: the next state
+		 * for state <code>s</code> and character <code>c</code> is at <code>s * 128 + c</code>.
+		 */
+		private int[] fAsciiTransitions;
+
+		public AhoCorasickPrefilter(String[] literals, boolean ignoreCase, boolean lineLocal) {
+			super(literals, ignoreCase, lineLocal);
+			int capacity= 1;
+			for (String literal : literals)
+				capacity+= literal.length();
+			fEdgeChars= new char[capacity][];
+			fEdgeTargets= new int[capacity][];
+			fFailure= new int[capacity];
+			fOutput= new int[capacity];
+
+			int states= 1;
+			fEdgeChars[0]= new char[0];
+			fEdgeTargets[0]= new int[0];
+			for (String literal : literals) {
+				if (ignoreCase)
+					literal= fold(literal);
+				int state= 0;
+				for (int i= 0; i < literal.length(); i++) {
+					char ch= literal.charAt(i);
+					int next= transition(state, ch);
+					if (next == -1) {
+						next= states++;
+						fEdgeChars[next]= new char[0];
+						fEdgeTargets[next]= new int[0];
+						addTransition(state, ch, next);
+					}
+					state= next;
+				}
+				fOutput[state]= literal.length();
+			}
+
+			// breadth first, the failure state of a state is closer to the root
+			fAsciiTransitions= new int[states * 128];
+			for (int i= 0; i < fEdgeChars[0].length; i++) {
+				if (fEdgeChars[0][i] < 128)
+					fAsciiTransitions[fEdgeChars[0][i]]= fEdgeTargets[0][i];
+			}
+			int[] queue= new int[states];
+			int head= 0, tail= 0;
+			for (int target : fEdgeTargets[0])
+				queue[tail++]= target;
+			while (head < tail) {
+				int state= queue[head++];
+				System.arraycopy(fAsciiTransitions, fFailure[state] * 128, fAsciiTransitions, state * 128, 128);
+				for (int i= 0; i < fEdgeChars[state].length; i++) {
+					if (fEdgeChars[state][i] < 128)
+						fAsciiTransitions[state * 128 + fEdgeChars[state][i]]= fEdgeTargets[state][i];
+				}
+				for (int i= 0; i < fEdgeChars[state].length; i++) {
+					char ch= fEdgeChars[state][i];
+					int target= fEdgeTargets[state][i];
+					int failure= fFailure[state];
+					while (failure != 0 && transition(failure, ch) == -1)
+						failure= fFailure[failure];
+					int next= transition(failure, ch);
+					fFailure[target]= next == -1 ? 0 : next;
+					if (fOutput[target] == 0)
+						fOutput[target]= fOutput[fFailure[target]];
+					queue[tail++]= target;
+				}
+			}
+		}
+
+		private int transition(int state, char ch) {
+			char[] chars= fEdgeChars[state];
+			int index= Arrays.binarySearch(chars, ch);
+			return index < 0 ? -1 : fEdgeTargets[state][index];
+		}
+
+		private void addTransition(int state, char ch, int target) {
+			char[] chars= fEdgeChars[state];
+			int[] targets= fEdgeTargets[state];
+			int index= -Arrays.binarySearch(chars, ch) - 1;
+			char[] newChars= new char[chars.length + 1];
+			int[] newTargets= new int[targets.length + 1];
+			System.arraycopy(chars, 0, newChars, 0, index);
+			System.arraycopy(targets, 0, newTargets, 0, index);
+			newChars[index]= ch;
+			newTargets[index]= target;
+			System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+			System.arraycopy(targets, index, newTargets, index + 1, targets.length - index);
+			fEdgeChars[state]= newChars;
+			fEdgeTargets[state]= newTargets;
+		}
+
+		@Override
+		public int indexIn(CharSequence text, int from, int to) {
+			boolean ignoreCase= isIgnoreCase();
+			int state= 0;
+			for (int i= from; i < to; i++) {
+				char ch= text.charAt(i);
+				if (ignoreCase)
+					ch= fold(ch);
+				if (ch < 128) {
+					state= fAsciiTransitions[state * 128 + ch];
+				} else {
+					int next;
+					while ((next= transition(state, ch)) == -1 && state != 0)
+						state= fFailure[state];
+					state= next == -1 ? 0 : next;
+				}
+				if (fOutput[state] != 0)
+					return i - fOutput[state] + 1;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Determines the literals of a regular expression. For each top level alternative, the
+	 * longest run of literal characters that every match of the alternative contains is taken.
+	 * Gives up on constructs whose effect on the matched text is not obvious, like inline flags and
+	 * back references.
+	 */
+	private static final class Analyzer {
+
+		private final String fRegex;
+		private final boolean fDotMatchesAll;
+		private int fPos;
+		private boolean fLineLocal= true;
+		private final StringBuilder fRun= new StringBuilder();
+		private String fBest;
+
+		public Analyzer(String regex, boolean dotMatchesAll) {
+			fRegex= regex;
+			fDotMatchesAll= dotMatchesAll;
+		}
+
+		public boolean isLineLocal() {
+			return fLineLocal;
+		}
+
+		/**
+		 * Analyzes the regular expression.
+		 *
+		 * @return one literal for each top level alternative, or <code>null</code> if there is an
+		 *         alternative without a known literal
+		 */
+		public List<String> analyze() {
+			List<String> literals= new ArrayList<>();
+			while (true) {
+				fRun.setLength(0);
+				fBest= null;
+				if (!parseBranch())
+					return null;
+				endRun();
+				if (fBest == null)
+					return null;
+				literals.add(fBest);
+				if (fPos == fRegex.length())
+					return literals;
+				if (fRegex.charAt(fPos++) != '|')
+					return null;
+			}
+		}
+
+		/**
+		 * Parses the atoms up to the next <code>|</code> or <code>)</code> on the same level.
+		 *
+		 * @return <code>false</code> if the regular expression cannot be analyzed
+		 */
+		private boolean parseBranch() {
+			while (fPos < fRegex.length()) {
+				char ch= fRegex.charAt(fPos);
+				switch (ch) {
+					case '|':
+					case ')':
+						return true;
+					case '\\':
+						if (!parseEscape())
+							return false;
+						break;
+					case '[':
+						if (!skipClass())
+							return false;
+						endRun();
+						parseQuantifier();
+						break;
+					case '(':
+						if (!parseGroup())
+							return false;
+						break;
+					case '.':
+						fPos++;
+						endRun();
+						if (fDotMatchesAll)
+							fLineLocal= false;
+						parseQuantifier();
+						break;
+					case '^':
+					case '$':
+						fPos++;
+						endRun();
+						parseQuantifier();
+						break;
+					case '*':
+					case '+':
+					case '?':
+					case '{':
+						return false;
+					default:
+						int start= fPos++;
+						if (Character.isHighSurrogate(ch) && fPos < fRegex.length() && Character.isLowSurrogate(fRegex.charAt(fPos)))
+							fPos++;
+						appendAtom(fRegex.substring(start, fPos));
+						break;
+				}
+			}
+			return true;
+		}
+
+		private boolean parseEscape() {
+			if (++fPos == fRegex.length())
+				return false;
+			char ch= fRegex.charAt(fPos++);
+			if (ch >= 128 || !Character.isLetterOrDigit(ch)) {
+				int start= fPos - 1;
+				if (Character.isHighSurrogate(ch) && fPos < fRegex.length() && Character.isLowSurrogate(fRegex.charAt(fPos)))
+					fPos++;
+				appendAtom(fRegex.substring(start, fPos));
+				return true;
+			}
+			switch (ch) {
+				case 't':
+					appendAtom("\t"); //$NON-NLS-1$
+					return true;
+				case 'n':
+					appendAtom("\n"); //$NON-NLS-1$
+					return true;
+				case 'r':
+					appendAtom("\r"); //$NON-NLS-1$
+					return true;
+				case 'f':
+					appendAtom("\f"); //$NON-NLS-1$
+					return true;
+				case 'a':
+					appendAtom("\u0007"); //$NON-NLS-1$
+					return true;
+				case 'e':
+					appendAtom("\u001B"); //$NON-NLS-1$
+					return true;
+				case 'Q':
+					parseQuote();
+					return true;
+				case 'b':
+				case 'B':
+					endRun();
+					return true;
+				case 'd':
+				case 'w':
+					endRun();
+					parseQuantifier();
+					return true;
+				case 'D':
+				case 'W':
+				case 's':
+				case 'S':
+				case 'h':
+				case 'H':
+				case 'v':
+				case 'V':
+				case 'R':
+				case 'X':
+				case 'A':
+				case 'G':
+				case 'Z':
+				case 'z':
+					// may match line delimiters or depend on the bounds of the matched region
+					endRun();
+					fLineLocal= false;
+					parseQuantifier();
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		private void parseQuote() {
+			int end= fRegex.indexOf("\\E", fPos); //$NON-NLS-1$
+			if (end == -1)
+				end= fRegex.length();
+			String quoted= fRegex.substring(fPos, end);
+			fPos= Math.min(end + 2, fRegex.length());
+			if (quoted.length() == 0)
+				return;
+
+			// a quantifier applies to the last character only
+			int last= quoted.length() - 1;
+			if (last > 0 && Character.isLowSurrogate(quoted.charAt(last)) && Character.isHighSurrogate(quoted.charAt(last - 1)))
+				last--;
+			String head= quoted.substring(0, last);
+			if (containsLineDelimiter(head))
+				fLineLocal= false;
+			fRun.append(head);
+			appendAtom(quoted.substring(last));
+		}
+
+		private boolean skipClass() {
+			int depth= 0;
+			boolean simple= true;
+			char previous= 0;
+			while (fPos < fRegex.length()) {
+				char ch= fRegex.charAt(fPos++);
+				if (ch == '\\') {
+					if (fPos < fRegex.length() && fRegex.charAt(fPos) == 'Q')
+						return false;
+					fPos++;
+					simple= false;
+				} else if (ch == '[') {
+					if (++depth > 1)
+						simple= false;
+					if (fPos < fRegex.length() && fRegex.charAt(fPos) == '^') {
+						simple= false;
+						fPos++;
+					}
+					if (fPos < fRegex.length() && fRegex.charAt(fPos) == ']')
+						return false;
+				} else if (ch == ']') {
+					if (--depth == 0) {
+						if (!simple)
+							fLineLocal= false;
+						return true;
+					}
+				} else if (ch == '-' && previous != 0 && fPos < fRegex.length()) {
+					char next= fRegex.charAt(fPos);
+					if (next != ']' && next != '[' && next != '\\') {
+						for (char delimiter : new char[] { '\n', '\r', '\u0085', '\u2028', '\u2029' }) {
+							if (previous <= delimiter && delimiter <= next)
+								simple= false;
+						}
+					}
+				} else if (isLineDelimiter(ch)) {
+					simple= false;
+				}
+				previous= ch;
+			}
+			return false;
+		}
+
+		private boolean parseGroup() {
+			if (++fPos < fRegex.length() && fRegex.charAt(fPos) == '?') {
+				if (++fPos == fRegex.length())
+					return false;
+				char ch= fRegex.charAt(fPos++);
+				if (ch == '<') {
+					if (fPos < fRegex.length() && (fRegex.charAt(fPos) == '=' || fRegex.charAt(fPos) == '!')) {
+						fPos++;
+					} else {
+						int end= fRegex.indexOf('>', fPos);
+						if (end == -1)
+							return false;
+						fPos= end + 1;
+					}
+				} else if (ch != ':' && ch != '=' && ch != '!' && ch != '>') {
+					// inline flags change how the rest of the expression matches
+					return false;
+				}
+			}
+
+			// the group contents only matter for the line delimiters they can match
+			endRun();
+			String best= fBest;
+			while (true) {
+				if (!parseBranch() || fPos == fRegex.length())
+					return false;
+				fRun.setLength(0);
+				if (fRegex.charAt(fPos++) == ')')
+					break;
+			}
+			fBest= best;
+			parseQuantifier();
+			return true;
+		}
+
+		/**
+		 * Adds a literal character, or surrogate pair, that may be followed by a quantifier.
+		 *
+		 * @param atom the character or surrogate pair
+		 */
+		private void appendAtom(String atom) {
+			if (containsLineDelimiter(atom))
+				fLineLocal= false;
+			int min= parseQuantifier();
+			if (min == 0) {
+				endRun();
+			} else {
+				fRun.append(atom);
+				if (min > 0)
+					endRun();
+			}
+		}
+
+		/**
+		 * Parses a quantifier at the current position.
+		 *
+		 * @return the minimal number of repetitions, or -1 if there is no quantifier
+		 */
+		private int parseQuantifier() {
+			if (fPos == fRegex.length())
+				return -1;
+			int min;
+			char ch= fRegex.charAt(fPos);
+			if (ch == '?' || ch == '*') {
+				min= 0;
+				fPos++;
+			} else if (ch == '+') {
+				min= 1;
+				fPos++;
+			} else if (ch == '{') {
+				int end= fRegex.indexOf('}', fPos);
+				if (end == -1)
+					end= fRegex.length() - 1;
+				String spec= fRegex.substring(fPos + 1, end);
+				int comma= spec.indexOf(',');
+				try {
+					min= Integer.parseInt((comma == -1 ? spec : spec.substring(0, comma)).trim());
+				} catch (NumberFormatException e) {
+					min= 0;
+				}
+				fPos= end + 1;
+			} else {
+				return -1;
+			}
+			// reluctant and possessive quantifiers
+			if (fPos < fRegex.length() && (fRegex.charAt(fPos) == '?' || fRegex.charAt(fPos) == '+'))
+				fPos++;
+			return min;
+		}
+
+		private void endRun() {
+			if (fRun.length() > 0 && (fBest == null || fRun.length() > fBest.length()))
+				fBest= fRun.toString();
+			fRun.setLength(0);
+		}
+	}
+}
@@ -0,0 +1,494 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.internal.core.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * The raw content of a local file in an ASCII compatible encoding. Large files are memory mapped,
+ * small files are read in one go.
+ * <p>
+ * For ASCII compatible encodings, every ASCII character is encoded as the single byte of the same
+ * value and these bytes do not occur in the encoding of other characters. This allows to detect
+ * binary content and to look for text on the raw bytes. Decoding only happens when the
+ * content is accessed as {@link #getCharSequence() characters}: content that consists of ASCII
+ * characters only is never decoded, a character is obtained from its byte when it is accessed.
+ * Other content is decoded in windows of {@link FileCharSequenceProvider#BUFFER_SIZE} bytes when
+ * they are accessed, only the last few windows are kept.
+ * </p>
+ * <p>
+ * A mapped file stays mapped until the content is garbage collected, so references to the content
+ * and its characters must be dropped when they are no longer needed. On Windows, mapped files
+ * cannot be modified or deleted, hence large files are not mapped there.
+ * </p>
+ */
+public class MappedFileContent {
+
+	/** Files of at least this size are memory mapped. */
+	private static final int MAP_THRESHOLD= 1 << 16;
+
+	/** Whether a mapped file is locked until the mapping is garbage collected. */
+	private static final boolean MAPPING_LOCKS_FILE= Platform.OS_WIN32.equals(Platform.getOS());
+
+	/** The number of decoded windows that are kept. */
+	private static final int NUMBER_OF_WINDOWS= 3;
+
+	/** The ASCII compatibility of the charsets by name. */
+	private static final Map<String, Boolean> fgAsciiCompatible= new ConcurrentHashMap<>();
+
+	private static final byte[] BOM_UTF_8= { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private final ByteBuffer fBytes;
+	private final Charset fCharset;
+	private final boolean fIsUTF8;
+	/** 1 if the content only consists of ASCII characters, 0 if not, -1 if unknown. */
+	private int fIsAscii= -1;
+	private CharSequence fCharSequence;
+
+	private MappedFileContent(ByteBuffer bytes, Charset charset) {
+		fCharset= charset;
+		fIsUTF8= StandardCharsets.UTF_8.equals(charset);
+		if (fIsUTF8 && startsWith(bytes, BOM_UTF_8)) {
+			// the BOM is not part of the content, see FileCharSequenceProvider
+			bytes.position(BOM_UTF_8.length);
+			bytes= bytes.slice();
+		}
+		fBytes= bytes;
+	}
+
+	/**
+	 * Opens the given file.
+	 *
+	 * @param file the file to open
+	 * @param charsetName the name of the encoding of the file
+	 * @return the content of the file, or <code>null</code> if the encoding is not ASCII compatible
+	 *         or the file is too large, or too large to be read in one go where mapping it would
+	 *         lock it
+	 * @throws IOException if the file cannot be read
+	 */
+	public static MappedFileContent open(File file, String charsetName) throws IOException {
+		Charset charset= Charset.forName(charsetName);
+		if (!isAsciiCompatible(charset))
+			return null;
+
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size= channel.size();
+			if (size > Integer.MAX_VALUE)
+				return null;
+
+			ByteBuffer bytes;
+			if (size >= MAP_THRESHOLD) {
+				if (MAPPING_LOCKS_FILE)
+					return null;
+				// the mapping stays valid after the channel has been closed
+				bytes= channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes= ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+					// read until the buffer is full
+				}
+				bytes.flip();
+			}
+			return new MappedFileContent(bytes, charset);
+		}
+	}
+
+	/**
+	 * Returns whether the given charset encodes the ASCII characters as single bytes of the same
+	 * value that do not occur in the encoding of other characters. This is the case for UTF-8 and
+	 * for single byte encodings that extend ASCII.
+	 *
+	 * @param charset the charset
+	 * @return <code>true</code> if the charset is ASCII compatible
+	 */
+	public static boolean isAsciiCompatible(Charset charset) {
+		Boolean compatible= fgAsciiCompatible.get(charset.name());
+		if (compatible == null) {
+			compatible= Boolean.valueOf(computeAsciiCompatible(charset));
+			fgAsciiCompatible.put(charset.name(), compatible);
+		}
+		return compatible.booleanValue();
+	}
+
+	private static boolean computeAsciiCompatible(Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset))
+			return true;
+		if (!charset.canEncode())
+			return false;
+
+		CharsetEncoder encoder= charset.newEncoder();
+		if (encoder.maxBytesPerChar() != 1)
+			return false;
+
+		byte[] ascii= new byte[128];
+		for (int i= 0; i < ascii.length; i++)
+			ascii[i]= (byte) i;
+		try {
+			CharBuffer decoded= charset.newDecoder().decode(ByteBuffer.wrap(ascii));
+			if (decoded.length() != ascii.length)
+				return false;
+			for (int i= 0; i < ascii.length; i++) {
+				if (decoded.get(i) != i)
+					return false;
+			}
+			return true;
+		} catch (CharacterCodingException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the encoding of the content.
+	 *
+	 * @return the charset
+	 */
+	public Charset getCharset() {
+		return fCharset;
+	}
+
+	/**
+	 * Returns whether one of the first <code>limit</code> characters is a <code>'\0'</code>
+	 * character. Works on the raw bytes.
+	 *
+	 * @param limit the number of characters to check
+	 * @return <code>true</code> if a <code>'\0'</code> character has been found
+	 */
+	public boolean hasBinaryContent(int limit) {
+		ByteBuffer bytes= fBytes;
+		int chars= 0;
+		for (int i= 0, length= bytes.limit(); i < length && chars < limit; i++) {
+			byte b= bytes.get(i);
+			if (b == 0)
+				return true;
+			if (fIsUTF8) {
+				// continuation bytes do not start a new character, four byte sequences are surrogate pairs
+				if ((b & 0xC0) == 0x80)
+					continue;
+				if ((b & 0xF8) == 0xF0)
+					chars++;
+			}
+			chars++;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the content contains one of the literals of the given prefilter. Works on the
+	 * raw bytes.
+	 *
+	 * @param prefilter the prefilter
+	 * @return <code>true</code> if the content contains a literal, or if the literals cannot be
+	 *         looked for on the raw bytes
+	 */
+	public boolean mayContain(LiteralPrefilter prefilter) {
+		if (prefilter.isIgnoreCase())
+			return true;
+		String[] literals= prefilter.getLiterals();
+		String[] encoded= new String[literals.length];
+		for (int i= 0; i < literals.length; i++) {
+			byte[] bytes= encode(literals[i]);
+			if (bytes == null)
+				return true;
+			// one char per byte, as seen by ByteCharSequence
+			encoded[i]= new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+		LiteralPrefilter bytePrefilter= LiteralPrefilter.create(encoded, false, false);
+		return bytePrefilter.indexIn(new ByteCharSequence(fBytes, 0, fBytes.limit()), 0) != -1;
+	}
+
+	/**
+	 * Returns the given text encoded with the charset of the content.
+	 *
+	 * @param text the text
+	 * @return the encoded text, or <code>null</code> if the text cannot be encoded unambiguously
+	 */
+	private byte[] encode(String text) {
+		// malformed input is decoded to the replacement character
+		if (text.length() == 0 || text.indexOf('\uFFFD') != -1)
+			return null;
+		CharsetEncoder encoder= fCharset.newEncoder();
+		if (!encoder.canEncode(text))
+			return null;
+		try {
+			ByteBuffer encoded= encoder.encode(CharBuffer.wrap(text));
+			byte[] result= new byte[encoded.remaining()];
+			encoded.get(result);
+			return result;
+		} catch (CharacterCodingException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the content as characters. Content that only consists of ASCII characters is not
+	 * decoded, other content is decoded in windows when the characters are accessed.
+	 *
+	 * @return the content, which can be read by several threads at once if the content
+	 *         {@link #isAscii() only consists of ASCII characters}
+	 */
+	public CharSequence getCharSequence() {
+		if (fCharSequence == null) {
+			if (isAscii())
+				fCharSequence= new ByteCharSequence(fBytes, 0, fBytes.limit());
+			else
+				fCharSequence= new DecodingCharSequence(fBytes, fCharset, fIsUTF8);
+		}
+		return fCharSequence;
+	}
+
+	/**
+	 * Returns whether the content only consists of ASCII characters. Works on the raw bytes.
+	 *
+	 * @return <code>true</code> if the content only consists of ASCII characters
+	 */
+	public boolean isAscii() {
+		if (fIsAscii == -1) {
+			fIsAscii= 1;
+			ByteBuffer bytes= fBytes;
+			for (int i= 0, length= bytes.limit(); i < length; i++) {
+				if (bytes.get(i) < 0) {
+					fIsAscii= 0;
+					break;
+				}
+			}
+		}
+		return fIsAscii == 1;
+	}
+
+	private static boolean startsWith(ByteBuffer bytes, byte[] prefix) {
+		if (bytes.limit() < prefix.length)
+			return false;
+		for (int i= 0; i < prefix.length; i++) {
+			if (bytes.get(i) != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A character sequence with one character per byte, which is the decoded content for ASCII
+	 * bytes. Strings are only created for the requested regions.
+	 */
+	private static final class ByteCharSequence implements CharSequence {
+
+		private final ByteBuffer fBytes;
+		private final int fOffset;
+		private final int fLength;
+
+		public ByteCharSequence(ByteBuffer bytes, int offset, int length) {
+			fBytes= bytes;
+			fOffset= offset;
+			fLength= length;
+		}
+
+		@Override
+		public int length() {
+			return fLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= fLength)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			return (char) (fBytes.get(fOffset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > fLength || start > end)
+				throw new IndexOutOfBoundsException();
+			return new ByteCharSequence(fBytes, fOffset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes= new byte[fLength];
+			for (int i= 0; i < fLength; i++)
+				bytes[i]= fBytes.get(fOffset + i);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * A decoded window of the content.
+	 */
+	private static final class Window {
+
+		final int fCharOffset;
+		final CharBuffer fChars;
+
+		public Window(int charOffset, CharBuffer chars) {
+			fCharOffset= charOffset;
+			fChars= chars;
+		}
+
+		boolean contains(int index) {
+			return index >= fCharOffset && index < fCharOffset + fChars.limit();
+		}
+	}
+
+	/**
+	 * A character sequence that decodes the content in windows of
+	 * {@link FileCharSequenceProvider#BUFFER_SIZE} bytes when they are accessed. The windows end
+	 * at character boundaries. The offsets of the windows are recorded when they are decoded
+	 * first, the most recently used windows are kept. Not thread safe.
+	 */
+	private static final class DecodingCharSequence implements CharSequence {
+
+		private final ByteBuffer fBytes;
+		private final CharsetDecoder fDecoder;
+		private final boolean fIsUTF8;
+		/** The byte offsets of the windows, the entry after the last known window is its end. */
+		private int[] fByteOffsets= new int[16];
+		/** The char offsets of the windows, the entry after the last known window is its end. */
+		private int[] fCharOffsets= new int[16];
+		/** The number of windows whose offsets are known. */
+		private int fNumberOfWindows= 0;
+		/** The decoded windows, the most recently used first. */
+		private final Window[] fWindows= new Window[NUMBER_OF_WINDOWS];
+
+		public DecodingCharSequence(ByteBuffer bytes, Charset charset, boolean isUTF8) {
+			fBytes= bytes;
+			fDecoder= charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			fIsUTF8= isUTF8;
+		}
+
+		@Override
+		public int length() {
+			while (fByteOffsets[fNumberOfWindows] < fBytes.limit())
+				decodeWindow(fNumberOfWindows);
+			return fCharOffsets[fNumberOfWindows];
+		}
+
+		@Override
+		public char charAt(int index) {
+			Window window= fWindows[0];
+			if (window == null || !window.contains(index))
+				window= getWindow(index);
+			return window.fChars.get(index - window.fCharOffset);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || start > end)
+				throw new IndexOutOfBoundsException();
+			StringBuilder buf= new StringBuilder(end - start);
+			for (int i= start; i < end; i++)
+				buf.append(charAt(i));
+			return buf.toString();
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+
+		/**
+		 * Returns the window containing the given character and makes it the most recently used
+		 * one.
+		 *
+		 * @param index the index of the character
+		 * @return the window
+		 */
+		private Window getWindow(int index) {
+			if (index < 0)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			for (int i= 1; i < fWindows.length && fWindows[i] != null; i++) {
+				if (fWindows[i].contains(index)) {
+					Window window= fWindows[i];
+					System.arraycopy(fWindows, 0, fWindows, 1, i);
+					fWindows[0]= window;
+					return window;
+				}
+			}
+			if (index >= fCharOffsets[fNumberOfWindows]) {
+				// decode forward, the last decoded window contains the character
+				Window window;
+				do {
+					if (fByteOffsets[fNumberOfWindows] >= fBytes.limit())
+						throw new IndexOutOfBoundsException(String.valueOf(index));
+					window= decodeWindow(fNumberOfWindows);
+				} while (index >= fCharOffsets[fNumberOfWindows]);
+				return window;
+			}
+			int number= Arrays.binarySearch(fCharOffsets, 0, fNumberOfWindows + 1, index);
+			if (number < 0) {
+				number= -number - 2;
+			} else {
+				// skip empty windows
+				while (fCharOffsets[number + 1] == index)
+					number++;
+			}
+			return decodeWindow(number);
+		}
+
+		/**
+		 * Decodes the given window, records the offsets of the next window if not yet known and
+		 * makes it the most recently used window.
+		 *
+		 * @param number the number of the window, at most the number of known windows
+		 * @return the window
+		 */
+		private Window decodeWindow(int number) {
+			int start= fByteOffsets[number];
+			int end;
+			if (number < fNumberOfWindows) {
+				end= fByteOffsets[number + 1];
+			} else {
+				end= (int) Math.min((long) start + FileCharSequenceProvider.BUFFER_SIZE, fBytes.limit());
+				// do not split the byte sequence of a character
+				while (fIsUTF8 && end < fBytes.limit() && (fBytes.get(end) & 0xC0) == 0x80 && end - start < FileCharSequenceProvider.BUFFER_SIZE + 3)
+					end++;
+			}
+			ByteBuffer bytes= fBytes.duplicate();
+			bytes.limit(end);
+			bytes.position(start);
+			CharBuffer chars;
+			try {
+				chars= fDecoder.decode(bytes);
+			} catch (CharacterCodingException e) {
+				// not possible, malformed input and unmappable characters are replaced
+				throw new IllegalStateException(e);
+			}
+			if (number == fNumberOfWindows) {
+				if (fNumberOfWindows + 2 > fByteOffsets.length) {
+					fByteOffsets= Arrays.copyOf(fByteOffsets, fByteOffsets.length * 2);
+					fCharOffsets= Arrays.copyOf(fCharOffsets, fCharOffsets.length * 2);
+				}
+				fByteOffsets[number + 1]= end;
+				fCharOffsets[number + 1]= fCharOffsets[number] + chars.limit();
+				fNumberOfWindows++;
+			}
+			Window window= new Window(fCharOffsets[number], chars);
+			System.arraycopy(fWindows, 0, fWindows, 1, fWindows.length - 1);
+			fWindows[0]= window;
+			return window;
+		}
+	}
+}
@@ -16,13 +16,18 @@ import java.io.CharConversionException;
 import java.io.IOException;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,7 +40,6 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.content.IContentDescription;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.content.IContentTypeManager;
@@ -43,15 +47,18 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobGroup;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceStatus;
 import org.eclipse.core.resources.ResourcesPlugin;
 
 import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.IFileBuffer;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
 import org.eclipse.core.filebuffers.ITextFileBufferManager;
 import org.eclipse.core.filebuffers.LocationKind;
 
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension5;
 
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
@@ -80,7 +87,8 @@ public class TextSearchVisitor {
 
 	public static final boolean TRACING= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.search/perf")); //$NON-NLS-1$ //$NON-NLS-2$
 	private static final int NUMBER_OF_LOGICAL_THREADS= Runtime.getRuntime().availableProcessors();
-	private static final int FILES_PER_JOB= 50;
+	/** The default number of characters per segment when a large file is searched by several jobs. */
+	private static final int SEGMENT_SIZE= 1 << 21;
 
 	public static class ReusableMatchAccess extends TextSearchMatchAccess {
 
@@ -143,60 +151,220 @@ public class TextSearchVisitor {
 	}
 
 	/**
-	 * A job to find matches in a set of files.
+	 * Files with the same location, searched together so that the results can be reused.
 	 */
-	private class TextSearchJob extends Job {
-		private final IFile[] fFiles;
-		private final int fBegin;
+	private static class FileGroup {
+		final IFile[] fFiles;
+		final long fSize;
+
+		public FileGroup(IFile[] files, long size) {
+			fFiles= files;
+			fSize= size;
+		}
+	}
+
+	/**
+	 * A part of a large file that is searched by any of the jobs. Matches cannot span lines, so
+	 * segments end at line delimiters and do not need to overlap.
+	 */
+	private class Segment {
+		private final IFile fFile;
+		private final CharSequence fInput;
+		private final int fStart;
 		private final int fEnd;
-		private final Map<IFile, IDocument> fDocumentsInEditors;
+		private final CountDownLatch fDone;
+		private final IProgressMonitor fMonitor;
+		final List<TextSearchMatchAccess> fOccurences= new ArrayList<>();
+		/** A problem when searching the segment, thrown when reporting its matches. */
+		Throwable fProblem;
+		/** The thread that has searched the segment. */
+		Thread fThread;
+
+		public Segment(IFile file, CharSequence input, int start, int end, CountDownLatch done, IProgressMonitor monitor) {
+			fFile= file;
+			fInput= input;
+			fStart= start;
+			fEnd= end;
+			fDone= done;
+			fMonitor= monitor;
+		}
+
+		public void run() {
+			fThread= Thread.currentThread();
+			try {
+				Matcher matcher= fSearchPattern.matcher(fInput);
+				findMatchesInCandidateLines(fFile, fInput, matcher, fStart, fEnd, fOccurences, false, fMonitor);
+			} catch (RuntimeException | CoreException | StackOverflowError | InternalError e) {
+				fProblem= e;
+			} finally {
+				fDone.countDown();
+			}
+		}
+	}
+
+	/**
+	 * An open document of a file to search. Documents must only be read by the thread that owns
+	 * them, so the content is taken on the UI thread when a job reaches the file, as an immutable
+	 * snapshot where possible. Taking the snapshots file by file keeps the UI thread from copying
+	 * the content of all open documents at once.
+	 */
+	private static class OpenDocument {
+		private final IDocument fDocument;
+		private CharSequence fContent;
+
+		public OpenDocument(IDocument document) {
+			fDocument= document;
+		}
+
+		/**
+		 * Takes the content of the document now. Must be called by the thread that owns the
+		 * document.
+		 */
+		void takeContent() {
+			// read from an immutable snapshot if possible, the document may change while we search
+			fContent= fDocument instanceof IDocumentExtension5 ? ((IDocumentExtension5) fDocument).getSnapshot() : new DocumentCharSequence(fDocument);
+		}
+
+		/**
+		 * Returns the content of the document, which is taken on the UI thread when it is first
+		 * requested.
+		 *
+		 * @return the content of the document
+		 */
+		public CharSequence getContent() {
+			if (fContent == null) {
+				Runnable runnable= new Runnable() {
+					@Override
+					public void run() {
+						takeContent();
+					}
+				};
+				if (PlatformUI.isWorkbenchRunning())
+					PlatformUI.getWorkbench().getDisplay().syncExec(runnable);
+				else
+					runnable.run();
+			}
+			return fContent;
+		}
+	}
+
+	/**
+	 * A job to find matches in files. The jobs take the next group of files from a shared queue,
+	 * so a job that gets large files does not hold up the others, and help with the segments of
+	 * large files. When no files are left, a job waits for segments until no file is searched in
+	 * segments any more.
+	 */
+	private class TextSearchJob extends Job {
 		private FileCharSequenceProvider fileCharSequenceProvider;
 
 		private IPath previousLocationFromFile;
 		// occurences need to be passed to FileSearchResultCollector with growing offset
 		private List<TextSearchMatchAccess> occurencesForPreviousLocation;
 		private CharSequence charsequenceForPreviousLocation;
+		// whether the current file has the same location as the next one
+		private boolean fKeepOccurences;
+
+		/** Whether the job is counted as active. Protected by fSegments. */
+		private boolean fActive= true;
 
+		/** The time spent searching in nanoseconds, for tracing. */
+		private long fBusyTime;
+		private int fFileCount;
 
 		/**
-		 * Searches for matches in a set of files.
+		 * Searches for matches in the files of the shared queue.
 		 *
-		 * @param files an array of IFiles, a portion of which is to be processed
-		 * @param begin the first element in the file array to process
-		 * @param end one past the last element in the array to process
-		 * @param documentsInEditors a map from IFile to IDocument for all open, dirty editors
+		 * @param name the name of the job
 		 */
-		public TextSearchJob(IFile[] files, int begin, int end, Map<IFile, IDocument> documentsInEditors) {
-			super(files[begin].getName());
+		public TextSearchJob(String name) {
+			super(name);
 			setSystem(true);
-			fFiles = files;
-			fBegin = begin;
-			fEnd = end;
-			fDocumentsInEditors = documentsInEditors;
 		}
 
 		@Override
 		protected IStatus run(IProgressMonitor inner) {
 			MultiStatus multiStatus=
 					new MultiStatus(NewSearchUI.PLUGIN_ID, IStatus.OK, SearchMessages.TextSearchEngine_statusMessage, null);
-			SubMonitor subMonitor = SubMonitor.convert(inner, fEnd - fBegin);
 			this.fileCharSequenceProvider = new FileCharSequenceProvider();
-			for (int i = fBegin; i < fEnd && !fFatalError; i++) {
-				IStatus status= processFile(fFiles[i], subMonitor.split(1));
-				// Only accumulate interesting status
-				if (!status.isOK())
-					multiStatus.add(status);
-				// Group cancellation is propagated to this job's monitor.
-				// Stop processing and return the status for the completed jobs.
+			try {
+				while (!fFatalError) {
+					// Group cancellation is propagated to this job's monitor.
+					// Stop processing and return the status for the completed jobs.
+					if (inner.isCanceled())
+						throw new OperationCanceledException();
+					Segment segment= pollSegment();
+					if (segment == null && fNextFileGroup.get() >= fFileGroups.length) {
+						// other jobs may still offer segments of large files
+						segment= waitForSegment();
+						if (segment == null)
+							break;
+					}
+					long start= TRACING ? System.nanoTime() : 0;
+					if (segment != null) {
+						segment.run();
+					} else {
+						int group= fNextFileGroup.getAndIncrement();
+						if (group < fFileGroups.length) {
+							// the matches are only kept to report them for the other files of the group
+							fKeepOccurences= fFileGroups[group].fFiles.length > 1;
+							for (IFile file : fFileGroups[group].fFiles) {
+								IStatus status= processFile(file, inner);
+								// Only accumulate interesting status
+								if (!status.isOK())
+									multiStatus.add(status);
+								fFileCount++;
+							}
+						}
+					}
+					if (TRACING)
+						fBusyTime+= System.nanoTime() - start;
+				}
+			} finally {
+				synchronized (fSegments) {
+					deactivate();
+				}
+				if (charsequenceForPreviousLocation != null) {
+					try {
+						fileCharSequenceProvider.releaseCharSequence(charsequenceForPreviousLocation);
+					} catch (IOException e) {
+						SearchPlugin.log(e);
+					}
+				}
+				// the jobs are kept until the next search, do not keep mapped files alive
+				charsequenceForPreviousLocation= null;
+				occurencesForPreviousLocation= null;
+				previousLocationFromFile= null;
 			}
-			if (charsequenceForPreviousLocation != null) {
+			return multiStatus;
+		}
+
+		/**
+		 * Waits for a segment to search while files are searched in segments. If no file is
+		 * searched in segments any more, the job no longer counts as active, so that a job that
+		 * splits a file later on starts a new one.
+		 *
+		 * @return the segment, or <code>null</code> if the job is to end
+		 */
+		private Segment waitForSegment() {
+			synchronized (fSegments) {
 				try {
-					fileCharSequenceProvider.releaseCharSequence(charsequenceForPreviousLocation);
-				} catch (IOException e) {
-					SearchPlugin.log(e);
+					while (fSegments.isEmpty() && fSplitFiles > 0)
+						fSegments.wait();
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
 				}
+				Segment segment= fSegments.poll();
+				if (segment == null)
+					deactivate();
+				return segment;
+			}
+		}
+
+		private void deactivate() {
+			if (fActive) {
+				fActive= false;
+				fActiveJobs--;
 			}
-			return multiStatus;
 		}
 
 		public IStatus processFile(IFile file, IProgressMonitor monitor) {
@@ -209,11 +377,10 @@ public class TextSearchVisitor {
 					return Status.OK_STATUS;
 				}
 
-				IDocument document= getOpenDocument(file, getDocumentsInEditors());
-				if (document != null) {
-					DocumentCharSequence documentCharSequence= new DocumentCharSequence(document);
+				OpenDocument openDocument= fOpenDocuments.get(file);
+				if (openDocument != null) {
 					// assume all documents are non-binary
-					locateMatches(file, documentCharSequence, matcher, monitor);
+					locateMatches(file, openDocument.getContent(), matcher, false, false, monitor);
 				} else if (previousLocationFromFile != null && previousLocationFromFile.equals(file.getLocation()) && !occurencesForPreviousLocation.isEmpty()) {
 					// reuse previous result
 					ReusableMatchAccess matchAccess = new ReusableMatchAccess();
@@ -225,6 +392,13 @@ public class TextSearchVisitor {
 						}
 					}
 				} else {
+					// whether the index shows that the file does not contain a match, binary files are
+					// read anyway to be reported like without the index
+					boolean excluded= fIndex != null && fPrefilter != null && !fIndex.mayContain(file, fPrefilter);
+					if (excluded && isTextContentType(file)) {
+						// a text file is not reported as binary, no need to read it
+						return Status.OK_STATUS;
+					}
 					if (charsequenceForPreviousLocation != null) {
 						try {
 							fileCharSequenceProvider.releaseCharSequence(charsequenceForPreviousLocation);
@@ -233,13 +407,49 @@ public class TextSearchVisitor {
 							SearchPlugin.log(e);
 						}
 					}
+					MappedFileContent content= openMappedFileContent(file);
+					if (content != null) {
+						List<TextSearchMatchAccess> occurences= new ArrayList<>();
+						try {
+							// binary detection and prefiltering on the raw bytes, decode only when needed
+							previousLocationFromFile= file.getLocation();
+							if (!isTextContentType(file) && content.hasBinaryContent(FileCharSequenceProvider.BUFFER_SIZE) && !fCollector.reportBinaryFile(file)) {
+								occurencesForPreviousLocation= Collections.emptyList();
+								return Status.OK_STATUS;
+							}
+							if (excluded || fPrefilter != null && !content.mayContain(fPrefilter)) {
+								occurencesForPreviousLocation= Collections.emptyList();
+								return Status.OK_STATUS;
+							}
+							charsequenceForPreviousLocation= content.getCharSequence();
+							// ASCII content can be read concurrently, large files are split
+							locateMatches(file, charsequenceForPreviousLocation, matcher, content.isAscii(), occurences, monitor);
+							occurencesForPreviousLocation= fKeepOccurences && !occurences.isEmpty() ? occurences : Collections.emptyList();
+							return Status.OK_STATUS;
+						} catch (InternalError e) {
+							// the file has been truncated while it was mapped, reading the mapping faults
+							previousLocationFromFile= null;
+							charsequenceForPreviousLocation= null;
+							if (!occurences.isEmpty()) {
+								// matches have been reported already, reading the file again would report them twice
+								String[] args= { getExceptionMessage(e), file.getFullPath().makeRelative().toString() };
+								String message= Messages.format(SearchMessages.TextSearchVisitor_error, args);
+								return new Status(IStatus.ERROR, NewSearchUI.PLUGIN_ID, IStatus.ERROR, message, e);
+							}
+							// read the current content through the stream reader
+						}
+					}
 					try {
 						charsequenceForPreviousLocation= fileCharSequenceProvider.newCharSequence(file);
 						if (hasBinaryContent(charsequenceForPreviousLocation, file) && !fCollector.reportBinaryFile(file)) {
 							occurencesForPreviousLocation = Collections.emptyList();
 							return Status.OK_STATUS;
 						}
-						occurencesForPreviousLocation = locateMatches(file, charsequenceForPreviousLocation, matcher, monitor);
+						if (excluded) {
+							occurencesForPreviousLocation = Collections.emptyList();
+							return Status.OK_STATUS;
+						}
+						occurencesForPreviousLocation = locateMatches(file, charsequenceForPreviousLocation, matcher, false, fKeepOccurences, monitor);
 						previousLocationFromFile = file.getLocation();
 					} catch (FileCharSequenceProvider.FileCharSequenceException e) {
 						e.throwWrappedException();
@@ -277,15 +487,15 @@ public class TextSearchVisitor {
 			return Status.OK_STATUS;
 		}
 
-		public Map<IFile, IDocument> getDocumentsInEditors() {
-			return fDocumentsInEditors;
-		}
-
 	}
 
 
 	private final TextSearchRequestor fCollector;
 	private final Pattern fSearchPattern;
+	/** Literals of which every match contains one, or <code>null</code> if not known. */
+	private final LiteralPrefilter fPrefilter;
+	/** The index to skip files with, or <code>null</code> to read all files. */
+	private final TrigramIndex fIndex;
 
 	private IProgressMonitor fProgressMonitor;
 
@@ -297,13 +507,50 @@ public class TextSearchVisitor {
 	private final MultiStatus fStatus;
 	private volatile boolean fFatalError; // If true, terminates the search.
 
+	private int fMaxThreads;
+	/** The number of characters per segment when a large file is searched by several jobs. */
+	private int fSegmentSize= SEGMENT_SIZE;
+	/** The files to search, the largest first. */
+	private FileGroup[] fFileGroups;
+	/** The index of the next group to search. */
+	private final AtomicInteger fNextFileGroup= new AtomicInteger();
+	private JobGroup fJobGroup;
+	/** A map from IFile to its open document. */
+	private Map<IFile, OpenDocument> fOpenDocuments;
+	/** Segments of large files that wait for a job to search them. Protected by itself. */
+	private final ArrayDeque<Segment> fSegments= new ArrayDeque<>();
+	/** The scheduled jobs. Protected by fSegments. */
+	private final List<TextSearchJob> fJobs= new ArrayList<>();
+	/** The number of jobs that have not yet ended. Protected by fSegments. */
+	private int fActiveJobs;
+	/** The number of files that are currently searched in segments. Protected by fSegments. */
+	private int fSplitFiles;
+	/** The number of segments searched. Protected by fSegments. */
+	private int fNumberOfSegments;
+	/** The largest number of threads that searched one file. Protected by fSegments. */
+	private int fMaxThreadsPerFile;
+
 	private boolean fIsLightweightAutoRefresh;
 
 	public TextSearchVisitor(TextSearchRequestor collector, Pattern searchPattern) {
+		this(collector, searchPattern, null);
+	}
+
+	/**
+	 * Creates a visitor that skips the files for which the given index shows that they do not
+	 * contain a match.
+	 *
+	 * @param collector the requestor to report matches to
+	 * @param searchPattern the search pattern
+	 * @param index the index, or <code>null</code> to read all files
+	 */
+	public TextSearchVisitor(TextSearchRequestor collector, Pattern searchPattern, TrigramIndex index) {
 		fCollector= collector;
+		fIndex= index;
 		fStatus= new MultiStatus(NewSearchUI.PLUGIN_ID, IStatus.OK, SearchMessages.TextSearchEngine_statusMessage, null);
 
 		fSearchPattern= searchPattern;
+		fPrefilter= LiteralPrefilter.create(searchPattern);
 
 		fIsLightweightAutoRefresh= Platform.getPreferencesService().getBoolean(ResourcesPlugin.PI_RESOURCES, ResourcesPlugin.PREF_LIGHTWEIGHT_AUTO_REFRESH, false, null);
 	}
@@ -316,12 +563,19 @@ public class TextSearchVisitor {
 		fNumberOfScannedFiles= 0;
 		fNumberOfFilesToScan= files.length;
 		fCurrentFile= null;
-		int maxThreads= fCollector.canRunInParallel() ? NUMBER_OF_LOGICAL_THREADS : 1;
-		int jobCount= 1;
-		if (maxThreads > 1) {
-			jobCount= (files.length + FILES_PER_JOB - 1) / FILES_PER_JOB;
+		fMaxThreads= fCollector.canRunInParallel() ? NUMBER_OF_LOGICAL_THREADS : 1;
+		fFileGroups= groupFiles(files, fMaxThreads > 1);
+		fNextFileGroup.set(0);
+		synchronized (fSegments) {
+			fJobs.clear();
+			fActiveJobs= 0;
+			fNumberOfSegments= 0;
+			fMaxThreadsPerFile= 0;
 		}
-		final JobGroup jobGroup= new TextSearchJobGroup("Text Search", maxThreads, jobCount); //$NON-NLS-1$
+		// more jobs are started when a large file is searched in segments
+		int jobCount= Math.min(fMaxThreads, fFileGroups.length);
+		final JobGroup jobGroup= new TextSearchJobGroup("Text Search", fMaxThreads, jobCount); //$NON-NLS-1$
+		fJobGroup= jobGroup;
 		long startTime= TRACING ? System.currentTimeMillis() : 0;
 
 		Job monitorUpdateJob= new Job(SearchMessages.TextSearchVisitor_progress_updating_job) {
@@ -369,36 +623,8 @@ public class TextSearchVisitor {
 			monitorUpdateJob.schedule();
 			try {
 				fCollector.beginReporting();
-				Map<IFile, IDocument> documentsInEditors= PlatformUI.isWorkbenchRunning() ? evalNonFileBufferDocuments() : Collections.emptyMap();
-				int filesPerJob = (files.length + jobCount - 1) / jobCount;
-				IFile[] filesByLocation = new IFile[files.length];
-				System.arraycopy(files, 0, filesByLocation, 0, files.length);
-				// Sorting files to search by location allows to more easily reuse
-				// search results from one file to the other when they have same location
-				Arrays.sort(filesByLocation, new Comparator<IFile>() {
-					@Override
-					public int compare(IFile o1, IFile o2) {
-						if (o1 == o2) {
-							return 0;
-						}
-						if (o1.getLocation() == o2.getLocation()) {
-							return 0;
-						}
-						if (o1.getLocation() == null) {
-							return +1;
-						}
-						if (o2.getLocation() == null) {
-							return -1;
-						}
-						return o1.getLocation().toString().compareTo(o2.getLocation().toString());
-					}
-				});
-				for (int first= 0; first < filesByLocation.length; first += filesPerJob) {
-					int end= Math.min(filesByLocation.length, first + filesPerJob);
-					Job job= new TextSearchJob(filesByLocation, first, end, documentsInEditors);
-					job.setJobGroup(jobGroup);
-					job.schedule();
-				}
+				fOpenDocuments= evalOpenDocuments(files);
+				startJobs(jobCount);
 
 				// The monitorUpdateJob is managing progress and cancellation,
 				// so it is ok to pass a null monitor into the job group.
@@ -417,9 +643,11 @@ public class TextSearchVisitor {
 			fProgressMonitor.done();
 			fCollector.endReporting();
 			if (TRACING) {
-				Object[] args= { new Integer(fNumberOfScannedFiles), new Integer(jobCount), new Integer(NUMBER_OF_LOGICAL_THREADS), new Long(System.currentTimeMillis() - startTime) };
+				long duration= System.currentTimeMillis() - startTime;
+				Object[] args= { new Integer(fNumberOfScannedFiles), new Integer(getJobs().length), new Integer(NUMBER_OF_LOGICAL_THREADS), new Long(duration) };
 				System.out.println(Messages.format(
 						"[TextSearch] Search duration for {0} files in {1} jobs using {2} threads: {3}ms", args)); //$NON-NLS-1$
+				SearchPlugin.log(createUtilizationStatus(duration));
 			}
 	   }
 	}
@@ -428,6 +656,187 @@ public class TextSearchVisitor {
 		return search(scope.evaluateFilesInScope(fStatus), monitor);
 	}
 
+	/**
+	 * Sets the number of characters per segment when a large file is searched by several jobs.
+	 * Files are only split if they have more than two segments. Used by tests.
+	 *
+	 * @param segmentSize the number of characters per segment
+	 */
+	public void setSegmentSize(int segmentSize) {
+		fSegmentSize= segmentSize;
+	}
+
+	/**
+	 * Returns the largest number of threads that have searched the segments of one file during
+	 * the last search.
+	 *
+	 * @return the number of threads, <code>0</code> if no file has been split
+	 */
+	public int getMaxThreadsPerFile() {
+		synchronized (fSegments) {
+			return fMaxThreadsPerFile;
+		}
+	}
+
+	/**
+	 * Starts more jobs, as long as less than the maximal number of threads are in use.
+	 *
+	 * @param count the number of jobs to start at most
+	 */
+	private void startJobs(int count) {
+		synchronized (fSegments) {
+			for (int i= 0; i < count && fActiveJobs < fMaxThreads; i++) {
+				TextSearchJob job= new TextSearchJob("Text Search"); //$NON-NLS-1$
+				job.setJobGroup(fJobGroup);
+				fJobs.add(job);
+				fActiveJobs++;
+				job.schedule();
+			}
+		}
+	}
+
+	private TextSearchJob[] getJobs() {
+		synchronized (fSegments) {
+			return fJobs.toArray(new TextSearchJob[fJobs.size()]);
+		}
+	}
+
+	/**
+	 * Returns the utilization of the jobs of the last search, reported with the
+	 * <code>org.eclipse.search/perf</code> tracing option.
+	 *
+	 * @param duration the duration of the search in milliseconds
+	 * @return an info status with a child for each job
+	 */
+	private IStatus createUtilizationStatus(long duration) {
+		Object[] args;
+		synchronized (fSegments) {
+			args= new Object[] { new Integer(fNumberOfSegments), new Integer(fMaxThreadsPerFile) };
+		}
+		MultiStatus status= new MultiStatus(NewSearchUI.PLUGIN_ID, IStatus.INFO,
+				Messages.format("Text search job utilization, {0} segments searched by up to {1} threads per file", args), null); //$NON-NLS-1$
+		TextSearchJob[] jobs= getJobs();
+		for (int i= 0; i < jobs.length; i++) {
+			long busy= jobs[i].fBusyTime / 1000000;
+			Object[] jobArgs= { new Integer(i), new Long(busy), new Long(duration == 0 ? 100 : busy * 100 / duration), new Integer(jobs[i].fFileCount) };
+			status.add(new Status(IStatus.INFO, NewSearchUI.PLUGIN_ID,
+					Messages.format("Job {0}: busy {1}ms ({2}%), {3} files", jobArgs))); //$NON-NLS-1$
+		}
+		return status;
+	}
+
+	/**
+	 * Returns the next segment waiting to be searched.
+	 *
+	 * @return the segment, or <code>null</code> if no segment is waiting
+	 */
+	private Segment pollSegment() {
+		synchronized (fSegments) {
+			return fSegments.poll();
+		}
+	}
+
+	/**
+	 * Groups the files with the same location. When searching in parallel, the groups are sorted
+	 * by size so that the largest files are searched first and the jobs finish at about the same
+	 * time.
+	 *
+	 * @param files the files to search
+	 * @param sortBySize whether to sort by size
+	 * @return the groups in the order they are to be searched
+	 */
+	private static FileGroup[] groupFiles(IFile[] files, boolean sortBySize) {
+		IFile[] filesByLocation= new IFile[files.length];
+		System.arraycopy(files, 0, filesByLocation, 0, files.length);
+		// Sorting files to search by location allows to more easily reuse
+		// search results from one file to the other when they have same location
+		Arrays.sort(filesByLocation, new Comparator<IFile>() {
+			@Override
+			public int compare(IFile o1, IFile o2) {
+				if (o1 == o2) {
+					return 0;
+				}
+				if (o1.getLocation() == o2.getLocation()) {
+					return 0;
+				}
+				if (o1.getLocation() == null) {
+					return +1;
+				}
+				if (o2.getLocation() == null) {
+					return -1;
+				}
+				return o1.getLocation().toString().compareTo(o2.getLocation().toString());
+			}
+		});
+		List<FileGroup> groups= new ArrayList<>();
+		for (int first= 0; first < filesByLocation.length;) {
+			IPath location= filesByLocation[first].getLocation();
+			int end= first + 1;
+			if (location != null) {
+				while (end < filesByLocation.length && location.equals(filesByLocation[end].getLocation()))
+					end++;
+			}
+			long size= sortBySize && location != null ? location.toFile().length() : 0;
+			groups.add(new FileGroup(Arrays.copyOfRange(filesByLocation, first, end), size));
+			first= end;
+		}
+		if (sortBySize) {
+			Collections.sort(groups, new Comparator<FileGroup>() {
+				@Override
+				public int compare(FileGroup o1, FileGroup o2) {
+					return Long.compare(o2.fSize, o1.fSize);
+				}
+			});
+		}
+		return groups.toArray(new FileGroup[groups.size()]);
+	}
+
+	/**
+	 * Returns a map from IFile to its open document, for the given files that are open in a dirty
+	 * editor or a file buffer. The documents are looked up on the UI thread, their content is only
+	 * taken when a job reaches the file. If the search runs on the UI thread, the jobs cannot wait
+	 * for it, so the content is taken right away.
+	 *
+	 * @param files the files to search
+	 * @return a map from IFile to its open document
+	 */
+	private Map<IFile, OpenDocument> evalOpenDocuments(IFile[] files) {
+		final Map<IPath, IFile> filesByPath= new HashMap<>();
+		for (int i= 0; i < files.length; i++)
+			filesByPath.put(files[i].getFullPath(), files[i]);
+		final Map<IFile, OpenDocument> result= new HashMap<>();
+		final boolean isUIThread= PlatformUI.isWorkbenchRunning() && PlatformUI.getWorkbench().getDisplay().getThread() == Thread.currentThread();
+		Runnable runnable= new Runnable() {
+			@Override
+			public void run() {
+				if (PlatformUI.isWorkbenchRunning()) {
+					for (Map.Entry<IFile, IDocument> entry : evalNonFileBufferDocuments().entrySet()) {
+						if (filesByPath.containsKey(entry.getKey().getFullPath()))
+							add(entry.getKey(), entry.getValue());
+					}
+				}
+				IFileBuffer[] buffers= FileBuffers.getTextFileBufferManager().getFileBuffers();
+				for (int i= 0; i < buffers.length; i++) {
+					IFile file= filesByPath.get(buffers[i].getLocation());
+					if (file != null && buffers[i] instanceof ITextFileBuffer && !result.containsKey(file))
+						add(file, ((ITextFileBuffer) buffers[i]).getDocument());
+				}
+			}
+
+			private void add(IFile file, IDocument document) {
+				OpenDocument openDocument= new OpenDocument(document);
+				if (isUIThread)
+					openDocument.takeContent();
+				result.put(file, openDocument);
+			}
+		};
+		if (PlatformUI.isWorkbenchRunning())
+			PlatformUI.getWorkbench().getDisplay().syncExec(runnable);
+		else
+			runnable.run();
+		return result;
+	}
+
 	/**
 	 * Returns a map from IFile to IDocument for all open, dirty editors. After creation this map
 	 * is not modified, so returning a non-synchronized map is ok.
@@ -474,14 +883,37 @@ public class TextSearchVisitor {
 		}
 	}
 
-	private boolean hasBinaryContent(CharSequence seq, IFile file) throws CoreException {
+	/**
+	 * Opens the content of the given file for searching on raw bytes.
+	 *
+	 * @param file the file
+	 * @return the content, or <code>null</code> if the file has to be read through
+	 *         {@link FileCharSequenceProvider}
+	 * @throws CoreException if the encoding of the file cannot be determined
+	 * @throws IOException if the file cannot be read
+	 */
+	private MappedFileContent openMappedFileContent(IFile file) throws CoreException, IOException {
+		IPath location= file.getLocation();
+		if (location == null || !file.isSynchronized(IResource.DEPTH_ZERO))
+			return null;
+		return MappedFileContent.open(location.toFile(), file.getCharset());
+	}
+
+	private boolean isTextContentType(IFile file) throws CoreException {
 		IContentDescription desc= file.getContentDescription();
 		if (desc != null) {
 			IContentType contentType= desc.getContentType();
 			if (contentType != null && contentType.isKindOf(Platform.getContentTypeManager().getContentType(IContentTypeManager.CT_TEXT))) {
-				return false;
+				return true;
 			}
 		}
+		return false;
+	}
+
+	private boolean hasBinaryContent(CharSequence seq, IFile file) throws CoreException {
+		if (isTextContentType(file)) {
+			return false;
+		}
 
 		// avoid calling seq.length() at it runs through the complete file,
 		// thus it would do so for all binary files.
@@ -501,38 +933,210 @@ public class TextSearchVisitor {
 		return false;
 	}
 
-	private List<TextSearchMatchAccess> locateMatches(IFile file, CharSequence searchInput, Matcher matcher, IProgressMonitor monitor) throws CoreException {
-		List<TextSearchMatchAccess> occurences = null;
-		matcher.reset(searchInput);
+	/**
+	 * Reports the matches in the given input.
+	 *
+	 * @param file the file
+	 * @param searchInput the content of the file
+	 * @param matcher the matcher to use
+	 * @param splittable whether the input can be read by several threads, so that a large input
+	 *            can be searched in segments by the other jobs
+	 * @param keepOccurences whether to return the matches, otherwise they are only reported
+	 * @param monitor the progress monitor
+	 * @return the matches, or an empty list if they are not kept
+	 * @throws CoreException if the collector fails
+	 */
+	private List<TextSearchMatchAccess> locateMatches(IFile file, CharSequence searchInput, Matcher matcher, boolean splittable, boolean keepOccurences, IProgressMonitor monitor) throws CoreException {
+		List<TextSearchMatchAccess> occurences= keepOccurences ? new ArrayList<>() : null;
+		locateMatches(file, searchInput, matcher, splittable, occurences, monitor);
+		if (occurences == null || occurences.isEmpty()) {
+			occurences = Collections.emptyList();
+		}
+		return occurences;
+	}
+
+	/**
+	 * Reports the matches in the given input and adds them to the given list. A match is added
+	 * before it is reported.
+	 *
+	 * @param file the file
+	 * @param searchInput the content of the file
+	 * @param matcher the matcher to use
+	 * @param splittable whether the input can be read by several threads, so that a large input
+	 *            can be searched in segments by the other jobs
+	 * @param occurences the list to add the matches to, or <code>null</code> if they are only
+	 *            reported
+	 * @param monitor the progress monitor
+	 * @throws CoreException if the collector fails
+	 */
+	private void locateMatches(IFile file, CharSequence searchInput, Matcher matcher, boolean splittable, List<TextSearchMatchAccess> occurences, IProgressMonitor monitor) throws CoreException {
+		if (fPrefilter == null) {
+			matcher.reset(searchInput);
+			findMatches(file, searchInput, matcher, occurences, true, monitor);
+		} else if (fPrefilter.isLineLocal()) {
+			// matches do not span lines, only run the pattern on the lines that contain a literal
+			int length= searchInput.length();
+			if (splittable && fMaxThreads > 1 && length > 2 * fSegmentSize) {
+				locateMatchesInSegments(file, searchInput, occurences, monitor);
+			} else {
+				matcher.reset(searchInput);
+				findMatchesInCandidateLines(file, searchInput, matcher, 0, length, occurences, true, monitor);
+			}
+		} else if (fPrefilter.indexIn(searchInput, 0) != -1) {
+			matcher.reset(searchInput);
+			findMatches(file, searchInput, matcher, occurences, true, monitor);
+		}
+	}
+
+	/**
+	 * Searches a large input in segments that all jobs can work on, and reports the matches in
+	 * order when all segments are done. The current job helps until then.
+	 *
+	 * @param file the file
+	 * @param searchInput the content of the file, which can be read by several threads
+	 * @param occurences the list to add the matches to, or <code>null</code> if they are only
+	 *            reported
+	 * @param monitor the progress monitor
+	 * @throws CoreException if the collector fails
+	 */
+	private void locateMatchesInSegments(IFile file, CharSequence searchInput, List<TextSearchMatchAccess> occurences, IProgressMonitor monitor) throws CoreException {
+		int length= searchInput.length();
+		List<Integer> ends= new ArrayList<>();
+		for (int end= 0; end < length;) {
+			end= Math.min(end + fSegmentSize, length);
+			while (end < length && !LiteralPrefilter.isLineDelimiter(searchInput.charAt(end)))
+				end++;
+			ends.add(Integer.valueOf(end));
+		}
+		CountDownLatch done= new CountDownLatch(ends.size());
+		List<Segment> segments= new ArrayList<>(ends.size());
+		int start= 0;
+		for (Integer end : ends) {
+			segments.add(new Segment(file, searchInput, start, end.intValue(), done, monitor));
+			start= end.intValue();
+		}
+		synchronized (fSegments) {
+			fSegments.addAll(segments);
+			fNumberOfSegments+= segments.size();
+			fSplitFiles++;
+			fSegments.notifyAll();
+		}
+		// the current job searches segments as well
+		startJobs(segments.size() - 1);
+		try {
+			Segment segment;
+			while ((segment= pollSegment()) != null)
+				segment.run();
+			done.await();
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} finally {
+			synchronized (fSegments) {
+				fSplitFiles--;
+				fSegments.notifyAll();
+			}
+		}
+		Set<Thread> threads= new HashSet<>();
+		for (Segment each : segments)
+			threads.add(each.fThread);
+		synchronized (fSegments) {
+			fMaxThreadsPerFile= Math.max(fMaxThreadsPerFile, threads.size());
+		}
+		for (Segment each : segments) {
+			Throwable problem= each.fProblem;
+			if (problem instanceof CoreException)
+				throw (CoreException) problem;
+			if (problem instanceof RuntimeException)
+				throw (RuntimeException) problem;
+			if (problem instanceof Error)
+				throw (Error) problem;
+			for (TextSearchMatchAccess access : each.fOccurences) {
+				if (occurences != null)
+					occurences.add(access);
+				if (!fCollector.acceptPatternMatch(access))
+					return; // no further reporting requested
+			}
+			if (monitor.isCanceled())
+				return;
+		}
+	}
+
+	/**
+	 * Finds the matches on the lines of the given range that contain a literal of the
+	 * prefilter. The range must start at the start of a line and end at the end of a line.
+	 *
+	 * @param file the file
+	 * @param searchInput the content of the file
+	 * @param matcher the matcher on the search input
+	 * @param start the start of the range
+	 * @param end the end of the range, exclusive
+	 * @param occurences the list to add the matches to, or <code>null</code> if they are only
+	 *            reported
+	 * @param report whether to report the matches to the collector right away
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if no further matches should be reported
+	 * @throws CoreException if the collector fails
+	 */
+	private boolean findMatchesInCandidateLines(IFile file, CharSequence searchInput, Matcher matcher, int start, int end, List<TextSearchMatchAccess> occurences, boolean report, IProgressMonitor monitor) throws CoreException {
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		int from= start;
+		int k= 0;
+		int literalStart;
+		while (from <= end && (literalStart= fPrefilter.indexIn(searchInput, from, end)) != -1) {
+			int lineStart= literalStart;
+			while (lineStart > from && !LiteralPrefilter.isLineDelimiter(searchInput.charAt(lineStart - 1)))
+				lineStart--;
+			int lineEnd= literalStart;
+			while (lineEnd < end && !LiteralPrefilter.isLineDelimiter(searchInput.charAt(lineEnd)))
+				lineEnd++;
+			matcher.region(lineStart, lineEnd);
+			if (!findMatches(file, searchInput, matcher, occurences, report, monitor))
+				return false;
+			if (++k % 20 == 0 && monitor.isCanceled())
+				return false;
+			from= lineEnd + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the matches of the matcher in its current region.
+	 *
+	 * @param file the file
+	 * @param searchInput the content of the file
+	 * @param matcher the matcher on the search input
+	 * @param occurences the list to add the matches to, or <code>null</code> if they are only
+	 *            reported
+	 * @param report whether to report the matches to the collector right away
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if no further matches should be reported
+	 * @throws CoreException if the collector fails
+	 */
+	private boolean findMatches(IFile file, CharSequence searchInput, Matcher matcher, List<TextSearchMatchAccess> occurences, boolean report, IProgressMonitor monitor) throws CoreException {
 		int k= 0;
 		while (matcher.find()) {
-			if (occurences == null) {
-				occurences = new ArrayList<>();
-			}
 			int start= matcher.start();
 			int end= matcher.end();
 			if (end != start) { // don't report 0-length matches
 				ReusableMatchAccess access = new ReusableMatchAccess();
 				access.initialize(file, start, end - start, searchInput);
-				occurences.add(access);
-				boolean res= fCollector.acceptPatternMatch(access);
-				if (!res) {
-					return occurences; // no further reporting requested
+				if (occurences != null)
+					occurences.add(access);
+				if (report && !fCollector.acceptPatternMatch(access)) {
+					return false; // no further reporting requested
 				}
 			}
 			// Periodically check for cancellation and quit working on the current file if the job has been cancelled.
 			if (++k % 20 == 0 && monitor.isCanceled()) {
-				break;
+				return false;
 			}
 		}
-		if (occurences == null) {
-			occurences = Collections.emptyList();
-		}
-		return occurences;
+		return true;
 	}
 
 
-	private String getExceptionMessage(Exception e) {
+	private String getExceptionMessage(Throwable e) {
 		String message= e.getLocalizedMessage();
 		if (message == null) {
 			return e.getClass().getName();
@@ -540,18 +1144,6 @@ public class TextSearchVisitor {
 		return message;
 	}
 
-	private IDocument getOpenDocument(IFile file, Map<IFile, IDocument> documentsInEditors) {
-		IDocument document= documentsInEditors.get(file);
-		if (document == null) {
-			ITextFileBufferManager bufferManager= FileBuffers.getTextFileBufferManager();
-			ITextFileBuffer textFileBuffer= bufferManager.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
-			if (textFileBuffer != null) {
-				document= textFileBuffer.getDocument();
-			}
-		}
-		return document;
-	}
-
 	private String getCharSetName(IFile file) {
 		try {
 			return file.getCharset();
@@ -0,0 +1,679 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.search.internal.core.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.search.internal.ui.SearchMessages;
+import org.eclipse.search.internal.ui.SearchPlugin;
+
+/**
+ * An index of the trigrams (sequences of three characters) that occur in the files of the
+ * workspace. A file that lacks a trigram of a literal cannot contain the literal, so it does not
+ * have to be read when searching for a pattern whose matches all contain one of some literals (see
+ * {@link LiteralPrefilter}).
+ * <p>
+ * The index is kept on local disk and is updated from resource deltas by a background job. Each
+ * file is indexed with its modification stamp and encoding. A file that is not indexed or whose
+ * index entry is stale, because the file has changed since it has been indexed or is out of sync
+ * with the local file system, is always searched, so the results are the same as without the
+ * index.
+ * </p>
+ * <p>
+ * Trigrams are indexed case folded and hashed to 16 bits. Per file, the hashes are stored as a
+ * sorted array or, for files with many different trigrams, as a bitmap, which limits the size of a
+ * file's trigrams to 8K.
+ * </p>
+ * <p>
+ * The index file is a log to which the update job appends a record for each indexed file, so
+ * updates are saved right away. Only the location of the latest record of each file is kept in
+ * memory, the trigrams are read from the file when needed. Records that have been superseded are
+ * removed by rewriting the file once they take more space than the current ones.
+ * </p>
+ */
+public class TrigramIndex implements IResourceChangeListener {
+
+	private static final String INDEX_FILE_NAME= "trigram.index"; //$NON-NLS-1$
+	private static final int FORMAT_VERSION= 2;
+	/** Larger files are not indexed and always searched. */
+	private static final long MAX_FILE_SIZE= 64 << 20;
+	/** The delay before indexing changed files, to collect subsequent changes. */
+	private static final long UPDATE_DELAY= 1000;
+	/** The index file is not rewritten while superseded records take less space. */
+	private static final long MIN_GARBAGE= 1 << 20;
+
+	private static TrigramIndex fgDefault;
+
+	private final File fIndexFile;
+	/** The latest record of each indexed file. Only changed by the update job. */
+	private final Map<IPath, Entry> fEntries= new ConcurrentHashMap<>();
+	/** The files to (re-)index or to remove from the index, guarded by itself. */
+	private final Set<IFile> fPending= new LinkedHashSet<>();
+	private final UpdateJob fUpdateJob= new UpdateJob();
+	/** Whether the workspace has to be checked for files that are not indexed. */
+	private volatile boolean fReconcile;
+
+	/* The following fields are only accessed by the update job. */
+	/** The opened index file, or <code>null</code> if not yet opened. */
+	private FileChannel fChannel;
+	/** The size of the index file. */
+	private long fSize;
+	/** The size of the records in the index file that have been superseded. */
+	private long fGarbage;
+
+	/**
+	 * Returns the shared index of the workspace, which is started on first access.
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized TrigramIndex getDefault() {
+		if (fgDefault == null) {
+			fgDefault= new TrigramIndex(SearchPlugin.getDefault().getStateLocation().append(INDEX_FILE_NAME).toFile());
+			fgDefault.start();
+		}
+		return fgDefault;
+	}
+
+	/**
+	 * Stops the shared index if it has been started.
+	 */
+	public static synchronized void shutdown() {
+		if (fgDefault != null) {
+			fgDefault.stop();
+			fgDefault= null;
+		}
+	}
+
+	/**
+	 * Creates an index that is stored in the given file.
+	 *
+	 * @param indexFile the file to store the index in
+	 */
+	public TrigramIndex(File indexFile) {
+		fIndexFile= indexFile;
+	}
+
+	/**
+	 * Starts to keep the index up to date. The index file is read by the update job, until then
+	 * all files are searched.
+	 */
+	public void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		// changes while the index was not running are only known from the modification stamps
+		fReconcile= true;
+		fUpdateJob.schedule();
+	}
+
+	/**
+	 * Stops to update the index and closes the index file.
+	 */
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		fUpdateJob.cancel();
+		try {
+			fUpdateJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		close();
+	}
+
+	/**
+	 * Waits until the pending updates of the index have been done.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void join() throws InterruptedException {
+		fUpdateJob.wakeUp();
+		fUpdateJob.join();
+	}
+
+	/**
+	 * Returns whether the given file may contain one of the literals of the given prefilter.
+	 *
+	 * @param file the file
+	 * @param prefilter the literals to look for
+	 * @return <code>false</code> if the file is indexed, the index entry is up to date and it
+	 *         shows that none of the literals occurs in the file
+	 */
+	public boolean mayContain(IFile file, LiteralPrefilter prefilter) {
+		Entry entry= fEntries.get(file.getFullPath());
+		if (entry == null || entry.fModificationStamp != file.getModificationStamp() || !file.isSynchronized(IResource.DEPTH_ZERO))
+			return true;
+		TrigramSet trigrams;
+		try {
+			if (!entry.fCharset.equals(file.getCharset()))
+				return true;
+			trigrams= TrigramSet.read(entry.fChannel, entry.fTrigramsOffset);
+		} catch (CoreException | IOException e) {
+			// e.g. the index file has been rewritten meanwhile
+			return true;
+		}
+		for (String literal : prefilter.getLiterals()) {
+			if (trigrams.mayContain(literal))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta= event.getDelta();
+		if (delta == null)
+			return;
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				@Override
+				public boolean visit(IResourceDelta child) {
+					IResource resource= child.getResource();
+					if (resource.getType() != IResource.FILE)
+						return true;
+					if (child.getKind() == IResourceDelta.ADDED || child.getKind() == IResourceDelta.REMOVED || (child.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING)) != 0) {
+						synchronized (fPending) {
+							fPending.add((IFile) resource);
+						}
+					}
+					return false;
+				}
+			});
+		} catch (CoreException e) {
+			SearchPlugin.log(e);
+		}
+		synchronized (fPending) {
+			if (!fPending.isEmpty())
+				fUpdateJob.schedule(UPDATE_DELAY);
+		}
+	}
+
+	/**
+	 * Adds the files of the workspace that are not indexed or whose entries are stale to the
+	 * pending files, and removes the entries of files that no longer exist.
+	 *
+	 * @throws CoreException if the workspace cannot be visited
+	 */
+	private void reconcile() throws CoreException {
+		final Set<IPath> existing= new LinkedHashSet<>();
+		ResourcesPlugin.getWorkspace().getRoot().accept(new IResourceProxyVisitor() {
+			@Override
+			public boolean visit(IResourceProxy proxy) {
+				if (proxy.getType() != IResource.FILE)
+					return true;
+				IPath path= proxy.requestFullPath();
+				existing.add(path);
+				Entry entry= fEntries.get(path);
+				if (entry == null || entry.fModificationStamp != proxy.getModificationStamp()) {
+					synchronized (fPending) {
+						fPending.add((IFile) proxy.requestResource());
+					}
+				}
+				return false;
+			}
+		}, IResource.NONE);
+		for (Iterator<Map.Entry<IPath, Entry>> iterator= fEntries.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<IPath, Entry> entry= iterator.next();
+			if (!existing.contains(entry.getKey())) {
+				fGarbage+= entry.getValue().fLength;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Indexes the given file or removes it from the index if it does not exist anymore.
+	 *
+	 * @param file the file
+	 * @throws IOException if the index file cannot be written
+	 */
+	private void update(IFile file) throws IOException {
+		IPath path= file.getFullPath();
+		Entry old= fEntries.remove(path);
+		if (old != null)
+			fGarbage+= old.fLength;
+		TrigramSet trigrams;
+		long modificationStamp;
+		String charset;
+		try {
+			// take the stamp first, a concurrent change makes the entry stale
+			modificationStamp= file.getModificationStamp();
+			charset= file.exists() ? file.getCharset() : null;
+			trigrams= charset != null ? computeTrigrams(file) : null;
+		} catch (CoreException | IOException e) {
+			// not indexed, the file will be searched
+			return;
+		}
+		if (trigrams != null)
+			append(path, modificationStamp, charset, trigrams);
+	}
+
+	private TrigramSet computeTrigrams(IFile file) throws CoreException, IOException {
+		IPath location= file.getLocation();
+		if (location == null || !file.isSynchronized(IResource.DEPTH_ZERO))
+			return null;
+		File localFile= location.toFile();
+		if (localFile.length() > MAX_FILE_SIZE)
+			return null;
+
+		TrigramSet.Builder builder= new TrigramSet.Builder();
+		char[] buffer= new char[8192];
+		try (Reader reader= new InputStreamReader(new FileInputStream(localFile), file.getCharset())) {
+			int read;
+			while ((read= reader.read(buffer)) != -1)
+				builder.add(buffer, read);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Appends a record for the given file to the index file and makes it the file's entry.
+	 *
+	 * @param path the full path of the file
+	 * @param modificationStamp the modification stamp of the file
+	 * @param charset the encoding of the file
+	 * @param trigrams the trigrams of the file
+	 * @throws IOException if the index file cannot be written
+	 */
+	private void append(IPath path, long modificationStamp, String charset, TrigramSet trigrams) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		DataOutputStream out= new DataOutputStream(bytes);
+		out.writeUTF(path.toString());
+		out.writeLong(modificationStamp);
+		out.writeUTF(charset);
+		int trigramsOffset= out.size();
+		trigrams.write(out);
+		out.flush();
+
+		long offset= fSize;
+		write(fChannel, ByteBuffer.wrap(bytes.toByteArray()), offset);
+		fSize= offset + bytes.size();
+		Entry old= fEntries.put(path, new Entry(modificationStamp, charset.intern(), fChannel, offset + trigramsOffset, bytes.size()));
+		if (old != null)
+			fGarbage+= old.fLength;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position+= channel.write(buffer, position);
+	}
+
+	/**
+	 * Opens the index file and reads the entries from it. An index file with a different format is
+	 * discarded, an incomplete last record is cut off.
+	 *
+	 * @throws IOException if the index file cannot be read
+	 */
+	private void open() throws IOException {
+		fEntries.clear();
+		fGarbage= 0;
+		FileChannel channel= FileChannel.open(fIndexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		fChannel= channel;
+		fSize= 0;
+		CountingInputStream counter= new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		DataInputStream in= new DataInputStream(counter);
+		try {
+			// the stream is not closed, it would close the channel
+			boolean isCurrentFormat= in.readInt() == FORMAT_VERSION;
+			while (isCurrentFormat) {
+				fSize= counter.fCount;
+				IPath path= new Path(in.readUTF());
+				long modificationStamp= in.readLong();
+				String charset= in.readUTF();
+				long trigramsOffset= counter.fCount;
+				TrigramSet.skip(in);
+				int length= (int) (counter.fCount - fSize);
+				Entry old= fEntries.put(path, new Entry(modificationStamp, charset.intern(), channel, trigramsOffset, length));
+				if (old != null)
+					fGarbage+= old.fLength;
+			}
+		} catch (EOFException | UTFDataFormatException e) {
+			// end of file, or an incomplete record
+		}
+		if (fSize == 0) {
+			ByteBuffer header= ByteBuffer.allocate(4);
+			header.putInt(0, FORMAT_VERSION);
+			write(channel, header, 0);
+			fSize= 4;
+		}
+		channel.truncate(fSize);
+	}
+
+	/**
+	 * Rewrites the index file with the current records only.
+	 *
+	 * @throws IOException if the index file cannot be rewritten
+	 */
+	private void compact() throws IOException {
+		File tempFile= new File(fIndexFile.getPath() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			out.writeInt(FORMAT_VERSION);
+			for (Map.Entry<IPath, Entry> entry : fEntries.entrySet()) {
+				Entry value= entry.getValue();
+				TrigramSet trigrams= TrigramSet.read(value.fChannel, value.fTrigramsOffset);
+				out.writeUTF(entry.getKey().toString());
+				out.writeLong(value.fModificationStamp);
+				out.writeUTF(value.fCharset);
+				trigrams.write(out);
+			}
+		}
+		close();
+		Files.move(tempFile.toPath(), fIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		open();
+	}
+
+	/**
+	 * Closes the index file. The entries remain, but reading their trigrams fails.
+	 */
+	private void close() {
+		if (fChannel == null)
+			return;
+		try {
+			fChannel.close();
+		} catch (IOException e) {
+			SearchPlugin.log(e);
+		}
+		fChannel= null;
+	}
+
+	/**
+	 * The location of the latest record of a file in the index file.
+	 */
+	private static final class Entry {
+
+		final long fModificationStamp;
+		final String fCharset;
+		/** The index file that contains the record, closed when the file is rewritten. */
+		final FileChannel fChannel;
+		final long fTrigramsOffset;
+		/** The length of the whole record. */
+		final int fLength;
+
+		Entry(long modificationStamp, String charset, FileChannel channel, long trigramsOffset, int length) {
+			fModificationStamp= modificationStamp;
+			fCharset= charset;
+			fChannel= channel;
+			fTrigramsOffset= trigramsOffset;
+			fLength= length;
+		}
+	}
+
+	/**
+	 * Counts the bytes read from a stream.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+
+		long fCount;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read= super.read();
+			if (read != -1)
+				fCount++;
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read= super.read(b, off, len);
+			if (read > 0)
+				fCount+= read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped= super.skip(n);
+			fCount+= skipped;
+			return skipped;
+		}
+	}
+
+	/**
+	 * The hashes of the case folded trigrams of a text.
+	 */
+	static final class TrigramSet {
+
+		private static final int HASH_COUNT= 1 << 16;
+		/** Sets with more hashes are stored as bitmap, which then takes less space. */
+		private static final int MAX_SORTED= HASH_COUNT / 16;
+
+		private final char[] fSorted;
+		private final long[] fBitmap;
+
+		private TrigramSet(char[] sorted, long[] bitmap) {
+			fSorted= sorted;
+			fBitmap= bitmap;
+		}
+
+		static int hash(char c0, char c1, char c2) {
+			int hash= ((c0 << 16) | c1) * 0x9E3779B1 + c2 * 0x85EBCA6B;
+			return (hash ^ (hash >>> 16)) & (HASH_COUNT - 1);
+		}
+
+		boolean contains(int hash) {
+			if (fSorted != null)
+				return Arrays.binarySearch(fSorted, (char) hash) >= 0;
+			return (fBitmap[hash >>> 6] & (1L << hash)) != 0;
+		}
+
+		/**
+		 * Returns whether the text from which this set has been built may contain the given text.
+		 *
+		 * @param text the text to look for
+		 * @return <code>false</code> if a trigram of the text is missing
+		 */
+		boolean mayContain(String text) {
+			if (text.length() < 3)
+				return true;
+			char c0= LiteralPrefilter.fold(text.charAt(0));
+			char c1= LiteralPrefilter.fold(text.charAt(1));
+			for (int i= 2; i < text.length(); i++) {
+				char c2= LiteralPrefilter.fold(text.charAt(i));
+				if (!contains(hash(c0, c1, c2)))
+					return false;
+				c0= c1;
+				c1= c2;
+			}
+			return true;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			if (fSorted != null) {
+				out.writeInt(fSorted.length);
+				for (char hash : fSorted)
+					out.writeChar(hash);
+			} else {
+				out.writeInt(-1);
+				for (long bits : fBitmap)
+					out.writeLong(bits);
+			}
+		}
+
+		/**
+		 * Reads a set that has been written at the given position of a file.
+		 *
+		 * @param channel the file
+		 * @param position the position of the set
+		 * @return the set
+		 * @throws IOException if the set cannot be read
+		 */
+		static TrigramSet read(FileChannel channel, long position) throws IOException {
+			ByteBuffer header= ByteBuffer.allocate(4);
+			readFully(channel, header, position);
+			int length= header.getInt(0);
+			if (length > MAX_SORTED || length < -1)
+				throw new IOException("Invalid trigram set"); //$NON-NLS-1$
+			ByteBuffer buffer= ByteBuffer.allocate(length >= 0 ? length * 2 : HASH_COUNT / 8);
+			readFully(channel, buffer, position + 4);
+			buffer.flip();
+			if (length >= 0) {
+				char[] sorted= new char[length];
+				buffer.asCharBuffer().get(sorted);
+				return new TrigramSet(sorted, null);
+			}
+			long[] bitmap= new long[HASH_COUNT / 64];
+			buffer.asLongBuffer().get(bitmap);
+			return new TrigramSet(null, bitmap);
+		}
+
+		private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+			while (buffer.hasRemaining()) {
+				int read= channel.read(buffer, position);
+				if (read < 0)
+					throw new EOFException();
+				position+= read;
+			}
+		}
+
+		/**
+		 * Skips a set in the given stream.
+		 *
+		 * @param in the stream
+		 * @throws IOException if the set cannot be skipped
+		 */
+		static void skip(DataInputStream in) throws IOException {
+			int length= in.readInt();
+			if (length > MAX_SORTED || length < -1)
+				throw new EOFException();
+			int bytes= length >= 0 ? length * 2 : HASH_COUNT / 8;
+			if (in.skipBytes(bytes) != bytes)
+				throw new EOFException();
+		}
+
+		/**
+		 * Collects the trigrams of a text that is passed in chunks.
+		 */
+		static final class Builder {
+
+			private final long[] fBitmap= new long[HASH_COUNT / 64];
+			private char fChar0;
+			private char fChar1;
+			private int fLength;
+
+			void add(char[] chars, int length) {
+				for (int i= 0; i < length; i++) {
+					char ch= LiteralPrefilter.fold(chars[i]);
+					if (++fLength >= 3) {
+						int hash= hash(fChar0, fChar1, ch);
+						fBitmap[hash >>> 6]|= 1L << hash;
+					}
+					fChar0= fChar1;
+					fChar1= ch;
+				}
+			}
+
+			TrigramSet build() {
+				int count= 0;
+				for (long bits : fBitmap)
+					count+= Long.bitCount(bits);
+				if (count > MAX_SORTED)
+					return new TrigramSet(null, fBitmap.clone());
+				char[] sorted= new char[count];
+				int index= 0;
+				for (int hash= 0; hash < HASH_COUNT; hash++) {
+					if ((fBitmap[hash >>> 6] & (1L << hash)) != 0)
+						sorted[index++]= (char) hash;
+				}
+				return new TrigramSet(sorted, null);
+			}
+		}
+	}
+
+	private final class UpdateJob extends Job {
+
+		public UpdateJob() {
+			super(SearchMessages.TrigramIndex_update_job);
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				if (fChannel == null || !fChannel.isOpen())
+					open();
+				if (fReconcile) {
+					fReconcile= false;
+					try {
+						reconcile();
+					} catch (CoreException e) {
+						SearchPlugin.log(e);
+					}
+				}
+				while (!monitor.isCanceled()) {
+					IFile file;
+					synchronized (fPending) {
+						Iterator<IFile> iterator= fPending.iterator();
+						if (!iterator.hasNext())
+							break;
+						file= iterator.next();
+						iterator.remove();
+					}
+					update(file);
+				}
+				if (fGarbage > MIN_GARBAGE && fGarbage > fSize / 2)
+					compact();
+			} catch (IOException e) {
+				// the index is read again on the next run, files that could not be indexed are searched
+				SearchPlugin.log(e);
+				close();
+				fReconcile= true;
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+}
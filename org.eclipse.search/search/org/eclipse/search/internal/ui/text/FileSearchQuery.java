@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,12 +47,22 @@ public class FileSearchQuery implements ISearchQuery {
 
 	private final static class TextSearchResultCollector extends TextSearchRequestor {
 
+		/**
+		 * The matches are passed to the result in batches of this size, or when the last batch
+		 * is older than {@link #FLUSH_INTERVAL}, so that the result and the search view are not
+		 * updated for every file.
+		 */
+		private static final int FLUSH_SIZE= 1000;
+		private static final long FLUSH_INTERVAL= 200;
+
 		private final AbstractTextSearchResult fResult;
 		private final boolean fIsFileSearchOnly;
 		private final boolean fSearchInBinaries;
 
 		private final boolean fIsLightweightAutoRefresh;
 		private Map<IFile, ArrayList<FileMatch>> fCachedMatches;
+		private int fCachedMatchCount; // Protected by fLock
+		private long fLastFlush; // Protected by fLock
 		private Object fLock= new Object();
 
 		private TextSearchResultCollector(AbstractTextSearchResult result, boolean isFileSearchOnly, boolean searchInBinaries) {
@@ -78,7 +88,11 @@ public class FileSearchQuery implements ISearchQuery {
 					fResult.addMatch(new FileMatch(file));
 				}
 			}
-			flushMatches();
+			synchronized (fLock) {
+				if (fCachedMatchCount >= FLUSH_SIZE || System.currentTimeMillis() - fLastFlush >= FLUSH_INTERVAL) {
+					flushMatches();
+				}
+			}
 			return true;
 		}
 
@@ -126,6 +140,7 @@ public class FileSearchQuery implements ISearchQuery {
 						fCachedMatches.put(matchRequestor.getFile(), matches);
 					}
 					matches.add(fileMatch);
+					fCachedMatchCount++;
 				}
 			}
 			return true;
@@ -189,6 +204,8 @@ public class FileSearchQuery implements ISearchQuery {
 		@Override
 		public void beginReporting() {
 			fCachedMatches= new HashMap<>();
+			fCachedMatchCount= 0;
+			fLastFlush= System.currentTimeMillis();
 		}
 
 		@Override
@@ -209,6 +226,8 @@ public class FileSearchQuery implements ISearchQuery {
 					}
 					fCachedMatches.clear();
 				}
+				fCachedMatchCount= 0;
+				fLastFlush= System.currentTimeMillis();
 			}
 		}
 	}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.projection.ProjectionDocument;
+import org.eclipse.jface.text.projection.ProjectionDocumentManager;
+
+/**
+ * Compares the time needed to fold many regions of a large document one by one with replacing
+ * all ranges of the projection at once. Not part of the default test suite, see
+ * {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class ProjectionFoldingPerformanceTest {
+
+	private static final int FOLDS= 20000;
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+
+	private IDocument fMasterDocument;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < FOLDS; i++) {
+			content.append("visible ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+		}
+		fMasterDocument= new Document(content.toString());
+	}
+
+	private ProjectionDocument createSlaveDocument() throws Exception {
+		ProjectionDocument slave= (ProjectionDocument) new ProjectionDocumentManager().createSlaveDocument(fMasterDocument);
+		slave.addMasterDocumentRange(0, fMasterDocument.getLength());
+		return slave;
+	}
+
+	@Test
+	public void testFolding() throws Exception {
+		IRegion[] visible= new IRegion[FOLDS];
+		for (int i= 0; i < FOLDS; i++) {
+			int offset= fMasterDocument.getLineOffset(3 * i);
+			visible[i]= new Region(offset, fMasterDocument.getLineOffset(3 * i + 1) - offset);
+		}
+
+		long oneByOne= Long.MAX_VALUE;
+		long replacing= Long.MAX_VALUE;
+		for (int run= 0; run < RUNS; run++) {
+			ProjectionDocument folded= createSlaveDocument();
+			long start= System.nanoTime();
+			for (int i= 0; i < FOLDS; i++) {
+				int offset= fMasterDocument.getLineOffset(3 * i + 1);
+				int end= fMasterDocument.getLineOffset(3 * i + 3);
+				folded.removeMasterDocumentRange(offset, end - offset);
+			}
+			oneByOne= Math.min(oneByOne, System.nanoTime() - start);
+
+			ProjectionDocument replaced= createSlaveDocument();
+			start= System.nanoTime();
+			replaced.replaceMasterDocumentRanges(visible);
+			replacing= Math.min(replacing, System.nanoTime() - start);
+
+			assertEquals(folded.get(), replaced.get());
+		}
+		assertTrue(FOLDS + " folds: replacing all ranges " + replacing / 1000000 + " ms, removing ranges one by one " + oneByOne / 1000000 + " ms", replacing < oneByOne);
+	}
+}
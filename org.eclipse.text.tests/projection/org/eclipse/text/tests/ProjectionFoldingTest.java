@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentInformationMapping;
+import org.eclipse.jface.text.IDocumentInformationMappingExtension;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.projection.ProjectionDocument;
+import org.eclipse.jface.text.projection.ProjectionDocumentManager;
+
+/**
+ * Folds and unfolds many regions of a large document and checks the projection.
+ *
+ * @since 3.6
+ */
+public class ProjectionFoldingTest {
+
+	private static final int FOLDS= 5000;
+
+	private IDocument fMasterDocument;
+	private ProjectionDocument fSlaveDocument;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < FOLDS; i++) {
+			content.append("visible ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+			content.append("\tfolded ").append(i).append('\n');
+		}
+		fMasterDocument= new Document(content.toString());
+		fSlaveDocument= (ProjectionDocument) new ProjectionDocumentManager().createSlaveDocument(fMasterDocument);
+		fSlaveDocument.addMasterDocumentRange(0, fMasterDocument.getLength());
+	}
+
+	private String getFoldedContent() throws Exception {
+		StringBuffer content= new StringBuffer();
+		for (int i= 0; i < fMasterDocument.getNumberOfLines(); i += 3) {
+			IRegion line= fMasterDocument.getLineInformation(i);
+			content.append(fMasterDocument.get(line.getOffset(), line.getLength()));
+			if (i + 1 < fMasterDocument.getNumberOfLines())
+				content.append('\n');
+		}
+		return content.toString();
+	}
+
+	private void fold() throws Exception {
+		for (int i= 0; i < FOLDS; i++) {
+			int offset= fMasterDocument.getLineOffset(3 * i + 1);
+			int end= fMasterDocument.getLineOffset(3 * i + 3);
+			fSlaveDocument.removeMasterDocumentRange(offset, end - offset);
+		}
+	}
+
+	@Test
+	public void testFolding() throws Exception {
+		fold();
+		String folded= getFoldedContent();
+		assertEquals(folded.length(), fSlaveDocument.getLength());
+		assertEquals(folded, fSlaveDocument.get());
+
+		IDocumentInformationMapping mapping= fSlaveDocument.getDocumentInformationMapping();
+		assertEquals(folded.length(), ((IDocumentInformationMappingExtension) mapping).getImageLength());
+		for (int i= 0; i < FOLDS; i++) {
+			assertEquals(fMasterDocument.getLineOffset(3 * i), mapping.toOriginOffset(fSlaveDocument.getLineOffset(i)));
+			assertEquals(i, mapping.toImageLine(3 * i));
+			assertEquals(-1, mapping.toImageLine(3 * i + 1));
+		}
+
+		int lines= fSlaveDocument.getNumberOfLines();
+		for (int i= 0; i < lines; i++) {
+			IRegion line= fSlaveDocument.getLineInformation(i);
+			for (int k= 0; k < line.getLength(); k++)
+				assertEquals(folded.charAt(line.getOffset() + k), fSlaveDocument.getChar(line.getOffset() + k));
+		}
+
+		// edit inside the folded document
+		int offset= fSlaveDocument.getLineOffset(FOLDS / 2);
+		fSlaveDocument.replace(offset, 0, "edited ");
+		folded= folded.substring(0, offset) + "edited " + folded.substring(offset);
+		assertEquals(folded.length(), fSlaveDocument.getLength());
+		assertEquals(folded, fSlaveDocument.get());
+
+		fSlaveDocument.addMasterDocumentRange(0, fMasterDocument.getLength());
+		assertEquals(fMasterDocument.get(), fSlaveDocument.get());
+		assertEquals(fMasterDocument.getLength(), fSlaveDocument.getLength());
+	}
+
+	@Test
+	public void testReplaceMasterDocumentRanges() throws Exception {
+		fold();
+		String folded= getFoldedContent();
+
+		ProjectionDocument slave= (ProjectionDocument) new ProjectionDocumentManager().createSlaveDocument(fMasterDocument);
+		slave.addMasterDocumentRange(0, fMasterDocument.getLength());
+		final int[] events= new int[1];
+		slave.addDocumentListener(new IDocumentListener() {
+			@Override
+			public void documentAboutToBeChanged(DocumentEvent event) {
+			}
+
+			@Override
+			public void documentChanged(DocumentEvent event) {
+				events[0]++;
+			}
+		});
+
+		IRegion[] visible= new IRegion[2 * FOLDS];
+		for (int i= 0; i < FOLDS; i++) {
+			int offset= fMasterDocument.getLineOffset(3 * i);
+			int end= fMasterDocument.getLineOffset(3 * i + 1);
+			visible[2 * i]= new Region(offset, end - offset);
+			// adjacent and empty ranges are allowed
+			visible[2 * i + 1]= new Region(end, 0);
+		}
+		slave.replaceMasterDocumentRanges(visible);
+
+		assertEquals(1, events[0]);
+		assertEquals(folded, slave.get());
+		assertEquals(fSlaveDocument.get(), slave.get());
+		IDocumentInformationMapping mapping= slave.getDocumentInformationMapping();
+		for (int i= 0; i < FOLDS; i++) {
+			assertEquals(fMasterDocument.getLineOffset(3 * i), mapping.toOriginOffset(slave.getLineOffset(i)));
+			assertEquals(i, mapping.toImageLine(3 * i));
+			assertEquals(-1, mapping.toImageLine(3 * i + 1));
+		}
+		assertEquals(fSlaveDocument.getLength(), ((IDocumentInformationMappingExtension) mapping).getImageLength());
+
+		// the projection follows changes of the master document
+		fMasterDocument.replace(fMasterDocument.getLineOffset(6), 0, "x");
+		assertEquals(getFoldedContent(), slave.get());
+		fMasterDocument.replace(fMasterDocument.getLineOffset(4), 1, "");
+		assertEquals(getFoldedContent(), slave.get());
+
+		// and can be unfolded by a single range
+		slave.replaceMasterDocumentRanges(new IRegion[] { new Region(0, fMasterDocument.getLength()) });
+		assertEquals(fMasterDocument.get(), slave.get());
+	}
+
+	@Test(expected= IllegalArgumentException.class)
+	public void testReplaceMasterDocumentRangesUnsorted() throws Exception {
+		fSlaveDocument.replaceMasterDocumentRanges(new IRegion[] { new Region(10, 5), new Region(0, 5) });
+	}
+
+	@Test
+	public void testMasterChanges() throws Exception {
+		fold();
+		String folded= getFoldedContent();
+
+		// change a folded region, which is not part of the projection
+		fMasterDocument.replace(fMasterDocument.getLineOffset(4), 1, "");
+		assertEquals(folded, fSlaveDocument.get());
+
+		// change a visible region
+		fMasterDocument.replace(fMasterDocument.getLineOffset(6), 0, "x");
+		assertEquals(getFoldedContent(), fSlaveDocument.get());
+		assertEquals(fSlaveDocument.get().length(), fSlaveDocument.getLength());
+
+		IRegion imageRegion= fSlaveDocument.getDocumentInformationMapping().toImageRegion(new Region(0, fMasterDocument.getLength()));
+		assertEquals(fSlaveDocument.getLength(), imageRegion.getLength());
+	}
+}
@@ -23,7 +23,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
 		ProjectionDocumentTest.class,
-		ProjectionMappingTest.class
+		ProjectionMappingTest.class,
+		ProjectionFoldingTest.class
 })
 public class ProjectionTestSuite {
 	// see @SuiteClasses
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+import org.eclipse.jface.text.source.AnnotationModelEvent;
+import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelListener;
+import org.eclipse.jface.text.source.IAnnotationModelListenerExtension;
+
+/**
+ * Tests event batches and the coalescing window of {@link AnnotationModel}.
+ *
+ * @since 3.6
+ */
+public class AnnotationModelEventCoalescingTest {
+
+	private static class RecordingListener implements IAnnotationModelListener, IAnnotationModelListenerExtension {
+
+		final List<AnnotationModelEvent> fEvents= new ArrayList<>();
+		final Set<Thread> fThreads= new HashSet<>();
+
+		@Override
+		public void modelChanged(IAnnotationModel model) {
+			// not called for extensions
+		}
+
+		@Override
+		public synchronized void modelChanged(AnnotationModelEvent event) {
+			fEvents.add(event);
+			fThreads.add(Thread.currentThread());
+			notifyAll();
+		}
+
+		synchronized List<AnnotationModelEvent> waitForEvents(int count) throws InterruptedException {
+			long end= System.currentTimeMillis() + 5000;
+			while (fEvents.size() < count && System.currentTimeMillis() < end)
+				wait(100);
+			return new ArrayList<>(fEvents);
+		}
+	}
+
+	private Document fDocument;
+	private AnnotationModel fAnnotationModel;
+	private RecordingListener fListener;
+
+	@Before
+	public void setUp() {
+		StringBuilder content= new StringBuilder();
+		for (int i= 0; i < 1000; i++)
+			content.append("line ").append(i).append('\n');
+		fDocument= new Document(content.toString());
+		fAnnotationModel= new AnnotationModel();
+		fAnnotationModel.connect(fDocument);
+		fListener= new RecordingListener();
+		fAnnotationModel.addAnnotationModelListener(fListener);
+		// forget the event sent when adding the listener
+		fListener.fEvents.clear();
+		fListener.fThreads.clear();
+	}
+
+	@After
+	public void tearDown() {
+		fAnnotationModel.removeAnnotationModelListener(fListener);
+		fAnnotationModel.disconnect(fDocument);
+	}
+
+	private static Set<Annotation> asSet(Annotation[] annotations) {
+		return new HashSet<>(Arrays.asList(annotations));
+	}
+
+	@Test
+	public void testBatch() {
+		List<Annotation> annotations= new ArrayList<>();
+		int received= fAnnotationModel.getReceivedEventCount();
+		int delivered= fAnnotationModel.getDeliveredEventCount();
+
+		fAnnotationModel.beginEventBatch();
+		for (int i= 0; i < 1000; i++) {
+			Annotation annotation= new Annotation(false);
+			fAnnotationModel.addAnnotation(annotation, new Position(i, 1));
+			annotations.add(annotation);
+		}
+		for (int i= 0; i < 100; i++)
+			fAnnotationModel.modifyAnnotationPosition(annotations.get(i), new Position(i + 1, 2));
+		for (int i= 0; i < 100; i++)
+			fAnnotationModel.removeAnnotation(annotations.remove(annotations.size() - 1));
+		assertEquals(0, fListener.fEvents.size());
+		fAnnotationModel.endEventBatch();
+
+		assertEquals(1, fListener.fEvents.size());
+		AnnotationModelEvent event= fListener.fEvents.get(0);
+		assertSame(fAnnotationModel, event.getAnnotationModel());
+		assertEquals(new HashSet<>(annotations), asSet(event.getAddedAnnotations()));
+		assertEquals(0, event.getRemovedAnnotations().length);
+		assertEquals(0, event.getChangedAnnotations().length);
+		assertTrue(event.isValid());
+
+		assertEquals(1200, fAnnotationModel.getReceivedEventCount() - received);
+		assertEquals(1, fAnnotationModel.getDeliveredEventCount() - delivered);
+	}
+
+	@Test
+	public void testRemoveAndAdd() {
+		Annotation removed= new Annotation(false);
+		Annotation readded= new Annotation(false);
+		Annotation changed= new Annotation(false);
+		fAnnotationModel.addAnnotation(removed, new Position(10, 5));
+		fAnnotationModel.addAnnotation(readded, new Position(20, 5));
+		fAnnotationModel.addAnnotation(changed, new Position(30, 5));
+		fListener.fEvents.clear();
+
+		fAnnotationModel.beginEventBatch();
+		fAnnotationModel.modifyAnnotationPosition(removed, new Position(12, 5));
+		fAnnotationModel.removeAnnotation(removed);
+		fAnnotationModel.removeAnnotation(readded);
+		fAnnotationModel.addAnnotation(readded, new Position(25, 5));
+		fAnnotationModel.modifyAnnotationPosition(changed, new Position(31, 5));
+		fAnnotationModel.modifyAnnotationPosition(changed, new Position(32, 5));
+		fAnnotationModel.endEventBatch();
+
+		assertEquals(1, fListener.fEvents.size());
+		AnnotationModelEvent event= fListener.fEvents.get(0);
+		assertEquals(0, event.getAddedAnnotations().length);
+		assertEquals(asSet(new Annotation[] { removed }), asSet(event.getRemovedAnnotations()));
+		assertEquals(new Position(12, 5), event.getPositionOfRemovedAnnotation(removed));
+		assertEquals(asSet(new Annotation[] { readded, changed }), asSet(event.getChangedAnnotations()));
+	}
+
+	@Test
+	public void testNestedBatches() {
+		fAnnotationModel.beginEventBatch();
+		fAnnotationModel.addAnnotation(new Annotation(false), new Position(0, 1));
+		fAnnotationModel.beginEventBatch();
+		fAnnotationModel.addAnnotation(new Annotation(false), new Position(1, 1));
+		fAnnotationModel.endEventBatch();
+		assertEquals(0, fListener.fEvents.size());
+		fAnnotationModel.addAnnotation(new Annotation(false), new Position(2, 1));
+		fAnnotationModel.endEventBatch();
+
+		assertEquals(1, fListener.fEvents.size());
+		assertEquals(3, fListener.fEvents.get(0).getAddedAnnotations().length);
+
+		// without batch events are sent right away
+		fAnnotationModel.addAnnotation(new Annotation(false), new Position(3, 1));
+		assertEquals(2, fListener.fEvents.size());
+	}
+
+	@Test
+	public void testAddedAndRemoved() {
+		fAnnotationModel.beginEventBatch();
+		Annotation annotation= new Annotation(false);
+		fAnnotationModel.addAnnotation(annotation, new Position(0, 1));
+		fAnnotationModel.removeAnnotation(annotation);
+		fAnnotationModel.endEventBatch();
+
+		assertEquals(0, fListener.fEvents.size());
+		assertEquals(0, fAnnotationModel.getDeliveredEventCount());
+	}
+
+	@Test
+	public void testAttachedModels() {
+		AnnotationModel attachment= new AnnotationModel();
+		fAnnotationModel.addAnnotationModel("attachment", attachment);
+		fListener.fEvents.clear();
+
+		fAnnotationModel.beginEventBatch();
+		for (int i= 0; i < 10; i++) {
+			fAnnotationModel.addAnnotation(new Annotation(false), new Position(i, 1));
+			attachment.addAnnotation(new Annotation(false), new Position(i, 1));
+		}
+		fAnnotationModel.endEventBatch();
+
+		assertEquals(2, fListener.fEvents.size());
+		Set<IAnnotationModel> models= new HashSet<>();
+		for (AnnotationModelEvent event : fListener.fEvents) {
+			models.add(event.getAnnotationModel());
+			assertEquals(10, event.getAddedAnnotations().length);
+		}
+		assertEquals(new HashSet<>(Arrays.asList(fAnnotationModel, attachment)), models);
+	}
+
+	@Test
+	public void testCoalescingWindow() throws Exception {
+		fAnnotationModel.setEventCoalescingDelay(200);
+		List<Annotation> annotations= new ArrayList<>();
+		for (int i= 0; i < 100; i++) {
+			Annotation annotation= new Annotation(false);
+			fAnnotationModel.addAnnotation(annotation, new Position(i, 1));
+			annotations.add(annotation);
+		}
+
+		List<AnnotationModelEvent> events= fListener.waitForEvents(1);
+		assertEquals(1, events.size());
+		assertEquals(new HashSet<>(annotations), asSet(events.get(0).getAddedAnnotations()));
+		assertEquals(1, fListener.fThreads.size());
+		assertEquals("Annotation Model Event Delivery", fListener.fThreads.iterator().next().getName());
+		assertEquals(100, fAnnotationModel.getReceivedEventCount());
+		assertEquals(1, fAnnotationModel.getDeliveredEventCount());
+
+		// switching the window off sends out pending events right away
+		fAnnotationModel.removeAnnotation(annotations.get(0));
+		fAnnotationModel.setEventCoalescingDelay(0);
+		assertEquals(2, fListener.fEvents.size());
+		fAnnotationModel.removeAnnotation(annotations.get(1));
+		assertEquals(3, fListener.fEvents.size());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others.
+ * Copyright (c) 2007, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -103,9 +103,9 @@ public class AnnotationModelExtension2Test {
 	public void setUp() {
 		fDocument= new Document("How much wood\nwould a woodchuck chuck\nif a woodchuck\ncould chuck wood?\n42");
 
-		fAnnotationModel= new AnnotationModel();
+		fAnnotationModel= createAnnotationModel();
 
-		fNewInnerModel= new AnnotationModel();
+		fNewInnerModel= createAnnotationModel();
 		fAnnotationModel.addAnnotationModel("model1", fNewInnerModel);
 
 		fOldInnerModel= new OldAnnotationModel();
@@ -131,6 +131,16 @@ public class AnnotationModelExtension2Test {
 		fAnnotationModel.disconnect(fDocument);
 	}
 
+	/**
+	 * Creates the annotation models under test.
+	 *
+	 * @return a new annotation model
+	 * @since 3.6
+	 */
+	protected AnnotationModel createAnnotationModel() {
+		return new AnnotationModel();
+	}
+
 	private void assertEquals(Annotation[] expected, Annotation[] actual, IAnnotationModel insideModel, IAnnotationModel beforeModel, IAnnotationModel afterModel) {
 		HashSet<Annotation> expectedSet= new HashSet<>(Arrays.asList(expected));
 		for (int i= 0; i < actual.length; i++) {
@@ -206,8 +216,8 @@ public class AnnotationModelExtension2Test {
 		fOldInnerModel.removeAllAnnotations();
 	}
 
-	private Annotation[] getAnnotations(boolean lookAhead, boolean lookBehind) {
-		Iterator<Annotation> iterator= fAnnotationModel.getAnnotationIterator(10, 11, lookAhead, lookBehind);
+	private Annotation[] getAnnotations(int offset, int length, boolean lookAhead, boolean lookBehind) {
+		Iterator<Annotation> iterator= fAnnotationModel.getAnnotationIterator(offset, length, lookAhead, lookBehind);
 
 		ArrayList<Annotation> result= new ArrayList<>();
 		while (iterator.hasNext()) {
@@ -218,6 +228,10 @@ public class AnnotationModelExtension2Test {
 	}
 
 	private void assertPermutations(boolean lookAhead, boolean lookBehind, Annotation[] expected) {
+		assertPermutations(10, 11, lookAhead, lookBehind, expected);
+	}
+
+	private void assertPermutations(int offset, int length, boolean lookAhead, boolean lookBehind, Annotation[] expected) {
 		for (int i= 0; i < MODEL_COUNT; i++) {
 			for (int j= 0; j < MODEL_COUNT; j++) {
 				for (int k= 0; k < MODEL_COUNT; k++) {
@@ -227,7 +241,7 @@ public class AnnotationModelExtension2Test {
 
 					addAnnotations(insideModel, beforeModel, afterModel);
 
-					Annotation[] actual= getAnnotations(lookAhead, lookBehind);
+					Annotation[] actual= getAnnotations(offset, length, lookAhead, lookBehind);
 					assertEquals(expected, actual, insideModel, beforeModel, afterModel);
 
 					removeAnnotations();
@@ -274,4 +288,10 @@ public class AnnotationModelExtension2Test {
 		assertPermutations(true, true, expected);
 	}
 
+	@Test
+	public void testAheadBehindEmptyRegion() throws Exception {
+		Annotation[] expected= new Annotation[] { fInside, fInsideOut, fBefore, fBeforeIn };
+		assertPermutations(10, 0, true, true, expected);
+	}
+
 }
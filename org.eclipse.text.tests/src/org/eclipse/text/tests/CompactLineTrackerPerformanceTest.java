@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.ILineTracker;
+
+/**
+ * Compares the memory consumption and speed of the line tracker used for large texts with the
+ * tree based line tracker. Not part of the default test suite, see
+ * {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class CompactLineTrackerPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+
+	@Test
+	public void testMemory() throws Exception {
+		String text= CompactLineTrackerTest.createText(new Random(4711), 10 * CompactLineTrackerTest.LINES);
+
+		long before= getUsedMemory();
+		ILineTracker tree= CompactLineTrackerTest.createTreeTracker(text);
+		long treeMemory= getUsedMemory() - before;
+
+		before= getUsedMemory();
+		ILineTracker compact= CompactLineTrackerTest.createCompactTracker(text);
+		long compactMemory= getUsedMemory() - before;
+
+		assertEquals(tree.getNumberOfLines(), compact.getNumberOfLines());
+		int lines= tree.getNumberOfLines();
+		assertTrue("compact " + compactMemory / lines + " bytes per line, tree " + treeMemory / lines + " bytes per line", compactMemory < treeMemory);
+	}
+
+	@Test
+	public void testSpeed() throws Exception {
+		String text= CompactLineTrackerTest.createText(new Random(4711), 10 * CompactLineTrackerTest.LINES);
+		long treeTime= Long.MAX_VALUE;
+		long compactTime= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			long start= System.nanoTime();
+			CompactLineTrackerTest.createTreeTracker(text);
+			treeTime= Math.min(treeTime, System.nanoTime() - start);
+
+			start= System.nanoTime();
+			CompactLineTrackerTest.createCompactTracker(text);
+			compactTime= Math.min(compactTime, System.nanoTime() - start);
+		}
+		assertTrue("compact " + compactTime / 1000000 + " ms, tree " + treeTime / 1000000 + " ms", compactTime < treeTime);
+	}
+
+	private static long getUsedMemory() {
+		Runtime runtime= Runtime.getRuntime();
+		for (int i= 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DefaultLineTracker;
+import org.eclipse.jface.text.ILineTracker;
+import org.eclipse.jface.text.IRegion;
+
+/**
+ * Tests the line tracker used for large texts, which stores the line information in primitive
+ * arrays, against the tree based line tracker.
+ *
+ * @since 3.6
+ */
+public class CompactLineTrackerTest {
+
+	/** The number of lines of the tested texts, enough to select the compact representation. */
+	static final int LINES= 100000;
+
+	static String createText(Random random, int lines) {
+		String[] delimiters= { "\n", "\r", "\r\n" };
+		StringBuffer text= new StringBuffer();
+		for (int i= 0; i < lines; i++) {
+			int length= random.nextInt(30);
+			for (int k= 0; k < length; k++)
+				text.append((char) ('a' + random.nextInt(26)));
+			text.append(delimiters[random.nextInt(delimiters.length)]);
+		}
+		return text.toString();
+	}
+
+	static ILineTracker createCompactTracker(String text) {
+		ILineTracker tracker= new DefaultLineTracker();
+		tracker.set(text);
+		return tracker;
+	}
+
+	/**
+	 * Returns a tracker that uses a tree, as the text is inserted rather than set.
+	 *
+	 * @param text the text
+	 * @return the tracker
+	 * @throws BadLocationException if the text cannot be inserted
+	 */
+	static ILineTracker createTreeTracker(String text) throws BadLocationException {
+		ILineTracker tracker= new DefaultLineTracker();
+		tracker.set("");
+		tracker.replace(0, 0, text);
+		return tracker;
+	}
+
+	private static void assertSameLines(ILineTracker expected, ILineTracker actual, int fromLine, int toLine) throws BadLocationException {
+		assertEquals(expected.getNumberOfLines(), actual.getNumberOfLines());
+		for (int i= Math.max(0, fromLine); i < Math.min(toLine, expected.getNumberOfLines()); i++) {
+			IRegion expectedLine= expected.getLineInformation(i);
+			IRegion actualLine= actual.getLineInformation(i);
+			assertEquals(expectedLine.getOffset(), actualLine.getOffset());
+			assertEquals(expectedLine.getLength(), actualLine.getLength());
+			assertEquals(expected.getLineDelimiter(i), actual.getLineDelimiter(i));
+			assertEquals(i, actual.getLineNumberOfOffset(actualLine.getOffset()));
+		}
+	}
+
+	@Test
+	public void testEdits() throws Exception {
+		Random random= new Random(4711);
+		String text= createText(random, LINES);
+		ILineTracker compact= createCompactTracker(text);
+		ILineTracker tree= createTreeTracker(text);
+		assertSameLines(tree, compact, 0, Integer.MAX_VALUE);
+
+		int length= text.length();
+		for (int i= 0; i < 500; i++) {
+			int offset= random.nextInt(length);
+			int replaced= random.nextInt(10) == 0 ? random.nextInt(Math.min(5000, length - offset)) : random.nextInt(Math.min(3, length - offset));
+			String inserted= createText(random, random.nextInt(3)) + "x";
+			compact.replace(offset, replaced, inserted);
+			tree.replace(offset, replaced, inserted);
+			length+= inserted.length() - replaced;
+
+			int line= tree.getLineNumberOfOffset(offset);
+			assertSameLines(tree, compact, line - 5, line + 200);
+		}
+		assertSameLines(tree, compact, 0, Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testSetSmallText() throws Exception {
+		Random random= new Random(4711);
+		ILineTracker tracker= createCompactTracker(createText(random, LINES));
+		String text= createText(random, 100);
+		tracker.set(text);
+		ILineTracker tree= createTreeTracker(text);
+		assertSameLines(tree, tracker, 0, Integer.MAX_VALUE);
+
+		for (int i= 0; i < 50; i++) {
+			int offset= random.nextInt(text.length());
+			String inserted= createText(random, random.nextInt(3)) + "x";
+			tracker.replace(offset, 1, inserted);
+			tree.replace(offset, 1, inserted);
+			assertSameLines(tree, tracker, 0, Integer.MAX_VALUE);
+		}
+
+		// and a large text again
+		text= createText(random, LINES);
+		tracker.set(text);
+		assertSameLines(createTreeTracker(text), tracker, 0, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentSnapshot;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextStoreExtension;
+import org.eclipse.jface.text.RopeTextStore;
+
+public class DocumentSnapshotTest {
+
+	@Test
+	public void testSnapshotOfUnmodifiedDocument() throws Exception {
+		Document document= new Document("a\nbc\r\ndef\rg");
+		IDocumentSnapshot snapshot= document.getSnapshot();
+		document.replace(0, 1, "xyz");
+
+		assertEquals("a\nbc\r\ndef\rg", snapshot.toString());
+		assertEquals(4, snapshot.getNumberOfLines());
+		assertLine(snapshot, 0, 0, 1, "\n");
+		assertLine(snapshot, 1, 2, 2, "\r\n");
+		assertLine(snapshot, 2, 6, 3, "\r");
+		assertLine(snapshot, 3, 10, 1, null);
+		assertEquals("xyz\nbc\r\ndef\rg", document.get());
+	}
+
+	@Test
+	public void testSnapshotOfModifiedDocument() throws Exception {
+		Document document= new Document("line1\nline2\n");
+		document.replace(0, 0, "line0\n");
+		IDocumentSnapshot snapshot= document.getSnapshot();
+		long stamp= document.getModificationStamp();
+		document.replace(0, document.getLength(), "");
+
+		assertEquals("line0\nline1\nline2\n", snapshot.toString());
+		assertEquals(stamp, snapshot.getModificationStamp());
+		assertEquals(4, snapshot.getNumberOfLines());
+		assertLine(snapshot, 3, 18, 0, null);
+		assertEquals(3, snapshot.getLineOfOffset(18));
+		assertEquals(1, snapshot.getLineOfOffset(6));
+		assertEquals(0, snapshot.getLineOfOffset(5));
+		assertEquals("line1", snapshot.get(6, 5));
+	}
+
+	@Test
+	public void testSnapshotSharesRope() throws Exception {
+		RopeTextStore store= new RopeTextStore();
+		StringBuilder content= new StringBuilder();
+		for (int i= 0; i < 10000; i++)
+			content.append("line ").append(i).append('\n');
+		store.set(content.toString());
+		store.replace(10, 0, "x");
+		content.insert(10, 'x');
+
+		CharSequence snapshot= ((ITextStoreExtension) store).getSnapshot();
+		assertNotNull(snapshot);
+		for (int i= 0; i < 1000; i++)
+			store.replace(i * 50, 5, "changed");
+
+		assertEquals(content.toString(), snapshot.toString());
+		assertEquals(content.length(), snapshot.length());
+		assertEquals(content.charAt(5000), snapshot.charAt(5000));
+		assertEquals(content.substring(3000, 9000), snapshot.subSequence(3000, 9000).toString());
+	}
+
+	@Test
+	public void testLargeDocumentSnapshot() throws Exception {
+		StringBuilder content= new StringBuilder();
+		for (int i= 0; i < 1000; i++)
+			content.append("line ").append(i).append('\n');
+		IDocument document= new Document();
+		document.set(content.toString());
+		IDocumentSnapshot snapshot= ((Document) document).getSnapshot();
+		document.replace(0, 100, null);
+
+		assertEquals(1001, snapshot.getNumberOfLines());
+		for (int i= 0; i < 1000; i++) {
+			IRegion line= snapshot.getLineInformation(i);
+			assertEquals("line " + i, snapshot.get(line.getOffset(), line.getLength()));
+		}
+	}
+
+	@Test
+	public void testInvalidLocations() throws Exception {
+		IDocumentSnapshot snapshot= new Document("abc").getSnapshot();
+		try {
+			snapshot.get(2, 2);
+			fail();
+		} catch (BadLocationException e) {
+		}
+		try {
+			snapshot.getLineOffset(1);
+			fail();
+		} catch (BadLocationException e) {
+		}
+		try {
+			snapshot.getLineOfOffset(4);
+			fail();
+		} catch (BadLocationException e) {
+		}
+	}
+
+	private static void assertLine(IDocumentSnapshot snapshot, int line, int offset, int length, String delimiter) throws BadLocationException {
+		IRegion region= snapshot.getLineInformation(line);
+		assertEquals(offset, region.getOffset());
+		assertEquals(length, region.getLength());
+		assertEquals(offset, snapshot.getLineOffset(line));
+		assertEquals(line, snapshot.getLineOfOffset(offset));
+		if (delimiter == null) {
+			assertNull(snapshot.getLineDelimiter(line));
+			assertEquals(length, snapshot.getLineLength(line));
+		} else {
+			assertEquals(delimiter, snapshot.getLineDelimiter(line));
+			assertEquals(length + delimiter.length(), snapshot.getLineLength(line));
+		}
+	}
+}
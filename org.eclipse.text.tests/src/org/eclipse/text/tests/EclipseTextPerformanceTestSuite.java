@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+
+/**
+ * Performance tests for org.eclipse.text. They take long and depend on the machine, hence they
+ * are not part of {@link EclipseTextTestSuite}.
+ *
+ * @since 3.6
+ */
+@RunWith(Suite.class)
+@SuiteClasses({
+		LineTrackerSetPerformanceTest.class,
+		CompactLineTrackerPerformanceTest.class,
+		RopeTextStorePerformanceTest.class,
+		TextEditSinglePassPerformanceTest.class,
+		ProjectionFoldingPerformanceTest.class,
+		IndexedAnnotationModelPerformanceTest.class,
+		IndexedPositionCategoryPerformanceTest.class
+})
+public class EclipseTextPerformanceTestSuite {
+	// see @SuiteClasses
+}
@@ -29,13 +29,19 @@ import org.eclipse.text.tests.templates.TemplatesTestSuite;
 		LineTrackerTest4.class,
 		DocumentExtensionTest.class,
 		LineTrackerTest3.class,
+		LineTrackerSetTest.class,
+		CompactLineTrackerTest.class,
 		DocumentTest.class,
 		FindReplaceDocumentAdapterTest.class,
 		PositionUpdatingCornerCasesTest.class,
 		ExclusivePositionUpdaterTest.class,
+		IndexedPositionCategoryTest.class,
 		TextEditTests.class,
+		TextEditSinglePassTest.class,
 		GapTextTest.class,
 		GapTextStoreTest.class,
+		RopeTextStoreTest.class,
+		DocumentSnapshotTest.class,
 		ChildDocumentTest.class,
 		ProjectionTestSuite.class,
 		LinkTestSuite.class,
@@ -43,6 +49,8 @@ import org.eclipse.text.tests.templates.TemplatesTestSuite;
 		TextUtilitiesTest.class,
 		AnnotationModelStressTest.class,
 		AnnotationModelExtension2Test.class,
+		IndexedAnnotationModelTest.class,
+		AnnotationModelEventCoalescingTest.class,
 		TemplatesTestSuite.class
 })
 public class EclipseTextTestSuite {
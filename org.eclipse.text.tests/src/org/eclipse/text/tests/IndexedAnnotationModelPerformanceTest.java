@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+
+/**
+ * Compares the time needed for region queries and for removing annotations of a large
+ * annotation model with and without interval index. Not part of the default test suite, see
+ * {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class IndexedAnnotationModelPerformanceTest {
+
+	private static final int ANNOTATIONS= 500000;
+
+	@Test
+	public void testRegionQueries() throws Exception {
+		Document document= IndexedAnnotationModelTest.createDocument(ANNOTATIONS / 5);
+		AnnotationModel plain= new AnnotationModel();
+		AnnotationModel indexed= new AnnotationModel();
+		indexed.setIndexEnabled(true);
+		plain.connect(document);
+		indexed.connect(document);
+
+		// positions are added in ascending order to keep building the unindexed model affordable
+		int step= document.getLength() / ANNOTATIONS;
+		Map<Annotation, Position> plainAdded= new LinkedHashMap<>();
+		Map<Annotation, Position> indexedAdded= new LinkedHashMap<>();
+		for (int i= 0; i < ANNOTATIONS; i++) {
+			Annotation annotation= new Annotation(false);
+			plainAdded.put(annotation, new Position(i * step, 4));
+			indexedAdded.put(annotation, new Position(i * step, 4));
+		}
+		plain.replaceAnnotations(null, plainAdded);
+		indexed.replaceAnnotations(null, indexedAdded);
+
+		long plainQuerying= measureQueries(plain, document);
+		long indexedQuerying= measureQueries(indexed, document);
+		assertTrue("1000 region queries: indexed " + indexedQuerying / 1000000 + " ms, plain " + plainQuerying / 1000000 + " ms", indexedQuerying < plainQuerying);
+
+		Random random= new Random(4711);
+		Annotation[] annotations= indexedAdded.keySet().toArray(new Annotation[ANNOTATIONS]);
+		Annotation[] removed= new Annotation[1000];
+		for (int i= 0; i < removed.length; i++)
+			removed[i]= annotations[random.nextInt(annotations.length)];
+		long start= System.nanoTime();
+		plain.replaceAnnotations(removed, null);
+		long plainRemoving= System.nanoTime() - start;
+		start= System.nanoTime();
+		indexed.replaceAnnotations(removed, null);
+		long indexedRemoving= System.nanoTime() - start;
+		assertTrue("removing 1000 annotations: indexed " + indexedRemoving / 1000000 + " ms, plain " + plainRemoving / 1000000 + " ms", indexedRemoving < plainRemoving);
+
+		assertEquals(new HashSet<>(Arrays.asList(IndexedAnnotationModelTest.toArray(plain))), new HashSet<>(Arrays.asList(IndexedAnnotationModelTest.toArray(indexed))));
+		indexed.disconnect(document);
+		plain.disconnect(document);
+	}
+
+	private static long measureQueries(AnnotationModel model, Document document) {
+		Random random= new Random(42);
+		long start= System.nanoTime();
+		for (int i= 0; i < 1000; i++)
+			IndexedAnnotationModelTest.query(model, random.nextInt(document.getLength() - 100), 100, true, true);
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModel;
+
+/**
+ * Runs the region query tests against annotation models with an interval index and checks the
+ * region queries under random changes.
+ *
+ * @since 3.6
+ */
+public class IndexedAnnotationModelTest extends AnnotationModelExtension2Test {
+
+	@Override
+	protected AnnotationModel createAnnotationModel() {
+		AnnotationModel model= new AnnotationModel();
+		model.setIndexEnabled(true);
+		return model;
+	}
+
+	static Document createDocument(int lines) {
+		StringBuilder content= new StringBuilder();
+		for (int i= 0; i < lines; i++)
+			content.append("line ").append(i).append('\n');
+		return new Document(content.toString());
+	}
+
+	private static Position createRandomPosition(Random random, Document document) {
+		int offset= random.nextInt(document.getLength() + 1);
+		int length= Math.min(random.nextInt(40), document.getLength() - offset);
+		return new Position(offset, length);
+	}
+
+	static Set<Annotation> query(AnnotationModel model, int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		Set<Annotation> result= new HashSet<>();
+		for (Iterator<Annotation> e= model.getAnnotationIterator(offset, length, canStartBefore, canEndAfter); e.hasNext();)
+			result.add(e.next());
+		return result;
+	}
+
+	/*
+	 * The list based queries rely on the order of the positions by their end, which document
+	 * changes do not maintain, hence compare with a linear filter over all annotations. Like in
+	 * the lists, an empty position ends at its offset.
+	 */
+	private static Set<Annotation> filter(AnnotationModel model, int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		Position region= new Position(offset, length);
+		Set<Annotation> result= new HashSet<>();
+		for (Iterator<Annotation> e= model.getAnnotationIterator(); e.hasNext();) {
+			Annotation annotation= e.next();
+			Position position= model.getPosition(annotation);
+			int start= position.offset;
+			int end= position.offset + position.length - 1;
+			boolean inside;
+			if (canStartBefore && canEndAfter)
+				inside= region.overlapsWith(position.offset, position.length);
+			else if (canStartBefore)
+				inside= region.includes(Math.max(start, end));
+			else if (canEndAfter)
+				inside= region.includes(start);
+			else
+				inside= region.includes(start) && region.includes(end);
+			if (inside)
+				result.add(annotation);
+		}
+		return result;
+	}
+
+	private static void assertSameQueryResults(Random random, Document document, AnnotationModel model) {
+		for (int i= 0; i < 20; i++) {
+			int offset= random.nextInt(document.getLength() + 1);
+			int length= Math.min(random.nextInt(200), document.getLength() - offset);
+			for (int mode= 0; mode < 4; mode++) {
+				boolean canStartBefore= (mode & 1) != 0;
+				boolean canEndAfter= (mode & 2) != 0;
+				assertEquals("mode " + mode + " at " + offset + "/" + length, filter(model, offset, length, canStartBefore, canEndAfter), query(model, offset, length, canStartBefore, canEndAfter));
+			}
+		}
+	}
+
+	@Test
+	public void testRandomChanges() throws Exception {
+		Random random= new Random(4711);
+		Document document= createDocument(500);
+		AnnotationModel model= createAnnotationModel();
+		AnnotationModel inner= createAnnotationModel();
+		model.addAnnotationModel("inner", inner);
+		model.connect(document);
+
+		List<Annotation> annotations= new ArrayList<>();
+		for (int i= 0; i < 3000; i++) {
+			switch (annotations.isEmpty() ? 0 : random.nextInt(4)) {
+				case 0: {
+					Annotation annotation= new Annotation(false);
+					(random.nextBoolean() ? inner : model).addAnnotation(annotation, createRandomPosition(random, document));
+					annotations.add(annotation);
+					break;
+				}
+				case 1: {
+					Annotation annotation= annotations.remove(random.nextInt(annotations.size()));
+					model.removeAnnotation(annotation);
+					inner.removeAnnotation(annotation);
+					break;
+				}
+				case 2: {
+					Annotation annotation= annotations.get(random.nextInt(annotations.size()));
+					AnnotationModel owner= inner.getPosition(annotation) != null ? inner : model;
+					owner.modifyAnnotationPosition(annotation, createRandomPosition(random, document));
+					break;
+				}
+				default: {
+					int offset= random.nextInt(document.getLength() + 1);
+					int length= Math.min(random.nextInt(30), document.getLength() - offset);
+					document.replace(offset, length, random.nextBoolean() ? "" : "text\n");
+				}
+			}
+			if (i % 100 == 0)
+				assertSameQueryResults(random, document, model);
+		}
+		assertSameQueryResults(random, document, model);
+
+		// switching the index off and on again must not lose annotations
+		Set<Annotation> all= new HashSet<>(Arrays.asList(toArray(model)));
+		model.setIndexEnabled(false);
+		assertEquals(all, new HashSet<>(Arrays.asList(toArray(model))));
+		model.setIndexEnabled(true);
+		assertEquals(all, new HashSet<>(Arrays.asList(toArray(model))));
+		assertSameQueryResults(random, document, model);
+
+		int categories= document.getPositionCategories().length;
+		model.disconnect(document);
+		assertEquals(categories - 1, document.getPositionCategories().length);
+	}
+
+	@Test
+	public void testReplaceAnnotations() throws Exception {
+		Random random= new Random(1234);
+		Document document= createDocument(500);
+		AnnotationModel model= createAnnotationModel();
+		model.connect(document);
+
+		List<Annotation> annotations= new ArrayList<>();
+		for (int i= 0; i < 20; i++) {
+			List<Annotation> removed= new ArrayList<>();
+			for (int k= 0; k < annotations.size() / 3; k++)
+				removed.add(annotations.remove(random.nextInt(annotations.size())));
+			Map<Annotation, Position> added= new HashMap<>();
+			for (int k= 0; k < 100; k++) {
+				Annotation annotation= new Annotation(false);
+				added.put(annotation, createRandomPosition(random, document));
+				annotations.add(annotation);
+			}
+			model.replaceAnnotations(removed.toArray(new Annotation[removed.size()]), added);
+			assertEquals(new HashSet<>(annotations), new HashSet<>(Arrays.asList(toArray(model))));
+			assertSameQueryResults(random, document, model);
+		}
+
+		model.disconnect(document);
+	}
+
+	static Annotation[] toArray(AnnotationModel model) {
+		List<Annotation> result= new ArrayList<>();
+		for (Iterator<Annotation> e= model.getAnnotationIterator(); e.hasNext();)
+			result.add(e.next());
+		return result.toArray(new Annotation[result.size()]);
+	}
+}
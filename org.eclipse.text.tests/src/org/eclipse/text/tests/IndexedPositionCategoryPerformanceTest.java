@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+
+/**
+ * Compares the time needed for keystrokes in a document with 100k positions in a list based and
+ * in a lazily updated indexed position category. Not part of the default test suite, see
+ * {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class IndexedPositionCategoryPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+	private static final int POSITIONS= 100000;
+	private static final int KEYSTROKES= 1000;
+	private static final String CATEGORY= "category";
+
+	private static Document createDocument(boolean indexed) throws BadLocationException, BadPositionCategoryException {
+		StringBuilder content= new StringBuilder(POSITIONS * 10);
+		for (int i= 0; i < POSITIONS; i++)
+			content.append("position\n");
+		Document document= new Document(content.toString());
+		if (indexed)
+			document.addIndexedPositionCategory(CATEGORY, true);
+		else
+			document.addPositionCategory(CATEGORY);
+		document.addPositionUpdater(new DefaultPositionUpdater(CATEGORY));
+		for (int i= 0; i < POSITIONS; i++)
+			document.addPosition(CATEGORY, new Position(i * 9, 8));
+		return document;
+	}
+
+	/**
+	 * Returns the fastest time to type at the start of the document, which moves all positions.
+	 *
+	 * @param indexed whether the position category is indexed
+	 * @return the time in nanoseconds
+	 * @throws Exception if the document cannot be edited
+	 */
+	private static long measureKeystrokes(boolean indexed) throws Exception {
+		long best= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			Document document= createDocument(indexed);
+			long start= System.nanoTime();
+			for (int k= 0; k < KEYSTROKES; k++)
+				document.replace(4 + k, 0, "x");
+			best= Math.min(best, System.nanoTime() - start);
+
+			Position[] positions= document.getPositions(CATEGORY);
+			assertEquals(POSITIONS, positions.length);
+			assertEquals((POSITIONS - 1) * 9 + KEYSTROKES, positions[POSITIONS - 1].offset);
+		}
+		return best;
+	}
+
+	@Test
+	public void testKeystrokes() throws Exception {
+		long list= measureKeystrokes(false);
+		long indexed= measureKeystrokes(true);
+		assertTrue(KEYSTROKES + " keystrokes with " + POSITIONS + " positions: indexed " + indexed / 1000000 + " ms, list " + list / 1000000 + " ms", indexed < list);
+	}
+}
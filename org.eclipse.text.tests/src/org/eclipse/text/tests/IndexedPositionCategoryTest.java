@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+
+/**
+ * Tests that an indexed position category behaves like a list based one.
+ */
+public class IndexedPositionCategoryTest {
+
+	private static final String LIST= "list";
+	private static final String INDEXED= "indexed";
+	private static final String LAZY= "lazy";
+
+	private Document fDocument;
+	private Random fRandom;
+
+	@Before
+	public void setUp() {
+		fRandom= new Random(1234);
+		StringBuilder content= new StringBuilder();
+		for (int i= 0; i < 200; i++)
+			content.append("line ").append(i).append('\n');
+		fDocument= new Document(content.toString());
+		fDocument.addPositionCategory(LIST);
+		fDocument.addPositionUpdater(new DefaultPositionUpdater(LIST));
+		fDocument.addIndexedPositionCategory(INDEXED);
+		fDocument.addPositionUpdater(new DefaultPositionUpdater(INDEXED));
+		fDocument.addIndexedPositionCategory(LAZY, true);
+		fDocument.addPositionUpdater(new DefaultPositionUpdater(LAZY));
+	}
+
+	@Test
+	public void testAddRemove() throws Exception {
+		Position p1= new Position(10, 5);
+		Position p2= new Position(10, 0);
+		Position p3= new Position(3, 20);
+		fDocument.addPosition(INDEXED, p1);
+		fDocument.addPosition(INDEXED, p2);
+		fDocument.addPosition(INDEXED, p3);
+
+		assertEquals(Arrays.asList(p3, p2, p1), Arrays.asList(fDocument.getPositions(INDEXED)));
+		assertTrue(fDocument.containsPosition(INDEXED, 10, 5));
+		assertFalse(fDocument.containsPosition(INDEXED, 10, 4));
+		assertEquals(1, fDocument.computeIndexInCategory(INDEXED, 10));
+		assertEquals(3, fDocument.computeIndexInCategory(INDEXED, 11));
+
+		fDocument.removePosition(INDEXED, p2);
+		assertEquals(Arrays.asList(p3, p1), Arrays.asList(fDocument.getPositions(INDEXED)));
+		fDocument.removePosition(INDEXED, p3);
+		fDocument.removePosition(INDEXED, p1);
+		assertEquals(0, fDocument.getPositions(INDEXED).length);
+	}
+
+	@Test
+	public void testConvertExistingCategory() throws Exception {
+		Position p1= new Position(0, 4);
+		Position p2= new Position(20, 4);
+		fDocument.addPosition(LIST, p2);
+		fDocument.addPosition(LIST, p1);
+		fDocument.addIndexedPositionCategory(LIST);
+
+		fDocument.replace(10, 0, "xxx");
+		assertEquals(Arrays.asList(p1, p2), Arrays.asList(fDocument.getPositions(LIST)));
+		assertEquals(23, p2.offset);
+		assertEquals(Arrays.asList(p2), Arrays.asList(fDocument.getPositions(LIST, 22, 2, false, true)));
+	}
+
+	@Test
+	public void testRandomEditsAndQueries() throws Exception {
+		for (int i= 0; i < 500; i++) {
+			int offset= fRandom.nextInt(fDocument.getLength());
+			int length= fRandom.nextInt(Math.min(40, fDocument.getLength() - offset) + 1);
+			fDocument.addPosition(LIST, new Position(offset, length));
+			fDocument.addPosition(INDEXED, new Position(offset, length));
+			fDocument.addPosition(LAZY, new Position(offset, length));
+		}
+
+		for (int i= 0; i < 500; i++) {
+			int offset= fRandom.nextInt(fDocument.getLength() + 1);
+			int length= fRandom.nextInt(Math.min(20, fDocument.getLength() - offset) + 1);
+			String text= fRandom.nextBoolean() ? "" : "abc\n".substring(fRandom.nextInt(4));
+			fDocument.replace(offset, length, text);
+
+			if (i % 10 == 0)
+				removeRandomPosition();
+
+			assertSamePositions();
+			for (int j= 0; j < 5; j++)
+				assertSameQueryResults();
+		}
+	}
+
+	@Test
+	public void testLazyUpdate() throws Exception {
+		Position first= new Position(0, 3);
+		fDocument.addPosition(LAZY, first);
+		Position[] positions= new Position[100];
+		for (int i= 0; i < positions.length; i++) {
+			positions[i]= new Position(10 + i * 10, 5);
+			fDocument.addPosition(LAZY, positions[i]);
+		}
+		long eager= fDocument.getEagerlyUpdatedPositionCount();
+		long lazy= fDocument.getLazilyUpdatedPositionCount();
+
+		for (int i= 0; i < 10; i++)
+			fDocument.replace(1, 0, "x");
+
+		assertEquals(1000, fDocument.getLazilyUpdatedPositionCount() - lazy);
+		assertEquals(10, fDocument.getEagerlyUpdatedPositionCount() - eager);
+		assertEquals(13, first.length);
+		// not yet updated
+		assertEquals(510, positions[50].offset);
+
+		fDocument.removePosition(LAZY, positions[50]);
+		assertEquals(Arrays.asList(positions[49], positions[51]), Arrays.asList(fDocument.getPositions(LAZY, 505, 30, false, false)));
+		assertEquals(510, positions[49].offset);
+		assertEquals(530, positions[51].offset);
+		assertEquals(100, fDocument.getPositions(LAZY).length);
+		assertEquals(990, positions[97].offset);
+
+		fDocument.replace(0, 515, "");
+		assertTrue(positions[48].isDeleted);
+		assertEquals(51, fDocument.getPositions(LAZY).length);
+		assertEquals(0, positions[49].offset);
+		assertEquals(0, positions[49].length);
+		assertEquals(15, positions[51].offset);
+	}
+
+	private void removeRandomPosition() throws BadPositionCategoryException {
+		Position[] positions= fDocument.getPositions(LIST);
+		if (positions.length == 0)
+			return;
+		Position removed= positions[fRandom.nextInt(positions.length)];
+		fDocument.removePosition(LIST, removed);
+		removeEqualPosition(INDEXED, removed);
+		removeEqualPosition(LAZY, removed);
+	}
+
+	private void removeEqualPosition(String category, Position removed) throws BadPositionCategoryException {
+		for (Position position : fDocument.getPositions(category)) {
+			if (position.equals(removed)) {
+				fDocument.removePosition(category, position);
+				break;
+			}
+		}
+	}
+
+	private void assertSamePositions() throws BadPositionCategoryException {
+		List<String> expected= toString(fDocument.getPositions(LIST));
+		expected.sort(null);
+		for (String category : new String[] { INDEXED, LAZY }) {
+			Position[] positions= fDocument.getPositions(category);
+			for (int i= 1; i < positions.length; i++)
+				assertTrue(positions[i - 1].offset <= positions[i].offset);
+
+			// the order of positions with equal offsets is not specified
+			List<String> actual= toString(positions);
+			actual.sort(null);
+			assertEquals(category, expected, actual);
+		}
+	}
+
+	private void assertSameQueryResults() throws BadPositionCategoryException, BadLocationException {
+		int offset= fRandom.nextInt(fDocument.getLength() + 1);
+		int length= fRandom.nextInt(Math.min(60, fDocument.getLength() - offset) + 1);
+		for (int mode= 0; mode < 4; mode++) {
+			boolean canStartBefore= (mode & 1) != 0;
+			boolean canEndAfter= (mode & 2) != 0;
+			List<String> expected= toString(filter(fDocument.getPositions(LIST), offset, length, canStartBefore, canEndAfter));
+			expected.sort(null);
+			for (String category : new String[] { INDEXED, LAZY }) {
+				List<String> actual= toString(fDocument.getPositions(category, offset, length, canStartBefore, canEndAfter));
+				actual.sort(null);
+				assertEquals(category + " mode " + mode + " at " + offset + "/" + length, expected, actual);
+			}
+		}
+		int index= 0;
+		for (Position position : fDocument.getPositions(LIST)) {
+			if (position.offset < offset)
+				index++;
+		}
+		assertEquals(index, fDocument.computeIndexInCategory(INDEXED, offset));
+		assertEquals(index, fDocument.computeIndexInCategory(LAZY, offset));
+	}
+
+	/*
+	 * The list based queries rely on the positions being sorted, which is not guaranteed after
+	 * position updates, hence compare with a linear filter. Like in the lists, an empty position
+	 * ends at its offset.
+	 */
+	private static Position[] filter(Position[] positions, int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		Position region= new Position(offset, length);
+		List<Position> result= new ArrayList<>();
+		for (Position position : positions) {
+			int start= position.offset;
+			int end= position.offset + position.length - 1;
+			boolean inside;
+			if (canStartBefore && canEndAfter)
+				inside= region.overlapsWith(position.offset, position.length);
+			else if (canStartBefore)
+				inside= region.includes(Math.max(start, end));
+			else if (canEndAfter)
+				inside= region.includes(start);
+			else
+				inside= region.includes(start) && region.includes(end);
+			if (inside)
+				result.add(position);
+		}
+		return result.toArray(new Position[result.size()]);
+	}
+
+	private static List<String> toString(Position[] positions) {
+		List<String> result= new ArrayList<>(positions.length);
+		for (Position position : positions)
+			result.add(position.offset + "/" + position.length + (position.isDeleted ? "d" : ""));
+		return result;
+	}
+}
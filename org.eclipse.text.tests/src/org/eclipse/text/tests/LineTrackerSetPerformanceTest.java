@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.DefaultLineTracker;
+import org.eclipse.jface.text.ILineTracker;
+
+/**
+ * Compares the time needed to set the text of a line tracker in one go with inserting it. Not
+ * part of the default test suite, see {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class LineTrackerSetPerformanceTest {
+
+	/** The number of lines, small enough to keep the tree representation. */
+	private static final int LINES= 200000;
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 5;
+
+	@Test
+	public void testSet() throws Exception {
+		String text= LineTrackerSetTest.createText(new Random(4711), LINES, new String[] { "\n" });
+		long inserted= Long.MAX_VALUE;
+		long set= Long.MAX_VALUE;
+		long converted= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			ILineTracker tracker= LineTrackerSetTest.createModifiedTracker(new DefaultLineTracker());
+			long start= System.nanoTime();
+			tracker.set("");
+			tracker.replace(0, 0, text);
+			inserted= Math.min(inserted, System.nanoTime() - start);
+
+			start= System.nanoTime();
+			tracker.set(text);
+			set= Math.min(set, System.nanoTime() - start);
+			assertEquals(LINES + 1, tracker.getNumberOfLines());
+
+			tracker= new DefaultLineTracker();
+			start= System.nanoTime();
+			tracker.set(text);
+			tracker.replace(0, 0, "");
+			converted= Math.min(converted, System.nanoTime() - start);
+			assertEquals(LINES + 1, tracker.getNumberOfLines());
+		}
+
+		assertTrue("set " + set / 1000000 + " ms, inserted " + inserted / 1000000 + " ms", set < inserted);
+		assertTrue("set and converted " + converted / 1000000 + " ms, inserted " + inserted / 1000000 + " ms", converted < inserted);
+	}
+}
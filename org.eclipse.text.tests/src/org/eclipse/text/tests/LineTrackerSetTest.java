@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.ConfigurableLineTracker;
+import org.eclipse.jface.text.DefaultLineTracker;
+import org.eclipse.jface.text.ILineTracker;
+import org.eclipse.jface.text.IRegion;
+
+/**
+ * Compares the line information of trackers that are set in one go with trackers whose lines
+ * are inserted one by one.
+ *
+ * @since 3.6
+ */
+public class LineTrackerSetTest {
+
+	static String createText(Random random, int lines, String[] delimiters) {
+		StringBuffer text= new StringBuffer();
+		for (int i= 0; i < lines; i++) {
+			int length= random.nextInt(8);
+			for (int k= 0; k < length; k++)
+				text.append((char) ('a' + random.nextInt(26)));
+			text.append(delimiters[random.nextInt(delimiters.length)]);
+		}
+		if (random.nextBoolean())
+			text.append("end");
+		return text.toString();
+	}
+
+	/**
+	 * Returns a tracker whose content is set after it has been modified once, which switches it
+	 * to the modifiable implementation.
+	 *
+	 * @param tracker the tracker to modify
+	 * @return the given tracker
+	 * @throws BadLocationException if the tracker cannot be modified
+	 */
+	static ILineTracker createModifiedTracker(ILineTracker tracker) throws BadLocationException {
+		tracker.set("");
+		tracker.replace(0, 0, "x");
+		return tracker;
+	}
+
+	private static void assertSameLines(String text, ILineTracker expected, ILineTracker actual) throws BadLocationException {
+		assertEquals(expected.getNumberOfLines(), actual.getNumberOfLines());
+		for (int i= 0; i < expected.getNumberOfLines(); i++) {
+			IRegion expectedLine= expected.getLineInformation(i);
+			IRegion actualLine= actual.getLineInformation(i);
+			assertEquals(expectedLine.getOffset(), actualLine.getOffset());
+			assertEquals(expectedLine.getLength(), actualLine.getLength());
+			assertEquals(expected.getLineDelimiter(i), actual.getLineDelimiter(i));
+		}
+		for (int offset= 0; offset <= text.length(); offset++)
+			assertEquals(expected.getLineNumberOfOffset(offset), actual.getLineNumberOfOffset(offset));
+	}
+
+	@Test
+	public void testSet() throws Exception {
+		Random random= new Random(4711);
+		String[] delimiters= { "\n", "\r", "\r\n" };
+		for (int i= 0; i < 100; i++) {
+			String text= createText(random, random.nextInt(50), delimiters);
+
+			ILineTracker inserted= createModifiedTracker(new DefaultLineTracker());
+			inserted.set("");
+			inserted.replace(0, 0, text);
+
+			ILineTracker set= createModifiedTracker(new DefaultLineTracker());
+			set.set(text);
+			assertSameLines(text, inserted, set);
+
+			ILineTracker converted= new DefaultLineTracker();
+			converted.set(text);
+			assertSameLines(text, inserted, converted);
+
+			// modifying converts the tracker
+			converted.replace(0, 0, "");
+			assertSameLines(text, inserted, converted);
+
+			set.replace(text.length() / 2, 0, "a\nb");
+			inserted.replace(text.length() / 2, 0, "a\nb");
+			assertSameLines(text + "a\nb", inserted, set);
+		}
+	}
+
+	@Test
+	public void testSetConfigurable() throws Exception {
+		Random random= new Random(4711);
+		String[] delimiters= { "\r\n", "--", "\r" };
+		for (int i= 0; i < 100; i++) {
+			String text= createText(random, random.nextInt(50), delimiters);
+
+			ILineTracker inserted= createModifiedTracker(new ConfigurableLineTracker(delimiters));
+			inserted.set("");
+			inserted.replace(0, 0, text);
+
+			ILineTracker set= createModifiedTracker(new ConfigurableLineTracker(delimiters));
+			set.set(text);
+			assertSameLines(text, inserted, set);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.CopyOnWriteTextStore;
+import org.eclipse.jface.text.GapTextStore;
+import org.eclipse.jface.text.ITextStore;
+import org.eclipse.jface.text.RopeTextStore;
+import org.eclipse.jface.text.SizeAdaptiveTextStore;
+
+/**
+ * Compares the time needed to set a very large text and to edit it at scattered offsets with the
+ * rope text store and with the gap based text stores used for smaller documents. Not part of the
+ * default test suite, see {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class RopeTextStorePerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+	private static final int EDITS= 1000;
+
+	private static interface StoreFactory {
+		ITextStore create();
+	}
+
+	private static final String TEXT;
+	static {
+		Random random= new Random(4711);
+		StringBuilder text= new StringBuilder(SizeAdaptiveTextStore.DEFAULT_THRESHOLD + 100);
+		while (text.length() < SizeAdaptiveTextStore.DEFAULT_THRESHOLD)
+			text.append(RopeTextStoreTest.randomText(random, 80)).append('\n');
+		TEXT= text.toString();
+	}
+
+	/**
+	 * Returns the fastest time to set the text and apply the same scattered edits.
+	 *
+	 * @param factory the factory of the measured text store
+	 * @return the time in nanoseconds
+	 */
+	private static long measureEdits(StoreFactory factory) {
+		long best= Long.MAX_VALUE;
+		for (int i= 0; i < RUNS; i++) {
+			Random random= new Random(1234);
+			ITextStore store= factory.create();
+			long start= System.nanoTime();
+			store.set(TEXT);
+			for (int k= 0; k < EDITS; k++) {
+				int offset= random.nextInt(store.getLength());
+				store.replace(offset, Math.min(random.nextInt(3), store.getLength() - offset), "edit");
+			}
+			best= Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	@Test
+	public void testScatteredEdits() {
+		long rope= measureEdits(new StoreFactory() {
+			@Override
+			public ITextStore create() {
+				return new RopeTextStore();
+			}
+		});
+		long gap= measureEdits(new StoreFactory() {
+			@Override
+			public ITextStore create() {
+				return new GapTextStore();
+			}
+		});
+		long copyOnWrite= measureEdits(new StoreFactory() {
+			@Override
+			public ITextStore create() {
+				return new CopyOnWriteTextStore(new GapTextStore());
+			}
+		});
+		String message= TEXT.length() / 1024 + "K characters, " + EDITS + " edits: rope " + rope / 1000000 + " ms, gap " + gap / 1000000 + " ms, copy on write " + copyOnWrite / 1000000 + " ms";
+		assertTrue(message, rope < gap);
+		assertTrue(message, rope < copyOnWrite);
+	}
+}
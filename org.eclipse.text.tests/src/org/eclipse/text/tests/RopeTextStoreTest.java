@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.jface.text.ITextStore;
+import org.eclipse.jface.text.RopeTextStore;
+import org.eclipse.jface.text.SizeAdaptiveTextStore;
+
+public class RopeTextStoreTest extends TextStoreTest {
+
+	@Override
+	protected ITextStore createTextStore() {
+		return new RopeTextStore();
+	}
+
+	@Test
+	public void testRandomEdits() {
+		Random random= new Random(4711);
+		ITextStore store= new RopeTextStore();
+		StringBuilder expected= new StringBuilder();
+		for (int i= 0; i < 20000; i++)
+			expected.append((char) ('a' + random.nextInt(26)));
+		store.set(expected.toString());
+
+		for (int i= 0; i < 5000; i++) {
+			int offset= random.nextInt(expected.length() + 1);
+			int length= random.nextInt(Math.min(expected.length() - offset, 3000) + 1);
+			String text= randomText(random, random.nextInt(4) == 0 ? 5000 : 10);
+			store.replace(offset, length, text);
+			expected.replace(offset, offset + length, text);
+
+			assertEquals(expected.length(), store.getLength());
+			int probe= random.nextInt(expected.length() + 1);
+			int probeLength= random.nextInt(expected.length() - probe + 1);
+			assertEquals(expected.substring(probe, probe + probeLength), store.get(probe, probeLength));
+		}
+		assertEquals(expected.toString(), store.get(0, store.getLength()));
+		for (int i= 0; i < expected.length(); i++)
+			assertEquals(expected.charAt(i), store.get(i));
+	}
+
+	@Test
+	public void testSequentialTyping() {
+		ITextStore store= new RopeTextStore();
+		StringBuilder expected= new StringBuilder();
+		for (int i= 0; i < 10000; i++) {
+			String text= i % 80 == 79 ? "\n" : String.valueOf((char) ('a' + i % 26));
+			store.replace(i, 0, text);
+			expected.append(text);
+		}
+		assertEquals(expected.toString(), store.get(0, store.getLength()));
+
+		// type in the middle
+		for (int i= 0; i < 5000; i++) {
+			store.replace(4000 + i, 0, "x");
+			expected.insert(4000 + i, 'x');
+		}
+		assertEquals(expected.toString(), store.get(0, store.getLength()));
+
+		// backspace in the middle
+		for (int i= 0; i < 3000; i++) {
+			store.replace(8000 - i, 1, null);
+			expected.deleteCharAt(8000 - i);
+		}
+		assertEquals(expected.toString(), store.get(0, store.getLength()));
+	}
+
+	@Test
+	public void testSizeAdaptiveTextStore() {
+		SizeAdaptiveTextStore store= new SizeAdaptiveTextStore(10);
+		store.set("small");
+		assertFalse(store.isUsingRope());
+		store.replace(5, 0, " content that gets large");
+		assertFalse(store.isUsingRope());
+		assertEquals("small content that gets large", store.get(0, store.getLength()));
+
+		store.set("large content");
+		assertTrue(store.isUsingRope());
+		store.replace(0, 5, "huge");
+		assertEquals("huge content", store.get(0, store.getLength()));
+
+		store.set("small");
+		assertFalse(store.isUsingRope());
+		assertEquals("small", store.get(0, store.getLength()));
+	}
+
+	static String randomText(Random random, int maxLength) {
+		int length= random.nextInt(maxLength + 1);
+		StringBuilder buffer= new StringBuilder(length);
+		for (int i= 0; i < length; i++)
+			buffer.append((char) ('A' + random.nextInt(26)));
+		return buffer.toString();
+	}
+}
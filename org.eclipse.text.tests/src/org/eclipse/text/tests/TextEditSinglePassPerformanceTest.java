@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.RangeMarker;
+import org.eclipse.text.edits.TextEdit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Compares the time needed to apply a large synthetic edit tree with
+ * {@link TextEdit#SINGLE_PASS} to applying it one edit at a time. Not part of the default test
+ * suite, see {@link EclipseTextPerformanceTestSuite}.
+ *
+ * @since 3.6
+ */
+public class TextEditSinglePassPerformanceTest {
+
+	/** The number of measurements, the fastest counts. */
+	private static final int RUNS= 3;
+
+	@Test
+	public void testApply() throws Exception {
+		String text= TextEditSinglePassTest.createText(new Random(4711), 2000000);
+		long oneByOne= Long.MAX_VALUE;
+		long single= Long.MAX_VALUE;
+		int edits= 0;
+		for (int i= 0; i < RUNS; i++) {
+			TextEdit tree= TextEditSinglePassTest.createTree(new Random(42), text.length());
+			edits= countLeaves(tree);
+			IDocument document= new Document(text);
+			long start= System.nanoTime();
+			tree.apply(document, TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+			oneByOne= Math.min(oneByOne, System.nanoTime() - start);
+
+			tree= TextEditSinglePassTest.createTree(new Random(42), text.length());
+			IDocument singlePass= new Document(text);
+			start= System.nanoTime();
+			tree.apply(singlePass, TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS | TextEdit.SINGLE_PASS);
+			single= Math.min(single, System.nanoTime() - start);
+
+			assertEquals(document.get(), singlePass.get());
+		}
+		assertTrue(edits + " edits: single pass " + single / 1000000 + " ms, one by one " + oneByOne / 1000000 + " ms", single < oneByOne);
+	}
+
+	private static int countLeaves(TextEdit edit) {
+		if (!edit.hasChildren())
+			return edit instanceof MultiTextEdit || edit instanceof RangeMarker ? 0 : 1;
+		int count= 0;
+		TextEdit[] children= edit.getChildren();
+		for (int i= 0; i < children.length; i++)
+			count+= countLeaves(children[i]);
+		return count;
+	}
+}
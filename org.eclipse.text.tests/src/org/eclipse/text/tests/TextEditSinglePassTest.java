@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.text.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MoveSourceEdit;
+import org.eclipse.text.edits.MoveTargetEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.RangeMarker;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Compares applying edit trees with {@link TextEdit#SINGLE_PASS} to applying them one edit at a
+ * time.
+ *
+ * @since 3.6
+ */
+public class TextEditSinglePassTest {
+
+	static String createText(Random random, int length) {
+		StringBuffer text= new StringBuffer(length);
+		for (int i= 0; i < length; i++)
+			text.append(random.nextInt(10) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+		return text.toString();
+	}
+
+	/**
+	 * Adds random non-overlapping edits between the given offsets to the parent, grouping some of
+	 * them in nested multi text edits and range markers.
+	 */
+	private static void addEdits(Random random, TextEdit parent, int offset, int end, int depth) {
+		while (offset < end) {
+			int gap= random.nextInt(8);
+			offset+= gap;
+			if (offset >= end)
+				break;
+			int length= Math.min(random.nextInt(6), end - offset);
+			switch (random.nextInt(depth < 3 ? 6 : 4)) {
+				case 0:
+					parent.addChild(new InsertEdit(offset, createText(random, 1 + random.nextInt(4))));
+					length= 0;
+					break;
+				case 1:
+					parent.addChild(new DeleteEdit(offset, length));
+					break;
+				case 2:
+				case 3:
+					parent.addChild(new ReplaceEdit(offset, length, createText(random, random.nextInt(6))));
+					break;
+				case 4:
+					length= Math.min(10 + random.nextInt(40), end - offset);
+					MultiTextEdit multi= new MultiTextEdit(offset, length);
+					addEdits(random, multi, offset, offset + length, depth + 1);
+					parent.addChild(multi);
+					break;
+				default:
+					length= Math.min(10 + random.nextInt(40), end - offset);
+					RangeMarker marker= new RangeMarker(offset, length);
+					addEdits(random, marker, offset, offset + length, depth + 1);
+					parent.addChild(marker);
+					break;
+			}
+			offset+= length;
+		}
+	}
+
+	static TextEdit createTree(Random random, int length) {
+		MultiTextEdit root= new MultiTextEdit();
+		addEdits(random, root, 0, length, 0);
+		return root;
+	}
+
+	private static void assertSameTree(TextEdit expected, TextEdit actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getOffset(), actual.getOffset());
+		assertEquals(expected.getLength(), actual.getLength());
+		assertEquals(expected.isDeleted(), actual.isDeleted());
+		if (expected instanceof ReplaceEdit)
+			assertEquals(((ReplaceEdit) expected).getText(), ((ReplaceEdit) actual).getText());
+		TextEdit[] expectedChildren= expected.getChildren();
+		TextEdit[] actualChildren= actual.getChildren();
+		assertEquals(expectedChildren.length, actualChildren.length);
+		for (int i= 0; i < expectedChildren.length; i++)
+			assertSameTree(expectedChildren[i], actualChildren[i]);
+	}
+
+	/**
+	 * Applies two equal trees one by one and in a single pass and compares the results.
+	 */
+	private static void assertSameExecution(String text, TextEdit tree, TextEdit copy, int style) throws Exception {
+		IDocument expected= new Document(text);
+		UndoEdit expectedUndo= tree.apply(expected, style);
+		IDocument actual= new Document(text);
+		UndoEdit actualUndo= copy.apply(actual, style | TextEdit.SINGLE_PASS);
+
+		assertEquals(expected.get(), actual.get());
+		if ((style & TextEdit.UPDATE_REGIONS) != 0)
+			assertSameTree(tree, copy);
+		if ((style & TextEdit.CREATE_UNDO) != 0) {
+			assertSameTree(expectedUndo, actualUndo);
+			actualUndo.apply(actual);
+			assertEquals(text, actual.get());
+		}
+	}
+
+	private static void assertSameExecution(String text, long seed, int style) throws Exception {
+		assertSameExecution(text, createTree(new Random(seed), text.length()), createTree(new Random(seed), text.length()), style);
+	}
+
+	private static TextEdit createInsertionsTree() {
+		MultiTextEdit root= new MultiTextEdit();
+		root.addChild(new InsertEdit(2, "a"));
+		root.addChild(new InsertEdit(2, "b"));
+		root.addChild(new ReplaceEdit(2, 3, "c"));
+		root.addChild(new InsertEdit(5, "d"));
+		return root;
+	}
+
+	private static TextEdit createMoveTree() {
+		MultiTextEdit root= new MultiTextEdit();
+		MoveSourceEdit source= new MoveSourceEdit(2, 2);
+		root.addChild(source);
+		root.addChild(new ReplaceEdit(5, 1, "x"));
+		root.addChild(new MoveTargetEdit(8, source));
+		return root;
+	}
+
+	private static TextEdit createNestedReplaceTree() {
+		ReplaceEdit parent= new ReplaceEdit(2, 5, "x");
+		parent.addChild(new InsertEdit(3, "y"));
+		MultiTextEdit root= new MultiTextEdit();
+		root.addChild(parent);
+		return root;
+	}
+
+	@Test
+	public void testRandomTrees() throws Exception {
+		Random random= new Random(4711);
+		for (int i= 0; i < 200; i++) {
+			String text= createText(random, random.nextInt(500));
+			assertSameExecution(text, random.nextLong(), random.nextInt(4));
+		}
+	}
+
+	@Test
+	public void testParallelBuilding() throws Exception {
+		String text= createText(new Random(4711), 400000);
+		assertSameExecution(text, 42, TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+	}
+
+	@Test
+	public void testInsertionsAtSameOffset() throws Exception {
+		assertSameExecution("0123456789", createInsertionsTree(), createInsertionsTree(), TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+	}
+
+	@Test
+	public void testEmptyTree() throws Exception {
+		assertSameExecution("0123456789", new MultiTextEdit(), new MultiTextEdit(), TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+	}
+
+	@Test
+	public void testMoveFallsBack() throws Exception {
+		assertSameExecution("0123456789", createMoveTree(), createMoveTree(), TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+	}
+
+	@Test
+	public void testNestedReplaceFallsBack() throws Exception {
+		assertSameExecution("0123456789", createNestedReplaceTree(), createNestedReplaceTree(), TextEdit.CREATE_UNDO | TextEdit.UPDATE_REGIONS);
+	}
+}
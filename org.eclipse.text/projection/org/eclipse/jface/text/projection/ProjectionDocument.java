@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -225,7 +225,7 @@ public class ProjectionDocument extends AbstractDocument {
 		try {
 
 			addPositionCategory(fSegmentsCategory);
-			fSegmentUpdater= new SegmentUpdater(fSegmentsCategory);
+			fSegmentUpdater= new SegmentUpdater(fSegmentsCategory, fMapping);
 			addPositionUpdater(fSegmentUpdater);
 
 			int offset= 0;
@@ -348,6 +348,7 @@ public class ProjectionDocument extends AbstractDocument {
 				Segment segment= createSegmentFor(fragment, index);
 				segment.markForStretch();
 			}
+			fMapping.segmentsChanged();
 
 			getTracker().replace(event.getOffset(), event.getLength(), event.getText());
 			super.fireDocumentChanged(event);
@@ -366,9 +367,19 @@ public class ProjectionDocument extends AbstractDocument {
 	 */
 	private Fragment findFragment(int offsetInMaster, int lengthInMaster) {
 		Position[] fragments= getFragments();
-		for (int i= 0; i < fragments.length; i++) {
+		int index;
+		try {
+			index= fMasterDocument.computeIndexInCategory(fFragmentsCategory, offsetInMaster);
+		} catch (BadPositionCategoryException e) {
+			internalError();
+			return null;
+		} catch (BadLocationException e) {
+			return null;
+		}
+		// only the fragment left of the index and those starting at the offset can comprise the range
+		for (int i= Math.max(index - 1, 0); i < fragments.length && fragments[i].getOffset() <= offsetInMaster; i++) {
 			Fragment f= (Fragment) fragments[i];
-			if (f.getOffset() <= offsetInMaster && offsetInMaster + lengthInMaster <= f.getOffset() + f.getLength())
+			if (offsetInMaster + lengthInMaster <= f.getOffset() + f.getLength())
 				return f;
 		}
 		return null;
@@ -429,6 +440,7 @@ public class ProjectionDocument extends AbstractDocument {
 				fragment.setLength(offsetInMaster - fragment.getOffset());
 				fragment.segment.setLength(imageRegion.getOffset() - fragment.segment.getOffset());
 			}
+			fMapping.segmentsChanged();
 
 			getTracker().replace(event.getOffset(), event.getLength(), event.getText());
 			super.fireDocumentChanged(event);
@@ -499,31 +511,35 @@ public class ProjectionDocument extends AbstractDocument {
 	 */
 	private IRegion computeFirstUnprojectedMasterRegion(int offsetInMaster, int lengthInMaster) throws BadLocationException {
 
-		IRegion[] fragments= null;
-		IRegion imageRegion= fMapping.toImageRegion(new Region(offsetInMaster, lengthInMaster));
-		if (imageRegion != null)
-			fragments= fMapping.toExactOriginRegions(imageRegion);
-
-		if (fragments == null || fragments.length == 0)
-			return new Region(offsetInMaster, lengthInMaster);
-
-		IRegion region= fragments[0];
-		if (offsetInMaster < region.getOffset())
-			return new Region(offsetInMaster, region.getOffset() - offsetInMaster);
+		/*
+		 * Only visit the fragments up to the first gap instead of mapping the whole range, as this
+		 * method is called once per gap when adding a range.
+		 */
+		Position[] fragments= getFragments();
+		int index;
+		try {
+			index= fMasterDocument.computeIndexInCategory(fFragmentsCategory, offsetInMaster);
+		} catch (BadPositionCategoryException x) {
+			internalError();
+			return null;
+		}
 
-		for (int i= 0; i < fragments.length - 1; i++) {
-			IRegion left= fragments[i];
-			IRegion right= fragments[i + 1];
-			int leftEnd= left.getOffset() + left.getLength();
-			if (leftEnd < right.getOffset())
-				return new Region(leftEnd, right.getOffset() - leftEnd);
+		int endOffset= offsetInMaster + lengthInMaster;
+		int offset= offsetInMaster;
+		for (int i= Math.max(index - 1, 0); i < fragments.length; i++) {
+			Position fragment= fragments[i];
+			if (fragment.getOffset() >= endOffset)
+				break;
+			int fragmentEnd= fragment.getOffset() + fragment.getLength();
+			if (fragmentEnd <= offset && (fragment.getLength() > 0 || fragment.getOffset() < offset))
+				continue;
+			if (offset < fragment.getOffset())
+				return new Region(offset, fragment.getOffset() - offset);
+			offset= Math.max(offset, fragmentEnd);
 		}
 
-		region= fragments[fragments.length - 1];
-		int leftEnd= region.getOffset() + region.getLength();
-		int rightEnd= offsetInMaster + lengthInMaster;
-		if (leftEnd < rightEnd)
-			return new Region(leftEnd, rightEnd - leftEnd);
+		if (offset < endOffset)
+			return new Region(offset, endOffset - offset);
 
 		return null;
 	}
@@ -815,6 +831,7 @@ public class ProjectionDocument extends AbstractDocument {
 					segment.setLength(segment.getLength() + next.getLength());
 					fragment.setLength(fragment.getLength() + next.fragment.getLength());
 					next.delete();
+					fMapping.segmentsChanged();
 				}
 			}
 		}
@@ -887,4 +904,109 @@ public class ProjectionDocument extends AbstractDocument {
 			internalError();
 		}
 	}
+
+	/**
+	 * Replaces all master document ranges with the given master document ranges.
+	 * Independent of the number of ranges, the projection is changed in one pass
+	 * and by a single document event that replaces the whole content of this
+	 * document. Clients changing many ranges at once, e.g. when collapsing all
+	 * folding regions of a document, should use this method rather than adding or
+	 * removing the ranges one by one.
+	 * <p>
+	 * The result is the same as the one of removing all unprojected ranges from a
+	 * projection of the whole master document.
+	 * </p>
+	 *
+	 * @param ranges the master document ranges, sorted by offset and not overlapping
+	 * @throws BadLocationException if one of the given ranges is not valid in the
+	 *             master document
+	 * @throws IllegalArgumentException if the ranges are not sorted or overlap
+	 * @since 3.6
+	 */
+	public void replaceMasterDocumentRanges(IRegion[] ranges) throws BadLocationException {
+
+		List<IRegion> merged= new ArrayList<>(ranges.length);
+		int masterLength= fMasterDocument.getLength();
+		int previousEnd= 0;
+		for (int i= 0; i < ranges.length; i++) {
+			int offset= ranges[i].getOffset();
+			int length= ranges[i].getLength();
+			if (offset < 0 || length < 0 || offset + length > masterLength)
+				throw new BadLocationException();
+			if (offset < previousEnd)
+				throw new IllegalArgumentException();
+			if (length == 0)
+				continue;
+
+			int last= merged.size() - 1;
+			if (last >= 0 && offset == previousEnd) {
+				IRegion previous= merged.get(last);
+				merged.set(last, new Region(previous.getOffset(), offset + length - previous.getOffset()));
+			} else {
+				merged.add(new Region(offset, length));
+			}
+			previousEnd= offset + length;
+		}
+
+		if (merged.isEmpty()) {
+			replaceMasterDocumentRanges(masterLength, 0);
+			return;
+		}
+		if (previousEnd < masterLength) {
+			// like after removing the end of the master document, keep an empty fragment at its end
+			merged.add(new Region(masterLength, 0));
+		}
+		if (merged.size() == 1) {
+			IRegion range= merged.get(0);
+			replaceMasterDocumentRanges(range.getOffset(), range.getLength());
+			return;
+		}
+
+		StringBuffer text= new StringBuffer();
+		for (int i= 0; i < merged.size(); i++) {
+			IRegion range= merged.get(i);
+			text.append(fMasterDocument.get(range.getOffset(), range.getLength()));
+		}
+
+		try {
+
+			IRegion first= merged.get(0);
+			int masterEnd= merged.get(merged.size() - 1).getOffset() + merged.get(merged.size() - 1).getLength();
+			ProjectionDocumentEvent event= new ProjectionDocumentEvent(this, 0, fMapping.getImageLength(), text.toString(), first.getOffset(), masterEnd - first.getOffset());
+			super.fireDocumentAboutToBeChanged(event);
+
+			// remove from the end, which avoids shifting the remaining positions
+			Position[] fragments= getFragments();
+			for (int i= fragments.length - 1; i >= 0; i--) {
+				Fragment fragment= (Fragment) fragments[i];
+				fMasterDocument.removePosition(fFragmentsCategory, fragment);
+				removePosition(fSegmentsCategory, fragment.segment);
+			}
+
+			// the segments are set up for the new content, the segment updater must not adapt them
+			fMapping.segmentsChanged(text.length());
+			int offset= 0;
+			for (int i= 0; i < merged.size(); i++) {
+				IRegion range= merged.get(i);
+				Fragment fragment= new Fragment(range.getOffset(), range.getLength());
+				Segment segment= new Segment(offset, range.getLength());
+				segment.fragment= fragment;
+				fragment.segment= segment;
+				fMasterDocument.addPosition(fFragmentsCategory, fragment);
+				addPosition(fSegmentsCategory, segment);
+				offset+= range.getLength();
+			}
+
+			getTracker().set(event.getText());
+			fSegmentUpdater.setSkipNextUpdate(true);
+			try {
+				super.fireDocumentChanged(event);
+			} finally {
+				fSegmentUpdater.setSkipNextUpdate(false);
+			}
+
+		} catch (BadPositionCategoryException x) {
+			internalError();
+		}
+	}
 }
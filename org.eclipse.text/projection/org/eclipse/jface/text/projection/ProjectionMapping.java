@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -51,6 +51,11 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 	private Position[] fCachedSegments;
 	/** Cached fragments */
 	private Position[] fCachedFragments;
+	/**
+	 * Cached image length, <code>-1</code> if not yet computed
+	 * @since 3.6
+	 */
+	private int fCachedImageLength= -1;
 
 	/**
 	 * Creates a new mapping between the given parent document and the given projection document.
@@ -73,6 +78,28 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 	public void projectionChanged() {
 		fCachedSegments= null;
 		fCachedFragments= null;
+		fCachedImageLength= -1;
+	}
+
+	/**
+	 * Notifies this projection mapping that the segments have been updated
+	 * without a change of the projection, e.g. by the segment updater.
+	 *
+	 * @since 3.6
+	 */
+	void segmentsChanged() {
+		fCachedImageLength= -1;
+	}
+
+	/**
+	 * Notifies this projection mapping that the segments are being replaced by
+	 * segments of the given total length.
+	 *
+	 * @param imageLength the length of the image after the replacement
+	 * @since 3.6
+	 */
+	void segmentsChanged(int imageLength) {
+		fCachedImageLength= imageLength;
 	}
 
 	private Position[] getSegments() {
@@ -543,11 +570,14 @@ public class ProjectionMapping implements IDocumentInformationMapping , IDocumen
 
 	@Override
 	public int getImageLength() {
-		Position[] segments= getSegments();
-		int length= 0;
-		for (int i= 0; i < segments.length; i++)
-			length += segments[i].length;
-		return length;
+		if (fCachedImageLength == -1) {
+			Position[] segments= getSegments();
+			int length= 0;
+			for (int i= 0; i < segments.length; i++)
+				length += segments[i].length;
+			fCachedImageLength= length;
+		}
+		return fCachedImageLength;
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,16 @@ class SegmentUpdater extends DefaultPositionUpdater {
 
 	private Segment fNextSegment= null;
 	private boolean fIsProjectionChange= false;
+	/**
+	 * The mapping to notify about updated segments, or <code>null</code>
+	 * @since 3.6
+	 */
+	private ProjectionMapping fMapping;
+	/**
+	 * Tells whether the segments have already been set up for the next change
+	 * @since 3.6
+	 */
+	private boolean fIsSkippingNextUpdate= false;
 
 	/**
 	 * Creates the segment updater for the given category.
@@ -39,13 +49,44 @@ class SegmentUpdater extends DefaultPositionUpdater {
 	 * @param segmentCategory the position category used for managing the segments of a projection document
 	 */
 	protected SegmentUpdater(String segmentCategory) {
+		this(segmentCategory, null);
+	}
+
+	/**
+	 * Creates the segment updater for the given category that notifies the
+	 * given mapping whenever it has updated the segments.
+	 *
+	 * @param segmentCategory the position category used for managing the segments of a projection document
+	 * @param mapping the projection mapping to notify, or <code>null</code>
+	 * @since 3.6
+	 */
+	SegmentUpdater(String segmentCategory, ProjectionMapping mapping) {
 		super(segmentCategory);
+		fMapping= mapping;
+	}
+
+	/**
+	 * Tells this updater whether to leave the segments untouched on the next
+	 * change, because they already describe the result of that change.
+	 *
+	 * @param skip <code>true</code> if the next update should be skipped
+	 * @since 3.6
+	 */
+	void setSkipNextUpdate(boolean skip) {
+		fIsSkippingNextUpdate= skip;
 	}
 
 	@Override
 	public void update(DocumentEvent event) {
 
 		Assert.isTrue(event instanceof ProjectionDocumentEvent);
+		if (fIsSkippingNextUpdate) {
+			fIsSkippingNextUpdate= false;
+			if (fMapping != null)
+				fMapping.segmentsChanged();
+			return;
+		}
+
 		fIsProjectionChange= ((ProjectionDocumentEvent) event).getChangeType() == ProjectionDocumentEvent.PROJECTION_CHANGE;
 
 		try {
@@ -77,6 +118,9 @@ class SegmentUpdater extends DefaultPositionUpdater {
 
 		} catch (BadPositionCategoryException x) {
 			// do nothing
+		} finally {
+			if (fMapping != null)
+				fMapping.segmentsChanged();
 		}
 	}
 
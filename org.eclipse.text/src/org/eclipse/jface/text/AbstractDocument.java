@@ -31,7 +31,8 @@ import org.eclipse.core.runtime.SafeRunner;
  * interfaces {@link org.eclipse.jface.text.IDocumentExtension},
  * {@link org.eclipse.jface.text.IDocumentExtension2},
  * {@link org.eclipse.jface.text.IDocumentExtension3},
- * {@link org.eclipse.jface.text.IDocumentExtension4}, as well as
+ * {@link org.eclipse.jface.text.IDocumentExtension4},
+ * {@link org.eclipse.jface.text.IDocumentExtension5}, as well as
  * {@link org.eclipse.jface.text.IRepairableDocument}.
  * <p>
  *
@@ -54,7 +55,7 @@ import org.eclipse.core.runtime.SafeRunner;
  * @see org.eclipse.jface.text.ITextStore
  * @see org.eclipse.jface.text.ILineTracker
  */
-public abstract class AbstractDocument implements IDocument, IDocumentExtension, IDocumentExtension2, IDocumentExtension3, IDocumentExtension4, IRepairableDocument, IRepairableDocumentExtension {
+public abstract class AbstractDocument implements IDocument, IDocumentExtension, IDocumentExtension2, IDocumentExtension3, IDocumentExtension4, IDocumentExtension5, IRepairableDocument, IRepairableDocumentExtension {
 
 	/**
 	 * Tells whether this class is in debug mode.
@@ -106,6 +107,16 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 	private Map<String, List<Position>> fEndPositions;
 	/** All registered document position updaters */
 	private List<IPositionUpdater> fPositionUpdaters;
+	/**
+	 * The number of positions that have been updated eagerly.
+	 * @since 3.6
+	 */
+	private long fEagerlyUpdatedPositions;
+	/**
+	 * The number of positions whose update has been deferred.
+	 * @since 3.6
+	 */
+	private long fLazilyUpdatedPositions;
 	/**
 	 * The list of post notification changes
 	 * @since 2.0
@@ -350,6 +361,10 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		List<Position> list= fPositions.get(category);
 		if (list == null)
 			throw new BadPositionCategoryException();
+		if (list instanceof PositionTree) {
+			list.add(position);
+			return;
+		}
 		list.add(computeIndexInPositionList(list, position.offset), position);
 
 		List<Position> endPositions= fEndPositions.get(category);
@@ -378,6 +393,64 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		}
 	}
 
+	/**
+	 * Adds a new position category whose positions are stored in an interval tree instead of
+	 * sorted lists. If the category already exists, its positions are moved to an interval tree.
+	 * <p>
+	 * For an indexed category, adding and removing a position and
+	 * {@link #getPositions(String, int, int, boolean, boolean) querying the positions of a region}
+	 * perform in <i>O(log n)</i> (plus the number of returned positions), and the cost of
+	 * adapting the index to a document change only depends on the number of positions touching
+	 * the changed region. The positions themselves are still updated by the registered position
+	 * updaters, which must shift positions starting after the changed region by the length
+	 * difference of the change, as {@link DefaultPositionUpdater} does.
+	 * </p>
+	 * <p>
+	 * Indexed categories are recommended for categories with a large number of positions, e.g. for
+	 * annotations or markers.
+	 * </p>
+	 *
+	 * @param category the category to be indexed
+	 * @since 3.6
+	 */
+	public void addIndexedPositionCategory(String category) {
+		addIndexedPositionCategory(category, false);
+	}
+
+	/**
+	 * Adds a new position category whose positions are stored in an interval tree, see
+	 * {@link #addIndexedPositionCategory(String)}. If the category already exists, its positions
+	 * are moved to an interval tree.
+	 * <p>
+	 * If <code>updateLazily</code> is <code>true</code>, a document change only updates the
+	 * positions touching the changed region. The positions after the changed region are shifted
+	 * inside the index, their offsets are only written when they are returned by one of the
+	 * <code>getPositions</code> methods of this document. Typing in front of many positions then
+	 * performs independent of their number. In turn, clients must not keep and read positions of
+	 * such a category without getting them from the document, and must not modify them directly.
+	 * Only a {@link DefaultPositionUpdater} registered with this document must update the
+	 * category.
+	 * </p>
+	 *
+	 * @param category the category to be indexed
+	 * @param updateLazily <code>true</code> if positions after a change are to be updated lazily
+	 * @see #getEagerlyUpdatedPositionCount()
+	 * @see #getLazilyUpdatedPositionCount()
+	 * @since 3.6
+	 */
+	public void addIndexedPositionCategory(String category, boolean updateLazily) {
+
+		if (category == null)
+			return;
+
+		List<Position> positions= fPositions.get(category);
+		if (positions instanceof PositionTree && ((PositionTree) positions).isLazy() == updateLazily)
+			return;
+
+		fPositions.put(category, positions == null ? new PositionTree(updateLazily) : new PositionTree(positions, updateLazily));
+		fEndPositions.remove(category);
+	}
+
 	@Override
 	public void addPositionUpdater(IPositionUpdater updater) {
 		insertPositionUpdater(updater, fPositionUpdaters.size());
@@ -393,6 +466,9 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		if (list == null)
 			return false;
 
+		if (list instanceof PositionTree)
+			return ((PositionTree) list).contains(offset, length);
+
 		int size= list.size();
 		if (size == 0)
 			return false;
@@ -520,6 +596,9 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		if (c == null)
 			throw new BadPositionCategoryException();
 
+		if (c instanceof PositionTree)
+			return ((PositionTree) c).computeIndex(offset);
+
 		return computeIndexInPositionList(c, offset);
 	}
 
@@ -957,6 +1036,26 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		return getStore().get(0, getLength());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The content is shared with the text store if it implements {@link ITextStoreExtension} and
+	 * can provide a snapshot, and copied otherwise.
+	 * </p>
+	 *
+	 * @since 3.6
+	 */
+	@Override
+	public IDocumentSnapshot getSnapshot() {
+		CharSequence text= null;
+		ITextStore store= getStore();
+		if (store instanceof ITextStoreExtension)
+			text= ((ITextStoreExtension) store).getSnapshot();
+		if (text == null)
+			text= get();
+		return new DocumentSnapshot(text, getLegalLineDelimiters(), getModificationStamp());
+	}
+
 	@Override
 	public String get(int pos, int length) throws BadLocationException {
 		int myLength= getLength();
@@ -991,6 +1090,10 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 		List<Position> c= fPositions.get(category);
 		if (c == null)
 			throw new BadPositionCategoryException();
+		if (c instanceof PositionTree) {
+			((PositionTree) c).removePosition(position);
+			return;
+		}
 		removeFromPositionsList(c, position, true);
 
 		List<Position> endPositions= fEndPositions.get(category);
@@ -1150,14 +1253,82 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 	 *            the positions
 	 */
 	protected void updatePositions(DocumentEvent event) {
-		List<IPositionUpdater> list= new ArrayList<>(fPositionUpdaters);
-		Iterator<IPositionUpdater> e= list.iterator();
-		while (e.hasNext()) {
-			IPositionUpdater u= e.next();
-			u.update(event);
+		List<PositionTree> trees= null;
+		for (List<Position> positions : fPositions.values()) {
+			if (positions instanceof PositionTree) {
+				if (trees == null)
+					trees= new ArrayList<>();
+				PositionTree tree= (PositionTree) positions;
+				fLazilyUpdatedPositions+= tree.aboutToBeUpdated(event);
+				fEagerlyUpdatedPositions+= tree.isLazy() ? tree.getAffectedPositionCount() : tree.size();
+				trees.add(tree);
+			} else {
+				fEagerlyUpdatedPositions+= positions.size();
+			}
+		}
+
+		try {
+			List<IPositionUpdater> list= new ArrayList<>(fPositionUpdaters);
+			Iterator<IPositionUpdater> e= list.iterator();
+			while (e.hasNext()) {
+				IPositionUpdater u= e.next();
+				u.update(event);
+			}
+		} finally {
+			if (trees != null) {
+				for (PositionTree tree : trees)
+					tree.updated();
+			}
 		}
 	}
 
+	/**
+	 * Returns the positions of the given category that have to be updated by a position updater
+	 * for the document change that is currently processed. For a lazily updated category, these
+	 * are only the positions touching the changed region, otherwise all positions of the category.
+	 *
+	 * @param category the position category
+	 * @return the positions to update
+	 * @throws BadPositionCategoryException if category is undefined in this document
+	 * @see #addIndexedPositionCategory(String, boolean)
+	 * @since 3.6
+	 */
+	Position[] getPositionsToUpdate(String category) throws BadPositionCategoryException {
+		List<Position> c= category == null ? null : fPositions.get(category);
+		if (c instanceof PositionTree && ((PositionTree) c).isLazy()) {
+			Position[] positions= ((PositionTree) c).getAffectedPositions();
+			if (positions != null)
+				return positions;
+		}
+		return getPositions(category);
+	}
+
+	/**
+	 * Returns the number of positions that have been updated eagerly since this document has been
+	 * created, i.e. the number of positions that have been passed to the position updaters. For
+	 * every document change, this includes all positions of the categories that are not
+	 * {@link #addIndexedPositionCategory(String, boolean) updated lazily}.
+	 *
+	 * @return the number of eagerly updated positions
+	 * @since 3.6
+	 */
+	public long getEagerlyUpdatedPositionCount() {
+		return fEagerlyUpdatedPositions;
+	}
+
+	/**
+	 * Returns the number of positions whose update has been deferred since this document has been
+	 * created, i.e. the number of positions after a changed region of a
+	 * {@link #addIndexedPositionCategory(String, boolean) lazily updated category} that have been
+	 * shifted without being passed to the position updaters.
+	 *
+	 * @return the number of lazily updated positions
+	 * @since 3.6
+	 */
+	public long getLazilyUpdatedPositionCount() {
+		return fLazilyUpdatedPositions;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -1596,11 +1767,16 @@ public abstract class AbstractDocument implements IDocument, IDocumentExtension,
 	 * @since 3.4
 	 */
 	public Position[] getPositions(String category, int offset, int length, boolean canStartBefore, boolean canEndAfter) throws BadPositionCategoryException {
+		List<Position> c= category == null ? null : fPositions.get(category);
+		if (c instanceof PositionTree)
+			return ((PositionTree) c).getPositions(offset, length, canStartBefore, canEndAfter);
+
 		if (canStartBefore && canEndAfter || (!canStartBefore && !canEndAfter)) {
 			List<Position> documentPositions;
 			if (canStartBefore && canEndAfter) {
 				if (offset < getLength() / 2) {
-					documentPositions= getStartingPositions(category, 0, offset + length);
+					// an empty region overlaps with the positions that start at its offset
+					documentPositions= getStartingPositions(category, 0, offset + Math.max(length, 1));
 				} else {
 					documentPositions= getEndingPositions(category, offset, getLength() - offset + 1);
 				}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,12 @@ import java.util.List;
  * <li> "a\nbc\n" -> [0,2], [2,3], [5,0]
  * </ul>
  * <p>
+ * The line information of large texts, with a million characters or more, is stored in
+ * primitive arrays, which need much less memory than the line objects used for smaller texts.
+ * Since modifying the arrays is slower, the line information is converted to line objects when
+ * such a text is first modified.
+ * </p>
+ * <p>
  * This class must be subclassed.
  * </p>
  */
@@ -39,6 +45,11 @@ public abstract class AbstractLineTracker implements ILineTracker, ILineTrackerE
 	 */
 	private static final boolean DEBUG= false;
 
+	/**
+	 * The text length from which the line information is stored in primitive arrays.
+	 */
+	private static final int COMPACT_THRESHOLD= 1024 * 1024;
+
 	/**
 	 * Combines the information of the occurrence of a line delimiter. <code>delimiterIndex</code>
 	 * is the index where a line delimiter starts, whereas <code>delimiterLength</code>,
@@ -94,17 +105,7 @@ public abstract class AbstractLineTracker implements ILineTracker, ILineTrackerE
 	 *
 	 * @since 3.2
 	 */
-	private ILineTracker fDelegate= new ListLineTracker() {
-		@Override
-		public String[] getLegalLineDelimiters() {
-			return AbstractLineTracker.this.getLegalLineDelimiters();
-		}
-
-		@Override
-		protected DelimiterInfo nextDelimiterInfo(String text, int offset) {
-			return AbstractLineTracker.this.nextDelimiterInfo(text, offset);
-		}
-	};
+	private ILineTracker fDelegate= createListLineTracker();
 	/**
 	 * Whether the delegate needs conversion when the line structure is modified.
 	 */
@@ -181,9 +182,49 @@ public abstract class AbstractLineTracker implements ILineTracker, ILineTrackerE
 			return;
 		}
 
+		if (text != null && text.length() >= COMPACT_THRESHOLD) {
+			if (!(fDelegate instanceof ArrayLineTracker)) {
+				fNeedsConversion= true;
+				fDelegate= new ArrayLineTracker() {
+					@Override
+					protected DelimiterInfo nextDelimiterInfo(String string, int offset) {
+						return AbstractLineTracker.this.nextDelimiterInfo(string, offset);
+					}
+
+					@Override
+					public String[] getLegalLineDelimiters() {
+						return AbstractLineTracker.this.getLegalLineDelimiters();
+					}
+				};
+			}
+		} else if (fDelegate instanceof ArrayLineTracker) {
+			fNeedsConversion= true;
+			fDelegate= createListLineTracker();
+		}
+
 		fDelegate.set(text);
 	}
 
+	/**
+	 * Creates the list based implementation used for texts that have not been modified.
+	 *
+	 * @return the list line tracker
+	 * @since 3.6
+	 */
+	private ListLineTracker createListLineTracker() {
+		return new ListLineTracker() {
+			@Override
+			public String[] getLegalLineDelimiters() {
+				return AbstractLineTracker.this.getLegalLineDelimiters();
+			}
+
+			@Override
+			protected DelimiterInfo nextDelimiterInfo(String text, int offset) {
+				return AbstractLineTracker.this.nextDelimiterInfo(text, offset);
+			}
+		};
+	}
+
 	@Override
 	public void replace(int offset, int length, String text) throws BadLocationException {
 		if (hasActiveRewriteSession()) {
@@ -204,17 +245,31 @@ public abstract class AbstractLineTracker implements ILineTracker, ILineTrackerE
 	private void checkImplementation() {
 		if (fNeedsConversion) {
 			fNeedsConversion= false;
-			fDelegate= new TreeLineTracker((ListLineTracker) fDelegate) {
-				@Override
-				protected DelimiterInfo nextDelimiterInfo(String text, int offset) {
-					return AbstractLineTracker.this.nextDelimiterInfo(text, offset);
-				}
-
-				@Override
-				public String[] getLegalLineDelimiters() {
-					return AbstractLineTracker.this.getLegalLineDelimiters();
-				}
-			};
+			if (fDelegate instanceof ArrayLineTracker) {
+				fDelegate= new TreeLineTracker((ArrayLineTracker) fDelegate) {
+					@Override
+					protected DelimiterInfo nextDelimiterInfo(String text, int offset) {
+						return AbstractLineTracker.this.nextDelimiterInfo(text, offset);
+					}
+
+					@Override
+					public String[] getLegalLineDelimiters() {
+						return AbstractLineTracker.this.getLegalLineDelimiters();
+					}
+				};
+			} else {
+				fDelegate= new TreeLineTracker((ListLineTracker) fDelegate) {
+					@Override
+					protected DelimiterInfo nextDelimiterInfo(String text, int offset) {
+						return AbstractLineTracker.this.nextDelimiterInfo(text, offset);
+					}
+
+					@Override
+					public String[] getLegalLineDelimiters() {
+						return AbstractLineTracker.this.getLegalLineDelimiters();
+					}
+				};
+			}
 		}
 	}
 
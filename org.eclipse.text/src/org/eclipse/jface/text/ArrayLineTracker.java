@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.text.AbstractLineTracker.DelimiterInfo;
+
+/**
+ * Abstract implementation of <code>ILineTracker</code> that stores the line information in
+ * primitive arrays. It lets the definition of line delimiters to subclasses and defines the same
+ * line scheme as {@link TreeLineTracker}.
+ * <p>
+ * The lines are grouped into blocks of at most {@link #BLOCK_SIZE} lines. Each block stores the
+ * offsets of its lines relative to the start of the block in an <code>int[]</code>, and the
+ * delimiters of its lines as indices into a small table of delimiters in a <code>byte[]</code>.
+ * This takes about five bytes per line, compared to about fifty for the nodes of a
+ * {@link TreeLineTracker}.
+ * </p>
+ * <p>
+ * This class must be subclassed.
+ * </p>
+ * <p>
+ * The line information cannot be modified, except by setting the whole text. Replacing text is not
+ * supported, the line information is converted to a {@link TreeLineTracker} instead.
+ * </p>
+ * <p>
+ * <strong>Performance:</strong> The query operations perform in <i>O(log n)</i> where <var>n</var>
+ * is the number of lines in the document. Setting the whole text performs in <i>O(n)</i>.
+ * </p>
+ *
+ * @since 3.6
+ */
+abstract class ArrayLineTracker implements ILineTracker {
+
+	/**
+	 * The maximum number of lines in a block.
+	 */
+	private static final int BLOCK_SIZE= 1024;
+
+	/**
+	 * The delimiters referenced by the line delimiter indices. The first entry stands for the last
+	 * line, which has no delimiter.
+	 */
+	private String[] fDelimiters= { null };
+	/** The number of blocks. */
+	private int fBlockCount;
+	/** The offsets of the lines of each block, relative to the offset of the block. */
+	private int[][] fLineOffsets;
+	/** The delimiter indices of the lines of each block. */
+	private byte[][] fLineDelimiters;
+	/** The offset of each block. */
+	private int[] fBlockOffsets;
+	/** The number of the first line of each block. */
+	private int[] fBlockLines;
+	/** The number of lines. */
+	private int fNumberOfLines;
+	/** The length of the tracked text. */
+	private int fTextLength;
+
+	/**
+	 * Creates a new line tracker.
+	 */
+	protected ArrayLineTracker() {
+		fLineOffsets= new int[][] { { 0 } };
+		fLineDelimiters= new byte[][] { { 0 } };
+		fBlockOffsets= new int[] { 0 };
+		fBlockLines= new int[] { 0 };
+		fBlockCount= 1;
+		fNumberOfLines= 1;
+	}
+
+	/**
+	 * Returns the information about the first delimiter found in the given text starting at the
+	 * given offset.
+	 *
+	 * @param text the text to be searched
+	 * @param offset the offset in the given text
+	 * @return the information of the first found delimiter or <code>null</code>
+	 */
+	protected abstract DelimiterInfo nextDelimiterInfo(String text, int offset);
+
+	/**
+	 * Returns the index of the given delimiter in the delimiter table, adding it if necessary.
+	 *
+	 * @param delimiter the delimiter
+	 * @return the index of the delimiter
+	 */
+	private byte indexOf(String delimiter) {
+		for (int i= 1; i < fDelimiters.length; i++) {
+			if (fDelimiters[i] == delimiter || fDelimiters[i].equals(delimiter))
+				return (byte) i;
+		}
+		int index= fDelimiters.length;
+		fDelimiters= Arrays.copyOf(fDelimiters, index + 1);
+		fDelimiters[index]= delimiter;
+		return (byte) index;
+	}
+
+	/**
+	 * Returns the length of the delimiter with the given index.
+	 *
+	 * @param index the delimiter index
+	 * @return the length of the delimiter, 0 for the last line
+	 */
+	private int delimiterLength(byte index) {
+		return index == 0 ? 0 : fDelimiters[index].length();
+	}
+
+	/**
+	 * Returns the block containing the given offset. If the offset is between two blocks, the block
+	 * starting at <code>offset</code> is returned.
+	 *
+	 * @param offset a valid document offset
+	 * @return the block index
+	 */
+	private int blockByOffset(int offset) {
+		return findLast(fBlockOffsets, fBlockCount, offset);
+	}
+
+	/**
+	 * Returns the block containing the given line.
+	 *
+	 * @param line a valid line number
+	 * @return the block index
+	 */
+	private int blockByLine(int line) {
+		return findLast(fBlockLines, fBlockCount, line);
+	}
+
+	/**
+	 * Returns the index of the last of the first <code>length</code> elements of the given
+	 * ascending array that is smaller than or equal to <code>value</code>.
+	 *
+	 * @param array the array to search, the first element must not be greater than
+	 *            <code>value</code>
+	 * @param length the number of elements to search
+	 * @param value the value to search
+	 * @return the index of the last element smaller than or equal to <code>value</code>
+	 */
+	private static int findLast(int[] array, int length, int value) {
+		int left= 0;
+		int right= length - 1;
+		while (left < right) {
+			int mid= (left + right + 1) >>> 1;
+			if (array[mid] <= value)
+				left= mid;
+			else
+				right= mid - 1;
+		}
+		return left;
+	}
+
+	/**
+	 * Returns the end offset of the given line, relative to the offset of its block.
+	 *
+	 * @param block the block index
+	 * @param index the index of the line in the block
+	 * @return the relative end offset of the line, including its delimiter
+	 */
+	private int lineEnd(int block, int index) {
+		int[] offsets= fLineOffsets[block];
+		if (index + 1 < offsets.length)
+			return offsets[index + 1];
+		int end= block + 1 < fBlockCount ? fBlockOffsets[block + 1] : fTextLength;
+		return end - fBlockOffsets[block];
+	}
+
+	/**
+	 * Returns the line number for the given offset. If the offset is between two lines, the line
+	 * starting at <code>offset</code> is returned. The last line is returned if
+	 * <code>offset</code> is equal to the document length.
+	 *
+	 * @param offset a document offset
+	 * @return the line number starting at or containing <code>offset</code>
+	 * @throws BadLocationException if the offset is invalid
+	 */
+	private int lineByOffset(int offset) throws BadLocationException {
+		if (offset < 0 || offset > fTextLength)
+			throw new BadLocationException();
+		int block= blockByOffset(offset);
+		int[] offsets= fLineOffsets[block];
+		return fBlockLines[block] + findLast(offsets, offsets.length, offset - fBlockOffsets[block]);
+	}
+
+	/**
+	 * Checks the given line number.
+	 *
+	 * @param line the line number
+	 * @throws BadLocationException if the line is invalid
+	 */
+	private void checkLine(int line) throws BadLocationException {
+		if (line < 0 || line >= fNumberOfLines)
+			throw new BadLocationException();
+	}
+
+	@Override
+	public final String getLineDelimiter(int line) throws BadLocationException {
+		checkLine(line);
+		int block= blockByLine(line);
+		return fDelimiters[fLineDelimiters[block][line - fBlockLines[block]]];
+	}
+
+	@Override
+	public final int computeNumberOfLines(String text) {
+		int count= 0;
+		int start= 0;
+		DelimiterInfo delimiterInfo= nextDelimiterInfo(text, start);
+		while (delimiterInfo != null && delimiterInfo.delimiterIndex > -1) {
+			++count;
+			start= delimiterInfo.delimiterIndex + delimiterInfo.delimiterLength;
+			delimiterInfo= nextDelimiterInfo(text, start);
+		}
+		return count;
+	}
+
+	@Override
+	public final int getNumberOfLines() {
+		return fNumberOfLines;
+	}
+
+	@Override
+	public final int getNumberOfLines(int offset, int length) throws BadLocationException {
+		if (length == 0)
+			return 1;
+
+		int startLine= lineByOffset(offset);
+		int endLine= lineByOffset(offset + length);
+
+		return endLine - startLine + 1;
+	}
+
+	@Override
+	public final int getLineOffset(int line) throws BadLocationException {
+		checkLine(line);
+		int block= blockByLine(line);
+		return fBlockOffsets[block] + fLineOffsets[block][line - fBlockLines[block]];
+	}
+
+	@Override
+	public final int getLineLength(int line) throws BadLocationException {
+		checkLine(line);
+		int block= blockByLine(line);
+		int index= line - fBlockLines[block];
+		return lineEnd(block, index) - fLineOffsets[block][index];
+	}
+
+	@Override
+	public final int getLineNumberOfOffset(int offset) throws BadLocationException {
+		return lineByOffset(offset);
+	}
+
+	@Override
+	public final IRegion getLineInformationOfOffset(int offset) throws BadLocationException {
+		if (offset < 0 || offset > fTextLength)
+			throw new BadLocationException();
+		int block= blockByOffset(offset);
+		int[] offsets= fLineOffsets[block];
+		int index= findLast(offsets, offsets.length, offset - fBlockOffsets[block]);
+		return getRegion(block, index);
+	}
+
+	@Override
+	public final IRegion getLineInformation(int line) throws BadLocationException {
+		if (line > 0 && line == fNumberOfLines) {
+			/*
+			 * This strange behavior is mandated by the previous line tracker implementation, see
+			 * TreeLineTracker#getLineInformation(int).
+			 */
+			int length= getLineLength(line - 1);
+			if (length > 0)
+				return new Region(getLineOffset(line - 1) + length, 0);
+		}
+		checkLine(line);
+		int block= blockByLine(line);
+		return getRegion(block, line - fBlockLines[block]);
+	}
+
+	/**
+	 * Returns the region of the given line, excluding its delimiter.
+	 *
+	 * @param block the block index
+	 * @param index the index of the line in the block
+	 * @return the region of the line
+	 */
+	private IRegion getRegion(int block, int index) {
+		int start= fLineOffsets[block][index];
+		int length= lineEnd(block, index) - start - delimiterLength(fLineDelimiters[block][index]);
+		return new Region(fBlockOffsets[block] + start, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The line information in arrays is not modified, {@link AbstractLineTracker} converts it to a
+	 * {@link TreeLineTracker} on the first modification.
+	 * </p>
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public final void replace(int offset, int length, String text) throws BadLocationException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public final void set(String text) {
+		fDelimiters= new String[] { null };
+		fLineOffsets= new int[Math.max(1, text.length() / (32 * BLOCK_SIZE))][];
+		fLineDelimiters= new byte[fLineOffsets.length][];
+		fBlockOffsets= new int[fLineOffsets.length];
+		fBlockLines= new int[fLineOffsets.length];
+		fBlockCount= 0;
+		fNumberOfLines= 0;
+		fTextLength= text.length();
+
+		int[] offsets= new int[BLOCK_SIZE];
+		byte[] delimiters= new byte[BLOCK_SIZE];
+		int size= 0;
+		int blockOffset= 0;
+		int lineStart= 0;
+		DelimiterInfo info= nextDelimiterInfo(text, 0);
+		while (true) {
+			if (size == BLOCK_SIZE) {
+				addBlock(offsets, delimiters, blockOffset);
+				offsets= new int[BLOCK_SIZE];
+				delimiters= new byte[BLOCK_SIZE];
+				size= 0;
+				blockOffset= lineStart;
+			}
+			offsets[size]= lineStart - blockOffset;
+			if (info == null || info.delimiterIndex < 0) {
+				delimiters[size++]= 0;
+				break;
+			}
+			delimiters[size++]= indexOf(info.delimiter);
+			lineStart= info.delimiterIndex + info.delimiterLength;
+			info= nextDelimiterInfo(text, lineStart);
+		}
+		addBlock(Arrays.copyOf(offsets, size), Arrays.copyOf(delimiters, size), blockOffset);
+	}
+
+	/**
+	 * Appends a block while setting the text.
+	 *
+	 * @param offsets the relative offsets of the lines of the block
+	 * @param delimiters the delimiter indices of the lines of the block
+	 * @param offset the offset of the block
+	 */
+	private void addBlock(int[] offsets, byte[] delimiters, int offset) {
+		if (fBlockCount == fBlockOffsets.length) {
+			int capacity= 2 * fBlockCount;
+			fLineOffsets= Arrays.copyOf(fLineOffsets, capacity);
+			fLineDelimiters= Arrays.copyOf(fLineDelimiters, capacity);
+			fBlockOffsets= Arrays.copyOf(fBlockOffsets, capacity);
+			fBlockLines= Arrays.copyOf(fBlockLines, capacity);
+		}
+		fLineOffsets[fBlockCount]= offsets;
+		fLineDelimiters[fBlockCount]= delimiters;
+		fBlockOffsets[fBlockCount]= offset;
+		fBlockLines[fBlockCount]= fNumberOfLines;
+		fBlockCount++;
+		fNumberOfLines+= offsets.length;
+	}
+}
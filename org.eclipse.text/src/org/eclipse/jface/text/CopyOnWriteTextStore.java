@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,7 +27,7 @@ import org.eclipse.core.runtime.Assert;
  * @since 3.2
  * @noextend This class is not intended to be subclassed by clients.
  */
-public class CopyOnWriteTextStore implements ITextStore {
+public class CopyOnWriteTextStore implements ITextStore, ITextStoreExtension {
 
 	/**
 	 * An unmodifiable String based text store. It is not possible to modify the initial content.
@@ -146,4 +146,22 @@ public class CopyOnWriteTextStore implements ITextStore {
 		fModifiableTextStore.set(""); //$NON-NLS-1$
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As long as the initial content has not been modified, the initial content is returned.
+	 * Afterwards, the snapshot of the modifiable text store is returned if it supports snapshots.
+	 * </p>
+	 *
+	 * @since 3.6
+	 */
+	@Override
+	public CharSequence getSnapshot() {
+		if (fTextStore instanceof StringTextStore)
+			return ((StringTextStore) fTextStore).fText;
+		if (fTextStore instanceof ITextStoreExtension)
+			return ((ITextStoreExtension) fTextStore).getSnapshot();
+		return null;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,11 @@ package org.eclipse.jface.text;
  * This class can be used as is or be adapted by subclasses. Fields are protected to allow
  * subclasses direct access. Because of the frequency with which position updaters are used this is
  * a performance decision.
+ * <p>
+ * If the category is {@link AbstractDocument#addIndexedPositionCategory(String, boolean) updated
+ * lazily}, only the positions touching the changed region are passed to the <code>adaptTo</code>
+ * methods, the document shifts the positions after the changed region.
+ * </p>
  */
 public class DefaultPositionUpdater implements IPositionUpdater {
 
@@ -211,7 +216,11 @@ public class DefaultPositionUpdater implements IPositionUpdater {
 			fReplaceLength= (event.getText() == null ? 0 : event.getText().length());
 			fDocument= event.getDocument();
 
-			Position[] category= fDocument.getPositions(fCategory);
+			Position[] category;
+			if (fDocument instanceof AbstractDocument)
+				category= ((AbstractDocument) fDocument).getPositionsToUpdate(fCategory);
+			else
+				category= fDocument.getPositions(fCategory);
 			for (int i= 0; i < category.length; i++) {
 
 				fPosition= category[i];
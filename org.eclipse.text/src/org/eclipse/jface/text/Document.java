@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,7 +13,9 @@ package org.eclipse.jface.text;
 
 /**
  * Default document implementation. Uses a {@link org.eclipse.jface.text.GapTextStore} wrapped
- * inside a {@link org.eclipse.jface.text.CopyOnWriteTextStore} as text store.
+ * inside a {@link org.eclipse.jface.text.CopyOnWriteTextStore} as text store, and a
+ * {@link org.eclipse.jface.text.RopeTextStore} for content of at least
+ * {@link SizeAdaptiveTextStore#DEFAULT_THRESHOLD} characters (see {@link SizeAdaptiveTextStore}).
  * <p>
  * The used line tracker considers the following strings as line delimiters: "\n", "\r", "\r\n". In
  * case of a text replacement across line delimiter boundaries and with different line delimiters,
@@ -27,18 +29,19 @@ package org.eclipse.jface.text;
  * </p>
  * <p>
  * <strong>Performance:</strong> The implementation should perform reasonably well for typical
- * source code documents. It is not designed for very large documents of a size of several
- * megabytes. Space-saving implementations are initially used for both the text store and the line
- * tracker; the first modification after a {@link #set(String) set} incurs the cost to transform the
- * document structures to efficiently handle updates.
+ * source code documents. Documents of a size of several megabytes use a rope based text store,
+ * which avoids copying the content on changes. Space-saving implementations are initially used for
+ * both the text store and the line tracker; the first modification after a {@link #set(String)
+ * set} incurs the cost to transform the document structures to efficiently handle updates.
  * </p>
  * <p>
- * See {@link GapTextStore} and <code>TreeLineTracker</code> for algorithmic behavior of the used
- * document structures.
+ * See {@link GapTextStore}, {@link RopeTextStore} and <code>TreeLineTracker</code> for algorithmic
+ * behavior of the used document structures.
  * </p>
  * 
  * @see org.eclipse.jface.text.GapTextStore
  * @see org.eclipse.jface.text.CopyOnWriteTextStore
+ * @see org.eclipse.jface.text.SizeAdaptiveTextStore
  */
 public class Document extends AbstractDocument {
 	/**
@@ -46,7 +49,7 @@ public class Document extends AbstractDocument {
 	 */
 	public Document() {
 		super();
-		setTextStore(new CopyOnWriteTextStore(new GapTextStore()));
+		setTextStore(new SizeAdaptiveTextStore());
 		setLineTracker(new DefaultLineTracker());
 		completeInitialization();
 	}
@@ -58,7 +61,7 @@ public class Document extends AbstractDocument {
 	 */
 	public Document(String initialContent) {
 		super();
-		setTextStore(new CopyOnWriteTextStore(new GapTextStore()));
+		setTextStore(new SizeAdaptiveTextStore());
 		setLineTracker(new DefaultLineTracker());
 		getStore().set(initialContent);
 		getTracker().set(initialContent);
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Default implementation of {@link IDocumentSnapshot} over an immutable character sequence.
+ *
+ * @since 3.6
+ */
+final class DocumentSnapshot implements IDocumentSnapshot {
+
+	/**
+	 * The line information of a snapshot. Instances are immutable.
+	 */
+	private static final class LineTable {
+
+		/** The start offsets of the lines. */
+		final int[] fOffsets;
+		/** The index of the delimiter of each line into the delimiters, <code>-1</code> if none. */
+		final byte[] fDelimiters;
+		/** The number of lines. */
+		final int fCount;
+
+		LineTable(int[] offsets, byte[] delimiters, int count) {
+			fOffsets= offsets;
+			fDelimiters= delimiters;
+			fCount= count;
+		}
+	}
+
+	/** The content of this snapshot. */
+	private final CharSequence fText;
+	/** The legal line delimiters, longest first. */
+	private final String[] fLineDelimiters;
+	/** The first characters of all line delimiters. */
+	private final String fDelimiterStarts;
+	/** The modification stamp of the document when the snapshot was taken. */
+	private final long fModificationStamp;
+	/** The lazily computed line information. */
+	private volatile LineTable fLineTable;
+
+	/**
+	 * Creates a new snapshot.
+	 *
+	 * @param text the immutable content of the snapshot
+	 * @param lineDelimiters the legal line delimiters of the document
+	 * @param modificationStamp the modification stamp of the document
+	 */
+	DocumentSnapshot(CharSequence text, String[] lineDelimiters, long modificationStamp) {
+		fText= text;
+		fLineDelimiters= lineDelimiters.clone();
+		Arrays.sort(fLineDelimiters, new Comparator<String>() {
+			@Override
+			public int compare(String d1, String d2) {
+				return d2.length() - d1.length();
+			}
+		});
+		StringBuilder starts= new StringBuilder(fLineDelimiters.length);
+		for (int i= 0; i < fLineDelimiters.length; i++)
+			starts.append(fLineDelimiters[i].charAt(0));
+		fDelimiterStarts= starts.toString();
+		fModificationStamp= modificationStamp;
+	}
+
+	@Override
+	public int length() {
+		return fText.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return fText.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return fText.subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return fText.toString();
+	}
+
+	@Override
+	public long getModificationStamp() {
+		return fModificationStamp;
+	}
+
+	@Override
+	public int getLength() {
+		return fText.length();
+	}
+
+	@Override
+	public String get(int offset, int length) throws BadLocationException {
+		if (offset < 0 || length < 0 || offset + length > fText.length())
+			throw new BadLocationException();
+		return fText.subSequence(offset, offset + length).toString();
+	}
+
+	@Override
+	public int getNumberOfLines() {
+		return getLineTable().fCount;
+	}
+
+	@Override
+	public int getLineOfOffset(int offset) throws BadLocationException {
+		if (offset < 0 || offset > fText.length())
+			throw new BadLocationException();
+
+		LineTable table= getLineTable();
+		int index= Arrays.binarySearch(table.fOffsets, 0, table.fCount, offset);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	@Override
+	public int getLineOffset(int line) throws BadLocationException {
+		LineTable table= getLineTable();
+		checkLine(table, line);
+		return table.fOffsets[line];
+	}
+
+	@Override
+	public int getLineLength(int line) throws BadLocationException {
+		LineTable table= getLineTable();
+		checkLine(table, line);
+		int end= line + 1 < table.fCount ? table.fOffsets[line + 1] : fText.length();
+		return end - table.fOffsets[line];
+	}
+
+	@Override
+	public IRegion getLineInformation(int line) throws BadLocationException {
+		LineTable table= getLineTable();
+		int length= getLineLength(line);
+		int delimiter= table.fDelimiters[line];
+		if (delimiter != -1)
+			length-= fLineDelimiters[delimiter].length();
+		return new Region(table.fOffsets[line], length);
+	}
+
+	@Override
+	public String getLineDelimiter(int line) throws BadLocationException {
+		LineTable table= getLineTable();
+		checkLine(table, line);
+		int delimiter= table.fDelimiters[line];
+		return delimiter == -1 ? null : fLineDelimiters[delimiter];
+	}
+
+	private static void checkLine(LineTable table, int line) throws BadLocationException {
+		if (line < 0 || line >= table.fCount)
+			throw new BadLocationException();
+	}
+
+	private LineTable getLineTable() {
+		LineTable table= fLineTable;
+		if (table == null) {
+			synchronized (this) {
+				table= fLineTable;
+				if (table == null) {
+					table= computeLineTable();
+					fLineTable= table;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Scans the content once and records the start offset and delimiter of every line.
+	 *
+	 * @return the line information of the content
+	 */
+	private LineTable computeLineTable() {
+		int[] offsets= new int[64];
+		byte[] delimiters= new byte[64];
+		int count= 1;
+
+		int length= fText.length();
+		int offset= 0;
+		while (offset < length) {
+			int delimiter= delimiterAt(offset, length);
+			if (delimiter == -1) {
+				offset++;
+				continue;
+			}
+
+			offset+= fLineDelimiters[delimiter].length();
+			if (count == offsets.length) {
+				offsets= Arrays.copyOf(offsets, count * 2);
+				delimiters= Arrays.copyOf(delimiters, count * 2);
+			}
+			delimiters[count - 1]= (byte) delimiter;
+			offsets[count]= offset;
+			count++;
+		}
+		delimiters[count - 1]= -1;
+		return new LineTable(offsets, delimiters, count);
+	}
+
+	/**
+	 * Returns the index of the longest line delimiter starting at the given offset.
+	 *
+	 * @param offset the offset
+	 * @param length the length of the content
+	 * @return the index of the delimiter, <code>-1</code> if none starts at <code>offset</code>
+	 */
+	private int delimiterAt(int offset, int length) {
+		if (fDelimiterStarts.indexOf(fText.charAt(offset)) == -1)
+			return -1;
+
+		for (int i= 0; i < fLineDelimiters.length; i++) {
+			String delimiter= fLineDelimiters[i];
+			int delimiterLength= delimiter.length();
+			if (offset + delimiterLength > length)
+				continue;
+			int j= 0;
+			while (j < delimiterLength && fText.charAt(offset + j) == delimiter.charAt(j))
+				j++;
+			if (j == delimiterLength)
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+/**
+ * Extension interface for {@link org.eclipse.jface.text.IDocument}. It adds the
+ * concept of document snapshots. A snapshot is an immutable view of the
+ * document's content and line information that stays valid while the document
+ * keeps changing, and that can therefore be read from any thread without
+ * locking the document.
+ *
+ * @see org.eclipse.jface.text.IDocumentSnapshot
+ * @since 3.6
+ */
+public interface IDocumentExtension5 {
+
+	/**
+	 * Returns an immutable snapshot of the document's current content.
+	 * <p>
+	 * If the document's text store supports snapshots (see
+	 * {@link ITextStoreExtension}), the snapshot shares its structure with the
+	 * text store and is created without copying the content. Otherwise, the
+	 * content is copied.
+	 * </p>
+	 * <p>
+	 * Like all other document accessors, this method must be called by the
+	 * thread that owns the document or while holding the document's lock; the
+	 * returned snapshot can then be handed to and read by any thread.
+	 * </p>
+	 *
+	 * @return a snapshot of the document's current content
+	 */
+	IDocumentSnapshot getSnapshot();
+}
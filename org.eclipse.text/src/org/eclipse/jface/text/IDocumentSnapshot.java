@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+/**
+ * An immutable snapshot of the content of a document, see
+ * {@link IDocumentExtension5#getSnapshot()}. The snapshot is a character
+ * sequence and provides the line information of the content at the time the
+ * snapshot was taken. Snapshots are thread-safe.
+ * <p>
+ * The line information is computed lazily on first access, using the legal line
+ * delimiters of the document.
+ * </p>
+ * <p>
+ * This interface is not intended to be implemented by clients.
+ * </p>
+ *
+ * @since 3.6
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface IDocumentSnapshot extends CharSequence {
+
+	/**
+	 * Returns the modification stamp of the document at the time this snapshot
+	 * was taken, or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}.
+	 *
+	 * @return the modification stamp of the snapshot
+	 */
+	long getModificationStamp();
+
+	/**
+	 * Returns the number of characters in this snapshot.
+	 *
+	 * @return the number of characters in this snapshot
+	 */
+	int getLength();
+
+	/**
+	 * Returns the specified range of this snapshot.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @return the text of the range
+	 * @throws BadLocationException if the range is invalid in this snapshot
+	 */
+	String get(int offset, int length) throws BadLocationException;
+
+	/**
+	 * Returns the number of lines in this snapshot. An empty snapshot has one
+	 * line.
+	 *
+	 * @return the number of lines in this snapshot
+	 */
+	int getNumberOfLines();
+
+	/**
+	 * Returns the number of the line at which the character of the specified
+	 * position is located. The first line has the line number 0.
+	 *
+	 * @param offset the offset, <code>0 &lt;= offset &lt;= getLength()</code>
+	 * @return the number of the line
+	 * @throws BadLocationException if the offset is invalid in this snapshot
+	 */
+	int getLineOfOffset(int offset) throws BadLocationException;
+
+	/**
+	 * Returns the offset of the given line.
+	 *
+	 * @param line the line of interest
+	 * @return the offset of the line
+	 * @throws BadLocationException if the line number is invalid in this
+	 *             snapshot
+	 */
+	int getLineOffset(int line) throws BadLocationException;
+
+	/**
+	 * Returns the length of the given line including the line's delimiter.
+	 *
+	 * @param line the line of interest
+	 * @return the length of the line
+	 * @throws BadLocationException if the line number is invalid in this
+	 *             snapshot
+	 */
+	int getLineLength(int line) throws BadLocationException;
+
+	/**
+	 * Describes the specified line's offset and length excluding the line's
+	 * delimiter.
+	 *
+	 * @param line the line of interest
+	 * @return a line description
+	 * @throws BadLocationException if the line number is invalid in this
+	 *             snapshot
+	 */
+	IRegion getLineInformation(int line) throws BadLocationException;
+
+	/**
+	 * Returns the line delimiter of the given line, or <code>null</code> if the
+	 * line is not delimited.
+	 *
+	 * @param line the line of interest
+	 * @return the line's delimiter or <code>null</code> if line does not have a
+	 *         delimiter
+	 * @throws BadLocationException if the line number is invalid in this
+	 *             snapshot
+	 */
+	String getLineDelimiter(int line) throws BadLocationException;
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+/**
+ * Extension interface for {@link org.eclipse.jface.text.ITextStore}. Adds the
+ * concept of snapshots. A snapshot is an immutable view of the content of the
+ * text store at the time it was taken.
+ *
+ * @since 3.6
+ */
+public interface ITextStoreExtension {
+
+	/**
+	 * Returns an immutable character sequence with the current content of this
+	 * text store. The returned sequence does not change when the text store is
+	 * modified afterwards and may be read from any thread.
+	 * <p>
+	 * Implementations should only return a snapshot if it can be created
+	 * without copying the content, e.g. by sharing immutable structures.
+	 * </p>
+	 *
+	 * @return the snapshot, or <code>null</code> if this text store cannot
+	 *         create a snapshot without copying its content
+	 */
+	CharSequence getSnapshot();
+}
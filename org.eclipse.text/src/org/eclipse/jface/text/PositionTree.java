@@ -0,0 +1,713 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+
+/**
+ * Stores the positions of an indexed position category, see
+ * {@link AbstractDocument#addIndexedPositionCategory(String, boolean)}.
+ * <p>
+ * The positions are kept in a randomized balanced search tree (treap) ordered by offset. Every node
+ * caches the start and end offset of its position and the maximum end offset of its subtree, which
+ * turns the tree into an interval tree. Offsets are stored relative to pending shifts of the
+ * ancestors, so shifting all positions after a document change is done in <i>O(log n)</i> by
+ * recording the shift at the root of the affected subtree.
+ * </p>
+ * <p>
+ * A document change is handled in two steps: {@link #aboutToBeUpdated(DocumentEvent)} remembers
+ * the positions that touch the changed region and shifts the cached offsets of all positions after
+ * it, {@link #updated()} re-inserts the touching positions with the offsets computed by the position
+ * updaters. This relies on the position updaters of the category shifting positions that start
+ * after the changed region by the length difference of the change, which all position updaters
+ * provided by the platform do. Should the cached offsets get out of sync with the positions anyway,
+ * the tree is rebuilt on the next query that notices it.
+ * </p>
+ * <p>
+ * A lazy tree considers its cached offsets to be the truth for all positions that do not touch the
+ * changed region. The offset and length of such a position are only written when the position is
+ * handed out by the tree, and the position updaters are expected to only update the
+ * {@link #getAffectedPositions() affected positions}.
+ * </p>
+ * <p>
+ * The tree implements {@link List} so that it can be stored in the map returned by
+ * {@link AbstractDocument#getDocumentManagedPositions()}. List based access by index performs in
+ * <i>O(log n)</i>.
+ * </p>
+ *
+ * @since 3.6
+ */
+final class PositionTree extends AbstractList<Position> implements RandomAccess {
+
+	/**
+	 * A node of the tree.
+	 */
+	private static final class Node {
+
+		final Position fPosition;
+		final int fPriority;
+		/** The cached start offset, relative to the pending shifts of the ancestors. */
+		int fStart;
+		/** The cached end offset, relative to the pending shifts of the ancestors. */
+		int fEnd;
+		/** The maximum end offset in this subtree, relative to the pending shifts of the ancestors. */
+		int fMaxEnd;
+		/** The pending shift of the children of this node. */
+		int fShift;
+		/** The number of nodes in this subtree. */
+		int fSize;
+		Node fLeft;
+		Node fRight;
+		/** The parent node, only valid for nodes reachable from the root. */
+		Node fParent;
+
+		Node(Position position, int priority) {
+			fPosition= position;
+			fPriority= priority;
+			fStart= position.offset;
+			fEnd= position.offset + position.length;
+			fMaxEnd= fEnd;
+			fSize= 1;
+		}
+	}
+
+	/** Orders positions by offset. */
+	private static final Comparator<Position> OFFSET_ORDER= new Comparator<Position>() {
+		@Override
+		public int compare(Position p1, Position p2) {
+			return Integer.compare(p1.offset, p2.offset);
+		}
+	};
+
+	/** Whether the positions after a document change are updated lazily. */
+	private final boolean fLazy;
+	/** The root of the tree. */
+	private Node fRoot;
+	/** Maps the positions to their nodes. */
+	private final Map<Position, Node> fNodes= new IdentityHashMap<>();
+	/** The state of the priority generator. */
+	private int fSeed= 0x2545F491;
+	/** The part of a split before the split point. */
+	private Node fSplitLeft;
+	/** The part of a split after the split point. */
+	private Node fSplitRight;
+	/** Whether a query found cached offsets that differ from the positions. */
+	private boolean fOutOfSync;
+	/**
+	 * The positions touching the region of the document change that is currently processed, in the
+	 * order of their offsets, <code>null</code> if no change is processed.
+	 */
+	private List<Position> fAffectedPositions;
+	/** The set of {@link #fAffectedPositions}, <code>null</code> if no change is processed. */
+	private Set<Position> fAffectedSet;
+
+	/**
+	 * Creates a new empty tree.
+	 *
+	 * @param lazy <code>true</code> if the positions after a document change are updated lazily
+	 */
+	PositionTree(boolean lazy) {
+		fLazy= lazy;
+	}
+
+	/**
+	 * Creates a new tree containing the given positions.
+	 *
+	 * @param positions the positions to add
+	 * @param lazy <code>true</code> if the positions after a document change are updated lazily
+	 */
+	PositionTree(List<Position> positions, boolean lazy) {
+		fLazy= lazy;
+		for (Position position : positions)
+			add(position);
+	}
+
+	/**
+	 * Returns whether the positions after a document change are updated lazily.
+	 *
+	 * @return <code>true</code> if the positions are updated lazily
+	 */
+	boolean isLazy() {
+		return fLazy;
+	}
+
+	@Override
+	public int size() {
+		return size(fRoot);
+	}
+
+	@Override
+	public Position get(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+
+		Node node= fRoot;
+		int shift= 0;
+		while (true) {
+			int leftSize= size(node.fLeft);
+			if (index < leftSize) {
+				shift+= node.fShift;
+				node= node.fLeft;
+			} else if (index == leftSize) {
+				sync(node, shift);
+				return node.fPosition;
+			} else {
+				index-= leftSize + 1;
+				shift+= node.fShift;
+				node= node.fRight;
+			}
+		}
+	}
+
+	/**
+	 * Adds the given position such that it becomes the first of all positions with the same offset.
+	 *
+	 * @param position the position to add
+	 * @return <code>true</code>
+	 */
+	@Override
+	public boolean add(Position position) {
+		split(fRoot, position.offset);
+		Node right= fSplitRight;
+		setRoot(merge(merge(fSplitLeft, newNode(position)), right));
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int index, Position position) {
+		if (index < 0 || index > size())
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+
+		splitAt(fRoot, index);
+		Node right= fSplitRight;
+		setRoot(merge(merge(fSplitLeft, newNode(position)), right));
+		modCount++;
+	}
+
+	@Override
+	public Position remove(int index) {
+		Position removed= get(index);
+		splitAt(fRoot, index);
+		Node left= fSplitLeft;
+		splitAt(fSplitRight, 1);
+		unregister(fSplitLeft);
+		setRoot(merge(left, fSplitRight));
+		modCount++;
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		setRoot(null);
+		fNodes.clear();
+		modCount++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Position[size()]);
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		int size= size();
+		if (a.length < size)
+			a= Arrays.copyOf(a, size);
+		collectAll(fRoot, 0, a, 0);
+		if (a.length > size)
+			a[size]= null;
+		return a;
+	}
+
+	/**
+	 * Removes the given position, which is identified by identity.
+	 *
+	 * @param position the position to remove
+	 * @return <code>true</code> if the position was found and removed
+	 */
+	boolean removePosition(Position position) {
+		Node node= fNodes.get(position);
+		if (node != null && remove(position, getStart(node)))
+			return true;
+
+		// the position has been added more than once
+		for (int i= 0, size= size(); i < size; i++) {
+			if (get(i) == position) {
+				remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the tree contains a position with the given offset and length.
+	 *
+	 * @param offset the offset
+	 * @param length the length
+	 * @return <code>true</code> if there is such a position
+	 */
+	boolean contains(int offset, int length) {
+		List<Position> candidates= new ArrayList<>();
+		collect(fRoot, 0, offset, offset, candidates);
+		for (Position position : candidates) {
+			if (position.offset == offset && position.length == length)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of positions with an offset smaller than the given offset, i.e. the index
+	 * at which a position with the given offset would be inserted.
+	 *
+	 * @param offset the offset
+	 * @return the number of positions before <code>offset</code>
+	 */
+	int computeIndex(int offset) {
+		int index= 0;
+		int shift= 0;
+		Node node= fRoot;
+		while (node != null) {
+			if (node.fStart + shift < offset) {
+				index+= size(node.fLeft) + 1;
+				shift+= node.fShift;
+				node= node.fRight;
+			} else {
+				shift+= node.fShift;
+				node= node.fLeft;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the positions inside the given region, see
+	 * {@link AbstractDocument#getPositions(String, int, int, boolean, boolean)}. Performs in
+	 * <i>O(log n + k)</i>, where <var>k</var> is the number of positions that overlap or touch the
+	 * region.
+	 *
+	 * @param offset the start position of the region, must be &gt;= 0
+	 * @param length the length of the region, must be &gt;= 0
+	 * @param canStartBefore if <code>true</code> then positions are included which start before
+	 *            the region if they end at or after the regions start
+	 * @param canEndAfter if <code>true</code> then positions are included which end after the
+	 *            region if they start at or before the regions end
+	 * @return all positions inside the region
+	 */
+	Position[] getPositions(int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		List<Position> candidates= new ArrayList<>();
+		fOutOfSync= false;
+		collect(fRoot, 0, offset + length, offset, candidates);
+		if (fOutOfSync && fAffectedPositions == null) {
+			rebuild();
+			candidates.clear();
+			collect(fRoot, 0, offset + length, offset, candidates);
+		}
+
+		Position region= new Position(offset, length);
+		List<Position> result= new ArrayList<>(candidates.size());
+		for (Position position : candidates) {
+			boolean inside;
+			if (canStartBefore && canEndAfter) {
+				inside= region.overlapsWith(position.offset, position.length);
+			} else if (canStartBefore) {
+				// like the end positions of the document, an empty position ends at its offset
+				int end= position.length > 0 ? position.offset + position.length - 1 : position.offset;
+				inside= offset <= end && end < offset + length;
+			} else if (canEndAfter) {
+				inside= offset <= position.offset && position.offset < offset + length;
+			} else {
+				inside= region.includes(position.offset) && region.includes(position.offset + position.length - 1);
+			}
+			if (inside)
+				result.add(position);
+		}
+		return result.toArray(new Position[result.size()]);
+	}
+
+	/**
+	 * Prepares the tree for the given document change. Remembers the positions that touch the
+	 * changed region and shifts all positions after the changed region.
+	 *
+	 * @param event the document event describing the change
+	 * @return the number of positions whose update has been deferred, always <code>0</code> if
+	 *         the tree is not lazy
+	 */
+	int aboutToBeUpdated(DocumentEvent event) {
+		int offset= event.getOffset();
+		int end= offset + event.getLength();
+		int delta= (event.getText() == null ? 0 : event.getText().length()) - event.getLength();
+
+		List<Position> affected= new ArrayList<>();
+		collect(fRoot, 0, end, offset, affected);
+		fAffectedPositions= affected;
+		fAffectedSet= Collections.newSetFromMap(new IdentityHashMap<Position, Boolean>(affected.size()));
+		fAffectedSet.addAll(affected);
+
+		int deferred= 0;
+		if (delta > 0) {
+			split(fRoot, end + 1);
+			Node left= fSplitLeft;
+			deferred= size(fSplitRight);
+			shift(fSplitRight, delta);
+			setRoot(merge(left, fSplitRight));
+		} else if (delta < 0) {
+			// affected positions starting behind the new end of the changed region would come after
+			// the shifted positions, move them to the new end to keep the tree ordered
+			int newEnd= end + delta + 1;
+			split(fRoot, newEnd + 1);
+			Node left= fSplitLeft;
+			split(fSplitRight, end + 1);
+			Node moved= fSplitLeft;
+			Node right= fSplitRight;
+			deferred= size(right);
+			shift(right, delta);
+
+			Position[] positions= new Position[size(moved)];
+			collectAll(moved, 0, positions, 0);
+			moved= null;
+			for (Position position : positions) {
+				Node node= newNode(position);
+				node.fStart= newEnd;
+				node.fEnd= node.fMaxEnd= newEnd + position.length;
+				moved= merge(moved, node);
+			}
+			setRoot(merge(merge(left, moved), right));
+		}
+		return fLazy ? deferred : 0;
+	}
+
+	/**
+	 * Returns the positions touching the region of the document change that is currently
+	 * processed. These are the only positions a position updater of a lazy tree has to update.
+	 *
+	 * @return the positions touching the changed region in the order of their offsets, or
+	 *         <code>null</code> if no document change is processed
+	 */
+	Position[] getAffectedPositions() {
+		if (fAffectedPositions == null)
+			return null;
+		return fAffectedPositions.toArray(new Position[fAffectedPositions.size()]);
+	}
+
+	/**
+	 * Returns the number of positions touching the region of the document change that is
+	 * currently processed.
+	 *
+	 * @return the number of {@link #getAffectedPositions() affected positions}, <code>0</code> if
+	 *         no document change is processed
+	 */
+	int getAffectedPositionCount() {
+		return fAffectedPositions == null ? 0 : fAffectedPositions.size();
+	}
+
+	/**
+	 * Re-inserts the positions that touched the changed region after the position updaters have
+	 * updated them.
+	 */
+	void updated() {
+		List<Position> affected= fAffectedPositions;
+		fAffectedPositions= null;
+		fAffectedSet= null;
+		if (affected == null)
+			return;
+
+		for (Position position : affected) {
+			Node node= fNodes.get(position);
+			if (node != null && remove(position, getStart(node)))
+				add(position);
+		}
+	}
+
+	/**
+	 * Rebuilds the tree from the current offsets of its positions.
+	 */
+	private void rebuild() {
+		Position[] positions= toArray(new Position[size()]);
+		Arrays.sort(positions, OFFSET_ORDER);
+		setRoot(null);
+		fNodes.clear();
+		for (int i= positions.length - 1; i >= 0; i--) {
+			// adding in reverse order keeps the relative order of positions with equal offsets
+			add(positions[i]);
+		}
+	}
+
+	/**
+	 * Removes the given position, whose cached start offset is known.
+	 *
+	 * @param position the position to remove
+	 * @param start the cached start offset of the position
+	 * @return <code>true</code> if the position was found and removed
+	 */
+	private boolean remove(Position position, int start) {
+		split(fRoot, start);
+		Node left= fSplitLeft;
+		split(fSplitRight, start + 1);
+		Node right= fSplitRight;
+		int size= size(fSplitLeft);
+		Node middle= removeNode(fSplitLeft, position);
+		boolean removed= size(middle) < size;
+		setRoot(merge(left, merge(middle, right)));
+		if (removed)
+			modCount++;
+		return removed;
+	}
+
+	/**
+	 * Removes the node of the given position from a subtree.
+	 *
+	 * @param node the subtree
+	 * @param position the position to remove
+	 * @return the subtree without the position
+	 */
+	private Node removeNode(Node node, Position position) {
+		if (node == null)
+			return null;
+		pushDown(node);
+		if (node.fPosition == position) {
+			unregister(node);
+			return merge(node.fLeft, node.fRight);
+		}
+
+		node.fLeft= removeNode(node.fLeft, position);
+		node.fRight= removeNode(node.fRight, position);
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Collects the positions of a subtree that start at or before <code>maxStart</code> and end at
+	 * or after <code>minEnd</code>, in the order of their offsets.
+	 *
+	 * @param node the subtree
+	 * @param shift the sum of the pending shifts of the ancestors of <code>node</code>
+	 * @param maxStart the maximum start offset
+	 * @param minEnd the minimum end offset
+	 * @param result the list to add the positions to
+	 */
+	private void collect(Node node, int shift, int maxStart, int minEnd, List<Position> result) {
+		while (node != null && node.fMaxEnd + shift >= minEnd) {
+			int childShift= shift + node.fShift;
+			collect(node.fLeft, childShift, maxStart, minEnd, result);
+			int start= node.fStart + shift;
+			if (start > maxStart)
+				return;
+
+			int end= node.fEnd + shift;
+			if (end >= minEnd) {
+				Position position= node.fPosition;
+				if (fLazy)
+					sync(node, shift);
+				else if ((position.offset != start || position.offset + position.length != end) && !isAffected(position))
+					fOutOfSync= true;
+				result.add(position);
+			}
+
+			node= node.fRight;
+			shift= childShift;
+		}
+	}
+
+	private int collectAll(Node node, int shift, Object[] result, int index) {
+		while (node != null) {
+			int childShift= shift + node.fShift;
+			index= collectAll(node.fLeft, childShift, result, index);
+			sync(node, shift);
+			result[index++]= node.fPosition;
+			node= node.fRight;
+			shift= childShift;
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the cached offsets of a node of a lazy tree to its position, unless the position is
+	 * being updated by the position updaters.
+	 *
+	 * @param node the node
+	 * @param shift the sum of the pending shifts of the ancestors of <code>node</code>
+	 */
+	private void sync(Node node, int shift) {
+		if (fLazy && !isAffected(node.fPosition)) {
+			node.fPosition.offset= node.fStart + shift;
+			node.fPosition.length= node.fEnd - node.fStart;
+		}
+	}
+
+	private boolean isAffected(Position position) {
+		return fAffectedSet != null && fAffectedSet.contains(position);
+	}
+
+	/**
+	 * Returns the cached start offset of a node reachable from the root.
+	 *
+	 * @param node the node
+	 * @return the cached start offset
+	 */
+	private static int getStart(Node node) {
+		int start= node.fStart;
+		for (Node parent= node.fParent; parent != null; parent= parent.fParent)
+			start+= parent.fShift;
+		return start;
+	}
+
+	private void setRoot(Node root) {
+		fRoot= root;
+		if (root != null)
+			root.fParent= null;
+	}
+
+	private Node newNode(Position position) {
+		// xorshift
+		int seed= fSeed;
+		seed^= seed << 13;
+		seed^= seed >>> 17;
+		seed^= seed << 5;
+		fSeed= seed;
+		Node node= new Node(position, seed);
+		fNodes.put(position, node);
+		return node;
+	}
+
+	private void unregister(Node node) {
+		if (fNodes.get(node.fPosition) == node)
+			fNodes.remove(node.fPosition);
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.fSize;
+	}
+
+	private static void shift(Node node, int delta) {
+		if (node != null) {
+			node.fStart+= delta;
+			node.fEnd+= delta;
+			node.fMaxEnd+= delta;
+			node.fShift+= delta;
+		}
+	}
+
+	private static void pushDown(Node node) {
+		if (node.fShift != 0) {
+			shift(node.fLeft, node.fShift);
+			shift(node.fRight, node.fShift);
+			node.fShift= 0;
+		}
+	}
+
+	private static void update(Node node) {
+		int size= 1;
+		int maxEnd= node.fEnd;
+		if (node.fLeft != null) {
+			size+= node.fLeft.fSize;
+			maxEnd= Math.max(maxEnd, node.fLeft.fMaxEnd + node.fShift);
+			node.fLeft.fParent= node;
+		}
+		if (node.fRight != null) {
+			size+= node.fRight.fSize;
+			maxEnd= Math.max(maxEnd, node.fRight.fMaxEnd + node.fShift);
+			node.fRight.fParent= node;
+		}
+		node.fSize= size;
+		node.fMaxEnd= maxEnd;
+	}
+
+	/**
+	 * Splits a subtree into the nodes starting before <code>start</code> ({@link #fSplitLeft}) and
+	 * the others ({@link #fSplitRight}).
+	 *
+	 * @param node the subtree to split
+	 * @param start the start offset to split at
+	 */
+	private void split(Node node, int start) {
+		if (node == null) {
+			fSplitLeft= fSplitRight= null;
+			return;
+		}
+		pushDown(node);
+		if (node.fStart < start) {
+			split(node.fRight, start);
+			node.fRight= fSplitLeft;
+			update(node);
+			fSplitLeft= node;
+		} else {
+			split(node.fLeft, start);
+			node.fLeft= fSplitRight;
+			update(node);
+			fSplitRight= node;
+		}
+	}
+
+	/**
+	 * Splits a subtree into its first <code>count</code> nodes ({@link #fSplitLeft}) and the others
+	 * ({@link #fSplitRight}).
+	 *
+	 * @param node the subtree to split
+	 * @param count the number of nodes in the first part
+	 */
+	private void splitAt(Node node, int count) {
+		if (node == null) {
+			fSplitLeft= fSplitRight= null;
+			return;
+		}
+		pushDown(node);
+		int leftSize= size(node.fLeft);
+		if (leftSize < count) {
+			splitAt(node.fRight, count - leftSize - 1);
+			node.fRight= fSplitLeft;
+			update(node);
+			fSplitLeft= node;
+		} else {
+			splitAt(node.fLeft, count);
+			node.fLeft= fSplitRight;
+			update(node);
+			fSplitRight= node;
+		}
+	}
+
+	/**
+	 * Merges two subtrees, all nodes of <code>left</code> come before the nodes of
+	 * <code>right</code>.
+	 *
+	 * @param left the left subtree
+	 * @param right the right subtree
+	 * @return the merged tree
+	 */
+	private static Node merge(Node left, Node right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.fPriority > right.fPriority) {
+			pushDown(left);
+			left.fRight= merge(left.fRight, right);
+			update(left);
+			return left;
+		}
+		pushDown(right);
+		right.fLeft= merge(left, right.fLeft);
+		update(right);
+		return right;
+	}
+}
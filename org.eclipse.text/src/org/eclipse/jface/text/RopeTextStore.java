@@ -0,0 +1,508 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+
+/**
+ * Implements a text store based on a balanced tree of text pieces (a rope). Each leaf of the tree
+ * references a range of an immutable string; inner nodes concatenate their children and know the
+ * total length of their subtree. The tree is kept height-balanced (AVL) on every change.
+ * <p>
+ * Unlike {@link GapTextStore}, the rope never moves or re-allocates the whole content: a change
+ * only creates new nodes along the paths to the changed pieces and never modifies existing nodes.
+ * Text passed to {@link #set(String)} or {@link #replace(int, int, String)} is referenced rather
+ * than copied. Since nodes are immutable, {@link #getSnapshot() snapshots} of the content are
+ * created in constant time and share all of their structure with the text store.
+ * </p>
+ * <p>
+ * <strong>Performance:</strong> Let <var>n</var> be the number of characters in the store. Then
+ * {@link #replace(int, int, String) replace} performs in <i>O(log n)</i> plus the cost of copying at
+ * most one piece of bounded size, {@link #get(int)} performs in <i>O(log n)</i> (and in <i>O(1)</i>
+ * for consecutive accesses to the same piece), and {@linkplain #get(int, int) get(int,
+ * <var>length</var>)} in <i>O(log n + length)</i>. {@link #set(String)} performs in <i>O(n / p)</i>,
+ * where <var>p</var> is the maximum piece length. The rope is therefore well suited for very large
+ * documents and for changes that are spread across the document, while {@link GapTextStore} is
+ * faster for small documents with co-located changes.
+ * </p>
+ * <p>
+ * This class is not intended to be subclassed.
+ * </p>
+ *
+ * @see GapTextStore
+ * @since 3.6
+ * @noextend This class is not intended to be subclassed by clients.
+ */
+public class RopeTextStore implements ITextStore, ITextStoreExtension {
+
+	/**
+	 * The maximum length of a piece that is created when text is set or inserted. Pieces that are
+	 * modified in place may grow up to this length before they are split.
+	 */
+	private static final int MAX_PIECE_LENGTH= 2048;
+
+	/**
+	 * Adjacent pieces are merged if one of them is shorter than this and the result does not exceed
+	 * {@link #MAX_PIECE_LENGTH}.
+	 */
+	private static final int MIN_PIECE_LENGTH= MAX_PIECE_LENGTH / 4;
+
+	/**
+	 * A node of the rope. Nodes are immutable.
+	 */
+	private static abstract class Node {
+
+		/** The number of characters in the subtree rooted at this node. */
+		final int fLength;
+
+		Node(int length) {
+			fLength= length;
+		}
+
+		/**
+		 * Returns the height of this node, leaves have height <code>0</code>.
+		 *
+		 * @return the height of this node
+		 */
+		abstract int height();
+	}
+
+	/**
+	 * A leaf referencing a range of an immutable string.
+	 */
+	private static final class Piece extends Node {
+
+		/** The string this piece is a range of. */
+		final String fText;
+		/** The start of the range in {@link #fText}. */
+		final int fStart;
+
+		Piece(String text, int start, int length) {
+			super(length);
+			fText= text;
+			fStart= start;
+		}
+
+		@Override
+		int height() {
+			return 0;
+		}
+
+		char charAt(int offset) {
+			return fText.charAt(fStart + offset);
+		}
+
+		void getChars(int offset, int length, char[] dest, int destPos) {
+			fText.getChars(fStart + offset, fStart + offset + length, dest, destPos);
+		}
+
+		void appendTo(StringBuilder buffer, int offset, int length) {
+			buffer.append(fText, fStart + offset, fStart + offset + length);
+		}
+
+		Piece subPiece(int offset, int length) {
+			return new Piece(fText, fStart + offset, length);
+		}
+	}
+
+	/**
+	 * An inner node concatenating its two children.
+	 */
+	private static final class Concatenation extends Node {
+
+		final Node fLeft;
+		final Node fRight;
+		final int fHeight;
+
+		Concatenation(Node left, Node right) {
+			super(left.fLength + right.fLength);
+			fLeft= left;
+			fRight= right;
+			fHeight= Math.max(left.height(), right.height()) + 1;
+		}
+
+		@Override
+		int height() {
+			return fHeight;
+		}
+	}
+
+	/** The empty rope. */
+	private static final Piece EMPTY= new Piece("", 0, 0); //$NON-NLS-1$
+
+	/**
+	 * A piece together with its offset in a rope. Instances are immutable so they can be cached by
+	 * snapshots that are accessed from several threads.
+	 */
+	private static final class PieceLocation {
+
+		final Piece fPiece;
+		final int fOffset;
+
+		PieceLocation(Piece piece, int offset) {
+			fPiece= piece;
+			fOffset= offset;
+		}
+
+		boolean contains(int offset) {
+			return fOffset <= offset && offset < fOffset + fPiece.fLength;
+		}
+
+		char charAt(int offset) {
+			return fPiece.charAt(offset - fOffset);
+		}
+	}
+
+	/**
+	 * An immutable character sequence backed by the nodes of a rope. Since nodes are never
+	 * modified, the snapshot stays valid while the text store keeps changing.
+	 */
+	private static final class Snapshot implements CharSequence {
+
+		/** The root of the rope. */
+		private final Node fSnapshotRoot;
+		/** The location of the piece accessed last, <code>null</code> if none. */
+		private PieceLocation fLocation;
+
+		Snapshot(Node root) {
+			fSnapshotRoot= root;
+		}
+
+		@Override
+		public int length() {
+			return fSnapshotRoot.fLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= fSnapshotRoot.fLength)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+
+			PieceLocation location= fLocation;
+			if (location == null || !location.contains(index)) {
+				location= findPiece(fSnapshotRoot, index);
+				fLocation= location;
+			}
+			return location.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || start > end || end > fSnapshotRoot.fLength)
+				throw new IndexOutOfBoundsException("start: " + start + ", end: " + end); //$NON-NLS-1$ //$NON-NLS-2$
+			return new Snapshot(suffix(prefix(fSnapshotRoot, end), start));
+		}
+
+		@Override
+		public String toString() {
+			char[] chars= new char[fSnapshotRoot.fLength];
+			getChars(fSnapshotRoot, 0, chars.length, chars, 0);
+			return new String(chars);
+		}
+	}
+
+
+	/** The root of the rope. */
+	private Node fRoot= EMPTY;
+	/** The location of the piece accessed last by {@link #get(int)}, <code>null</code> if none. */
+	private PieceLocation fCachedLocation;
+
+	/**
+	 * Creates a new empty rope text store.
+	 */
+	public RopeTextStore() {
+	}
+
+	@Override
+	public char get(int offset) {
+		if (offset < 0 || offset >= fRoot.fLength)
+			throw new IndexOutOfBoundsException(String.valueOf(offset));
+
+		PieceLocation location= fCachedLocation;
+		if (location == null || !location.contains(offset)) {
+			location= findPiece(fRoot, offset);
+			fCachedLocation= location;
+		}
+		return location.charAt(offset);
+	}
+
+	@Override
+	public String get(int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > fRoot.fLength)
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length); //$NON-NLS-1$ //$NON-NLS-2$
+		if (length == 0)
+			return ""; //$NON-NLS-1$
+
+		char[] chars= new char[length];
+		getChars(fRoot, offset, length, chars, 0);
+		return new String(chars);
+	}
+
+	@Override
+	public int getLength() {
+		return fRoot.fLength;
+	}
+
+	@Override
+	public void replace(int offset, int length, String text) {
+		if (offset < 0 || length < 0 || offset + length > fRoot.fLength)
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length); //$NON-NLS-1$ //$NON-NLS-2$
+		if (text == null)
+			text= ""; //$NON-NLS-1$
+		if (length == 0 && text.length() == 0)
+			return;
+
+		fCachedLocation= null;
+
+		Node root= replaceInPiece(fRoot, offset, length, text);
+		if (root == null)
+			root= join(join(prefix(fRoot, offset), build(text, 0, text.length())), suffix(fRoot, offset + length));
+		fRoot= root;
+	}
+
+	@Override
+	public void set(String text) {
+		if (text == null)
+			text= ""; //$NON-NLS-1$
+		fCachedLocation= null;
+		fRoot= build(text, 0, text.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The snapshot shares all nodes with this text store and is created in constant time.
+	 * </p>
+	 */
+	@Override
+	public CharSequence getSnapshot() {
+		return new Snapshot(fRoot);
+	}
+
+	/**
+	 * Returns the piece of the given rope that contains the given offset.
+	 *
+	 * @param root the rope
+	 * @param offset the offset, <code>0 &lt;= offset &lt; root.fLength</code>
+	 * @return the location of the piece containing <code>offset</code>
+	 */
+	private static PieceLocation findPiece(Node root, int offset) {
+		Node node= root;
+		int pieceOffset= 0;
+		while (node instanceof Concatenation) {
+			Concatenation concatenation= (Concatenation) node;
+			int leftLength= concatenation.fLeft.fLength;
+			if (offset - pieceOffset < leftLength) {
+				node= concatenation.fLeft;
+			} else {
+				pieceOffset+= leftLength;
+				node= concatenation.fRight;
+			}
+		}
+		return new PieceLocation((Piece) node, pieceOffset);
+	}
+
+	/**
+	 * Copies a range of the given rope into a char array.
+	 *
+	 * @param node the rope to copy from
+	 * @param offset the offset of the range in <code>node</code>
+	 * @param length the length of the range
+	 * @param dest the destination array
+	 * @param destPos the start position in <code>dest</code>
+	 */
+	private static void getChars(Node node, int offset, int length, char[] dest, int destPos) {
+		while (node instanceof Concatenation) {
+			Concatenation concatenation= (Concatenation) node;
+			Node left= concatenation.fLeft;
+			if (offset + length <= left.fLength) {
+				node= left;
+			} else if (offset >= left.fLength) {
+				offset-= left.fLength;
+				node= concatenation.fRight;
+			} else {
+				int leftPart= left.fLength - offset;
+				getChars(left, offset, leftPart, dest, destPos);
+				destPos+= leftPart;
+				length-= leftPart;
+				offset= 0;
+				node= concatenation.fRight;
+			}
+		}
+		((Piece) node).getChars(offset, length, dest, destPos);
+	}
+
+	/**
+	 * Replaces a range that is contained in a single piece by modifying a copy of that piece,
+	 * provided the resulting piece is not empty and not longer than {@link #MAX_PIECE_LENGTH}.
+	 * Since the shape of the tree does not change, no re-balancing is required.
+	 *
+	 * @param node the rope to modify
+	 * @param offset the offset of the replaced range in <code>node</code>
+	 * @param length the length of the replaced range
+	 * @param text the replacement text
+	 * @return the modified rope, or <code>null</code> if the change cannot be performed in a single
+	 *         piece
+	 */
+	private static Node replaceInPiece(Node node, int offset, int length, String text) {
+		if (node instanceof Concatenation) {
+			Concatenation concatenation= (Concatenation) node;
+			Node left= concatenation.fLeft;
+			if (offset + length <= left.fLength) {
+				Node newLeft= replaceInPiece(left, offset, length, text);
+				return newLeft == null ? null : new Concatenation(newLeft, concatenation.fRight);
+			}
+			if (offset >= left.fLength) {
+				Node newRight= replaceInPiece(concatenation.fRight, offset - left.fLength, length, text);
+				return newRight == null ? null : new Concatenation(left, newRight);
+			}
+			return null;
+		}
+
+		Piece piece= (Piece) node;
+		int newLength= piece.fLength - length + text.length();
+		if (newLength == 0 || newLength > MAX_PIECE_LENGTH)
+			return null;
+
+		StringBuilder buffer= new StringBuilder(newLength);
+		piece.appendTo(buffer, 0, offset);
+		buffer.append(text);
+		piece.appendTo(buffer, offset + length, piece.fLength - offset - length);
+		return new Piece(buffer.toString(), 0, newLength);
+	}
+
+	/**
+	 * Returns a balanced rope for a range of the given text. The text is referenced, not copied.
+	 *
+	 * @param text the text
+	 * @param start the start of the range
+	 * @param end the end of the range
+	 * @return a balanced rope representing <code>text.substring(start, end)</code>
+	 */
+	private static Node build(String text, int start, int end) {
+		int length= end - start;
+		if (length == 0)
+			return EMPTY;
+		if (length <= MAX_PIECE_LENGTH)
+			return new Piece(text, start, length);
+
+		int pieces= (length + MAX_PIECE_LENGTH - 1) / MAX_PIECE_LENGTH;
+		int middle= start + (pieces / 2) * MAX_PIECE_LENGTH;
+		return new Concatenation(build(text, start, middle), build(text, middle, end));
+	}
+
+	/**
+	 * Returns the rope representing the first <code>end</code> characters of the given rope.
+	 *
+	 * @param node the rope
+	 * @param end the end of the prefix
+	 * @return the prefix of <code>node</code>
+	 */
+	private static Node prefix(Node node, int end) {
+		if (end == 0)
+			return EMPTY;
+		if (end == node.fLength)
+			return node;
+		if (node instanceof Concatenation) {
+			Concatenation concatenation= (Concatenation) node;
+			Node left= concatenation.fLeft;
+			if (end <= left.fLength)
+				return prefix(left, end);
+			return join(left, prefix(concatenation.fRight, end - left.fLength));
+		}
+		return ((Piece) node).subPiece(0, end);
+	}
+
+	/**
+	 * Returns the rope representing the characters of the given rope starting at
+	 * <code>start</code>.
+	 *
+	 * @param node the rope
+	 * @param start the start of the suffix
+	 * @return the suffix of <code>node</code>
+	 */
+	private static Node suffix(Node node, int start) {
+		if (start == 0)
+			return node;
+		if (start == node.fLength)
+			return EMPTY;
+		if (node instanceof Concatenation) {
+			Concatenation concatenation= (Concatenation) node;
+			Node left= concatenation.fLeft;
+			if (start >= left.fLength)
+				return suffix(concatenation.fRight, start - left.fLength);
+			return join(suffix(left, start), concatenation.fRight);
+		}
+		return ((Piece) node).subPiece(start, node.fLength - start);
+	}
+
+	/**
+	 * Concatenates two balanced ropes into a balanced rope.
+	 *
+	 * @param left the left rope
+	 * @param right the right rope
+	 * @return the concatenation of <code>left</code> and <code>right</code>
+	 */
+	private static Node join(Node left, Node right) {
+		if (left.fLength == 0)
+			return right;
+		if (right.fLength == 0)
+			return left;
+
+		int leftHeight= left.height();
+		int rightHeight= right.height();
+		if (leftHeight > rightHeight + 1) {
+			Concatenation concatenation= (Concatenation) left;
+			return balance(concatenation.fLeft, join(concatenation.fRight, right));
+		}
+		if (rightHeight > leftHeight + 1) {
+			Concatenation concatenation= (Concatenation) right;
+			return balance(join(left, concatenation.fLeft), concatenation.fRight);
+		}
+		if (left instanceof Piece && right instanceof Piece) {
+			int length= left.fLength + right.fLength;
+			if (length <= MAX_PIECE_LENGTH && (left.fLength < MIN_PIECE_LENGTH || right.fLength < MIN_PIECE_LENGTH)) {
+				StringBuilder buffer= new StringBuilder(length);
+				((Piece) left).appendTo(buffer, 0, left.fLength);
+				((Piece) right).appendTo(buffer, 0, right.fLength);
+				return new Piece(buffer.toString(), 0, length);
+			}
+		}
+		return new Concatenation(left, right);
+	}
+
+	/**
+	 * Creates the concatenation of two balanced ropes whose heights differ by at most two,
+	 * rotating if needed.
+	 *
+	 * @param left the left rope
+	 * @param right the right rope
+	 * @return a balanced concatenation of <code>left</code> and <code>right</code>
+	 */
+	private static Node balance(Node left, Node right) {
+		int leftHeight= left.height();
+		int rightHeight= right.height();
+		if (leftHeight > rightHeight + 1) {
+			Concatenation l= (Concatenation) left;
+			if (l.fLeft.height() >= l.fRight.height())
+				return new Concatenation(l.fLeft, new Concatenation(l.fRight, right));
+			Concatenation lr= (Concatenation) l.fRight;
+			return new Concatenation(new Concatenation(l.fLeft, lr.fLeft), new Concatenation(lr.fRight, right));
+		}
+		if (rightHeight > leftHeight + 1) {
+			Concatenation r= (Concatenation) right;
+			if (r.fRight.height() >= r.fLeft.height())
+				return new Concatenation(new Concatenation(left, r.fLeft), r.fRight);
+			Concatenation rl= (Concatenation) r.fLeft;
+			return new Concatenation(new Concatenation(left, rl.fLeft), new Concatenation(rl.fRight, r.fRight));
+		}
+		return new Concatenation(left, right);
+	}
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text;
+
+import org.eclipse.core.runtime.Assert;
+
+
+/**
+ * <code>ITextStore</code> wrapper that chooses the underlying text store by the length of the
+ * content that is {@link #set(String) set}.
+ * <p>
+ * Content shorter than the threshold is kept in a {@link GapTextStore} wrapped inside a
+ * {@link CopyOnWriteTextStore}, which is the best choice for typical source files. Content of at
+ * least the threshold length is kept in a {@link RopeTextStore}, which neither copies the content
+ * nor moves large parts of it on changes. The decision is only taken when the content is set;
+ * a store that grows beyond the threshold through {@link #replace(int, int, String) replace} keeps
+ * its current implementation.
+ * </p>
+ * <p>
+ * This class is not intended to be subclassed.
+ * </p>
+ *
+ * @since 3.6
+ * @noextend This class is not intended to be subclassed by clients.
+ */
+public class SizeAdaptiveTextStore implements ITextStore, ITextStoreExtension {
+
+	/** The default threshold, in characters. */
+	public static final int DEFAULT_THRESHOLD= 8 * 1024 * 1024;
+
+	/** The content length from which on a {@link RopeTextStore} is used. */
+	private final int fThreshold;
+	/** The current text store. */
+	private ITextStore fTextStore;
+
+	/**
+	 * Creates an empty text store that uses the {@link #DEFAULT_THRESHOLD}.
+	 */
+	public SizeAdaptiveTextStore() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates an empty text store that uses a {@link RopeTextStore} for content of at least the
+	 * given length.
+	 *
+	 * @param threshold the content length from which on a {@link RopeTextStore} is used
+	 *            (&gt;=&nbsp;0)
+	 */
+	public SizeAdaptiveTextStore(int threshold) {
+		Assert.isLegal(threshold >= 0);
+		fThreshold= threshold;
+		fTextStore= createSmallTextStore();
+	}
+
+	@Override
+	public char get(int offset) {
+		return fTextStore.get(offset);
+	}
+
+	@Override
+	public String get(int offset, int length) {
+		return fTextStore.get(offset, length);
+	}
+
+	@Override
+	public int getLength() {
+		return fTextStore.getLength();
+	}
+
+	@Override
+	public void replace(int offset, int length, String text) {
+		fTextStore.replace(offset, length, text);
+	}
+
+	@Override
+	public void set(String text) {
+		boolean large= text != null && text.length() >= fThreshold;
+		if (large != (fTextStore instanceof RopeTextStore))
+			fTextStore= large ? new RopeTextStore() : createSmallTextStore();
+		fTextStore.set(text);
+	}
+
+	@Override
+	public CharSequence getSnapshot() {
+		if (fTextStore instanceof ITextStoreExtension)
+			return ((ITextStoreExtension) fTextStore).getSnapshot();
+		return null;
+	}
+
+	/**
+	 * Returns whether the content is currently kept in a {@link RopeTextStore}.
+	 *
+	 * @return <code>true</code> if the content is kept in a rope
+	 */
+	public boolean isUsingRope() {
+		return fTextStore instanceof RopeTextStore;
+	}
+
+	private static ITextStore createSmallTextStore() {
+		return new CopyOnWriteTextStore(new GapTextStore());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,7 +38,8 @@ import org.eclipse.jface.text.AbstractLineTracker.DelimiterInfo;
  * <strong>Performance:</strong> The query operations perform in <i>O(log n)</i> where <var>n</var>
  * is the number of lines in the document. The modification operations roughly perform in <i>O(l *
  * log n)</i> where <var>n</var> is the number of lines in the document and <var>l</var> is the
- * sum of the number of removed, added or modified lines.
+ * sum of the number of removed, added or modified lines. Setting the whole text performs in
+ * <i>O(n)</i>.
  * </p>
  *
  * @since 3.2
@@ -169,34 +170,94 @@ abstract class TreeLineTracker implements ILineTracker {
 	 *
 	 * @param tracker the list line tracker
 	 */
-    TreeLineTracker(ListLineTracker tracker) {
-    	final List<Line> lines= tracker.getLines();
-    	final int n= lines.size();
-    	if (n == 0)
-    		return;
-
-    	Line line= lines.get(0);
-    	String delim= line.delimiter;
-    	if (delim == null)
-    		delim= NO_DELIM;
-    	int length= line.length;
-    	fRoot= new Node(length, delim);
-    	Node node= fRoot;
-
-		for (int i= 1; i < n; i++) {
-	        line= lines.get(i);
-	        delim= line.delimiter;
-	        if (delim == null)
-	        	delim= NO_DELIM;
-	        length= line.length;
-			node= insertAfter(node, length, delim);
-        }
-
-		if (node.delimiter != NO_DELIM)
-			insertAfter(node, 0, NO_DELIM);
+	TreeLineTracker(ListLineTracker tracker) {
+		final List<Line> lines= tracker.getLines();
+		final int n= lines.size();
+		if (n == 0)
+			return;
+
+		Line last= lines.get(n - 1);
+		int count= last.delimiter == null ? n : n + 1;
+		int[] offsets= new int[count + 1];
+		String[] delimiters= new String[count];
+		for (int i= 0; i < n; i++) {
+			Line line= lines.get(i);
+			offsets[i]= line.offset;
+			delimiters[i]= line.delimiter == null ? NO_DELIM : line.delimiter;
+		}
+		offsets[n]= last.offset + last.length;
+		if (count > n) {
+			offsets[count]= offsets[n];
+			delimiters[n]= NO_DELIM;
+		}
+		fRoot= buildTree(offsets, delimiters, 0, count, null);
 
 		if (ASSERT) checkTree();
-    }
+	}
+
+	/**
+	 * Package visible constructor for creating a tree tracker from an array tracker.
+	 *
+	 * @param tracker the array line tracker
+	 * @since 3.6
+	 */
+	TreeLineTracker(ArrayLineTracker tracker) {
+		int count= tracker.getNumberOfLines();
+		int[] offsets= new int[count + 1];
+		String[] delimiters= new String[count];
+		try {
+			for (int i= 0; i < count; i++) {
+				offsets[i]= tracker.getLineOffset(i);
+				String delimiter= tracker.getLineDelimiter(i);
+				delimiters[i]= delimiter == null ? NO_DELIM : delimiter;
+			}
+			offsets[count]= offsets[count - 1] + tracker.getLineLength(count - 1);
+		} catch (BadLocationException x) {
+			throw new IllegalStateException(x);
+		}
+		fRoot= buildTree(offsets, delimiters, 0, count, null);
+
+		if (ASSERT) checkTree();
+	}
+
+	/**
+	 * Builds a balanced tree for the given lines. Unlike inserting the lines one by one, this
+	 * performs in <i>O(n)</i> and does not need any rotations.
+	 *
+	 * @param offsets the offsets of the lines, followed by the end offset of the last line
+	 * @param delimiters the line delimiters, {@link #NO_DELIM} for the last line
+	 * @param from the first line of the subtree
+	 * @param to the line after the last line of the subtree
+	 * @param parent the parent of the subtree, <code>null</code> for the root
+	 * @return the root of the subtree, <code>null</code> if <code>from == to</code>
+	 * @since 3.6
+	 */
+	private static Node buildTree(int[] offsets, String[] delimiters, int from, int to, Node parent) {
+		if (from == to)
+			return null;
+
+		int mid= (from + to) >>> 1;
+		Node node= new Node(offsets[mid + 1] - offsets[mid], delimiters[mid]);
+		node.parent= parent;
+		node.line= mid - from;
+		node.offset= offsets[mid] - offsets[from];
+		node.balance= (byte) (computeHeight(to - mid - 1) - computeHeight(mid - from));
+		node.left= buildTree(offsets, delimiters, from, mid, node);
+		node.right= buildTree(offsets, delimiters, mid + 1, to, node);
+		return node;
+	}
+
+	/**
+	 * Returns the height of a tree with <code>n</code> nodes built by
+	 * {@link #buildTree(int[], String[], int, int, Node)}.
+	 *
+	 * @param n the number of nodes
+	 * @return the height of the tree, 0 if it is empty
+	 * @since 3.6
+	 */
+	private static int computeHeight(int n) {
+		return 32 - Integer.numberOfLeadingZeros(n);
+	}
 
 	/**
 	 * Returns the node (line) including a certain offset. If the offset is between two
@@ -1213,12 +1274,25 @@ abstract class TreeLineTracker implements ILineTracker {
 
 	@Override
 	public final void set(String text) {
-		fRoot= new Node(0, NO_DELIM);
-		try {
-			replace(0, 0, text);
-		} catch (BadLocationException x) {
-			throw new InternalError();
+		int[] offsets= new int[Math.max(16, text.length() / 32)];
+		String[] delimiters= new String[offsets.length];
+		int count= 0;
+		DelimiterInfo info= nextDelimiterInfo(text, 0);
+		while (info != null && info.delimiterIndex > -1) {
+			if (count + 3 > offsets.length) {
+				offsets= Arrays.copyOf(offsets, 2 * offsets.length);
+				delimiters= Arrays.copyOf(delimiters, offsets.length);
+			}
+			delimiters[count]= info.delimiter;
+			offsets[++count]= info.delimiterIndex + info.delimiterLength;
+			info= nextDelimiterInfo(text, offsets[count]);
 		}
+		delimiters[count]= NO_DELIM;
+		offsets[++count]= text.length();
+
+		fRoot= buildTree(offsets, delimiters, 0, count, null);
+
+		if (ASSERT) checkTree();
 	}
 
 	@Override
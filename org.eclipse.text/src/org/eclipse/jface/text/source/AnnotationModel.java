@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,9 +26,11 @@ import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.text.AbstractDocument;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IPositionUpdater;
 import org.eclipse.jface.text.ISynchronizable;
 import org.eclipse.jface.text.Position;
 
@@ -131,7 +133,7 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 
 	/**
 	 * An iterator iteration over a Positions and mapping positions to
-	 * annotations using a provided map if the provided map contains the element.
+	 * annotations using the provided maps if one of the provided maps contains the element.
 	 *
 	 * @since 3.4
 	 */
@@ -140,16 +142,25 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		private Annotation fNext;
 		private final Position[] fPositions;
 		private int fIndex;
-		private final Map<Position, Annotation> fMap;
+		private final List<Map<Position, Annotation>> fMaps;
 
 		/**
 		 * @param positions positions to iterate over
 		 * @param map a map to map positions to annotations
 		 */
 		public AnnotationsInterator(Position[] positions, Map<Position, Annotation> map) {
+			this(positions, Collections.singletonList(map));
+		}
+
+		/**
+		 * @param positions positions to iterate over
+		 * @param maps the maps to map positions to annotations
+		 * @since 3.6
+		 */
+		public AnnotationsInterator(Position[] positions, List<Map<Position, Annotation>> maps) {
 			fPositions= positions;
 			fIndex= 0;
-			fMap= map;
+			fMaps= maps;
 			fNext= findNext();
 		}
 
@@ -174,8 +185,11 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 			while (fIndex < fPositions.length) {
 				Position position= fPositions[fIndex];
 				fIndex++;
-				if (fMap.containsKey(position))
-					return fMap.get(position);
+				for (int i= 0, size= fMaps.size(); i < size; i++) {
+					Annotation annotation= fMaps.get(i).get(position);
+					if (annotation != null)
+						return annotation;
+				}
 			}
 
 			return null;
@@ -234,6 +248,18 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		}
 	}
 
+	/**
+	 * Position updater of the position category shared by the indexed annotation models.
+	 *
+	 * @since 3.6
+	 */
+	private static final class IndexUpdater extends DefaultPositionUpdater {
+
+		IndexUpdater() {
+			super(INDEX_CATEGORY);
+		}
+	}
+
 	/**
 	 * Internal annotation model listener for forwarding annotation model changes from the attached models to the
 	 * registered listeners of the outer most annotation model.
@@ -253,6 +279,15 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		}
 	}
 
+	/**
+	 * The position category in which the indexed annotation models connected to a document store
+	 * their positions.
+	 *
+	 * @see #setIndexEnabled(boolean)
+	 * @since 3.6
+	 */
+	private static final String INDEX_CATEGORY= "__annotation_index"; //$NON-NLS-1$
+
 	/**
 	 * The list of managed annotations
 	 * @deprecated since 3.0 use <code>getAnnotationMap</code> instead
@@ -294,6 +329,16 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 * @since 3.0
 	 */
 	private Object fModificationStamp= new Object();
+	/**
+	 * Tells whether the positions of this model are indexed.
+	 * @since 3.6
+	 */
+	private boolean fIsIndexEnabled= false;
+	/**
+	 * The coalescer of the annotation model events.
+	 * @since 3.6
+	 */
+	private final AnnotationModelEventCoalescer fEventCoalescer= new AnnotationModelEventCoalescer(this);
 
 	/**
 	 * Creates a new annotation model. The annotation is empty, i.e. does not
@@ -355,6 +400,169 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
     	}
     }
 
+	/**
+	 * Enables or disables the interval index of this model. If enabled, the positions of the
+	 * annotations are stored in an {@link AbstractDocument#addIndexedPositionCategory(String)
+	 * indexed position category} of the connected document instead of its default category.
+	 * That category is shared by all indexed annotation models connected to the document. Region
+	 * queries by {@link #getAnnotationIterator(int, int, boolean, boolean)} then take <i>O(log n
+	 * + k)</i> for this model and all attached indexed annotation models together, where
+	 * <i>n</i> is the number of indexed positions and <i>k</i> the number of returned
+	 * annotations, and adding, removing or moving an annotation takes <i>O(log n)</i>.
+	 * <p>
+	 * The index is only used for documents extending {@link AbstractDocument}. It is disabled by
+	 * default. Subclasses which override {@link #addPosition(IDocument, Position)} and
+	 * {@link #removePosition(IDocument, Position)} without calling the inherited methods must not
+	 * enable it.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> to enable the index, <code>false</code> to disable it
+	 * @since 3.6
+	 */
+	public void setIndexEnabled(boolean enabled) {
+		if (fIsIndexEnabled == enabled)
+			return;
+
+		if (fDocument == null) {
+			fIsIndexEnabled= enabled;
+			return;
+		}
+
+		// move the positions to the other category
+		Iterator<Position> e= getAnnotationMap().valuesIterator();
+		while (e.hasNext())
+			removePosition(fDocument, e.next());
+		fIsIndexEnabled= enabled;
+		e= getAnnotationMap().valuesIterator();
+		while (e.hasNext()) {
+			try {
+				addPosition(fDocument, e.next());
+			} catch (BadLocationException x) {
+				// ignore invalid position
+			}
+		}
+		if (!enabled)
+			uninstallIndex(fDocument);
+	}
+
+	/**
+	 * Tells whether the positions of this model are stored in the index of the given document.
+	 *
+	 * @param document the document, may be <code>null</code>
+	 * @return <code>true</code> if the positions are indexed
+	 * @since 3.6
+	 */
+	private boolean isIndexed(IDocument document) {
+		return fIsIndexEnabled && document instanceof AbstractDocument;
+	}
+
+	/**
+	 * Adds the indexed position category and its position updater to the given document unless
+	 * they have been added before.
+	 *
+	 * @param document the document
+	 * @since 3.6
+	 */
+	private static void installIndex(AbstractDocument document) {
+		if (!document.containsPositionCategory(INDEX_CATEGORY)) {
+			document.addIndexedPositionCategory(INDEX_CATEGORY);
+			document.addPositionUpdater(new IndexUpdater());
+		}
+	}
+
+	/**
+	 * Removes the indexed position category and its position updater from the given document if
+	 * no indexed annotation model uses them any longer.
+	 *
+	 * @param document the document
+	 * @since 3.6
+	 */
+	private static void uninstallIndex(IDocument document) {
+		try {
+			if (!document.containsPositionCategory(INDEX_CATEGORY) || document.getPositions(INDEX_CATEGORY).length > 0)
+				return;
+			document.removePositionCategory(INDEX_CATEGORY);
+		} catch (BadPositionCategoryException x) {
+			return;
+		}
+
+		IPositionUpdater[] updaters= document.getPositionUpdaters();
+		for (int i= 0; i < updaters.length; i++) {
+			if (updaters[i] instanceof IndexUpdater)
+				document.removePositionUpdater(updaters[i]);
+		}
+	}
+
+	/**
+	 * Opens an event batch. While an event batch is open, the changes of this model and of its
+	 * attached models are not sent out to the annotation model listeners but merged per annotation:
+	 * an annotation that is added and removed again is not reported at all, an annotation that is
+	 * removed and added again is reported as changed. When the outermost batch is closed by
+	 * {@link #endEventBatch()}, one event per changed model is sent out. Batches may be nested,
+	 * each call must be balanced by a call to {@link #endEventBatch()}.
+	 *
+	 * @since 3.6
+	 */
+	public void beginEventBatch() {
+		fEventCoalescer.beginBatch();
+	}
+
+	/**
+	 * Closes an event batch opened by {@link #beginEventBatch()}. When the outermost batch is
+	 * closed, the merged changes are sent out to the annotation model listeners in the calling
+	 * thread.
+	 *
+	 * @since 3.6
+	 */
+	public void endEventBatch() {
+		if (fEventCoalescer.endBatch())
+			fireCoalescedModelChanges();
+	}
+
+	/**
+	 * Sets the coalescing window of this model. If the window is positive, the changes of this
+	 * model and of its attached models are merged like in an {@link #beginEventBatch() event
+	 * batch} and sent out at most the given number of milliseconds after the first change. The
+	 * events are then sent out in the "Annotation Model Event Delivery" thread, a single daemon
+	 * thread shared by all annotation models, and not in the thread that changed the model.
+	 * Listeners which need to run in the UI thread must post the events there. By default the
+	 * window is <code>0</code>, i.e. changes are sent out right away in the thread that changed
+	 * the model.
+	 *
+	 * @param delay the coalescing window in milliseconds, <code>0</code> to send out changes
+	 *            right away
+	 * @since 3.6
+	 */
+	public void setEventCoalescingDelay(long delay) {
+		Assert.isLegal(delay >= 0);
+		fEventCoalescer.setDelay(delay);
+		if (delay == 0)
+			fireCoalescedModelChanges();
+	}
+
+	/**
+	 * Returns the number of annotation model events this model has been asked to send out,
+	 * including the events of attached models. Together with {@link #getDeliveredEventCount()}
+	 * this tells how many events have been saved by event batches and coalescing.
+	 *
+	 * @return the number of received events
+	 * @since 3.6
+	 */
+	public int getReceivedEventCount() {
+		return fEventCoalescer.getReceivedCount();
+	}
+
+	/**
+	 * Returns the number of annotation model events this model has sent out to its listeners.
+	 *
+	 * @return the number of delivered events
+	 * @see #getReceivedEventCount()
+	 * @since 3.6
+	 */
+	public int getDeliveredEventCount() {
+		return fEventCoalescer.getDeliveredCount();
+	}
+
 	@Override
 	public void addAnnotation(Annotation annotation, Position position) {
 		try {
@@ -454,7 +662,14 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 * @throws BadLocationException if the position is not a valid document position
 	 */
 	protected void addPosition(IDocument document, Position position) throws BadLocationException {
-		if (document != null)
+		if (isIndexed(document)) {
+			installIndex((AbstractDocument) document);
+			try {
+				document.addPosition(INDEX_CATEGORY, position);
+			} catch (BadPositionCategoryException x) {
+				// cannot happen, the category has just been installed
+			}
+		} else if (document != null)
 			document.addPosition(position);
 	}
 
@@ -468,7 +683,13 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 * @since 3.0
 	 */
 	protected void removePosition(IDocument document, Position position) {
-		if (document != null)
+		if (isIndexed(document)) {
+			try {
+				document.removePosition(INDEX_CATEGORY, position);
+			} catch (BadPositionCategoryException x) {
+				// the position has not been added
+			}
+		} else if (document != null)
 			document.removePosition(position);
 	}
 
@@ -534,6 +755,8 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 				Position p= e.next();
 				removePosition(document, p);
 			}
+			if (isIndexed(document))
+				uninstallIndex(document);
 			fDocument= null;
 		}
 	}
@@ -581,6 +804,35 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		if (event.isEmpty())
 			return;
 
+		if (!fEventCoalescer.add(event))
+			deliverModelChanged(event);
+	}
+
+	/**
+	 * Informs all annotation model listeners about the changes which have been buffered during
+	 * an event batch or a coalescing window. Sends out one event per changed model.
+	 *
+	 * @since 3.6
+	 */
+	void fireCoalescedModelChanges() {
+		List<AnnotationModelEvent> events= fEventCoalescer.takeEvents();
+		for (int i= 0; i < events.size(); i++) {
+			AnnotationModelEvent event= events.get(i);
+			event.markSealed();
+			if (!event.isEmpty())
+				deliverModelChanged(event);
+		}
+	}
+
+	/**
+	 * Sends out the given sealed event to the annotation model listeners.
+	 *
+	 * @param event the event to be sent out to the listeners
+	 * @since 3.6
+	 */
+	private void deliverModelChanged(AnnotationModelEvent event) {
+		fEventCoalescer.delivered();
+
 		ArrayList<IAnnotationModelListener> v= new ArrayList<>(fAnnotationModelListeners);
 		Iterator<IAnnotationModelListener> e= v.iterator();
 		while (e.hasNext()) {
@@ -673,6 +925,9 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 	 */
 	@Override
 	public Iterator<Annotation> getAnnotationIterator(int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		if (isIndexed(fDocument))
+			return getIndexedAnnotationIterator(offset, length, canStartBefore, canEndAfter);
+
 		Iterator<Annotation> regionIterator= getRegionAnnotationIterator(offset, length, canStartBefore, canEndAfter);
 
 		if (fAttachments.isEmpty())
@@ -692,6 +947,68 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 		return new MetaIterator<>(iterators.iterator());
 	}
 
+	/**
+	 * Returns an iterator as specified in {@link IAnnotationModelExtension2#getAnnotationIterator(int, int, boolean, boolean)}
+	 * for an indexed model. The index is queried once for this model and all attached indexed
+	 * annotation models, the other attachments are queried separately.
+	 *
+	 * @param offset region start
+	 * @param length region length
+	 * @param canStartBefore position can start before region
+	 * @param canEndAfter position can end after region
+	 * @return an iterator to iterate over annotations in region
+	 * @since 3.6
+	 */
+	private Iterator<Annotation> getIndexedAnnotationIterator(int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		List<Map<Position, Annotation>> maps= new ArrayList<>();
+		List<Iterator<Annotation>> iterators= new ArrayList<>();
+		collectIndexedModels(fDocument, maps, iterators, offset, length, canStartBefore, canEndAfter);
+
+		Iterator<Annotation> indexIterator;
+		try {
+			Position[] positions= ((AbstractDocument) fDocument).getPositions(INDEX_CATEGORY, offset, length, canStartBefore, canEndAfter);
+			indexIterator= new AnnotationsInterator(positions, maps);
+		} catch (BadPositionCategoryException e) {
+			// can happen if the model is empty
+			indexIterator= Collections.<Annotation>emptyList().iterator();
+		}
+
+		if (iterators.isEmpty())
+			return indexIterator;
+
+		iterators.add(0, indexIterator);
+		return new MetaIterator<>(iterators.iterator());
+	}
+
+	/**
+	 * Collects the position maps of this model and of the attached annotation models which are
+	 * indexed in the given document, and the region iterators of the other attached models.
+	 *
+	 * @param document the document
+	 * @param maps the list to which to add the position maps
+	 * @param iterators the list to which to add the region iterators
+	 * @param offset region start
+	 * @param length region length
+	 * @param canStartBefore position can start before region
+	 * @param canEndAfter position can end after region
+	 * @since 3.6
+	 */
+	private void collectIndexedModels(IDocument document, List<Map<Position, Annotation>> maps, List<Iterator<Annotation>> iterators, int offset, int length, boolean canStartBefore, boolean canEndAfter) {
+		cleanup(true);
+		maps.add(fPositions);
+
+		Iterator<Object> it= fAttachments.keySet().iterator();
+		while (it.hasNext()) {
+			IAnnotationModel attachment= fAttachments.get(it.next());
+			if (attachment instanceof AnnotationModel && ((AnnotationModel) attachment).fDocument == document && ((AnnotationModel) attachment).isIndexed(document))
+				((AnnotationModel) attachment).collectIndexedModels(document, maps, iterators, offset, length, canStartBefore, canEndAfter);
+			else if (attachment instanceof IAnnotationModelExtension2)
+				iterators.add(((IAnnotationModelExtension2) attachment).getAnnotationIterator(offset, length, canStartBefore, canEndAfter));
+			else
+				iterators.add(new RegionIterator(attachment.getAnnotationIterator(), attachment, offset, length, canStartBefore, canEndAfter));
+		}
+	}
+
 	/**
 	 * Returns an iterator as specified in {@link IAnnotationModelExtension2#getAnnotationIterator(int, int, boolean, boolean)}
 	 *
@@ -866,11 +1183,17 @@ public class AnnotationModel implements IAnnotationModel, IAnnotationModelExtens
 			if (p != null) {
 
 				if (position.getOffset() != p.getOffset() || position.getLength() != p.getLength()) {
-					fDocument.removePosition(p);
+					if (isIndexed(fDocument))
+						removePosition(fDocument, p);
+					else
+						fDocument.removePosition(p);
 					p.setOffset(position.getOffset());
 					p.setLength(position.getLength());
 					try {
-						fDocument.addPosition(p);
+						if (isIndexed(fDocument))
+							addPosition(fDocument, p);
+						else
+							fDocument.addPosition(p);
 					} catch (BadLocationException e) {
 						// ignore invalid position
 					}
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.text.source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.Position;
+
+
+/**
+ * Buffers the annotation model events of an annotation model while an event batch is open or
+ * during a coalescing window, and merges them into one event per changed model. An annotation
+ * which is added and removed again is not reported at all, an annotation which is removed and
+ * added again is reported as changed.
+ * <p>
+ * The coalescer also counts the events it receives and the events delivered by the annotation
+ * model. It is thread safe.
+ * </p>
+ *
+ * @since 3.6
+ */
+class AnnotationModelEventCoalescer {
+
+	/** The name of the thread delivering the events of the coalescing windows */
+	static final String DELIVERY_THREAD_NAME= "Annotation Model Event Delivery"; //$NON-NLS-1$
+
+	/**
+	 * The merged changes of one annotation model.
+	 */
+	private static class PendingChanges {
+
+		/** The changed model */
+		final IAnnotationModel fModel;
+		/** Tells whether the merged events contain a world change */
+		boolean fIsWorldChange;
+		/** The added annotations */
+		final Set<Annotation> fAdded= new HashSet<>();
+		/** The removed annotations and their positions */
+		final Map<Annotation, Position> fRemoved= new HashMap<>();
+		/** The changed annotations */
+		final Set<Annotation> fChanged= new HashSet<>();
+
+		PendingChanges(IAnnotationModel model) {
+			fModel= model;
+		}
+
+		/**
+		 * Merges the given event into these changes.
+		 *
+		 * @param event the event
+		 */
+		void merge(AnnotationModelEvent event) {
+			if (fIsWorldChange)
+				return;
+
+			if (event.isWorldChange()) {
+				// a world change carries no details, older details are irrelevant
+				fIsWorldChange= true;
+				fAdded.clear();
+				fRemoved.clear();
+				fChanged.clear();
+				return;
+			}
+
+			Annotation[] added= event.getAddedAnnotations();
+			Set<Annotation> addedSet= new HashSet<>(added.length);
+			for (int i= 0; i < added.length; i++)
+				addedSet.add(added[i]);
+
+			Annotation[] removed= event.getRemovedAnnotations();
+			Set<Annotation> removedSet= new HashSet<>(removed.length);
+			for (int i= 0; i < removed.length; i++) {
+				Annotation annotation= removed[i];
+				removedSet.add(annotation);
+				fChanged.remove(annotation);
+				// if added and removed by the same event the order is unknown, keep both
+				if (addedSet.contains(annotation) || !fAdded.remove(annotation))
+					fRemoved.put(annotation, event.getPositionOfRemovedAnnotation(annotation));
+			}
+
+			for (int i= 0; i < added.length; i++) {
+				Annotation annotation= added[i];
+				if (!removedSet.contains(annotation) && fRemoved.remove(annotation) != null)
+					fChanged.add(annotation);
+				else
+					fAdded.add(annotation);
+			}
+
+			Annotation[] changed= event.getChangedAnnotations();
+			for (int i= 0; i < changed.length; i++) {
+				Annotation annotation= changed[i];
+				if (!fAdded.contains(annotation) && !fRemoved.containsKey(annotation))
+					fChanged.add(annotation);
+			}
+		}
+	}
+
+	/**
+	 * The executor delivering the events of all coalescing windows, or <code>null</code> if not
+	 * yet created.
+	 */
+	private static ScheduledThreadPoolExecutor fgDeliveryExecutor;
+
+	/** The annotation model delivering the events */
+	private final AnnotationModel fAnnotationModel;
+	/** The pending changes by changed model */
+	private final Map<IAnnotationModel, PendingChanges> fPending= new LinkedHashMap<>();
+	/** The number of open event batches */
+	private int fBatchDepth= 0;
+	/** The coalescing window in milliseconds, <code>0</code> if events are not delayed */
+	private long fDelay= 0;
+	/** Tells whether a delayed delivery has been scheduled */
+	private boolean fIsDeliveryScheduled= false;
+	/** The number of received events */
+	private int fReceivedCount= 0;
+	/** The number of delivered events */
+	private int fDeliveredCount= 0;
+
+
+	/**
+	 * Creates a new coalescer for the given annotation model.
+	 *
+	 * @param annotationModel the annotation model delivering the events
+	 */
+	AnnotationModelEventCoalescer(AnnotationModel annotationModel) {
+		fAnnotationModel= annotationModel;
+	}
+
+	/**
+	 * Returns the executor delivering the events of all coalescing windows. It has a single
+	 * thread, named {@link #DELIVERY_THREAD_NAME}, which ends when idle.
+	 *
+	 * @return the shared executor
+	 */
+	private static synchronized ScheduledThreadPoolExecutor getDeliveryExecutor() {
+		if (fgDeliveryExecutor == null) {
+			fgDeliveryExecutor= new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, DELIVERY_THREAD_NAME);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fgDeliveryExecutor.setKeepAliveTime(10, TimeUnit.SECONDS);
+			fgDeliveryExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fgDeliveryExecutor;
+	}
+
+	/**
+	 * Sets the coalescing window.
+	 *
+	 * @param delay the window in milliseconds, <code>0</code> to not delay events
+	 */
+	synchronized void setDelay(long delay) {
+		fDelay= delay;
+	}
+
+	/**
+	 * Opens an event batch. Batches may be nested.
+	 */
+	synchronized void beginBatch() {
+		fBatchDepth++;
+	}
+
+	/**
+	 * Closes an event batch.
+	 *
+	 * @return <code>true</code> if the outermost batch has been closed
+	 */
+	synchronized boolean endBatch() {
+		if (fBatchDepth == 0)
+			return false;
+		return --fBatchDepth == 0;
+	}
+
+	/**
+	 * Counts the given event and buffers it if an event batch is open or events are delayed. If
+	 * the event starts a coalescing window, the buffered events are delivered by the shared
+	 * delivery thread once the window ends.
+	 *
+	 * @param event the sealed, non-empty event
+	 * @return <code>true</code> if the event has been buffered, <code>false</code> if it must be
+	 *         delivered right away
+	 */
+	boolean add(AnnotationModelEvent event) {
+		final long delay;
+		synchronized (this) {
+			fReceivedCount++;
+			if (fBatchDepth == 0 && fDelay == 0)
+				return false;
+
+			IAnnotationModel model= event.getAnnotationModel();
+			PendingChanges changes= fPending.get(model);
+			if (changes == null) {
+				changes= new PendingChanges(model);
+				fPending.put(model, changes);
+			}
+			changes.merge(event);
+
+			if (fBatchDepth > 0 || fIsDeliveryScheduled)
+				return true;
+			fIsDeliveryScheduled= true;
+			delay= fDelay;
+		}
+
+		getDeliveryExecutor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (AnnotationModelEventCoalescer.this) {
+					fIsDeliveryScheduled= false;
+				}
+				fAnnotationModel.fireCoalescedModelChanges();
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Returns and forgets the merged events, unless an event batch is open.
+	 *
+	 * @return the merged events, one for each changed model, may be empty
+	 */
+	synchronized List<AnnotationModelEvent> takeEvents() {
+		if (fBatchDepth > 0 || fPending.isEmpty())
+			return new ArrayList<>(0);
+
+		List<AnnotationModelEvent> events= new ArrayList<>(fPending.size());
+		for (Iterator<PendingChanges> e= fPending.values().iterator(); e.hasNext();) {
+			PendingChanges changes= e.next();
+			AnnotationModelEvent event;
+			if (changes.fModel == fAnnotationModel) {
+				event= fAnnotationModel.createAnnotationModelEvent();
+				event.markWorldChange(changes.fIsWorldChange);
+			} else
+				event= new AnnotationModelEvent(changes.fModel, changes.fIsWorldChange);
+
+			for (Iterator<Annotation> a= changes.fAdded.iterator(); a.hasNext();)
+				event.annotationAdded(a.next());
+			for (Iterator<Map.Entry<Annotation, Position>> r= changes.fRemoved.entrySet().iterator(); r.hasNext();) {
+				Map.Entry<Annotation, Position> entry= r.next();
+				event.annotationRemoved(entry.getKey(), entry.getValue());
+			}
+			for (Iterator<Annotation> c= changes.fChanged.iterator(); c.hasNext();)
+				event.annotationChanged(c.next());
+			events.add(event);
+		}
+		fPending.clear();
+		return events;
+	}
+
+	/**
+	 * Counts a delivered event.
+	 */
+	synchronized void delivered() {
+		fDeliveredCount++;
+	}
+
+	/**
+	 * Returns the number of received events.
+	 *
+	 * @return the number of received events
+	 */
+	synchronized int getReceivedCount() {
+		return fReceivedCount;
+	}
+
+	/**
+	 * Returns the number of delivered events.
+	 *
+	 * @return the number of delivered events
+	 */
+	synchronized int getDeliveredCount() {
+		return fDeliveredCount;
+	}
+}
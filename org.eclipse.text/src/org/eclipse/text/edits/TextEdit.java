@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -98,6 +98,24 @@ public abstract class TextEdit {
 	 */
 	public static final int UPDATE_REGIONS= 1 << 1;
 
+	/**
+	 * Flag indicating that the edit tree is applied to the document in
+	 * a single replace operation, whose text is built in one pass over
+	 * the original content. This is considerably faster for trees with
+	 * many edits. Document listeners and position updaters are notified
+	 * about one change that spans from the first to the last changed
+	 * offset. The undo edit and the updated regions are the same as
+	 * when the edits are applied one by one.
+	 * <p>
+	 * Trees containing move or copy edits, or edits whose children are
+	 * replaced together with their parent, are applied one edit at a
+	 * time regardless of this flag.
+	 * </p>
+	 *
+	 * @since 3.6
+	 */
+	public static final int SINGLE_PASS= 1 << 2;
+
 	private static class InsertionComparator implements Comparator<TextEdit> {
 		@Override
 		public int compare(TextEdit edit1, TextEdit edit2) throws MalformedTreeException {
@@ -690,7 +708,8 @@ public abstract class TextEdit {
 	 *
 	 * @param document the document to be manipulated
 	 * @param style flags controlling the execution of the edit tree. Valid
-	 *  flags are: <code>CREATE_UNDO</code> and </code>UPDATE_REGIONS</code>.
+	 *  flags are: <code>CREATE_UNDO</code>, <code>UPDATE_REGIONS</code> and
+	 *  <code>SINGLE_PASS</code>.
 	 * @return a undo edit, if <code>CREATE_UNDO</code> is specified. Otherwise
 	 *  <code>null</code> is returned.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.text.edits;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -33,6 +34,14 @@ import org.eclipse.jface.text.IDocument;
  */
 public class TextEditProcessor {
 
+	/**
+	 * The number of changes from which on the new text of a single pass execution is built in
+	 * parallel.
+	 *
+	 * @since 3.6
+	 */
+	private static final int PARALLEL_THRESHOLD= 16384;
+
 	private IDocument fDocument;
 	private TextEdit fRoot;
 	private int fStyle;
@@ -53,7 +62,8 @@ public class TextEditProcessor {
 	 *  text edit processors. Clients must not modify the edit
 	 *  (e.g adding new children) any longer.
 	 *
-	 * @param style {@link TextEdit#NONE}, {@link TextEdit#CREATE_UNDO} or {@link TextEdit#UPDATE_REGIONS})
+	 * @param style {@link TextEdit#NONE} or a combination of {@link TextEdit#CREATE_UNDO},
+	 *  {@link TextEdit#UPDATE_REGIONS} and {@link TextEdit#SINGLE_PASS}
 	 */
 	public TextEditProcessor(IDocument document, TextEdit root, int style) {
 		this(document, root, style, false);
@@ -111,6 +121,7 @@ public class TextEditProcessor {
 	 * @return the style bits
 	 * @see TextEdit#CREATE_UNDO
 	 * @see TextEdit#UPDATE_REGIONS
+	 * @see TextEdit#SINGLE_PASS
 	 */
 	public int getStyle() {
 		return fStyle;
@@ -186,6 +197,11 @@ public class TextEditProcessor {
 	//---- execution --------------------------------------------------------------------
 
 	UndoEdit executeDo() throws BadLocationException {
+		if (singlePass()) {
+			List<TextEdit> changes= new ArrayList<>();
+			if (collectChanges(fRoot, changes))
+				return executeSinglePass(changes);
+		}
 		UndoCollector collector= new UndoCollector(fRoot);
 		try {
 			if (createUndo())
@@ -213,6 +229,192 @@ public class TextEditProcessor {
 		}
 	}
 
+	/**
+	 * Collects the edits of the given tree that change the document in document order. Returns
+	 * <code>false</code> if the tree contains edits that can only be executed one after the other,
+	 * like move and copy edits or edits that replace the text of their children.
+	 *
+	 * @param edit the root of the tree
+	 * @param changes the list to which the changing edits are added
+	 * @return <code>true</code> if the tree can be executed in a single pass
+	 * @since 3.6
+	 */
+	private boolean collectChanges(TextEdit edit, List<TextEdit> changes) {
+		List<TextEdit> children= edit.internalGetChildren();
+		if (edit instanceof MultiTextEdit || edit instanceof RangeMarker) {
+			if (children != null) {
+				for (Iterator<TextEdit> iter= children.iterator(); iter.hasNext();) {
+					if (!collectChanges(iter.next(), changes))
+						return false;
+				}
+			}
+			return true;
+		}
+		if (getNewText(edit) == null || children != null && !children.isEmpty())
+			return false;
+		if (considerEdit(edit))
+			changes.add(edit);
+		return true;
+	}
+
+	/**
+	 * Returns the text that replaces the range of the given edit, or <code>null</code> if the
+	 * edit doesn't simply replace its range.
+	 *
+	 * @param edit the edit
+	 * @return the new text of the edit's range or <code>null</code>
+	 * @since 3.6
+	 */
+	private static String getNewText(TextEdit edit) {
+		if (edit instanceof ReplaceEdit)
+			return ((ReplaceEdit) edit).getText();
+		if (edit instanceof InsertEdit)
+			return ((InsertEdit) edit).getText();
+		if (edit instanceof DeleteEdit)
+			return ""; //$NON-NLS-1$
+		return null;
+	}
+
+	/**
+	 * Executes the given non-overlapping changes by building the resulting text in one pass over
+	 * the original content and replacing the changed range of the document at once. The undo
+	 * edit and the updated regions are the same as when executing the edits one by one.
+	 *
+	 * @param changes the changing edits in document order
+	 * @return the undo edit, or <code>null</code> if no undo is created
+	 * @throws BadLocationException if the changes can't be applied to the document
+	 * @since 3.6
+	 */
+	private UndoEdit executeSinglePass(List<TextEdit> changes) throws BadLocationException {
+		UndoCollector collector= new UndoCollector(fRoot);
+		if (createUndo())
+			collector.start();
+		try {
+			if (!changes.isEmpty()) {
+				int start= changes.get(0).getOffset();
+				int end= start;
+				for (Iterator<TextEdit> iter= changes.iterator(); iter.hasNext();)
+					end= Math.max(end, iter.next().getExclusiveEnd());
+				String original= fDocument.get(start, end - start);
+
+				// changes are recorded in the order in which they are executed one by one
+				if (createUndo()) {
+					for (int i= changes.size() - 1; i >= 0; i--) {
+						TextEdit change= changes.get(i);
+						int offset= change.getOffset() - start;
+						collector.changed(change.getOffset(), original.substring(offset, offset + change.getLength()), getNewText(change).length());
+					}
+				}
+				fDocument.replace(start, end - start, buildText(original, start, changes));
+			}
+			updateLengths(fRoot);
+			if (updateRegions()) {
+				fRoot.traverseRegionUpdating(this, fDocument, 0, false);
+			}
+		} finally {
+			collector.stop();
+		}
+		return collector.undo;
+	}
+
+	/**
+	 * Builds the text that results from applying the given changes to the original text. Large
+	 * numbers of changes are split into ranges whose text is built in parallel.
+	 *
+	 * @param original the original text from the offset of the first to the end of the last change
+	 * @param start the document offset of the original text
+	 * @param changes the changing edits in document order
+	 * @return the new text
+	 * @since 3.6
+	 */
+	private static String buildText(String original, int start, List<TextEdit> changes) {
+		int size= changes.size();
+		int ranges= size < PARALLEL_THRESHOLD ? 1 : Math.min(size / (PARALLEL_THRESHOLD / 4), 4 * Runtime.getRuntime().availableProcessors());
+
+		// the first change of each range and the offset of its text in the result
+		int[] firstChanges= new int[ranges + 1];
+		int[] resultOffsets= new int[ranges + 1];
+		int resultLength= original.length();
+		for (int range= 0, i= 0; i < size; i++) {
+			if (i == size * range / ranges) {
+				firstChanges[range]= i;
+				resultOffsets[range++]= i == 0 ? 0 : changes.get(i - 1).getExclusiveEnd() - start + resultLength - original.length();
+			}
+			TextEdit change= changes.get(i);
+			resultLength+= getNewText(change).length() - change.getLength();
+		}
+		firstChanges[ranges]= size;
+		resultOffsets[ranges]= resultLength;
+
+		char[] result= new char[resultLength];
+		if (ranges == 1) {
+			fillText(original, start, changes, 0, size, result, 0);
+		} else {
+			IntStream.range(0, ranges).parallel().forEach(range -> fillText(original, start, changes, firstChanges[range], firstChanges[range + 1], result, resultOffsets[range]));
+		}
+		return new String(result);
+	}
+
+	/**
+	 * Fills the result with the text between the end of the change preceding the given range and
+	 * the end of the last change of the range.
+	 *
+	 * @param original the original text
+	 * @param start the document offset of the original text
+	 * @param changes the changing edits in document order
+	 * @param from the index of the first change of the range
+	 * @param to the index after the last change of the range
+	 * @param result the array to fill
+	 * @param resultOffset the offset in the result at which the text of the range starts
+	 * @since 3.6
+	 */
+	private static void fillText(String original, int start, List<TextEdit> changes, int from, int to, char[] result, int resultOffset) {
+		int position= from == 0 ? 0 : changes.get(from - 1).getExclusiveEnd() - start;
+		for (int i= from; i < to; i++) {
+			TextEdit change= changes.get(i);
+			int offset= change.getOffset() - start;
+			original.getChars(position, offset, result, resultOffset);
+			resultOffset+= offset - position;
+			String text= getNewText(change);
+			text.getChars(0, text.length(), result, resultOffset);
+			resultOffset+= text.length();
+			position= offset + change.getLength();
+		}
+		if (to == changes.size())
+			original.getChars(position, original.length(), result, resultOffset);
+	}
+
+	/**
+	 * Updates the lengths and deltas of the given edit tree after its changes have been applied
+	 * in a single pass, just like {@link TextEdit#traverseDocumentUpdating(TextEditProcessor, IDocument)}
+	 * does when executing the edits one by one.
+	 *
+	 * @param edit the root of the tree
+	 * @return the length delta of the tree
+	 * @since 3.6
+	 */
+	private int updateLengths(TextEdit edit) {
+		int delta= 0;
+		List<TextEdit> children= edit.internalGetChildren();
+		if (children != null) {
+			for (int i= children.size() - 1; i >= 0; i--) {
+				delta+= updateLengths(children.get(i));
+				edit.childDocumentUpdated();
+			}
+		}
+		if (considerEdit(edit)) {
+			if (delta != 0)
+				edit.adjustLength(delta);
+			String text= getNewText(edit);
+			int r= text != null ? text.length() - edit.getLength() : 0;
+			edit.fDelta= r;
+			if (r != 0)
+				edit.adjustLength(r);
+			delta+= r;
+		}
+		return delta;
+	}
+
 	UndoEdit executeUndo() throws BadLocationException {
 		UndoCollector collector= new UndoCollector(fRoot);
 		try {
@@ -235,4 +437,8 @@ public class TextEditProcessor {
 	private boolean updateRegions() {
 		return (fStyle & TextEdit.UPDATE_REGIONS) != 0;
 	}
+
+	private boolean singlePass() {
+		return (fStyle & TextEdit.SINGLE_PASS) != 0;
+	}
 }
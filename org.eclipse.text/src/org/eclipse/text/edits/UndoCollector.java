@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,6 +46,39 @@ class UndoCollector implements IDocumentListener {
 		}
 	}
 
+	/**
+	 * Starts collecting changes that are reported by {@link #changed(int, String, int)}
+	 * instead of being observed on a document.
+	 *
+	 * @since 3.6
+	 */
+	public void start() {
+		undo= new UndoEdit();
+	}
+
+	/**
+	 * Stops collecting changes that are reported by {@link #changed(int, String, int)}.
+	 *
+	 * @since 3.6
+	 */
+	public void stop() {
+		if (undo != null)
+			undo.defineRegion(fOffset, fLength);
+	}
+
+	/**
+	 * Records a change that is about to be applied to the document.
+	 *
+	 * @param offset the offset of the change
+	 * @param currentText the text that gets replaced
+	 * @param newLength the length of the replacing text
+	 * @since 3.6
+	 */
+	public void changed(int offset, String currentText, int newLength) {
+		addUndo(offset, currentText, newLength);
+		fLength+= newLength - currentText.length();
+	}
+
 	@Override
 	public void documentChanged(DocumentEvent event) {
 		fLength+= getDelta(event);
@@ -66,7 +99,11 @@ class UndoCollector implements IDocumentListener {
 		} catch (BadLocationException cannotHappen) {
 			Assert.isTrue(false, "Can't happen"); //$NON-NLS-1$
 		}
+		String newText= event.getText();
+		addUndo(offset, currentText, newText != null ? newText.length() : 0);
+	}
 
+	private void addUndo(int offset, String currentText, int newLength) {
 		/*
 		 * see https://bugs.eclipse.org/bugs/show_bug.cgi?id=93634
 		 * If the same string is replaced on many documents (e.g. rename
@@ -79,7 +116,6 @@ class UndoCollector implements IDocumentListener {
 		else
 			fLastCurrentText= currentText;
 
-		String newText= event.getText();
-		undo.add(new ReplaceEdit(offset, newText != null ? newText.length() : 0, currentText));
+		undo.add(new ReplaceEdit(offset, newLength, currentText));
 	}
 }
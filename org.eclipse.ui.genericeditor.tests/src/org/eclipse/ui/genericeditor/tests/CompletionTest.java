@@ -11,6 +11,7 @@
 package org.eclipse.ui.genericeditor.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -32,6 +33,7 @@ import org.eclipse.swt.widgets.Widget;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.genericeditor.tests.contributions.LongRunningBarContentAssistProcessor;
 import org.eclipse.ui.part.FileEditorInput;
 
 import org.eclipse.ui.texteditor.AbstractTextEditor;
@@ -75,13 +77,18 @@ public class CompletionTest {
 		editor.selectAndReveal(3, 0);
 		ContentAssistAction action = (ContentAssistAction) editor.getAction(ITextEditorActionConstants.CONTENT_ASSIST);
 		action.update();
+		long start = System.currentTimeMillis();
 		action.run();
+		assertTrue("Popup waited for the long running processor", System.currentTimeMillis() - start < LongRunningBarContentAssistProcessor.DELAY);
 		Set<Shell> afterShell = new HashSet<>(Arrays.asList(Display.getDefault().getShells()));
 		afterShell.removeAll(beforeShell);
 		assertEquals("No completion", 1, afterShell.size());
 		Shell completionShell= afterShell.iterator().next();
 		Table completionProposalList = findCompletionSelectionControl(completionShell);
 		assertEquals(1, completionProposalList.getItemCount());
+		// the asynchronous long running processor is dropped after the timeout
+		assertTrue("Long running processor not interrupted", waitUntilInterrupted(LongRunningBarContentAssistProcessor.DELAY));
+		assertEquals(1, completionProposalList.getItemCount());
 		TableItem completionProposalItem = completionProposalList.getItem(0);
 		assertEquals("s are good for a beer.", ((ICompletionProposal)completionProposalItem.getData()).getDisplayString());
 		// TODO find a way to actually trigger completion and verify result against Editor content
@@ -89,6 +96,24 @@ public class CompletionTest {
 		completionShell.close();
 	}
 
+	private boolean waitUntilInterrupted(long timeout) {
+		Display display = Display.getDefault();
+		long end = System.currentTimeMillis() + timeout;
+		while (!LongRunningBarContentAssistProcessor.wasInterrupted() && System.currentTimeMillis() < end) {
+			if (!display.readAndDispatch()) {
+				display.timerExec(100, () -> {
+					// wake up to check again
+				});
+				display.sleep();
+			}
+		}
+		// run the updates of the popup posted until the interruption
+		while (display.readAndDispatch()) {
+			// continue
+		}
+		return LongRunningBarContentAssistProcessor.wasInterrupted();
+	}
+
 	private Table findCompletionSelectionControl(Widget control) {
 		if (control instanceof Table) {
 			return (Table)control;
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.genericeditor.tests.contributions;
+
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+/**
+ * An asynchronous processor that takes longer than the content assist timeout, its proposal must
+ * never show up.
+ */
+public class LongRunningBarContentAssistProcessor extends BarContentAssistProcessor {
+
+	public static final String PROPOSAL = "s are also good for soft drink cocktails.";
+	public static final int DELAY = 5000;
+
+	private static volatile boolean interrupted;
+
+	/**
+	 * @return whether the last computation has been interrupted because it exceeded the timeout.
+	 */
+	public static boolean wasInterrupted() {
+		return interrupted;
+	}
+
+	@Override
+	public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+		interrupted = false;
+		try {
+			Thread.sleep(DELAY);
+		} catch (InterruptedException e) {
+			interrupted = true;
+			return new ICompletionProposal[0];
+		}
+		CompletionProposal proposal = new CompletionProposal(PROPOSAL, offset, 0, PROPOSAL.length());
+		return new ICompletionProposal[] { proposal };
+	}
+
+}
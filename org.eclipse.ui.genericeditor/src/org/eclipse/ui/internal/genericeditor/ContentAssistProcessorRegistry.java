@@ -55,18 +55,21 @@ public class ContentAssistProcessorRegistry {
 	private static class ContentAssistProcessorExtension implements IContentAssistProcessor {
 		private static final String CONTENT_TYPE_ATTRIBUTE = "contentType"; //$NON-NLS-1$
 		private static final String CLASS_ATTRIBUTE = "class"; //$NON-NLS-1$
+		private static final String ASYNCHRONOUS_ATTRIBUTE = "asynchronous"; //$NON-NLS-1$
 
 		private IConfigurationElement extension;
 		private IContentType targetContentType;
+		private boolean asynchronous;
 
 		private IContentAssistProcessor delegate;
 
 		private ContentAssistProcessorExtension(IConfigurationElement element) throws Exception {
 			this.extension = element;
 			this.targetContentType = Platform.getContentTypeManager().getContentType(element.getAttribute(CONTENT_TYPE_ATTRIBUTE));
+			this.asynchronous = Boolean.parseBoolean(element.getAttribute(ASYNCHRONOUS_ATTRIBUTE));
 		}
 
-		private IContentAssistProcessor getDelegate() {
+		private synchronized IContentAssistProcessor getDelegate() {
 			if (this.delegate == null) {
 				try {
 					this.delegate = (IContentAssistProcessor) extension.createExecutableExtension(CLASS_ATTRIBUTE);
@@ -93,6 +96,11 @@ public class ContentAssistProcessorRegistry {
 
 		@Override
 		public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+			if (this.asynchronous) {
+				// called outside the UI thread; editors only register the processors
+				// contributed for their content types, see getContentAssistProcessors
+				return getDelegate().computeCompletionProposals(viewer, offset);
+			}
 			if (isActive()) {
 				return getDelegate().computeCompletionProposals(viewer, offset);
 			}
@@ -175,6 +183,15 @@ public class ContentAssistProcessorRegistry {
 		return res;
 	}
 
+	/**
+	 * Tells whether the given contributed processor computes its proposals asynchronously.
+	 * @param processor a processor returned by {@link #getContentAssistProcessors(ISourceViewer, Set)}.
+	 * @return whether the contribution is marked as <code>asynchronous</code>.
+	 */
+	public boolean isAsynchronous(IContentAssistProcessor processor) {
+		return processor instanceof ContentAssistProcessorExtension && ((ContentAssistProcessorExtension) processor).asynchronous;
+	}
+
 	private void sync() {
 		Set<IConfigurationElement> toRemoveExtensions = new HashSet<>(this.extensions.keySet());
 		for (IConfigurationElement extension : Platform.getExtensionRegistry().getConfigurationElementsFor(EXTENSION_POINT_ID)) {
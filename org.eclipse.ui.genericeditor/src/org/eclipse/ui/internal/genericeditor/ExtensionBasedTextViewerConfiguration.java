@@ -50,7 +50,7 @@ public final class ExtensionBasedTextViewerConfiguration extends TextSourceViewe
 	private Set<IContentType> contentTypes;
 	private IDocument document;
 	private ContentAssistant contentAssistant;
-	private IContentAssistProcessor contentAssistProcessor;
+	private List<IContentAssistProcessor> contentAssistProcessors;
 
 	/**
 	 * 
@@ -95,13 +95,13 @@ public final class ExtensionBasedTextViewerConfiguration extends TextSourceViewe
 	@Override
 	public IContentAssistant getContentAssistant(ISourceViewer sourceViewer) {
 		ContentAssistProcessorRegistry registry= GenericEditorPlugin.getDefault().getContentAssistProcessorRegistry();
-		contentAssistProcessor = new CompositeContentAssistProcessor(registry.getContentAssistProcessors(sourceViewer, getContentTypes()));
+		contentAssistProcessors = registry.getContentAssistProcessors(sourceViewer, getContentTypes());
 		contentAssistant = new ContentAssistant();
 		contentAssistant.setContextInformationPopupOrientation(ContentAssistant.CONTEXT_INFO_BELOW);
 		contentAssistant.setProposalPopupOrientation(ContentAssistant.PROPOSAL_REMOVE);
 		contentAssistant.enableColoredLabels(true);
 		contentAssistant.enableAutoActivation(true);
-		contentAssistant.setContentAssistProcessor(contentAssistProcessor, IDocument.DEFAULT_CONTENT_TYPE);
+		setContentAssistProcessors(IDocument.DEFAULT_CONTENT_TYPE);
 		if (this.document != null) {
 			associateTokenContentTypes(this.document);
 		}
@@ -146,7 +146,16 @@ public final class ExtensionBasedTextViewerConfiguration extends TextSourceViewe
 			return;
 		}
 		for (String legalTokenContentType : document.getLegalContentTypes()) {
-			contentAssistant.setContentAssistProcessor(this.contentAssistProcessor, legalTokenContentType);
+			setContentAssistProcessors(legalTokenContentType);
+		}
+	}
+
+	private void setContentAssistProcessors(String contentType) {
+		ContentAssistProcessorRegistry registry= GenericEditorPlugin.getDefault().getContentAssistProcessorRegistry();
+		contentAssistant.setContentAssistProcessor(null, contentType);
+		for (IContentAssistProcessor processor : this.contentAssistProcessors) {
+			// asynchronous processors run concurrently, a slow one does not block the others
+			contentAssistant.addContentAssistProcessor(processor, contentType, registry.isAsynchronous(processor));
 		}
 	}
 